@@ -5,9 +5,11 @@ import cz.cesnet.shongo.ExpirationMap;
 import cz.cesnet.shongo.ExpirationSet;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.api.UserInformation;
+import cz.cesnet.shongo.api.rpc.RpcClient;
 import cz.cesnet.shongo.client.web.auth.UserPermission;
 import cz.cesnet.shongo.client.web.models.UnsupportedApiException;
 import cz.cesnet.shongo.client.web.resource.ResourcesUtilization;
+import cz.cesnet.shongo.controller.ControllerClient;
 import cz.cesnet.shongo.controller.ControllerReportSet;
 import cz.cesnet.shongo.controller.ObjectPermission;
 import cz.cesnet.shongo.controller.SystemPermission;
@@ -24,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 
 import javax.annotation.Resource;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.*;
 
 /**
@@ -40,6 +43,9 @@ public class Cache
      */
     private static final long USER_EXPIRATION_MINUTES = 5;
 
+    @Resource
+    private ControllerClient controllerClient;
+
     @Resource
     private AuthorizationService authorizationService;
 
@@ -437,6 +443,146 @@ public class Cache
         return result;
     }
 
+    /**
+     * Fetch data which are needed for listing of given {@code reservationRequests} and which aren't cached
+     * ({@link UserInformation}s, reused {@link ReservationRequestSummary}s and {@link ObjectPermission}s)
+     * in one request by {@link RpcClient.Batch}.
+     *
+     * @param securityToken               to be used for fetching
+     * @param userIds                     user-ids to be fetched
+     * @param reusedReservationRequestIds reservation-request-ids to be fetched
+     * @param reservationRequests         for which the {@link ObjectPermission}s should be fetched
+     * @return map of {@link ObjectPermission}s by reservation request identifier
+     */
+    public synchronized Map<String, Set<ObjectPermission>> fetchReservationRequestList(SecurityToken securityToken,
+            Collection<String> userIds, Collection<String> reusedReservationRequestIds,
+            Collection<ReservationRequestSummary> reservationRequests)
+    {
+        Set<String> missingUserIds = new HashSet<String>();
+        for (String userId : userIds) {
+            if (!userInformationByUserId.contains(userId)) {
+                missingUserIds.add(userId);
+            }
+        }
+        Set<String> missingReservationRequestIds = new HashSet<String>();
+        for (String reservationRequestId : reusedReservationRequestIds) {
+            if (!reservationRequestById.contains(reservationRequestId)) {
+                missingReservationRequestIds.add(reservationRequestId);
+            }
+        }
+        Map<String, Set<ObjectPermission>> permissionsByReservationRequestId =
+                new HashMap<String, Set<ObjectPermission>>();
+        Set<String> missingPermissionObjectIds = new HashSet<String>();
+        UserState userState = getUserState(securityToken);
+        for (ReservationRequestSummary reservationRequest : reservationRequests) {
+            String reservationRequestId = reservationRequest.getId();
+            Set<ObjectPermission> objectPermissions = userState.objectPermissionsByObject.get(reservationRequestId);
+            if (objectPermissions != null) {
+                permissionsByReservationRequestId.put(reservationRequestId, objectPermissions);
+            }
+            else {
+                missingPermissionObjectIds.add(reservationRequestId);
+            }
+        }
+
+        // Fetch not cached data in one request
+        RpcClient.Batch batch = controllerClient.createBatch();
+        if (!missingUserIds.isEmpty()) {
+            batch.getService(AuthorizationService.class).listUsers(new UserListRequest(securityToken, missingUserIds));
+        }
+        if (!missingReservationRequestIds.isEmpty()) {
+            ReservationRequestListRequest request = new ReservationRequestListRequest();
+            request.setSecurityToken(securityToken);
+            request.setReservationRequestIds(missingReservationRequestIds);
+            batch.getService(ReservationService.class).listReservationRequests(request);
+        }
+        if (!missingPermissionObjectIds.isEmpty()) {
+            batch.getService(AuthorizationService.class).listObjectPermissions(
+                    new ObjectPermissionListRequest(securityToken, missingPermissionObjectIds));
+        }
+        if (batch.size() == 0) {
+            return permissionsByReservationRequestId;
+        }
+        executeBatch(batch);
+
+        int index = 0;
+        if (!missingUserIds.isEmpty()) {
+            try {
+                @SuppressWarnings("unchecked")
+                ListResponse<UserInformation> response = (ListResponse<UserInformation>) getBatchResult(batch, index);
+                for (UserInformation userInformation : response.getItems()) {
+                    String userId = userInformation.getUserId();
+                    userInformationByUserId.put(userId, userInformation);
+                    missingUserIds.remove(userId);
+                }
+                if (missingUserIds.size() > 0) {
+                    throw new ControllerReportSet.UserNotExistsException(missingUserIds.iterator().next());
+                }
+            }
+            catch (ControllerReportSet.UserNotExistsException exception) {
+                // Fetch users separately to handle not existing ones
+                fetchUserInformation(securityToken, missingUserIds);
+            }
+            index++;
+        }
+        if (!missingReservationRequestIds.isEmpty()) {
+            @SuppressWarnings("unchecked")
+            ListResponse<ReservationRequestSummary> response =
+                    (ListResponse<ReservationRequestSummary>) getBatchResult(batch, index++);
+            for (ReservationRequestSummary reservationRequest : response) {
+                if (reservationRequest.isAllowCache()) {
+                    reservationRequestById.put(reservationRequest.getId(), reservationRequest);
+                }
+            }
+        }
+        if (!missingPermissionObjectIds.isEmpty()) {
+            @SuppressWarnings("unchecked")
+            Map<String, ObjectPermissionSet> permissionsByObject =
+                    (Map<String, ObjectPermissionSet>) getBatchResult(batch, index++);
+            for (Map.Entry<String, ObjectPermissionSet> entry : permissionsByObject.entrySet()) {
+                Set<ObjectPermission> objectPermissions = new HashSet<ObjectPermission>();
+                objectPermissions.addAll(entry.getValue().getObjectPermissions());
+                userState.objectPermissionsByObject.put(entry.getKey(), objectPermissions);
+                permissionsByReservationRequestId.put(entry.getKey(), objectPermissions);
+            }
+        }
+        return permissionsByReservationRequestId;
+    }
+
+    /**
+     * @param batch to be executed
+     */
+    private static void executeBatch(RpcClient.Batch batch)
+    {
+        try {
+            batch.execute();
+        }
+        catch (RuntimeException exception) {
+            throw exception;
+        }
+        catch (Exception exception) {
+            throw new UndeclaredThrowableException(exception);
+        }
+    }
+
+    /**
+     * @param batch which has been executed
+     * @param index of the call
+     * @return result of the call with given {@code index} in given {@code batch}
+     */
+    private static Object getBatchResult(RpcClient.Batch batch, int index)
+    {
+        try {
+            return batch.getResult(index);
+        }
+        catch (RuntimeException exception) {
+            throw exception;
+        }
+        catch (Exception exception) {
+            throw new UndeclaredThrowableException(exception);
+        }
+    }
+
     /**
      * @param securityToken to be used for fetching the {@link ResourceSummary}s
      * @param resourceIds   resource-ids to be fetched
@@ -455,7 +601,7 @@ public class Cache
         if (missingResourceIds != null) {
             ResourceListRequest request = new ResourceListRequest();
             request.setSecurityToken(securityToken);
-            for (String resourceId : request.getResourceIds()) {
+            for (String resourceId : missingResourceIds) {
                 request.addResourceId(resourceId);
             }
             ListResponse<ResourceSummary> response = resourceService.listResources(request);
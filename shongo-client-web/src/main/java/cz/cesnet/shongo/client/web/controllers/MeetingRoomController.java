@@ -23,16 +23,20 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
 import org.springframework.context.MessageSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Controller for listing reservation requests of meeting rooms.
@@ -133,12 +137,9 @@ public class MeetingRoomController {
             }
         }
         // TODO: fetch foreign users???
-        cache.fetchUserInformation(securityToken, userIds);
-        cache.fetchReservationRequests(securityToken, reusedReservationRequestIds);
-
-        // Get permissions for reservation requests
-        Map<String, Set<ObjectPermission>> permissionsByReservationRequestId =
-                cache.getReservationRequestsPermissions(securityToken, response.getItems());
+        // Fetch users, reused reservation requests and permissions for reservation requests
+        Map<String, Set<ObjectPermission>> permissionsByReservationRequestId = cache.fetchReservationRequestList(
+                securityToken, userIds, reusedReservationRequestIds, response.getItems());
 
         // Build response
         DateTimeFormatter formatter = DateTimeFormatter.getInstance(DateTimeFormatter.SHORT, locale, timeZone);
@@ -345,24 +346,46 @@ public class MeetingRoomController {
     @IgnoreDateTimeZone
     public  void handleReservationRequestListData(
             @PathVariable(value = "objectUriKey") String objectUriKey,
+            HttpServletRequest request,
             HttpServletResponse response) throws IOException {
         String resourceId = cache.getResourceIdWithUriKey(objectUriKey);
         if (Strings.isNullOrEmpty(resourceId)) {
             response.setStatus(HttpStatus.BAD_REQUEST.value());
             return;
         }
-        ReservationListRequest request = new ReservationListRequest();
-        request.addResourceId(resourceId);
+        ReservationListRequest listRequest = new ReservationListRequest();
+        listRequest.addResourceId(resourceId);
 
-        String iCalendarData = reservationService.getCachedResourceReservationsICalendar(request);
+        String iCalendarData = reservationService.getCachedResourceReservationsICalendar(listRequest);
         if (Strings.isNullOrEmpty(iCalendarData)) {
             response.setStatus(HttpStatus.BAD_REQUEST.value());
             return;
         }
+        byte[] data = iCalendarData.getBytes("UTF-8");
+
+        // Calendar clients poll the feed periodically and thus unchanged feed is not sent again
+        String eTag = "\"" + DigestUtils.md5DigestAsHex(data) + "\"";
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(eTag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
         response.setContentType("text/calendar");
         response.setHeader("Content-Disposition", "inline;filename=calendar.ics");
         ServletOutputStream out = response.getOutputStream();
-        out.write(iCalendarData.getBytes("UTF-8"));
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+            gzipOut.write(data);
+            gzipOut.finish();
+        }
+        else {
+            out.write(data);
+        }
         out.flush();
         out.close();
     }
@@ -147,14 +147,13 @@ public class ReservationListController
                 reusedReservationRequestIds.add(reusedReservationRequestId);
             }
         }
-        if (userId != null && UserInformation.isLocal(userId)) {
-            cache.fetchUserInformation(securityToken, userIds);
+        if (userId == null || !UserInformation.isLocal(userId)) {
+            userIds.clear();
         }
-        cache.fetchReservationRequests(securityToken, reusedReservationRequestIds);
 
-        // Get permissions for reservation requests
-        Map<String, Set<ObjectPermission>> permissionsByReservationRequestId =
-                cache.getReservationRequestsPermissions(securityToken, response.getItems());
+        // Fetch users, reused reservation requests and permissions for reservation requests
+        Map<String, Set<ObjectPermission>> permissionsByReservationRequestId = cache.fetchReservationRequestList(
+                securityToken, userIds, reusedReservationRequestIds, response.getItems());
 
         // Build response
         DateTimeFormatter formatter = DateTimeFormatter.getInstance(DateTimeFormatter.SHORT, locale, timeZone);
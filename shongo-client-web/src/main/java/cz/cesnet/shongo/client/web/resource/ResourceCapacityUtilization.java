@@ -1,6 +1,7 @@
 package cz.cesnet.shongo.client.web.resource;
 
 import cz.cesnet.shongo.controller.api.ReservationSummary;
+import cz.cesnet.shongo.controller.api.ResourceUtilization;
 import org.joda.time.Interval;
 
 import java.util.*;
@@ -10,6 +11,9 @@ import java.util.*;
  * <p/>
  * It can be initialized from list of {@link ResourceCapacityBucket}s (which contain all reservations in interval).
  * From the buckets we can determine maximum utilization or compute average utilization.
+ * <p/>
+ * It can be also initialized from {@link ResourceUtilization} aggregated by the controller (which contains only
+ * maximum and average utilization and thus it doesn't contain any buckets or reservations).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -27,6 +31,16 @@ public class ResourceCapacityUtilization
      */
     private List<ReservationSummary> reservations;
 
+    /**
+     * Maximum utilized license count.
+     */
+    private int peakLicenseCount;
+
+    /**
+     * Average utilized license count (computed only from utilized {@link #buckets}).
+     */
+    private double averageLicenseCount;
+
     /**
      * Constructor.
      *
@@ -38,6 +52,51 @@ public class ResourceCapacityUtilization
 
         // Sort buckets (to be able to determine maximum utilization)
         Collections.sort(this.buckets);
+
+        // Compute maximum and average utilization
+        double totalLicenseCount = 0;
+        int bucketCount = 0;
+        for (ResourceCapacityBucket bucket : this.buckets) {
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            totalLicenseCount += bucket.getLicenseCount();
+            bucketCount++;
+        }
+        ResourceCapacityBucket peakBucket = getPeakBucket();
+        if (peakBucket != null) {
+            this.peakLicenseCount = peakBucket.getLicenseCount();
+        }
+        if (bucketCount > 0) {
+            this.averageLicenseCount = totalLicenseCount / (double) bucketCount;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param resourceUtilization from which the maximum and average utilization should be taken
+     */
+    public ResourceCapacityUtilization(ResourceUtilization resourceUtilization)
+    {
+        this.peakLicenseCount = resourceUtilization.getPeakLicenseCount();
+        this.averageLicenseCount = resourceUtilization.getAverageLicenseCount();
+    }
+
+    /**
+     * @return {@link #peakLicenseCount}
+     */
+    public int getPeakLicenseCount()
+    {
+        return peakLicenseCount;
+    }
+
+    /**
+     * @return {@link #averageLicenseCount}
+     */
+    public double getAverageLicenseCount()
+    {
+        return averageLicenseCount;
     }
 
     /**
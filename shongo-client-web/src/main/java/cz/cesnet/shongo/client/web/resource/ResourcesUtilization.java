@@ -4,6 +4,7 @@ import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.controller.api.*;
 import cz.cesnet.shongo.controller.api.request.ReservationListRequest;
 import cz.cesnet.shongo.controller.api.request.ResourceListRequest;
+import cz.cesnet.shongo.controller.api.request.ResourceUtilizationRequest;
 import cz.cesnet.shongo.controller.api.rpc.ReservationService;
 import cz.cesnet.shongo.controller.api.rpc.ResourceService;
 import cz.cesnet.shongo.util.RangeSet;
@@ -29,6 +30,11 @@ public class ResourcesUtilization
      */
     private final SecurityToken securityToken;
 
+    /**
+     * {@link ResourceService} for retrieving aggregated utilization.
+     */
+    private final ResourceService resourceService;
+
     /**
      * {@link ReservationService} for retrieving reservations.
      */
@@ -51,27 +57,17 @@ public class ResourcesUtilization
     private Map<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> resourceCapacityUtilizationMap =
             new HashMap<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>>();
 
-    /**
-     * Map of cached {@link ReservationSummary}s for {@link ResourceCapacity}.
-     */
-    private Map<ResourceCapacity, RangeSet<ReservationSummary, DateTime>> reservationSetMap =
-            new HashMap<ResourceCapacity, RangeSet<ReservationSummary, DateTime>>();
-
-    /**
-     * {@link Interval} which is already cached in {@link #reservationSetMap}.
-     */
-    private Interval reservationInterval;
-
     /**
      * Constructor.
      *
      * @param securityToken sets the {@link #securityToken}
-     * @param resources     to be used for fetching {@link #resourceCapacities}
+     * @param resources     sets the {@link #resourceService}
      * @param reservations  sets the {@link #reservationService}
      */
     public ResourcesUtilization(SecurityToken securityToken, ResourceService resources, ReservationService reservations)
     {
         this.securityToken = securityToken;
+        this.resourceService = resources;
         this.reservationService = reservations;
 
         // Fetch ResourceCapacities for all accessible resources
@@ -121,6 +117,9 @@ public class ResourcesUtilization
     }
 
     /**
+     * The utilization is aggregated by the controller (only peak and average utilization are computed and thus
+     * the returned {@link ResourceCapacityUtilization}s don't contain reservations).
+     *
      * @param interval interval to be returned
      * @param period   by which the {@code interval} should be split and for each part should be {@link ResourceCapacityUtilization} computed
      * @return map of {@link ResourceCapacityUtilization} by {@link ResourceCapacity}s and by {@link Interval}s
@@ -130,6 +129,8 @@ public class ResourcesUtilization
     {
         Map<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> utilizationsByInterval =
                 new LinkedHashMap<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>>();
+        Map<Long, Map<ResourceCapacity, ResourceCapacityUtilization>> utilizationsByStart =
+                new HashMap<Long, Map<ResourceCapacity, ResourceCapacityUtilization>>();
         DateTime start = interval.getStart();
         DateTime maxEnd = interval.getEnd();
         while (start.isBefore(maxEnd)) {
@@ -137,62 +138,42 @@ public class ResourcesUtilization
             if (end.isAfter(maxEnd)) {
                 end = maxEnd;
             }
-            Interval utilizationInterval = new Interval(start, end);
             Map<ResourceCapacity, ResourceCapacityUtilization> utilizations =
                     new HashMap<ResourceCapacity, ResourceCapacityUtilization>();
-            for (ResourceCapacity resourceCapacity : resourceCapacities) {
-                ResourceCapacityUtilization utilization =
-                        getUtilization(resourceCapacity, utilizationInterval, true, interval);
-                if (utilization != null) {
-                    utilizations.put(resourceCapacity, utilization);
-                }
-            }
-            utilizationsByInterval.put(utilizationInterval, utilizations);
+            utilizationsByInterval.put(new Interval(start, end), utilizations);
+            utilizationsByStart.put(start.getMillis(), utilizations);
             start = end;
         }
-        return utilizationsByInterval;
-    }
-
-    /**
-     * @param resourceCapacity
-     * @param interval
-     * @return {@link ResourceCapacityUtilization} for given {@code resourceCapacity} and {@code interval}
-     */
-    public ResourceCapacityUtilization getUtilization(ResourceCapacity resourceCapacity, Interval interval)
-    {
-        return getUtilization(resourceCapacity, interval, false, interval);
-    }
-
-    /**
-     * @param resourceCapacity to be added to the {@link #resourceCapacities} and {@link #resourceCapacityMap}
-     */
-    private void addResourceCapacity(ResourceCapacity resourceCapacity)
-    {
-        if (resourceCapacities.add(resourceCapacity)) {
-            String resourceId = resourceCapacity.getResourceId();
-            Class<? extends ResourceCapacity> resourceCapacityClass = resourceCapacity.getClass();
+        if (resourceCapacities.isEmpty()) {
+            return utilizationsByInterval;
+        }
 
-            Map<Class<? extends ResourceCapacity>, ResourceCapacity> resourceCapacitiesByClass =
-                    resourceCapacityMap.get(resourceId);
-            if (resourceCapacitiesByClass == null) {
-                resourceCapacitiesByClass = new HashMap<Class<? extends ResourceCapacity>, ResourceCapacity>();
-                resourceCapacityMap.put(resourceId, resourceCapacitiesByClass);
+        // Fetch utilization for all resource capacities
+        logger.info("Loading utilization for {} by {}...", interval, period);
+        ResourceUtilizationRequest request = new ResourceUtilizationRequest(securityToken);
+        for (ResourceCapacity resourceCapacity : resourceCapacities) {
+            request.addResourceId(resourceCapacity.getResourceId());
+        }
+        request.setInterval(interval);
+        request.setPeriod(period);
+        for (ResourceUtilization resourceUtilization : resourceService.listResourceUtilization(request)) {
+            ResourceCapacity resourceCapacity = getResourceCapacity(resourceUtilization.getResourceId(),
+                    getResourceCapacityClass(resourceUtilization.getReservationType()));
+            Map<ResourceCapacity, ResourceCapacityUtilization> utilizations =
+                    utilizationsByStart.get(resourceUtilization.getInterval().getStartMillis());
+            if (resourceCapacity != null && utilizations != null) {
+                utilizations.put(resourceCapacity, new ResourceCapacityUtilization(resourceUtilization));
             }
-            resourceCapacitiesByClass.put(resourceCapacityClass, resourceCapacity);
         }
+        return utilizationsByInterval;
     }
 
     /**
-     * Can be used for bulk fetching of {@link ReservationSummary}s by use {@code fetchAll} and {@code fetchInterval}.
-     *
      * @param resourceCapacity
      * @param interval
-     * @param fetchAll
-     * @param fetchInterval
      * @return {@link ResourceCapacityUtilization} for given {@code resourceCapacity} and {@code interval}
      */
-    private ResourceCapacityUtilization getUtilization(ResourceCapacity resourceCapacity, Interval interval,
-            boolean fetchAll, Interval fetchInterval)
+    public ResourceCapacityUtilization getUtilization(ResourceCapacity resourceCapacity, Interval interval)
     {
         // Try to return cached utilization
         Map<ResourceCapacity, ResourceCapacityUtilization> utilizations = resourceCapacityUtilizationMap.get(interval);
@@ -204,23 +185,13 @@ public class ResourcesUtilization
             return utilizations.get(resourceCapacity);
         }
 
-        // Fetch reservations
-        RangeSet<ReservationSummary, DateTime> reservations;
-        if (fetchAll) {
-            reservations = getReservationsWithFetchAll(resourceCapacity, fetchInterval);
-        }
-        else {
-            reservations = getReservations(resourceCapacity, fetchInterval);
-        }
-
         // Prepare new utilization
         ResourceCapacityUtilization utilization = null;
-        if (reservations != null) {
-            Collection<ResourceCapacityBucket> buckets =
-                    reservations.getBuckets(interval.getStart(), interval.getEnd(), ResourceCapacityBucket.class);
-            if (buckets.size() > 0) {
-                utilization = new ResourceCapacityUtilization(buckets);
-            }
+        RangeSet<ReservationSummary, DateTime> reservations = getReservations(resourceCapacity, interval);
+        Collection<ResourceCapacityBucket> buckets =
+                reservations.getBuckets(interval.getStart(), interval.getEnd(), ResourceCapacityBucket.class);
+        if (buckets.size() > 0) {
+            utilization = new ResourceCapacityUtilization(buckets);
         }
 
         // Store the utilization to cache and return it
@@ -229,81 +200,27 @@ public class ResourcesUtilization
     }
 
     /**
-     * Get {@link RangeSet} for given {@code resourceCapacity}
-     * by fetching {@link ReservationSummary}s for all {@link #resourceCapacities}.
-     * <p/>
-     * The newly fetched {@link ReservationSummary}s will stored in {@link #reservationSetMap}
-     * (because all {@link ResourceCapacity}s will be updated).
-     *
-     * @param resourceCapacity
-     * @param interval
-     * @return {@link RangeSet} of {@link ReservationSummary}
+     * @param resourceCapacity to be added to the {@link #resourceCapacities} and {@link #resourceCapacityMap}
      */
-    private synchronized RangeSet<ReservationSummary, DateTime> getReservationsWithFetchAll(
-            ResourceCapacity resourceCapacity, Interval interval)
+    private void addResourceCapacity(ResourceCapacity resourceCapacity)
     {
-        // Try to return cached reservations
-        if (this.reservationInterval != null && this.reservationInterval.contains(interval)) {
-            return this.reservationSetMap.get(resourceCapacity);
-        }
-        DateTime start = interval.getStart();
-        DateTime end = interval.getEnd();
-
-        // Expand reservation cache at start
-        if (reservationInterval != null &&
-                reservationInterval.isAfter(start) && reservationInterval.contains(end)) {
-            interval = new Interval(start, reservationInterval.getStart());
-            reservationInterval = new Interval(start, reservationInterval.getEnd());
-        }
-        // Expand reservation cache at end
-        else if (reservationInterval != null &&
-                reservationInterval.isBefore(end) && reservationInterval.contains(start)) {
-            interval = new Interval(reservationInterval.getEnd(), end);
-            reservationInterval = new Interval(reservationInterval.getStart(), end);
-        }
-        // Load the whole reservation cache
-        else {
-            logger.info("Clearing cached reservations...");
-            reservationSetMap.clear();
-            reservationInterval = interval;
-        }
+        if (resourceCapacities.add(resourceCapacity)) {
+            String resourceId = resourceCapacity.getResourceId();
+            Class<? extends ResourceCapacity> resourceCapacityClass = resourceCapacity.getClass();
 
-        // Fetch reservations for all resource capacities
-        logger.info("Loading reservations for {}...", interval);
-        ReservationListRequest reservationListRequest = new ReservationListRequest(securityToken);
-        for (ResourceCapacity currentResourceCapacity : resourceCapacities) {
-            reservationListRequest.addResourceId(currentResourceCapacity.getResourceId());
-        }
-        reservationListRequest.addReservationType(ReservationSummary.Type.ROOM);
-        reservationListRequest.addReservationType(ReservationSummary.Type.RECORDING_SERVICE);
-        reservationListRequest.setInterval(interval);
-        for (ReservationSummary reservation : reservationService.listReservations(reservationListRequest)) {
-            Interval reservationSlot = reservation.getSlot();
-            String reservationResourceId = reservation.getResourceId();
-            ResourceCapacity reservationResourceCapacity = getResourceCapacity(reservationResourceId, reservation);
-            RangeSet<ReservationSummary, DateTime> reservationSet = reservationSetMap.get(reservationResourceCapacity);
-            if (reservationSet == null) {
-                reservationSet = new RangeSet<ReservationSummary, DateTime>()
-                {
-                    @Override
-                    protected Bucket<DateTime, ReservationSummary> createBucket(DateTime rangeValue)
-                    {
-                        return new ResourceCapacityBucket(rangeValue);
-                    }
-                };
-                reservationSetMap.put(reservationResourceCapacity, reservationSet);
+            Map<Class<? extends ResourceCapacity>, ResourceCapacity> resourceCapacitiesByClass =
+                    resourceCapacityMap.get(resourceId);
+            if (resourceCapacitiesByClass == null) {
+                resourceCapacitiesByClass = new HashMap<Class<? extends ResourceCapacity>, ResourceCapacity>();
+                resourceCapacityMap.put(resourceId, resourceCapacitiesByClass);
             }
-            reservationSet.add(reservation, reservationSlot.getStart(), reservationSlot.getEnd());
+            resourceCapacitiesByClass.put(resourceCapacityClass, resourceCapacity);
         }
-        return reservationSetMap.get(resourceCapacity);
     }
 
     /**
      * Get {@link RangeSet} for given {@code resourceCapacity}
      * by fetching {@link ReservationSummary}s only for given {@code resourceCapacity}.
-     * <p/>
-     * The newly fetched {@link ReservationSummary}s won't be stored in {@link #reservationSetMap}
-     * (because all {@link ResourceCapacity} won't be updated).
      *
      * @param resourceCapacity
      * @param interval
@@ -312,13 +229,6 @@ public class ResourcesUtilization
     private RangeSet<ReservationSummary, DateTime> getReservations(ResourceCapacity resourceCapacity,
             Interval interval)
     {
-        // Try to return cached reservations
-        synchronized (this) {
-            if (this.reservationInterval != null && this.reservationInterval.contains(interval)) {
-                return this.reservationSetMap.get(resourceCapacity);
-            }
-        }
-
         // Fetch reservations for single resource capacity
         RangeSet<ReservationSummary, DateTime> reservationSet = new RangeSet<ReservationSummary, DateTime>()
         {
@@ -339,16 +249,6 @@ public class ResourcesUtilization
         return reservationSet;
     }
 
-    /**
-     * @param resourceId
-     * @param reservation
-     * @return {@link ResourceCapacity} for given {@code resourceId} and {@code reservation}
-     */
-    private ResourceCapacity getResourceCapacity(String resourceId, ReservationSummary reservation)
-    {
-        return getResourceCapacity(resourceId, getResourceCapacityClass(reservation.getType()));
-    }
-
     /**
      * @param reservationType
      * @return class of {@link ResourceCapacity} for given {@code reservationType}
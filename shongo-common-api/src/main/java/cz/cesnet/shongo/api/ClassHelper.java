@@ -3,8 +3,20 @@ package cz.cesnet.shongo.api;
 import cz.cesnet.shongo.CommonReportSet;
 import cz.cesnet.shongo.TodoImplementException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 /**
  * Class helper for API types. Converts long class names to short class names and vice versa.
@@ -13,6 +25,13 @@ import java.util.*;
  */
 public class ClassHelper
 {
+    private static Logger logger = LoggerFactory.getLogger(ClassHelper.class);
+
+    /**
+     * Base package of all API classes.
+     */
+    private static final String BASE_PACKAGE = "cz.cesnet.shongo";
+
     /**
      * Get short name from class.
      *
@@ -37,7 +56,17 @@ public class ClassHelper
     /**
      * {@link Class} by API short name.
      */
-    static private Map<String, Class> classByShortNameCache = new HashMap<String, Class>();
+    static private Map<String, Class> classByShortNameCache = new ConcurrentHashMap<String, Class>();
+
+    /**
+     * Full class name by API short name for all classes in API packages (initialized only once from classpath).
+     */
+    static private Map<String, String> classNameByShortName;
+
+    /**
+     * Default {@link Constructor} by {@link Class} (the lookup of constructors is slow and it copies them).
+     */
+    static private Map<Class, Constructor> constructorByClassCache = new ConcurrentHashMap<Class, Constructor>();
 
     /**
      * Set short name for given {@code type}.
@@ -48,10 +77,9 @@ public class ClassHelper
      */
     public static void setClassShortName(Class type, String typeShortName) throws RuntimeException
     {
-        if (classByShortNameCache.containsKey(typeShortName)) {
+        if (classByShortNameCache.putIfAbsent(typeShortName, type) != null) {
             throw new RuntimeException("Short name '" + typeShortName + "' is already set.");
         }
-        classByShortNameCache.put(typeShortName, type);
     }
 
     /**
@@ -72,21 +100,148 @@ public class ClassHelper
     {
         Class type = classByShortNameCache.get(shortClassName);
         if (type == null) {
-            shortClassName = shortClassName.replace(".", "$");
-            for (String item : getPackages()) {
-                try {
-                    Class clazz = Class.forName(item + "." + shortClassName);
-                    return clazz;
+            String className = getClassNameByShortName().get(shortClassName);
+            if (className != null) {
+                type = Class.forName(className);
+            }
+            else {
+                String binaryShortClassName = shortClassName.replace(".", "$");
+                for (String item : getPackages()) {
+                    try {
+                        type = Class.forName(item + "." + binaryShortClassName);
+                        break;
+                    }
+                    catch (ClassNotFoundException exception) {
+                    }
                 }
-                catch (ClassNotFoundException exception) {
+                if (type == null) {
+                    type = Class.forName(BASE_PACKAGE + "." + binaryShortClassName);
                 }
             }
-            type = Class.forName("cz.cesnet.shongo." + shortClassName);
             classByShortNameCache.put(shortClassName, type);
         }
         return type;
     }
 
+    /**
+     * @return {@link #classNameByShortName}
+     */
+    private static synchronized Map<String, String> getClassNameByShortName()
+    {
+        if (classNameByShortName == null) {
+            Map<String, String> classNames = new HashMap<String, String>();
+            Set<String> ambiguousShortNames = new HashSet<String>();
+            try {
+                ClassLoader classLoader = ClassHelper.class.getClassLoader();
+                String basePath = BASE_PACKAGE.replace(".", "/");
+                Enumeration<URL> resources = classLoader.getResources(basePath);
+                while (resources.hasMoreElements()) {
+                    URL resource = resources.nextElement();
+                    List<String> resourceClassNames = new LinkedList<String>();
+                    if ("file".equals(resource.getProtocol())) {
+                        listClassNames(new File(resource.toURI()), BASE_PACKAGE, resourceClassNames);
+                    }
+                    else if ("jar".equals(resource.getProtocol())) {
+                        JarURLConnection connection = (JarURLConnection) resource.openConnection();
+                        JarFile jarFile = new JarFile(new File(connection.getJarFileURL().toURI()));
+                        try {
+                            Enumeration<JarEntry> entries = jarFile.entries();
+                            while (entries.hasMoreElements()) {
+                                String entryName = entries.nextElement().getName();
+                                if (entryName.startsWith(basePath + "/") && entryName.endsWith(".class")) {
+                                    resourceClassNames.add(entryName.substring(0, entryName.length() - 6)
+                                            .replace("/", "."));
+                                }
+                            }
+                        }
+                        finally {
+                            jarFile.close();
+                        }
+                    }
+                    for (String className : resourceClassNames) {
+                        String shortName = getIndexedShortName(className);
+                        if (shortName == null) {
+                            continue;
+                        }
+                        String existingClassName = classNames.put(shortName, className);
+                        if (existingClassName != null && !existingClassName.equals(className)) {
+                            ambiguousShortNames.add(shortName);
+                        }
+                    }
+                }
+            }
+            catch (IOException exception) {
+                logger.warn("Failed to index API classes, short names will be resolved by packages.", exception);
+            }
+            catch (URISyntaxException exception) {
+                logger.warn("Failed to index API classes, short names will be resolved by packages.", exception);
+            }
+            // Ambiguous short names are resolved by packages
+            for (String shortName : ambiguousShortNames) {
+                classNames.remove(shortName);
+            }
+            classNameByShortName = classNames;
+        }
+        return classNameByShortName;
+    }
+
+    /**
+     * @param directory   in which the classes should be listed (recursively)
+     * @param packageName of classes in the {@code directory}
+     * @param classNames  to which the full class names are added
+     */
+    private static void listClassNames(File directory, String packageName, List<String> classNames)
+    {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String fileName = file.getName();
+            if (file.isDirectory()) {
+                listClassNames(file, packageName + "." + fileName, classNames);
+            }
+            else if (fileName.endsWith(".class")) {
+                classNames.add(packageName + "." + fileName.substring(0, fileName.length() - 6));
+            }
+        }
+    }
+
+    /**
+     * @param className full class name
+     * @return short name for given {@code className} when it should be indexed, {@code null} otherwise
+     */
+    private static String getIndexedShortName(String className)
+    {
+        int packageEnd = className.lastIndexOf(".");
+        String packageName = className.substring(0, packageEnd);
+        String shortName = className.substring(packageEnd + 1);
+        if (!isApiPackage(packageName) && !packageName.equals(BASE_PACKAGE)) {
+            return null;
+        }
+        String[] names = shortName.split("\\$");
+        if (names.length > 2) {
+            return null;
+        }
+        for (String name : names) {
+            // Skip anonymous and local classes
+            if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+                return null;
+            }
+        }
+        return shortName.replace("$", ".");
+    }
+
+    /**
+     * @param packageName
+     * @return true whether given {@code packageName} is name of API package, false otherwise
+     */
+    private static boolean isApiPackage(String packageName)
+    {
+        return packageName.startsWith(BASE_PACKAGE + ".")
+                && (packageName.endsWith(".api") || packageName.endsWith("api.request"));
+    }
+
     /**
      * Gets all packages named cz.cesnet.shongo.*[.api/.api.request]
      *
@@ -98,7 +253,7 @@ public class ClassHelper
             ArrayList<String> list = new ArrayList<String>();
             for (Package item : Package.getPackages()) {
                 String name = item.getName();
-                if (name.startsWith("cz.cesnet.shongo.") && ((name.endsWith(".api") || name.endsWith("api.request")))) {
+                if (isApiPackage(name)) {
                     list.add(name);
                 }
             }
@@ -117,7 +272,13 @@ public class ClassHelper
     {
         T instance;
         try {
-            instance = type.getDeclaredConstructor().newInstance();
+            @SuppressWarnings("unchecked")
+            Constructor<T> constructor = constructorByClassCache.get(type);
+            if (constructor == null) {
+                constructor = type.getDeclaredConstructor();
+                constructorByClassCache.put(type, constructor);
+            }
+            instance = constructor.newInstance();
         }
         catch (Exception exception) {
             throw new CommonReportSet.ClassInstantiationErrorException(exception, type.getSimpleName());
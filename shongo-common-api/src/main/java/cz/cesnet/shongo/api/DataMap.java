@@ -20,7 +20,7 @@ public class DataMap
     public DataMap(ComplexType complexType)
     {
         this.complexType = complexType;
-        this.data = new HashMap<String, Object>();
+        this.data = new PropertyMap();
     }
 
     public DataMap(ComplexType complexType, Map<String, Object> data)
@@ -139,7 +139,9 @@ public class DataMap
 
     public void set(String property, ComplexType complexType)
     {
-        setNotNull(property, Converter.convertComplexTypeToMap(complexType));
+        // Nested complex type is converted when it is written (as items of collections), so the whole tree
+        // of maps is not built before serialization
+        setNotNull(property, complexType);
     }
 
     public void set(String property, AtomicType atomicType)
@@ -494,5 +496,135 @@ public class DataMap
         return data.toString();
     }
 
+    /**
+     * {@link Map} of properties which are set when a {@link ComplexType} is being serialized. Properties are kept
+     * in arrays in the order in which they were set, because they are only iterated once by the serializer and
+     * a {@link HashMap} with its table and nodes would be built for each serialized object.
+     */
+    private static class PropertyMap extends AbstractMap<String, Object>
+    {
+        private String[] names = new String[8];
+
+        private Object[] values = new Object[8];
+
+        private int size = 0;
+
+        private int indexOf(Object name)
+        {
+            for (int index = 0; index < size; index++) {
+                if (names[index].equals(name)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        private void removeAt(int index)
+        {
+            size--;
+            System.arraycopy(names, index + 1, names, index, size - index);
+            System.arraycopy(values, index + 1, values, index, size - index);
+            names[size] = null;
+            values[size] = null;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object name)
+        {
+            return indexOf(name) != -1;
+        }
+
+        @Override
+        public Object get(Object name)
+        {
+            int index = indexOf(name);
+            return (index != -1 ? values[index] : null);
+        }
+
+        @Override
+        public Object put(String name, Object value)
+        {
+            int index = indexOf(name);
+            if (index != -1) {
+                Object oldValue = values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            names[size] = name;
+            values[size] = value;
+            size++;
+            return null;
+        }
 
+        @Override
+        public Object remove(Object name)
+        {
+            int index = indexOf(name);
+            if (index == -1) {
+                return null;
+            }
+            Object oldValue = values[index];
+            removeAt(index);
+            return oldValue;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet()
+        {
+            return new AbstractSet<Entry<String, Object>>()
+            {
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator()
+                {
+                    return new Iterator<Entry<String, Object>>()
+                    {
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return index < size;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next()
+                        {
+                            if (index >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(
+                                    names[index], values[index]);
+                            index++;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove()
+                        {
+                            if (index == 0) {
+                                throw new IllegalStateException();
+                            }
+                            removeAt(--index);
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
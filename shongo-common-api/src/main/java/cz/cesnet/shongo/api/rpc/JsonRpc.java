@@ -0,0 +1,276 @@
+package cz.cesnet.shongo.api.rpc;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.cesnet.shongo.TodoImplementException;
+import cz.cesnet.shongo.api.AtomicType;
+import cz.cesnet.shongo.api.ComplexType;
+import cz.cesnet.shongo.api.Converter;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+import org.joda.time.Period;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * JSON-RPC 2.0 encoding of API requests and responses. Values are encoded in the same way as in XML-RPC
+ * (see {@link TypeFactory}), i.e., {@link ComplexType}s as objects with "class" property and {@link Enum}s,
+ * {@link AtomicType}s and date/time values as strings.
+ */
+public class JsonRpc
+{
+    /**
+     * Content type of JSON-RPC requests and responses.
+     */
+    public static final String CONTENT_TYPE = "application/json";
+
+    /**
+     * Version of JSON-RPC protocol.
+     */
+    public static final String VERSION = "2.0";
+
+    /**
+     * @see ObjectMapper
+     */
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * @param contentType of HTTP request or response
+     * @return true whether given {@code contentType} is {@link #CONTENT_TYPE}, false otherwise
+     */
+    public static boolean isContentType(String contentType)
+    {
+        return contentType != null && contentType.toLowerCase().startsWith(CONTENT_TYPE);
+    }
+
+    /**
+     * @param inputStream from which the JSON should be read
+     * @return read {@link JsonNode}
+     * @throws IOException
+     */
+    public static JsonNode read(InputStream inputStream) throws IOException
+    {
+        return jsonMapper.readTree(inputStream);
+    }
+
+    /**
+     * Write JSON-RPC request.
+     *
+     * @param outputStream to which the request should be written
+     * @param id           of the request
+     * @param method       name of the requested method
+     * @param params       parameters for the {@code method}
+     * @throws IOException
+     */
+    public static void writeRequest(OutputStream outputStream, Long id, String method, Object[] params)
+            throws IOException
+    {
+        JsonGenerator generator = jsonMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("jsonrpc", VERSION);
+            generator.writeStringField("method", method);
+            generator.writeFieldName("params");
+            generator.writeStartArray();
+            if (params != null) {
+                for (Object param : params) {
+                    writeValue(generator, param);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("id", id);
+            generator.writeEndObject();
+        }
+        finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * Write successful JSON-RPC response.
+     *
+     * @param outputStream to which the response should be written
+     * @param id           of the request
+     * @param result       of the request
+     * @throws IOException
+     */
+    public static void writeResult(OutputStream outputStream, JsonNode id, Object result) throws IOException
+    {
+        JsonGenerator generator = jsonMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("jsonrpc", VERSION);
+            generator.writeFieldName("result");
+            writeValue(generator, result);
+            generator.writeFieldName("id");
+            generator.writeTree(id);
+            generator.writeEndObject();
+        }
+        finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * Write failed JSON-RPC response.
+     *
+     * @param outputStream to which the response should be written
+     * @param id           of the request
+     * @param code         fault code
+     * @param message      fault string (see {@link cz.cesnet.shongo.report.ApiFaultString})
+     * @throws IOException
+     */
+    public static void writeError(OutputStream outputStream, JsonNode id, int code, String message)
+            throws IOException
+    {
+        JsonGenerator generator = jsonMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("jsonrpc", VERSION);
+            generator.writeObjectFieldStart("error");
+            generator.writeNumberField("code", code);
+            generator.writeStringField("message", message);
+            generator.writeEndObject();
+            generator.writeFieldName("id");
+            generator.writeTree(id);
+            generator.writeEndObject();
+        }
+        finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * @param generator to which the {@code value} should be written
+     * @param value     to be written
+     * @throws IOException
+     */
+    public static void writeValue(JsonGenerator generator, Object value) throws IOException
+    {
+        if (value == null) {
+            generator.writeNull();
+        }
+        else if (value instanceof String) {
+            generator.writeString((String) value);
+        }
+        else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            generator.writeNumber(((Number) value).longValue());
+        }
+        else if (value instanceof Number) {
+            generator.writeNumber(((Number) value).doubleValue());
+        }
+        else if (value instanceof Class) {
+            generator.writeString(Converter.convertClassToString((Class) value));
+        }
+        else if (value instanceof Enum) {
+            generator.writeString(Converter.convertEnumToString((Enum) value));
+        }
+        else if (value instanceof DateTime) {
+            generator.writeString(Converter.convertDateTimeToString((DateTime) value));
+        }
+        else if (value instanceof LocalDate) {
+            generator.writeString(Converter.convertLocalDateToString((LocalDate) value));
+        }
+        else if (value instanceof Period) {
+            generator.writeString(Converter.convertPeriodToString((Period) value));
+        }
+        else if (value instanceof Interval) {
+            generator.writeString(Converter.convertIntervalToString((Interval) value));
+        }
+        else if (value instanceof AtomicType) {
+            generator.writeString(Converter.convertAtomicTypeToString((AtomicType) value));
+        }
+        else if (value instanceof ComplexType) {
+            writeValue(generator, Converter.convertComplexTypeToMap((ComplexType) value));
+        }
+        else if (value instanceof byte[]) {
+            generator.writeBinary((byte[]) value);
+        }
+        else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Object entryObject : ((Map) value).entrySet()) {
+                Map.Entry entry = (Map.Entry) entryObject;
+                generator.writeFieldName(entry.getKey().toString());
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        }
+        else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object item : (Collection) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        }
+        else if (value instanceof Object[]) {
+            generator.writeStartArray();
+            for (Object item : (Object[]) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        }
+        else {
+            throw new TodoImplementException(value.getClass());
+        }
+    }
+
+    /**
+     * @param jsonNode to be read
+     * @return value from given {@code jsonNode} (in the same form as from XML-RPC, e.g., arrays as {@code Object[]})
+     */
+    public static Object readValue(JsonNode jsonNode)
+    {
+        if (jsonNode == null || jsonNode.isNull()) {
+            return null;
+        }
+        else if (jsonNode.isTextual()) {
+            return jsonNode.textValue();
+        }
+        else if (jsonNode.isBoolean()) {
+            return jsonNode.booleanValue();
+        }
+        else if (jsonNode.isIntegralNumber()) {
+            if (jsonNode.canConvertToInt()) {
+                return jsonNode.intValue();
+            }
+            return jsonNode.longValue();
+        }
+        else if (jsonNode.isNumber()) {
+            return jsonNode.doubleValue();
+        }
+        else if (jsonNode.isArray()) {
+            Object[] array = new Object[jsonNode.size()];
+            for (int index = 0; index < array.length; index++) {
+                array[index] = readValue(jsonNode.get(index));
+            }
+            return array;
+        }
+        else if (jsonNode.isObject()) {
+            // Empty object means null
+            if (jsonNode.size() == 0) {
+                return null;
+            }
+            Map<String, Object> map = new HashMap<String, Object>();
+            Iterator<Map.Entry<String, JsonNode>> iterator = jsonNode.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> entry = iterator.next();
+                map.put(entry.getKey(), readValue(entry.getValue()));
+            }
+            // If the class key is present convert the map to complex type
+            if (map.containsKey(ComplexType.CLASS_PROPERTY)) {
+                return Converter.convertMapToComplexType(map, ComplexType.class);
+            }
+            return map;
+        }
+        throw new TodoImplementException(jsonNode.getNodeType().toString());
+    }
+}
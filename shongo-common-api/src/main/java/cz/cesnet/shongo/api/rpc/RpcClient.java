@@ -1,5 +1,6 @@
 package cz.cesnet.shongo.api.rpc;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import cz.cesnet.shongo.CommonReportSet;
 import cz.cesnet.shongo.api.ClassHelper;
 import cz.cesnet.shongo.report.AbstractReportSet;
@@ -14,14 +15,21 @@ import org.apache.xmlrpc.common.XmlRpcInvocationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.net.ConnectException;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a client for XML-RPC server.
@@ -37,6 +45,11 @@ public class RpcClient
      */
     private XmlRpcClient client;
 
+    /**
+     * Factory for converters of results.
+     */
+    private TypeConverterFactory typeConverterFactory;
+
     /**
      * XML-RPC client factory for creating services.
      */
@@ -52,6 +65,16 @@ public class RpcClient
      */
     private Map<Integer, Class<? extends ApiFault>> apiFaultByCode = new HashMap<Integer, Class<? extends ApiFault>>();
 
+    /**
+     * Specifies whether requests should be sent by JSON-RPC instead of XML-RPC.
+     */
+    private boolean json = false;
+
+    /**
+     * Last identifier of JSON-RPC request.
+     */
+    private AtomicLong lastJsonRequestId = new AtomicLong();
+
     /**
      * Constructor.
      */
@@ -79,6 +102,22 @@ public class RpcClient
         return (XmlRpcClientConfigImpl) client.getClientConfig();
     }
 
+    /**
+     * @return {@link #json}
+     */
+    public boolean isJson()
+    {
+        return json;
+    }
+
+    /**
+     * @param json sets the {@link #json}
+     */
+    public void setJson(boolean json)
+    {
+        this.json = json;
+    }
+
     /**
      * @param reportSet to be added to {@link #apiFaultByCode}
      */
@@ -124,7 +163,8 @@ public class RpcClient
         client.setTypeFactory(new TypeFactory(client));
 
         // Connect to reservation service
-        clientFactory = new ClientFactory(client, new TypeConverterFactory());
+        typeConverterFactory = new TypeConverterFactory();
+        clientFactory = new ClientFactory(client, typeConverterFactory);
     }
 
     /**
@@ -151,6 +191,9 @@ public class RpcClient
      */
     public Object execute(String method, Object[] params) throws XmlRpcException
     {
+        if (json) {
+            return executeJson(method, params);
+        }
         return client.execute(method, params);
     }
 
@@ -164,9 +207,76 @@ public class RpcClient
      */
     public Object execute(String method, List params) throws XmlRpcException
     {
+        if (json) {
+            return executeJson(method, params.toArray());
+        }
         return client.execute(method, params);
     }
 
+    /**
+     * Execute request on a domain controller by JSON-RPC.
+     *
+     * @param method
+     * @param params
+     * @return result
+     * @throws XmlRpcException when the request fails (with fault code and fault string as in XML-RPC)
+     */
+    protected Object executeJson(String method, Object[] params) throws XmlRpcException
+    {
+        XmlRpcClientConfigImpl configuration = getConfiguration();
+        JsonNode response;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) configuration.getServerURL().openConnection();
+            try {
+                connection.setConnectTimeout(configuration.getConnectionTimeout());
+                connection.setReadTimeout(configuration.getReplyTimeout());
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("Content-Type", JsonRpc.CONTENT_TYPE + "; charset=UTF-8");
+                connection.setRequestProperty("Accept", JsonRpc.CONTENT_TYPE);
+                connection.setDoOutput(true);
+                OutputStream outputStream = connection.getOutputStream();
+                try {
+                    JsonRpc.writeRequest(outputStream, lastJsonRequestId.incrementAndGet(), method, params);
+                }
+                finally {
+                    outputStream.close();
+                }
+                int responseCode = connection.getResponseCode();
+                if (!JsonRpc.isContentType(connection.getContentType())) {
+                    throw new XmlRpcException("Invalid JSON-RPC response (HTTP " + responseCode + ", "
+                            + connection.getContentType() + ").");
+                }
+                InputStream inputStream = (responseCode < HttpURLConnection.HTTP_BAD_REQUEST
+                        ? connection.getInputStream() : connection.getErrorStream());
+                try {
+                    response = JsonRpc.read(inputStream);
+                }
+                finally {
+                    inputStream.close();
+                }
+            }
+            finally {
+                connection.disconnect();
+            }
+        }
+        catch (IOException exception) {
+            throw new XmlRpcException("Failed to execute " + method + ": " + exception.getMessage(), exception);
+        }
+        JsonNode error = response.get("error");
+        if (error != null && !error.isNull()) {
+            throw new XmlRpcException(error.path("code").asInt(), error.path("message").asText());
+        }
+        return JsonRpc.readValue(response.get("result"));
+    }
+
+    /**
+     * @return new {@link Batch} of calls
+     */
+    public Batch createBatch()
+    {
+        return new Batch();
+    }
+
     /**
      * @param xmlRpcException
      * @return {@code xmlRpcException} converted to proper {@link Exception}
@@ -255,7 +365,7 @@ public class RpcClient
                     }
                     Object result;
                     try {
-                        result = getClient().execute(methodName, pArgs);
+                        result = RpcClient.this.execute(methodName, pArgs);
                     }
                     catch (XmlRpcInvocationException e) {
                         Throwable throwable = e.linkedException;
@@ -284,4 +394,130 @@ public class RpcClient
             });
         }
     }
+
+    /**
+     * Batch of {@link Service} method calls which are executed in one request by {@link Service#MULTICALL_METHOD}.
+     * <p/>
+     * Calls are recorded by services from {@link #getService} (which return {@code null}) and after {@link #execute}
+     * the results are available by {@link #getResult}. Calls are sent in requests with at most
+     * {@link Service#MULTICALL_MAX_CALL_COUNT} calls.
+     */
+    public class Batch
+    {
+        /**
+         * Recorded calls (structs with "methodName" and "params").
+         */
+        private List<Map<String, Object>> calls = new ArrayList<Map<String, Object>>();
+
+        /**
+         * Methods of recorded {@link #calls}.
+         */
+        private List<Method> methods = new ArrayList<Method>();
+
+        /**
+         * Results of executed {@link #calls} (values or {@link Exception}s).
+         */
+        private List<Object> results;
+
+        /**
+         * @param serviceClass
+         * @return service which records calls of it's methods to this {@link Batch}
+         */
+        public <T extends Service> T getService(final Class<T> serviceClass)
+        {
+            Object service = java.lang.reflect.Proxy.newProxyInstance(serviceClass.getClassLoader(),
+                    new Class[]{serviceClass}, new InvocationHandler()
+            {
+                public Object invoke(Object pProxy, Method pMethod, Object[] pArgs) throws Throwable
+                {
+                    if (pMethod.getDeclaringClass().equals(Object.class)) {
+                        return pMethod.invoke(this, pArgs);
+                    }
+                    Map<String, Object> call = new HashMap<String, Object>();
+                    call.put("methodName", serviceClass.getName() + "." + pMethod.getName());
+                    call.put("params", (pArgs != null ? pArgs : new Object[0]));
+                    calls.add(call);
+                    methods.add(pMethod);
+                    Class<?> returnType = pMethod.getReturnType();
+                    if (boolean.class.equals(returnType)) {
+                        return false;
+                    }
+                    else if (returnType.isPrimitive() && !void.class.equals(returnType)) {
+                        return 0;
+                    }
+                    return null;
+                }
+            });
+            return serviceClass.cast(service);
+        }
+
+        /**
+         * @return number of recorded calls
+         */
+        public int size()
+        {
+            return calls.size();
+        }
+
+        /**
+         * Execute all recorded calls.
+         *
+         * @throws Exception when the request fails
+         */
+        public void execute() throws Exception
+        {
+            List<Object> multicallResults = new ArrayList<Object>(calls.size());
+            for (int start = 0; start < calls.size(); start += Service.MULTICALL_MAX_CALL_COUNT) {
+                List<Map<String, Object>> requestCalls =
+                        calls.subList(start, Math.min(start + Service.MULTICALL_MAX_CALL_COUNT, calls.size()));
+                Object[] requestResults;
+                try {
+                    requestResults = (Object[]) RpcClient.this.execute(
+                            Service.MULTICALL_METHOD, new Object[]{requestCalls.toArray()});
+                }
+                catch (XmlRpcException xmlRpcException) {
+                    throw convertException(xmlRpcException);
+                }
+                if (requestResults.length != requestCalls.size()) {
+                    throw new IllegalStateException("Multicall returned " + requestResults.length
+                            + " results for " + requestCalls.size() + " calls.");
+                }
+                Collections.addAll(multicallResults, requestResults);
+            }
+            results = new ArrayList<Object>(multicallResults.size());
+            for (int index = 0; index < multicallResults.size(); index++) {
+                Object multicallResult = multicallResults.get(index);
+                if (multicallResult instanceof Object[]) {
+                    Object[] values = (Object[]) multicallResult;
+                    Object value = (values.length > 0 ? values[0] : null);
+                    TypeConverter typeConverter = typeConverterFactory.getTypeConverter(
+                            methods.get(index).getReturnType(), methods.get(index).getGenericReturnType());
+                    results.add(typeConverter.convert(value));
+                }
+                else {
+                    Map fault = (Map) multicallResult;
+                    XmlRpcException xmlRpcException = new XmlRpcException(
+                            ((Number) fault.get("faultCode")).intValue(), (String) fault.get("faultString"));
+                    results.add(convertException(xmlRpcException));
+                }
+            }
+        }
+
+        /**
+         * @param index of the call
+         * @return result of the call with given {@code index}
+         * @throws Exception when the call failed
+         */
+        public Object getResult(int index) throws Exception
+        {
+            if (results == null) {
+                throw new IllegalStateException("Batch has not been executed.");
+            }
+            Object result = results.get(index);
+            if (result instanceof Exception) {
+                throw (Exception) result;
+            }
+            return result;
+        }
+    }
 }
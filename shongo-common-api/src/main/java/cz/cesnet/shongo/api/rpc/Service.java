@@ -12,6 +12,18 @@ import java.lang.annotation.Target;
  */
 public interface Service
 {
+    /**
+     * Name of method which executes multiple calls of {@link Service} methods in one request. It takes an array
+     * of structs with "methodName" and "params" and returns an array which contains for each call either one-item
+     * array with the result or struct with "faultCode" and "faultString".
+     */
+    public static final String MULTICALL_METHOD = "system.multicall";
+
+    /**
+     * Default maximum number of calls in one {@link #MULTICALL_METHOD} request.
+     */
+    public static final int MULTICALL_MAX_CALL_COUNT = 100;
+
     /**
      * Annotation for methods which are public API.
      */
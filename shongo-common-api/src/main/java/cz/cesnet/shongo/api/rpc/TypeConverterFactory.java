@@ -15,6 +15,7 @@ import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TypeConverterFactory that allows {@link AtomicType}, {@link ComplexType} and enums as method parameters
@@ -428,14 +429,15 @@ public class TypeConverterFactory extends TypeConverterFactoryImpl
         @Override
         public Object backConvert(Object result)
         {
-            return Converter.convertComplexTypeToMap((ComplexType) result);
+            // Complex types are written directly by TypeFactory.ComplexTypeSerializer
+            return result;
         }
 
         /**
          * Cache for {@link ComplexTypeConverter}s.
          */
         private static Map<Class<? extends ComplexType>, ComplexTypeConverter> cache =
-                new HashMap<Class<? extends ComplexType>, ComplexTypeConverter>();
+                new ConcurrentHashMap<Class<? extends ComplexType>, ComplexTypeConverter>();
 
         /**
          * @param complexClass for which the converter should be returned
@@ -0,0 +1,53 @@
+package cz.cesnet.shongo.api;
+
+import cz.cesnet.shongo.CommonReportSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ClassHelper}.
+ */
+public class ClassHelperTest
+{
+    @Test
+    public void testGetClassFromShortName() throws Exception
+    {
+        Assert.assertEquals(Alias.class, ClassHelper.getClassFromShortName("Alias"));
+        Assert.assertEquals(RoomSetting.class, ClassHelper.getClassFromShortName("RoomSetting"));
+        Assert.assertEquals(CommonReportSet.ClassUndefinedReport.class,
+                ClassHelper.getClassFromShortName("CommonReportSet.ClassUndefinedReport"));
+        Assert.assertEquals(Alias.class, Converter.convertStringToClass("Alias", ComplexType.class));
+
+        // Repeated lookup is cached
+        Assert.assertSame(ClassHelper.getClassFromShortName("Alias"), ClassHelper.getClassFromShortName("Alias"));
+
+        try {
+            ClassHelper.getClassFromShortName("UnknownClass");
+            Assert.fail("Exception should be thrown.");
+        }
+        catch (ClassNotFoundException exception) {
+        }
+        try {
+            Converter.convertStringToClass("UnknownClass", ComplexType.class);
+            Assert.fail("Exception should be thrown.");
+        }
+        catch (CommonReportSet.ClassUndefinedException exception) {
+        }
+    }
+
+    @Test
+    public void testCreateInstanceFromClass() throws Exception
+    {
+        Alias alias1 = ClassHelper.createInstanceFromClass(Alias.class);
+        Alias alias2 = ClassHelper.createInstanceFromClass(Alias.class);
+        Assert.assertNotNull(alias1);
+        Assert.assertNotSame(alias1, alias2);
+
+        try {
+            ClassHelper.createInstanceFromClass(ComplexType.class);
+            Assert.fail("Exception should be thrown.");
+        }
+        catch (CommonReportSet.ClassInstantiationErrorException exception) {
+        }
+    }
+}
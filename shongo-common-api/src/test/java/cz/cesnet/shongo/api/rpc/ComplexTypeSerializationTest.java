@@ -0,0 +1,216 @@
+package cz.cesnet.shongo.api.rpc;
+
+import cz.cesnet.shongo.api.AbstractComplexType;
+import cz.cesnet.shongo.api.ClassHelper;
+import cz.cesnet.shongo.api.DataMap;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Tests for serialization of nested {@link cz.cesnet.shongo.api.ComplexType}s by {@link TypeFactory}
+ * and {@link JsonRpc}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ComplexTypeSerializationTest
+{
+    private static Logger logger = LoggerFactory.getLogger(ComplexTypeSerializationTest.class);
+
+    /**
+     * Register {@link Node} for {@link cz.cesnet.shongo.api.Converter}.
+     */
+    @Before
+    public void onBefore()
+    {
+        try {
+            ClassHelper.registerClassShortName(Node.class);
+        }
+        catch (RuntimeException exception) {
+        }
+    }
+
+    /**
+     * Test writing and reading of nested {@link Node}s by {@link JsonRpc}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testJsonRpc() throws Exception
+    {
+        Node node = createNode(4);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        JsonRpc.writeRequest(outputStream, 1l, "test", new Object[]{node});
+        Object[] params = (Object[]) JsonRpc.readValue(
+                JsonRpc.read(new ByteArrayInputStream(outputStream.toByteArray())).get("params"));
+        Assert.assertEquals(node, params[0]);
+    }
+
+    /**
+     * Measure serialization of nested {@link Node}s by {@link TypeFactory} and {@link JsonRpc}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSerializationPerformance() throws Exception
+    {
+        final Node node = createNode(12);
+        final XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
+        final TypeFactory typeFactory = new TypeFactory(new XmlRpcClient());
+        final DefaultHandler handler = new DefaultHandler();
+        measure("XML-RPC", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    typeFactory.getSerializer(config, node).write(handler, node);
+                }
+                catch (Exception exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        });
+        final OutputStream outputStream = new OutputStream()
+        {
+            @Override
+            public void write(int value)
+            {
+            }
+
+            @Override
+            public void write(byte[] value, int offset, int length)
+            {
+            }
+        };
+        measure("JSON-RPC", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    JsonRpc.writeResult(outputStream, null, node);
+                }
+                catch (Exception exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * Run given {@code serialization} repeatedly and log the duration and allocated memory per run.
+     *
+     * @param name
+     * @param serialization
+     */
+    private void measure(String name, Runnable serialization)
+    {
+        int warmUpCount = 200;
+        int count = 500;
+        for (int index = 0; index < warmUpCount; index++) {
+            serialization.run();
+        }
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long time = System.nanoTime();
+        for (int index = 0; index < count; index++) {
+            serialization.run();
+        }
+        time = System.nanoTime() - time;
+        allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+        logger.info("{} serialization of {} nodes took {} us and allocated {} kB per run.", new Object[]{
+                name, (1 << 12) - 1, time / count / 1000, allocatedBytes / count / 1024
+        });
+    }
+
+    /**
+     * @param depth of the tree
+     * @return root of complete binary tree of {@link Node}s with given {@code depth}
+     */
+    private static Node createNode(int depth)
+    {
+        Node node = new Node();
+        node.setName("node" + depth);
+        if (depth > 1) {
+            node.setLeft(createNode(depth - 1));
+            node.setRight(createNode(depth - 1));
+        }
+        return node;
+    }
+
+    /**
+     * Testing entity with nested entities.
+     */
+    public static class Node extends AbstractComplexType
+    {
+        private String name;
+
+        private Node left;
+
+        private Node right;
+
+        public void setName(String name)
+        {
+            this.name = name;
+        }
+
+        public void setLeft(Node left)
+        {
+            this.left = left;
+        }
+
+        public void setRight(Node right)
+        {
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (!(object instanceof Node)) {
+                return false;
+            }
+            Node node = (Node) object;
+            return name.equals(node.name) && (left == null ? node.left == null : left.equals(node.left))
+                    && (right == null ? node.right == null : right.equals(node.right));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return name.hashCode();
+        }
+
+        @Override
+        public DataMap toData()
+        {
+            DataMap dataMap = super.toData();
+            dataMap.set("name", name);
+            dataMap.set("left", left);
+            dataMap.set("right", right);
+            return dataMap;
+        }
+
+        @Override
+        public void fromData(DataMap dataMap)
+        {
+            super.fromData(dataMap);
+            name = dataMap.getString("name");
+            left = dataMap.getComplexType("left", Node.class);
+            right = dataMap.getComplexType("right", Node.class);
+        }
+    }
+}
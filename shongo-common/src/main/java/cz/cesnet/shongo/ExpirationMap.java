@@ -4,11 +4,20 @@ import org.apache.commons.lang.NotImplementedException;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 
-import javax.persistence.Entity;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Represents a map of {@link V} by {@link K} with {@link #expiration}.
+ * <p/>
+ * The map is thread-safe and reading doesn't block. Expiration of entries is evaluated lazily by the monotonic
+ * {@link System#nanoTime()} when an entry is accessed (expired entries can be also removed by {@link #clearExpired}).
+ * Optionally the number of entries can be limited by {@link #maxSize} and then the least recently used entries
+ * are evicted.
  *
  * @param <K>
  * @param <V>
@@ -19,12 +28,47 @@ public class ExpirationMap<K, V> implements Iterable<V>
     /**
      * Cache of {@link V} by {@link K}.
      */
-    private Map<K, Entry<V>> entries = new HashMap<K, Entry<V>>();
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
 
     /**
      * Specifies expiration for the {@link #entries}.
      */
-    private Duration expiration = null;
+    private volatile Duration expiration = null;
+
+    /**
+     * Maximum number of {@link #entries} (zero means unlimited).
+     */
+    private volatile int maxSize = 0;
+
+    /**
+     * Counter of accesses which is used for determining the least recently used {@link #entries}.
+     */
+    private final AtomicLong accessCounter = new AtomicLong();
+
+    /**
+     * Lock for evicting {@link #entries} when {@link #maxSize} is exceeded.
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Number of successful lookups.
+     */
+    private final LongAdder hitCount = new LongAdder();
+
+    /**
+     * Number of unsuccessful lookups.
+     */
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Number of entries evicted because of {@link #maxSize}.
+     */
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Number of entries removed because of {@link #expiration}.
+     */
+    private final LongAdder expirationCount = new LongAdder();
 
     /**
      * Constructor.
@@ -43,6 +87,18 @@ public class ExpirationMap<K, V> implements Iterable<V>
         setExpiration(expiration);
     }
 
+    /**
+     * Constructor.
+     *
+     * @param expiration sets the {@link #expiration}
+     * @param maxSize    sets the {@link #maxSize}
+     */
+    public ExpirationMap(Duration expiration, int maxSize)
+    {
+        setExpiration(expiration);
+        setMaxSize(maxSize);
+    }
+
     /**
      * @param expiration sets the {@link #expiration}
      */
@@ -51,40 +107,50 @@ public class ExpirationMap<K, V> implements Iterable<V>
         this.expiration = expiration;
     }
 
+    /**
+     * @return {@link #maxSize}
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize sets the {@link #maxSize}
+     */
+    public void setMaxSize(int maxSize)
+    {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative.");
+        }
+        this.maxSize = maxSize;
+        evict();
+    }
+
     /**
      * @param key
      * @return true if given {@code key} exists, false otherwise
      */
-    public synchronized boolean contains(K key)
+    public boolean contains(K key)
     {
-        Entry<V> entry = entries.get(key);
-        if (entry != null) {
-            if (entry.expirationDateTime == null || entry.expirationDateTime.isAfter(DateTime.now())) {
-                return true;
-            }
-            else {
-                entries.remove(key);
-            }
-        }
-        return false;
+        return getEntry(key) != null;
     }
 
     /**
      * @param key
      * @return {@link V} by given {@code key}
      */
-    public synchronized V get(K key)
+    public V get(K key)
     {
-        Entry<V> entry = entries.get(key);
+        Entry<V> entry = getEntry(key);
         if (entry != null) {
-            if (entry.expirationDateTime == null || entry.expirationDateTime.isAfter(DateTime.now())) {
-                return entry.value;
-            }
-            else {
-                entries.remove(key);
-            }
+            hitCount.increment();
+            return entry.value;
+        }
+        else {
+            missCount.increment();
+            return null;
         }
-        return null;
     }
 
     /**
@@ -93,20 +159,19 @@ public class ExpirationMap<K, V> implements Iterable<V>
      * @param key
      * @param value
      */
-    public synchronized void put(K key, V value)
+    public void put(K key, V value)
     {
-        Entry<V> entry = entries.get(key);
-        if (entry == null) {
-            entry = new Entry<V>();
-            entries.put(key, entry);
-        }
+        Duration expiration = this.expiration;
+        long expirationNanos = Entry.NO_EXPIRATION;
         if (expiration != null) {
-            entry.expirationDateTime = DateTime.now().plus(expiration);
+            expirationNanos = System.nanoTime() + expiration.getMillis() * 1000000L;
         }
-        else {
-            entry.expirationDateTime = null;
+        Entry<V> entry = new Entry<V>(value, expirationNanos);
+        entry.accessTime = accessCounter.incrementAndGet();
+        entries.put(key, entry);
+        if (maxSize > 0 && entries.size() > maxSize) {
+            evict();
         }
-        entry.value = value;
     }
 
     /**
@@ -115,7 +180,7 @@ public class ExpirationMap<K, V> implements Iterable<V>
      * @param key
      * @return removed value for the {@code key} or null
      */
-    public synchronized V remove(K key)
+    public V remove(K key)
     {
         Entry<V> entry = entries.remove(key);
         if (entry != null) {
@@ -133,12 +198,10 @@ public class ExpirationMap<K, V> implements Iterable<V>
      */
     public void removeByValue(V value)
     {
-        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<K, Entry<V>> itemEntry = iterator.next();
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
             Entry<V> entry = itemEntry.getValue();
             if (entry.value.equals(value)) {
-                iterator.remove();
+                entries.remove(itemEntry.getKey(), entry);
             }
         }
     }
@@ -146,7 +209,7 @@ public class ExpirationMap<K, V> implements Iterable<V>
     /**
      * @return number of added keys
      */
-    public synchronized int size()
+    public int size()
     {
         return entries.size();
     }
@@ -154,7 +217,7 @@ public class ExpirationMap<K, V> implements Iterable<V>
     /**
      * @return true whether {@link #entries} are empty, false otherwise
      */
-    public synchronized boolean isEmpty()
+    public boolean isEmpty()
     {
         return entries.isEmpty();
     }
@@ -162,7 +225,7 @@ public class ExpirationMap<K, V> implements Iterable<V>
     /**
      * Clear all {@link #entries}.
      */
-    public synchronized void clear()
+    public void clear()
     {
         entries.clear();
     }
@@ -170,7 +233,7 @@ public class ExpirationMap<K, V> implements Iterable<V>
     /**
      * {@link #entries}.
      */
-    public synchronized Set<K> keySet()
+    public Set<K> keySet()
     {
         return entries.keySet();
     }
@@ -178,11 +241,14 @@ public class ExpirationMap<K, V> implements Iterable<V>
     /**
      * {@link #entries}.
      */
-    public synchronized Collection<V> values()
+    public Collection<V> values()
     {
-        List<V> values = new LinkedList<V>();
+        long nanoTime = System.nanoTime();
+        List<V> values = new ArrayList<V>(entries.size());
         for (Entry<V> entry : entries.values()) {
-            values.add(entry.value);
+            if (!entry.isExpired(nanoTime)) {
+                values.add(entry.value);
+            }
         }
         return values;
     }
@@ -192,16 +258,24 @@ public class ExpirationMap<K, V> implements Iterable<V>
      *
      * @param dateTime which represents "now"
      */
-    public synchronized List<Map.Entry<K, V>> clearExpired(DateTime dateTime)
+    public List<Map.Entry<K, V>> clearExpired(DateTime dateTime)
     {
+        long nanoTime = 0;
+        if (dateTime != null) {
+            nanoTime = System.nanoTime() + (dateTime.getMillis() - System.currentTimeMillis()) * 1000000L;
+        }
         List<Map.Entry<K, V>> cleared = new LinkedList<Map.Entry<K, V>>();
-        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<K, Entry<V>> itemEntry = iterator.next();
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
             Entry<V> entry = itemEntry.getValue();
             final K key = itemEntry.getKey();
             final V value = entry.value;
-            if (dateTime == null || (entry.expirationDateTime != null && !entry.expirationDateTime.isAfter(dateTime))) {
+            if (dateTime == null || entry.isExpired(nanoTime)) {
+                if (!entries.remove(key, entry)) {
+                    continue;
+                }
+                if (dateTime != null) {
+                    expirationCount.increment();
+                }
                 cleared.add(new Map.Entry<K, V>()
                 {
                     @Override
@@ -222,26 +296,169 @@ public class ExpirationMap<K, V> implements Iterable<V>
                         throw new NotImplementedException();
                     }
                 });
-                iterator.remove();
             }
         }
         return cleared;
     }
 
+    /**
+     * @return number of successful lookups by {@link #get}
+     */
+    public long getHitCount()
+    {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return number of unsuccessful lookups by {@link #get}
+     */
+    public long getMissCount()
+    {
+        return missCount.sum();
+    }
+
+    /**
+     * @return number of entries evicted because of {@link #maxSize}
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return number of entries removed because of {@link #expiration}
+     */
+    public long getExpirationCount()
+    {
+        return expirationCount.sum();
+    }
+
+    /**
+     * @param key
+     * @return not expired {@link Entry} for given {@code key} or {@code null}
+     */
+    private Entry<V> getEntry(K key)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (!entry.isExpired(System.nanoTime())) {
+                if (maxSize > 0) {
+                    entry.accessTime = accessCounter.incrementAndGet();
+                }
+                return entry;
+            }
+            else if (entries.remove(key, entry)) {
+                expirationCount.increment();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evict expired and the least recently used {@link #entries} when the {@link #maxSize} is exceeded.
+     * Entries are evicted in batches (to the 90% of {@link #maxSize}) so that the eviction is not performed
+     * for each put.
+     */
+    private void evict()
+    {
+        int maxSize = this.maxSize;
+        if (maxSize == 0 || entries.size() <= maxSize || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long nanoTime = System.nanoTime();
+            List<Map.Entry<K, Entry<V>>> candidates = new ArrayList<Map.Entry<K, Entry<V>>>(entries.size());
+            for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+                Entry<V> entry = itemEntry.getValue();
+                if (entry.isExpired(nanoTime)) {
+                    if (entries.remove(itemEntry.getKey(), entry)) {
+                        expirationCount.increment();
+                    }
+                }
+                else {
+                    candidates.add(itemEntry);
+                }
+            }
+            int targetSize = maxSize - maxSize / 10;
+            int evictCount = entries.size() - targetSize;
+            if (evictCount <= 0) {
+                return;
+            }
+            Collections.sort(candidates, new Comparator<Map.Entry<K, Entry<V>>>()
+            {
+                @Override
+                public int compare(Map.Entry<K, Entry<V>> entry1, Map.Entry<K, Entry<V>> entry2)
+                {
+                    return Long.compare(entry1.getValue().accessTime, entry2.getValue().accessTime);
+                }
+            });
+            for (Map.Entry<K, Entry<V>> candidate : candidates) {
+                if (evictCount <= 0) {
+                    break;
+                }
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    evictionCount.increment();
+                    evictCount--;
+                }
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("ExpirationMap (size: %d, hits: %d, misses: %d, evictions: %d, expirations: %d)",
+                size(), getHitCount(), getMissCount(), getEvictionCount(), getExpirationCount());
+    }
+
     /**
      * Entry for {@link ExpirationMap}.
      */
     private static class Entry<V>
     {
         /**
-         * Expiration {@link org.joda.time.DateTime}.
+         * Value of {@link #expirationNanos} for entries which never expire.
          */
-        private DateTime expirationDateTime;
+        private static final long NO_EXPIRATION = Long.MIN_VALUE;
 
         /**
          * Value.
          */
-        private V value;
+        private final V value;
+
+        /**
+         * Expiration in {@link System#nanoTime()} or {@link #NO_EXPIRATION}.
+         */
+        private final long expirationNanos;
+
+        /**
+         * Value of {@link #accessCounter} when the entry was lastly accessed.
+         */
+        private volatile long accessTime;
+
+        /**
+         * Constructor.
+         *
+         * @param value           sets the {@link #value}
+         * @param expirationNanos sets the {@link #expirationNanos}
+         */
+        private Entry(V value, long expirationNanos)
+        {
+            this.value = value;
+            this.expirationNanos = expirationNanos;
+        }
+
+        /**
+         * @param nanoTime which represents "now"
+         * @return true whether the entry is expired in given {@code nanoTime}, false otherwise
+         */
+        private boolean isExpired(long nanoTime)
+        {
+            return expirationNanos != NO_EXPIRATION && nanoTime - expirationNanos >= 0;
+        }
     }
 
     @Override
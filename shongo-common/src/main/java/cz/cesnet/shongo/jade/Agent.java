@@ -16,6 +16,8 @@ import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Represents an agent in JADE middle-ware.
  *
@@ -40,6 +42,21 @@ public class Agent extends jade.core.Agent
      */
     private Integer commandTimeout;
 
+    /**
+     * Maximum number of concurrently handled received {@link Command}s.
+     */
+    private int commandThreadCount = CommandExecutor.DEFAULT_THREAD_COUNT;
+
+    /**
+     * Maximum number of received {@link Command}s waiting for handling.
+     */
+    private int commandQueueSize = CommandExecutor.DEFAULT_QUEUE_SIZE;
+
+    /**
+     * {@link CommandExecutor} which handles received {@link Command}s.
+     */
+    private CommandExecutor commandExecutor;
+
     /**
      * Constructor.
      */
@@ -80,6 +97,27 @@ public class Agent extends jade.core.Agent
         this.commandTimeout = commandTimeout;
     }
 
+    /**
+     * @param commandThreadCount sets the {@link #commandThreadCount}
+     * @param commandQueueSize   sets the {@link #commandQueueSize}
+     */
+    public void setCommandExecutor(int commandThreadCount, int commandQueueSize)
+    {
+        if (commandExecutor != null) {
+            throw new IllegalStateException("Command executor has been already created.");
+        }
+        this.commandThreadCount = commandThreadCount;
+        this.commandQueueSize = commandQueueSize;
+    }
+
+    /**
+     * @return {@link #commandExecutor}
+     */
+    public CommandExecutor getCommandExecutor()
+    {
+        return commandExecutor;
+    }
+
     /**
      * Perform {@link LocalCommand} on this agent.
      *
@@ -109,15 +147,27 @@ public class Agent extends jade.core.Agent
      * @return {@link SendLocalCommand} from which the result or failure can be retrieved
      */
     public SendLocalCommand sendCommand(String receiverAgentName, Command command)
+    {
+        return sendCommandAsync(receiverAgentName, command).join();
+    }
+
+    /**
+     * Send {@link Command} to target receiver agent (non-blocking).
+     *
+     * @param receiverAgentName target receiver agent name
+     * @param command           to be send
+     * @return {@link CompletableFuture} which is completed by {@link SendLocalCommand} from which the result or
+     *         failure can be retrieved (when the command is processed or when it times out)
+     */
+    public CompletableFuture<SendLocalCommand> sendCommandAsync(String receiverAgentName, Command command)
     {
         SendLocalCommand sendLocalCommand = new SendLocalCommand(receiverAgentName, command);
         if (!isStarted()) {
             sendLocalCommand.setFailed(new JadeReportSet.AgentNotStartedReport(getAID().getLocalName()));
-            return sendLocalCommand;
+            return sendLocalCommand.getFuture();
         }
         performLocalCommand(sendLocalCommand);
-        sendLocalCommand.waitForProcessed(commandTimeout);
-        return sendLocalCommand;
+        return sendLocalCommand.setTimeout(commandTimeout);
     }
 
     protected void setupAgent()
@@ -132,6 +182,9 @@ public class Agent extends jade.core.Agent
         // Add common ontology
         addOntology(CommonOntology.getInstance());
 
+        // Received commands are handled by bounded pool of threads
+        commandExecutor = new CommandExecutor(getLocalName(), commandThreadCount, commandQueueSize);
+
         // Each agent is able to process commands passed via O2A channel
         addBehaviour(new LocalCommandBehaviour());
         // Each agent is able to respond to agent actions
@@ -159,6 +212,11 @@ public class Agent extends jade.core.Agent
 
         started = false;
         agentDescription = null;
+        if (commandExecutor != null) {
+            logger.debug("Agent [{}] {}.", getAID().getName(), commandExecutor);
+            commandExecutor.shutdown();
+            commandExecutor = null;
+        }
 
         super.takeDown();
 
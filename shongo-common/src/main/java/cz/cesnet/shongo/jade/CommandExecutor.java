@@ -0,0 +1,231 @@
+package cz.cesnet.shongo.jade;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of threads which handle {@link cz.cesnet.shongo.api.jade.Command}s received by an {@link Agent}.
+ * <p/>
+ * At most {@link #threadCount} commands are handled concurrently and at most {@link #queueSize} commands wait
+ * for a free thread. Commands which don't fit into the queue are rejected (see {@link #execute}).
+ */
+public class CommandExecutor
+{
+    /**
+     * Default maximum number of concurrently handled commands.
+     */
+    public static final int DEFAULT_THREAD_COUNT = 4;
+
+    /**
+     * Default maximum number of commands waiting for a free thread.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+
+    /**
+     * Minimum duration in milliseconds which is suggested to rejected requesters for retrying.
+     */
+    private static final long MIN_RETRY_AFTER = 1000;
+
+    /**
+     * Maximum number of concurrently handled commands.
+     */
+    private final int threadCount;
+
+    /**
+     * Maximum number of commands waiting for a free thread.
+     */
+    private final int queueSize;
+
+    /**
+     * {@link ThreadPoolExecutor} which handles the commands.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Number of handled commands.
+     */
+    private final AtomicLong executedCount = new AtomicLong();
+
+    /**
+     * Total time in nanoseconds spent by handling commands.
+     */
+    private final AtomicLong executionNanos = new AtomicLong();
+
+    /**
+     * Number of rejected commands.
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Maximum observed number of commands waiting for a free thread.
+     */
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param name        prefix for names of the threads
+     * @param threadCount sets the {@link #threadCount}
+     * @param queueSize   sets the {@link #queueSize}
+     */
+    public CommandExecutor(final String name, int threadCount, int queueSize)
+    {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.threadCount = threadCount;
+        this.queueSize = queueSize;
+        BlockingQueue<Runnable> queue;
+        if (queueSize > 0) {
+            queue = new ArrayBlockingQueue<Runnable>(queueSize);
+        }
+        else {
+            queue = new SynchronousQueue<Runnable>();
+        }
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS, queue,
+                new ThreadFactory()
+                {
+                    private final AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, name + "-handler-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return {@link #threadCount}
+     */
+    public int getThreadCount()
+    {
+        return threadCount;
+    }
+
+    /**
+     * @return {@link #queueSize}
+     */
+    public int getQueueSize()
+    {
+        return queueSize;
+    }
+
+    /**
+     * Execute given {@code runnable} in a free thread or enqueue it until a thread is freed.
+     *
+     * @param runnable to be executed
+     * @return true when the {@code runnable} has been accepted,
+     *         false when the queue is full (or the executor is shut down)
+     */
+    public boolean execute(final Runnable runnable)
+    {
+        try {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    long startNanos = System.nanoTime();
+                    try {
+                        runnable.run();
+                    }
+                    finally {
+                        executionNanos.addAndGet(System.nanoTime() - startNanos);
+                        executedCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException exception) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        int queueDepth = getQueueDepth();
+        int currentMaxQueueDepth = maxQueueDepth.get();
+        while (queueDepth > currentMaxQueueDepth && !maxQueueDepth.compareAndSet(currentMaxQueueDepth, queueDepth)) {
+            currentMaxQueueDepth = maxQueueDepth.get();
+        }
+        return true;
+    }
+
+    /**
+     * @return current number of commands waiting for a free thread
+     */
+    public int getQueueDepth()
+    {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return maximum observed number of commands waiting for a free thread
+     */
+    public int getMaxQueueDepth()
+    {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return current number of commands which are being handled
+     */
+    public int getActiveCount()
+    {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return number of handled commands
+     */
+    public long getExecutedCount()
+    {
+        return executedCount.get();
+    }
+
+    /**
+     * @return number of rejected commands
+     */
+    public long getRejectedCount()
+    {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return average duration in milliseconds of handling a command
+     */
+    public long getAverageExecutionTime()
+    {
+        long executedCount = this.executedCount.get();
+        if (executedCount == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(executionNanos.get() / executedCount);
+    }
+
+    /**
+     * @return estimated duration in milliseconds after which a rejected command should be sent again
+     */
+    public long getRetryAfter()
+    {
+        long retryAfter = getAverageExecutionTime() * (getQueueDepth() / threadCount + 1);
+        return Math.max(retryAfter, MIN_RETRY_AFTER);
+    }
+
+    /**
+     * Stop accepting new commands (already accepted commands are still handled).
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("CommandExecutor (threads: %d/%d, queue: %d/%d, executed: %d, rejected: %d)",
+                getActiveCount(), threadCount, getQueueDepth(), queueSize, getExecutedCount(), getRejectedCount());
+    }
+}
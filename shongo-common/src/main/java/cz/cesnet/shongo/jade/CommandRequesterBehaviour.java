@@ -17,6 +17,9 @@ import jade.proto.SimpleAchieveREInitiator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -155,6 +158,27 @@ public class CommandRequesterBehaviour extends SimpleAchieveREInitiator
     {
         logger.debug("Received message: {}", msg);
 
+        String retryAfter = msg.getUserDefinedParameter(CommandResponderBehaviour.RETRY_AFTER);
+        if (retryAfter != null && !sendLocalCommand.isProcessed()) {
+            // Receiver is overloaded, send the command again later (until the command times out)
+            logger.warn("Execution of '{}' was refused by overloaded '{}', retrying after {} ms.", new Object[]{
+                    sendLocalCommand.getCommand(), sendLocalCommand.getReceiverAgentId().getName(), retryAfter
+            });
+            final Agent agent = (Agent) myAgent;
+            Executor delayedExecutor =
+                    CompletableFuture.delayedExecutor(Long.parseLong(retryAfter), TimeUnit.MILLISECONDS);
+            delayedExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (!sendLocalCommand.isProcessed()) {
+                        agent.performLocalCommand(sendLocalCommand);
+                    }
+                }
+            });
+            return;
+        }
         logger.error("Execution of '{}' failed, because it was refused.", sendLocalCommand.getCommand());
         sendLocalCommand.setFailed(new JadeReportSet.CommandRefusedReport(
                 sendLocalCommand.getCommand().toString(), sendLocalCommand.getReceiverAgentId().getName()));
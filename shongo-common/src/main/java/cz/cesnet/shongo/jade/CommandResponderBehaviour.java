@@ -30,6 +30,12 @@ public class CommandResponderBehaviour extends ParallelResponderBehaviour
 {
     private static Logger logger = LoggerFactory.getLogger(CommandResponderBehaviour.class);
 
+    /**
+     * Name of user defined {@link ACLMessage} parameter in {@link ACLMessage#REFUSE} reply which contains
+     * a duration in milliseconds after which the refused request should be sent again.
+     */
+    public static final String RETRY_AFTER = "retry-after";
+
     /**
      * {@link cz.cesnet.shongo.jade.Agent} which is used for handling and replying to received {@link Command}s.
      */
@@ -74,12 +80,25 @@ public class CommandResponderBehaviour extends ParallelResponderBehaviour
     {
         logger.debug("Received message: {}", requestMessage);
 
+        CommandExecutor commandExecutor = agent.getCommandExecutor();
         RequestHandler handler = new RequestHandler(requestMessage);
-
-        Thread handlerThread = new Thread(handler);
-        handlerThread.setName(agent.getLocalName() + "-handler");
-        handlerThread.start();
-        addSubBehaviour(handler);
+        if (commandExecutor != null && commandExecutor.execute(handler)) {
+            addSubBehaviour(handler);
+        }
+        else {
+            // Too many requests are already waiting for handling and thus the requester should try it later
+            ACLMessage reply = requestMessage.createReply();
+            reply.setPerformative(ACLMessage.REFUSE);
+            if (commandExecutor != null) {
+                long retryAfter = commandExecutor.getRetryAfter();
+                reply.addUserDefinedParameter(RETRY_AFTER, Long.toString(retryAfter));
+                logger.warn("Refusing request from '{}' because {} is full (retry after {} ms).", new Object[]{
+                        requestMessage.getSender().getName(), commandExecutor, retryAfter
+                });
+            }
+            logger.debug("Sending reply: {}", reply);
+            agent.send(reply);
+        }
     }
 
     /**
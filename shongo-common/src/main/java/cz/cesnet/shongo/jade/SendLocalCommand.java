@@ -5,14 +5,62 @@ import cz.cesnet.shongo.JadeReportSet;
 import cz.cesnet.shongo.api.jade.Command;
 import jade.core.AID;
 
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
 /**
  * {@link LocalCommand} for sending an {@link Command} to target receiver agent via JADE middle-ware.
+ * <p/>
+ * The command is processed asynchronously and the {@link #future} is completed as soon as the result or failure
+ * is received (or the command times out).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  * @author Ondrej Bouda <ondrej.bouda@cesnet.cz>
  */
 public class SendLocalCommand extends LocalCommand
 {
+    /**
+     * Default timeout in milliseconds for waiting for command result.
+     */
+    public static final int DEFAULT_TIMEOUT = 30000;
+
+    /**
+     * Scheduler of command timeouts (cancelled timeouts are removed from its queue immediately).
+     */
+    private static final ScheduledThreadPoolExecutor timeoutScheduler;
+
+    static {
+        timeoutScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "command-timeout");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timeoutScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Threads in which the stages depending on completed commands are performed (the {@link #future} is completed
+     * by the JADE agent thread or by the command timeout thread which must not be blocked by them).
+     */
+    private static final ExecutorService callbackExecutor = Executors.newCachedThreadPool(new ThreadFactory()
+    {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "command-callback-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     /**
      * {@link AID} of the receiver agent.
      */
@@ -26,7 +74,7 @@ public class SendLocalCommand extends LocalCommand
     /**
      * Current command state.
      */
-    private State state;
+    private volatile State state;
 
     /**
      * @see JadeReport
@@ -36,7 +84,12 @@ public class SendLocalCommand extends LocalCommand
     /**
      * Result of the command.
      */
-    private Object result;
+    private volatile Object result;
+
+    /**
+     * Completed when the command is processed.
+     */
+    private final CompletableFuture<SendLocalCommand> future = new CompletableFuture<SendLocalCommand>();
 
     /**
      * Constructor.
@@ -113,12 +166,32 @@ public class SendLocalCommand extends LocalCommand
         return State.FAILED.equals(state);
     }
 
+    /**
+     * @return {@link #callbackExecutor} in which the stages depending on the {@link #future} should be performed
+     *         (e.g., by {@link CompletableFuture#thenApplyAsync})
+     */
+    public static Executor getCallbackExecutor()
+    {
+        return callbackExecutor;
+    }
+
+    /**
+     * @return {@link #future} which is completed when the command is processed
+     */
+    public CompletableFuture<SendLocalCommand> getFuture()
+    {
+        return future;
+    }
+
     /**
      * @param state sets the {@link #state}
      */
-    public void setState(State state)
+    public synchronized void setState(State state)
     {
         this.state = state;
+        if (state != State.UNKNOWN) {
+            future.complete(this);
+        }
     }
 
     /**
@@ -126,10 +199,69 @@ public class SendLocalCommand extends LocalCommand
      *
      * @param failure sets the {@link #jadeReport}
      */
-    public void setFailed(JadeReport failure)
+    public synchronized void setFailed(JadeReport failure)
     {
-        this.state = State.FAILED;
         this.jadeReport = failure;
+        setState(State.FAILED);
+    }
+
+    /**
+     * Sets the {@link #state} as {@link State#FAILED} with {@link JadeReportSet.CommandTimeoutReport}
+     * when the command hasn't been processed yet.
+     */
+    public synchronized void setTimedOut()
+    {
+        if (!isProcessed()) {
+            setFailed(new JadeReportSet.CommandTimeoutReport(command.getName(), receiverAgentId.getName()));
+        }
+    }
+
+    /**
+     * Schedule {@link #setTimedOut()} after given {@code timeout} (the scheduled timeout is cancelled
+     * when the command is processed earlier).
+     *
+     * @param timeout how long to wait in milliseconds for command result ({@code null} means default timeout)
+     * @return {@link #future}
+     */
+    public CompletableFuture<SendLocalCommand> setTimeout(Integer timeout)
+    {
+        if (!future.isDone()) {
+            final ScheduledFuture<?> timeoutFuture = timeoutScheduler.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    setTimedOut();
+                }
+            }, getTimeout(timeout), TimeUnit.MILLISECONDS);
+            future.whenComplete(new BiConsumer<SendLocalCommand, Throwable>()
+            {
+                @Override
+                public void accept(SendLocalCommand sendLocalCommand, Throwable throwable)
+                {
+                    timeoutFuture.cancel(false);
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * @return description of the {@link #state} for logging (e.g., "OK: result" or "FAILED: message")
+     */
+    public String getStateDescription()
+    {
+        switch (state) {
+            case SUCCESSFUL:
+                if (result instanceof String) {
+                    return String.format("OK: %s", result);
+                }
+                return "OK";
+            case FAILED:
+                return String.format("FAILED: %s", getJadeReport().getMessage());
+            default:
+                return "UNKNOWN";
+        }
     }
 
     /**
@@ -193,25 +325,31 @@ public class SendLocalCommand extends LocalCommand
      */
     public void waitForProcessed(Integer timeout)
     {
-        if (timeout == null) {
-            timeout = 30000;
+        try {
+            future.get(getTimeout(timeout), TimeUnit.MILLISECONDS);
         }
-        final int waitingTime = 50;
-
-        // FIXME: use some kind of IPC instead of busy waiting
-        int count = timeout / waitingTime;
-        while (!isProcessed() && count > 0) {
-            count--;
-            try {
-                Thread.sleep(waitingTime);
-            }
-            catch (InterruptedException exception) {
-                exception.printStackTrace();
-            }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
         }
-        if (getState() == State.UNKNOWN) {
-            setFailed(new JadeReportSet.CommandTimeoutReport(command.getName(), receiverAgentId.getName()));
+        catch (ExecutionException exception) {
+            throw new IllegalStateException("Command future should not fail.", exception);
+        }
+        catch (TimeoutException exception) {
+            // Handled below
+        }
+        setTimedOut();
+    }
+
+    /**
+     * @param timeout in milliseconds ({@code null} means default timeout)
+     * @return given {@code timeout} or default timeout
+     */
+    private static int getTimeout(Integer timeout)
+    {
+        if (timeout == null) {
+            return DEFAULT_TIMEOUT;
         }
+        return timeout;
     }
 
     @Override
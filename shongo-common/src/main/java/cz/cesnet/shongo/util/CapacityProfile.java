@@ -0,0 +1,250 @@
+package cz.cesnet.shongo.util;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Profile of capacity (e.g., number of licenses) used by ranges in time. Only boundaries of ranges (in epoch
+ * milliseconds) are stored together with capacity used from each boundary to the next one, so (unlike
+ * {@link RangeSet}) no sets of values are kept for segments.
+ * <p/>
+ * Ranges can be added and removed incrementally, each modification takes O(log n + k) and {@link #getPeak}
+ * takes O(log n + k) where k is the number of boundaries in the modified or queried range.
+ */
+public class CapacityProfile
+{
+    /**
+     * Segments by theirs starting boundaries. Each segment holds capacity used from its boundary to the next
+     * boundary and number of added ranges which start or end at its boundary.
+     */
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+
+    /**
+     * @param start    of range
+     * @param end      of range (exclusive)
+     * @param capacity used in range
+     */
+    public void add(long start, long end, int capacity)
+    {
+        if (end <= start) {
+            return;
+        }
+        getSegment(start).rangeCount++;
+        getSegment(end).rangeCount++;
+        for (Segment segment : segments.subMap(start, true, end, false).values()) {
+            segment.capacity += capacity;
+        }
+    }
+
+    /**
+     * @param start    of range
+     * @param end      of range (exclusive)
+     * @param capacity used in range
+     */
+    public void add(DateTime start, DateTime end, int capacity)
+    {
+        add(start.getMillis(), end.getMillis(), capacity);
+    }
+
+    /**
+     * Remove range which has been previously added by {@link #add(long, long, int)}.
+     *
+     * @param start    of range
+     * @param end      of range (exclusive)
+     * @param capacity used in range
+     */
+    public void remove(long start, long end, int capacity)
+    {
+        if (end <= start) {
+            return;
+        }
+        for (Segment segment : segments.subMap(start, true, end, false).values()) {
+            segment.capacity -= capacity;
+        }
+        removeBoundary(start);
+        removeBoundary(end);
+    }
+
+    /**
+     * @param start of range
+     * @param end   of range (exclusive)
+     * @return maximum capacity used at any time in given range
+     */
+    public int getPeak(long start, long end)
+    {
+        int peak = 0;
+        for (Segment segment : getSegments(start, end).values()) {
+            peak = Math.max(peak, segment.capacity);
+        }
+        return peak;
+    }
+
+    /**
+     * @param start of range
+     * @param end   of range (exclusive)
+     * @return maximum capacity used at any time in given range
+     */
+    public int getPeak(DateTime start, DateTime end)
+    {
+        return getPeak(start.getMillis(), end.getMillis());
+    }
+
+    /**
+     * @param interval range
+     * @return maximum capacity used at any time in given {@code interval}
+     */
+    public int getPeak(Interval interval)
+    {
+        return getPeak(interval.getStartMillis(), interval.getEndMillis());
+    }
+
+    /**
+     * @param start of range
+     * @param end   of range (exclusive)
+     * @return capacities used in parts of given range which are separated by boundaries of added ranges
+     *         (a part before the first added range isn't included)
+     */
+    public int[] getCapacities(long start, long end)
+    {
+        NavigableMap<Long, Segment> segments = getSegments(start, end);
+        int[] capacities = new int[segments.size()];
+        int index = 0;
+        for (Segment segment : segments.values()) {
+            capacities[index++] = segment.capacity;
+        }
+        return capacities;
+    }
+
+    /**
+     * @param interval range
+     * @return capacities used in parts of given {@code interval} which are separated by boundaries of added ranges
+     * @see #getCapacities(long, long)
+     */
+    public int[] getCapacities(Interval interval)
+    {
+        return getCapacities(interval.getStartMillis(), interval.getEndMillis());
+    }
+
+    /**
+     * @param start of range
+     * @param end   of range (exclusive)
+     * @return new {@link CapacityProfile} which answers queries within given range in the same way as this profile
+     *         (it can be modified without affecting this profile)
+     */
+    public CapacityProfile copy(long start, long end)
+    {
+        CapacityProfile capacityProfile = new CapacityProfile();
+        for (Map.Entry<Long, Segment> entry : getSegments(start, end).entrySet()) {
+            Segment segment = entry.getValue();
+            int rangeCount = segment.rangeCount;
+            if (capacityProfile.segments.isEmpty()) {
+                // The first segment must be kept, because capacity before it isn't known
+                rangeCount++;
+            }
+            capacityProfile.segments.put(entry.getKey(), new Segment(segment.capacity, rangeCount));
+        }
+        Map.Entry<Long, Segment> endEntry = segments.ceilingEntry(end);
+        if (endEntry != null) {
+            Segment segment = endEntry.getValue();
+            capacityProfile.segments.put(endEntry.getKey(), new Segment(segment.capacity, segment.rangeCount));
+        }
+        return capacityProfile;
+    }
+
+    /**
+     * @param start of range
+     * @param end   of range (exclusive)
+     * @return segments which intersect given range (starting by the segment which contains given {@code start}
+     *         or by the first segment when the {@code start} is before the first boundary)
+     */
+    private NavigableMap<Long, Segment> getSegments(long start, long end)
+    {
+        Long first = segments.floorKey(start);
+        if (first == null) {
+            if (segments.isEmpty()) {
+                return segments;
+            }
+            first = segments.firstKey();
+        }
+        if (end <= start || first >= end) {
+            return segments.subMap(first, false, first, false);
+        }
+        return segments.subMap(first, true, end, false);
+    }
+
+    /**
+     * @param boundary
+     * @return {@link Segment} which starts at given {@code boundary} (newly created when it doesn't exist)
+     */
+    private Segment getSegment(long boundary)
+    {
+        Segment segment = segments.get(boundary);
+        if (segment == null) {
+            Map.Entry<Long, Segment> previousEntry = segments.lowerEntry(boundary);
+            segment = new Segment(previousEntry != null ? previousEntry.getValue().capacity : 0, 0);
+            segments.put(boundary, segment);
+        }
+        return segment;
+    }
+
+    /**
+     * Decrement number of ranges for {@link Segment} which starts at given {@code boundary} and remove it
+     * when no range starts or ends at the {@code boundary}.
+     *
+     * @param boundary
+     */
+    private void removeBoundary(long boundary)
+    {
+        Segment segment = segments.get(boundary);
+        if (segment != null && --segment.rangeCount <= 0) {
+            segments.remove(boundary);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            if (stringBuilder.length() > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(entry.getKey());
+            stringBuilder.append(":");
+            stringBuilder.append(entry.getValue().capacity);
+        }
+        return "[" + stringBuilder.toString() + "]";
+    }
+
+    /**
+     * Part of the profile from a boundary to the next boundary.
+     */
+    private static class Segment
+    {
+        /**
+         * Capacity used in the segment.
+         */
+        private int capacity;
+
+        /**
+         * Number of added ranges which start or end at the starting boundary of the segment.
+         */
+        private int rangeCount;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity   sets the {@link #capacity}
+         * @param rangeCount sets the {@link #rangeCount}
+         */
+        public Segment(int capacity, int rangeCount)
+        {
+            this.capacity = capacity;
+            this.rangeCount = rangeCount;
+        }
+    }
+}
@@ -7,6 +7,13 @@ import java.util.*;
 /**
  * Set of values. Each value has assigned range to which it belongs. Methods for retrieving values based on
  * whether they belongs to specific range are provided.
+ * <p/>
+ * Only values which start or end at each range value are stored (in {@link Boundary}s) and the {@link Bucket}s
+ * are created on demand by sweeping the {@link Boundary}s. To not sweep from the beginning, values active at some
+ * range values are stored as checkpoints (at most {@link #CHECKPOINT_DISTANCE} {@link Boundary}s apart). Thus
+ * (unlike storing all values for each range value) the memory doesn't grow quadratically with overlapping ranges.
+ * The checkpoints are modified only by {@link #add} and {@link #remove} and thus retrieving methods don't modify
+ * the set.
  *
  * @param <V> type of values in the set
  * @param <R> type of ranges
@@ -15,14 +22,24 @@ import java.util.*;
 public class RangeSet<V, R> implements Iterable<V>
 {
     /**
-     * Map of buckets accessible by range values.
+     * Maximum number of {@link Boundary}s between two checkpoints.
      */
-    NavigableMap<R, Bucket<R, V>> bucketMap = new TreeMap<R, Bucket<R, V>>();
+    private static final int CHECKPOINT_DISTANCE = 32;
+
+    /**
+     * Map of {@link Boundary}s accessible by range values.
+     */
+    private final NavigableMap<R, Boundary<V>> boundaryMap = new TreeMap<R, Boundary<V>>();
+
+    /**
+     * Map of values active at range values (checkpoints) accessible by range values.
+     */
+    private final NavigableMap<R, Set<V>> checkpointMap = new TreeMap<R, Set<V>>();
 
     /**
      * Map ranges accessible by values.
      */
-    Map<V, Range> rangeMap = new HashMap<V, Range>();
+    private final Map<V, Range> rangeMap = new HashMap<V, Range>();
 
     /**
      * Add new value to the set.
@@ -40,40 +57,23 @@ public class RangeSet<V, R> implements Iterable<V>
             return false;
         }
 
-        // Find the nearest start/end and update buckets
-        R floor = bucketMap.floorKey(start);
-        R ceiling = bucketMap.ceilingKey(end);
-        if (!start.equals(floor)) {
-            Bucket<R, V> newBucket = createBucket(start);
-            newBucket.addOwnerValue(value);
-            bucketMap.put(start, newBucket);
-            if (floor != null) {
-                for (V floorValue : bucketMap.get(floor)) {
-                    newBucket.add(floorValue);
-                }
-            }
-        }
-        else {
-            bucketMap.get(start).addOwnerValue(value);
-        }
-        if (!end.equals(ceiling)) {
-            Bucket<R, V> newBucket = createBucket(end);
-            newBucket.addOwnerValue(value);
-            bucketMap.put(end, newBucket);
-            if (ceiling != null) {
-                for (V ceilingValue : bucketMap.lowerEntry(end).getValue()) {
-                    newBucket.add(ceilingValue);
-                }
-            }
-        }
-        else {
-            bucketMap.get(end).addOwnerValue(value);
+        // Add rangeValue to boundaries
+        boolean newStart = !boundaryMap.containsKey(start);
+        getBoundary(start).addStartingValue(value);
+        boolean newEnd = !boundaryMap.containsKey(end);
+        getBoundary(end).addEndingValue(value);
+
+        // Add rangeValue to proper checkpoints
+        for (Set<V> checkpointValues : checkpointMap.subMap(start, true, end, false).values()) {
+            checkpointValues.add(value);
         }
 
-        // Add rangeValue to proper buckets
-        NavigableMap<R, Bucket<R, V>> subMap = bucketMap.subMap(start, true, end, false);
-        for (NavigableMap.Entry<R, Bucket<R, V>> entry : subMap.entrySet()) {
-            entry.getValue().add(value);
+        // Keep distance between checkpoints
+        if (newStart) {
+            updateCheckpoints(start);
+        }
+        if (newEnd) {
+            updateCheckpoints(end);
         }
 
         // Keep range for rangeValue
@@ -82,21 +82,6 @@ public class RangeSet<V, R> implements Iterable<V>
         return true;
     }
 
-
-    /**
-     * Remove owner value from bucket and if bucket hasn't any owner remove it from the set.
-     *
-     * @param bucket
-     * @param ownerValue
-     */
-    private void removeBucketOwnerValue(Bucket<R, V> bucket, V ownerValue)
-    {
-        bucket.removeOwnerValue(ownerValue);
-        if (bucket.hasNoneOwners()) {
-            bucketMap.remove(bucket.getRangeValue());
-        }
-    }
-
     /**
      * Remove given value from the set.
      *
@@ -110,19 +95,24 @@ public class RangeSet<V, R> implements Iterable<V>
         if (range == null) {
             return false;
         }
+        R start = range.getStart();
+        R end = range.getEnd();
 
-        // Remove rangeValue from buckets
-        NavigableMap<R, Bucket<R, V>> subMap = bucketMap.subMap(range.getStart(), true, range.getEnd(), false);
-        for (NavigableMap.Entry<R, Bucket<R, V>> entry : subMap.entrySet()) {
-            entry.getValue().remove(value);
+        // Remove rangeValue from checkpoints
+        for (Set<V> checkpointValues : checkpointMap.subMap(start, true, end, false).values()) {
+            checkpointValues.remove(value);
         }
 
-        // Remove owner from buckets
-        R start = range.getStart();
-        R end = range.getEnd();
-        removeBucketOwnerValue(bucketMap.get(start), value);
-        if (!start.equals(end)) {
-            removeBucketOwnerValue(bucketMap.get(end), value);
+        // Remove rangeValue from boundaries
+        Boundary<V> startBoundary = boundaryMap.get(start);
+        startBoundary.removeStartingValue(value);
+        if (startBoundary.isEmpty()) {
+            removeBoundary(start);
+        }
+        Boundary<V> endBoundary = boundaryMap.get(end);
+        endBoundary.removeEndingValue(value);
+        if (endBoundary.isEmpty()) {
+            removeBoundary(end);
         }
 
         rangeMap.remove(value);
@@ -135,7 +125,8 @@ public class RangeSet<V, R> implements Iterable<V>
      */
     public void clear()
     {
-        bucketMap.clear();
+        boundaryMap.clear();
+        checkpointMap.clear();
         rangeMap.clear();
     }
 
@@ -147,19 +138,19 @@ public class RangeSet<V, R> implements Iterable<V>
     public Set<V> getValues(R start, R end)
     {
         Set<V> values = new HashSet<V>();
-        if (!bucketMap.isEmpty()) {
-            R floor = bucketMap.floorKey(start);
-            R ceiling = bucketMap.ceilingKey(end);
-            if (floor == null) {
-                floor = bucketMap.firstKey();
-            }
-            if (ceiling == null) {
-                ceiling = bucketMap.lastKey();
-            }
-            NavigableMap<R, Bucket<R, V>> subMap = bucketMap.subMap(floor, true, ceiling, false);
-            for (Bucket<R, V> bucket : subMap.values()) {
-                for (V value : bucket) {
-                    values.add(value);
+        if (!boundaryMap.isEmpty()) {
+            R floor = getFloor(start);
+            R ceiling = getCeiling(end);
+            if (!floor.equals(ceiling)) {
+                values.addAll(getActiveValues(floor));
+                // Values which starts before ceiling are active at their starts
+                for (Boundary<V> boundary : boundaryMap.subMap(floor, false, ceiling, false).values()) {
+                    for (V value : boundary.getStartingValues()) {
+                        Range range = rangeMap.get(value);
+                        if (!range.getStart().equals(range.getEnd())) {
+                            values.add(value);
+                        }
+                    }
                 }
             }
         }
@@ -173,17 +164,8 @@ public class RangeSet<V, R> implements Iterable<V>
      */
     public Collection<Bucket<R, V>> getBuckets(R start, R end)
     {
-        if (!bucketMap.isEmpty()) {
-            R floor = bucketMap.floorKey(start);
-            R ceiling = bucketMap.ceilingKey(end);
-            if (floor == null) {
-                floor = bucketMap.firstKey();
-            }
-            if (ceiling == null) {
-                ceiling = bucketMap.lastKey();
-            }
-            NavigableMap<R, Bucket<R, V>> subMap = bucketMap.subMap(floor, true, ceiling, false);
-            return subMap.values();
+        if (!boundaryMap.isEmpty()) {
+            return createBuckets(getFloor(start), getCeiling(end), false);
         }
         else {
             return Collections.emptyList();
@@ -215,7 +197,12 @@ public class RangeSet<V, R> implements Iterable<V>
      */
     protected Collection<Bucket<R, V>> getBuckets()
     {
-        return bucketMap.values();
+        if (!boundaryMap.isEmpty()) {
+            return createBuckets(boundaryMap.firstKey(), boundaryMap.lastKey(), true);
+        }
+        else {
+            return Collections.emptyList();
+        }
     }
 
     @Override
@@ -223,12 +210,12 @@ public class RangeSet<V, R> implements Iterable<V>
     {
         StringBuilder builder = new StringBuilder();
         builder.append("RangeSet");
-        for (NavigableMap.Entry<R, Bucket<R, V>> entry : bucketMap.entrySet()) {
+        for (Bucket<R, V> bucket : getBuckets()) {
             builder.append("\n");
-            builder.append(entry.getKey().toString());
+            builder.append(bucket.getRangeValue().toString());
             builder.append(" (");
             boolean separate = false;
-            for (V value : entry.getValue()) {
+            for (V value : bucket) {
                 if (separate) {
                     builder.append(", ");
                 }
@@ -254,6 +241,146 @@ public class RangeSet<V, R> implements Iterable<V>
         return rangeMap.keySet().iterator();
     }
 
+    /**
+     * @param rangeValue
+     * @return existing or newly created {@link Boundary} for given {@code rangeValue}
+     */
+    private Boundary<V> getBoundary(R rangeValue)
+    {
+        Boundary<V> boundary = boundaryMap.get(rangeValue);
+        if (boundary == null) {
+            boundary = new Boundary<V>();
+            boundaryMap.put(rangeValue, boundary);
+        }
+        return boundary;
+    }
+
+    /**
+     * Remove {@link Boundary} which has no values. When the {@link Boundary} has a checkpoint, the checkpoint is
+     * moved to the following {@link Boundary} (to not increase the distance between checkpoints).
+     *
+     * @param rangeValue of the {@link Boundary}
+     */
+    private void removeBoundary(R rangeValue)
+    {
+        boundaryMap.remove(rangeValue);
+        Set<V> checkpointValues = checkpointMap.remove(rangeValue);
+        if (checkpointValues != null) {
+            Map.Entry<R, Boundary<V>> nextEntry = boundaryMap.higherEntry(rangeValue);
+            if (nextEntry != null && !checkpointMap.containsKey(nextEntry.getKey())) {
+                nextEntry.getValue().apply(checkpointValues);
+                checkpointMap.put(nextEntry.getKey(), checkpointValues);
+            }
+        }
+    }
+
+    /**
+     * Create new checkpoint at newly added {@link Boundary} when the distance between checkpoints around it
+     * exceeds the {@link #CHECKPOINT_DISTANCE}.
+     *
+     * @param rangeValue of newly added {@link Boundary}
+     */
+    private void updateCheckpoints(R rangeValue)
+    {
+        R previousCheckpoint = checkpointMap.lowerKey(rangeValue);
+        R nextCheckpoint = checkpointMap.higherKey(rangeValue);
+        NavigableMap<R, Boundary<V>> boundaries = boundaryMap;
+        if (previousCheckpoint != null) {
+            boundaries = boundaries.tailMap(previousCheckpoint, false);
+        }
+        if (nextCheckpoint != null) {
+            boundaries = boundaries.headMap(nextCheckpoint, false);
+        }
+        int distance = 0;
+        for (R boundaryRangeValue : boundaries.keySet()) {
+            if (++distance > CHECKPOINT_DISTANCE) {
+                checkpointMap.put(rangeValue, getActiveValues(rangeValue));
+                break;
+            }
+        }
+    }
+
+    /**
+     * @param rangeValue of existing {@link Boundary}
+     * @return new set of values which are active at given {@code rangeValue}
+     */
+    private Set<V> getActiveValues(R rangeValue)
+    {
+        Set<V> values;
+        NavigableMap<R, Boundary<V>> boundaries;
+        Map.Entry<R, Set<V>> checkpoint = checkpointMap.floorEntry(rangeValue);
+        if (checkpoint != null) {
+            values = new HashSet<V>(checkpoint.getValue());
+            boundaries = boundaryMap.subMap(checkpoint.getKey(), false, rangeValue, true);
+        }
+        else {
+            values = new HashSet<V>();
+            boundaries = boundaryMap.headMap(rangeValue, true);
+        }
+        for (Boundary<V> boundary : boundaries.values()) {
+            boundary.apply(values);
+        }
+        return values;
+    }
+
+    /**
+     * @param start     range value of the first {@link Bucket}
+     * @param end       range value of the last {@link Bucket}
+     * @param inclusive specifies whether the {@link Bucket} for {@code end} should be created
+     * @return list of newly created {@link Bucket}s for {@link Boundary}s in given range
+     */
+    private List<Bucket<R, V>> createBuckets(R start, R end, boolean inclusive)
+    {
+        List<Bucket<R, V>> buckets = new ArrayList<Bucket<R, V>>();
+        NavigableMap<R, Boundary<V>> boundaries = boundaryMap.subMap(start, true, end, inclusive);
+        if (boundaries.isEmpty()) {
+            return buckets;
+        }
+        Set<V> values = getActiveValues(start);
+        boolean first = true;
+        for (Map.Entry<R, Boundary<V>> entry : boundaries.entrySet()) {
+            Boundary<V> boundary = entry.getValue();
+            if (first) {
+                first = false;
+            }
+            else {
+                boundary.apply(values);
+            }
+            Bucket<R, V> bucket = createBucket(entry.getKey());
+            for (V value : values) {
+                bucket.add(value);
+            }
+            for (V value : boundary.getStartingValues()) {
+                bucket.addOwnerValue(value);
+            }
+            for (V value : boundary.getEndingValues()) {
+                bucket.addOwnerValue(value);
+            }
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    /**
+     * @param start
+     * @return range value of the first {@link Boundary} which should be considered for given {@code start}
+     */
+    private R getFloor(R start)
+    {
+        R floor = boundaryMap.floorKey(start);
+        return (floor != null ? floor : boundaryMap.firstKey());
+    }
+
+    /**
+     * @param end
+     * @return range value of the first {@link Boundary} which shouldn't be considered for given {@code end}
+     */
+    private R getCeiling(R end)
+    {
+        R ceiling = boundaryMap.ceilingKey(end);
+        return (ceiling != null ? ceiling : boundaryMap.lastKey());
+    }
+
     /**
      * Represents a range unit. It covers the range from it's {@link #rangeValue} to {@link #rangeValue} of the
      * following {@link Bucket}. Each range unit can contain multiple values. The bucket must also hold the owning
@@ -354,6 +481,99 @@ public class RangeSet<V, R> implements Iterable<V>
         }
     }
 
+    /**
+     * Represents values which start or end at a single range value.
+     *
+     * @param <V>
+     */
+    private static class Boundary<V>
+    {
+        /**
+         * Values which start at the range value.
+         */
+        private List<V> startingValues = Collections.emptyList();
+
+        /**
+         * Values which end at the range value.
+         */
+        private List<V> endingValues = Collections.emptyList();
+
+        /**
+         * @return {@link #startingValues}
+         */
+        public List<V> getStartingValues()
+        {
+            return startingValues;
+        }
+
+        /**
+         * @return {@link #endingValues}
+         */
+        public List<V> getEndingValues()
+        {
+            return endingValues;
+        }
+
+        /**
+         * @param value to be added to the {@link #startingValues}
+         */
+        public void addStartingValue(V value)
+        {
+            if (startingValues.isEmpty()) {
+                startingValues = new ArrayList<V>(1);
+            }
+            startingValues.add(value);
+        }
+
+        /**
+         * @param value to be added to the {@link #endingValues}
+         */
+        public void addEndingValue(V value)
+        {
+            if (endingValues.isEmpty()) {
+                endingValues = new ArrayList<V>(1);
+            }
+            endingValues.add(value);
+        }
+
+        /**
+         * @param value to be removed from the {@link #startingValues}
+         */
+        public void removeStartingValue(V value)
+        {
+            startingValues.remove(value);
+        }
+
+        /**
+         * @param value to be removed from the {@link #endingValues}
+         */
+        public void removeEndingValue(V value)
+        {
+            endingValues.remove(value);
+        }
+
+        /**
+         * @return true if the boundary has no values,
+         *         false otherwise
+         */
+        public boolean isEmpty()
+        {
+            return startingValues.isEmpty() && endingValues.isEmpty();
+        }
+
+        /**
+         * @param values active before the range value which should be modified to values active at the range value
+         */
+        public void apply(Set<V> values)
+        {
+            values.addAll(startingValues);
+            // Remove values one by one (Set#removeAll iterates the set when it isn't larger than the list)
+            for (V value : endingValues) {
+                values.remove(value);
+            }
+        }
+    }
+
     /**
      * Represents a range of a value in the set.
      */
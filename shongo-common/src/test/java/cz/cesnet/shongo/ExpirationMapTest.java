@@ -0,0 +1,64 @@
+package cz.cesnet.shongo;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ExpirationMap}.
+ */
+public class ExpirationMapTest
+{
+    @Test
+    public void testExpiration() throws Exception
+    {
+        ExpirationMap<String, String> map = new ExpirationMap<String, String>(Duration.standardMinutes(1));
+        map.put("a", "1");
+        Assert.assertEquals("1", map.get("a"));
+        Assert.assertNull(map.get("b"));
+        Assert.assertEquals(1, map.getHitCount());
+        Assert.assertEquals(1, map.getMissCount());
+
+        // Nothing is expired now
+        Assert.assertEquals(0, map.clearExpired(DateTime.now()).size());
+        Assert.assertEquals(1, map.size());
+
+        // Entry is expired in the future
+        Assert.assertEquals(1, map.clearExpired(DateTime.now().plusMinutes(2)).size());
+        Assert.assertEquals(0, map.size());
+        Assert.assertEquals(1, map.getExpirationCount());
+
+        // Entry which is expired immediately
+        map.setExpiration(Duration.ZERO);
+        map.put("c", "3");
+        Assert.assertFalse(map.contains("c"));
+        Assert.assertTrue(map.values().isEmpty());
+
+        // Entry without expiration
+        map.setExpiration(null);
+        map.put("d", "4");
+        Assert.assertEquals(0, map.clearExpired(DateTime.now().plusYears(1)).size());
+        Assert.assertEquals("4", map.get("d"));
+        Assert.assertEquals(1, map.clearExpired(null).size());
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception
+    {
+        ExpirationMap<Integer, String> map = new ExpirationMap<Integer, String>(null, 10);
+        for (int index = 0; index < 10; index++) {
+            map.put(index, "value" + index);
+        }
+        // Access the first entry so that it is not the least recently used
+        Assert.assertEquals("value0", map.get(0));
+
+        map.put(10, "value10");
+        Assert.assertTrue(map.size() <= 10);
+        Assert.assertTrue(map.getEvictionCount() > 0);
+        Assert.assertTrue(map.contains(0));
+        Assert.assertTrue(map.contains(10));
+        Assert.assertFalse(map.contains(1));
+    }
+}
@@ -1,5 +1,6 @@
 package cz.cesnet.shongo.jade;
 
+import cz.cesnet.shongo.JadeReportSet;
 import cz.cesnet.shongo.api.jade.CommandException;
 import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
 import cz.cesnet.shongo.api.jade.Command;
@@ -12,6 +13,10 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Tests for {@link SendLocalCommand}
  *
@@ -72,4 +77,77 @@ public class SendLocalCommandTest
         Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.getState());
         logger.info("Received Ping Result by {}: {}.", agent1.getLocalName(), sendLocalCommand.getResult());
     }
+
+    /**
+     * Test sending multiple commands without waiting for each of them.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAsync() throws Exception
+    {
+        Agent agent1 = new Agent();
+        Agent agent2 = new Agent();
+
+        jadeContainer.addAgent("agent1", agent1, null);
+        jadeContainer.addAgent("agent2", agent2, null);
+        jadeContainer.waitForJadeAgentsToStart();
+
+        List<CompletableFuture<SendLocalCommand>> futures = new LinkedList<CompletableFuture<SendLocalCommand>>();
+        for (int index = 0; index < 10; index++) {
+            futures.add(agent1.sendCommandAsync(agent2.getLocalName(), new PingCommand()));
+        }
+        CompletableFuture<SendLocalCommand> notFoundFuture = agent1.sendCommandAsync("agent3", new PingCommand());
+        for (CompletableFuture<SendLocalCommand> future : futures) {
+            Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, future.get().getState());
+        }
+        Assert.assertEquals(SendLocalCommand.State.FAILED, notFoundFuture.get().getState());
+
+        // Not processed command times out
+        SendLocalCommand sendLocalCommand = new SendLocalCommand("agent2", new PingCommand());
+        Assert.assertEquals(SendLocalCommand.State.FAILED, sendLocalCommand.setTimeout(100).get().getState());
+        Assert.assertTrue(sendLocalCommand.getJadeReport() instanceof JadeReportSet.CommandTimeoutReport);
+    }
+
+    /**
+     * Test refusing of commands by overloaded agent and retrying of refused commands.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBackPressure() throws Exception
+    {
+        Agent agent1 = new Agent();
+        Agent agent2 = new Agent()
+        {
+            @Override
+            public Object handleCommand(Command command, AID sender)
+                    throws CommandException, CommandUnsupportedException
+            {
+                try {
+                    Thread.sleep(200);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.handleCommand(command, sender);
+            }
+        };
+        agent2.setCommandExecutor(1, 1);
+
+        jadeContainer.addAgent("agent1", agent1, null);
+        jadeContainer.addAgent("agent2", agent2, null);
+        jadeContainer.waitForJadeAgentsToStart();
+
+        List<CompletableFuture<SendLocalCommand>> futures = new LinkedList<CompletableFuture<SendLocalCommand>>();
+        for (int index = 0; index < 5; index++) {
+            futures.add(agent1.sendCommandAsync(agent2.getLocalName(), new PingCommand()));
+        }
+        for (CompletableFuture<SendLocalCommand> future : futures) {
+            Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, future.get().getState());
+        }
+        CommandExecutor commandExecutor = agent2.getCommandExecutor();
+        Assert.assertTrue(commandExecutor.getRejectedCount() > 0);
+        Assert.assertTrue(commandExecutor.getMaxQueueDepth() <= 1);
+    }
 }
@@ -0,0 +1,213 @@
+package cz.cesnet.shongo.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link CapacityProfile}.
+ */
+public class CapacityProfileTest
+{
+    private static Logger logger = LoggerFactory.getLogger(CapacityProfileTest.class);
+
+    @Test
+    public void test() throws Exception
+    {
+        CapacityProfile capacityProfile = new CapacityProfile();
+        Assert.assertEquals(0, capacityProfile.getPeak(0, 1000));
+
+        capacityProfile.add(0, 500, 1);
+        capacityProfile.add(100, 400, 2);
+        capacityProfile.add(200, 300, 3);
+        capacityProfile.add(240, 260, 4);
+        capacityProfile.add(600, 600, 5);
+        Assert.assertEquals(10, capacityProfile.getPeak(0, 1000));
+        Assert.assertEquals(1, capacityProfile.getPeak(0, 100));
+        Assert.assertEquals(3, capacityProfile.getPeak(0, 101));
+        Assert.assertEquals(6, capacityProfile.getPeak(200, 240));
+        Assert.assertEquals(10, capacityProfile.getPeak(259, 260));
+        Assert.assertEquals(6, capacityProfile.getPeak(260, 300));
+        Assert.assertEquals(1, capacityProfile.getPeak(450, 1000));
+        Assert.assertEquals(0, capacityProfile.getPeak(500, 1000));
+        Assert.assertEquals(0, capacityProfile.getPeak(-100, 0));
+
+        Assert.assertArrayEquals(new int[]{6, 10, 6, 3}, capacityProfile.getCapacities(200, 400));
+        Assert.assertArrayEquals(new int[]{1, 0}, capacityProfile.getCapacities(450, 550));
+
+        capacityProfile.add(450, 550, 7);
+        Assert.assertEquals(8, capacityProfile.getPeak(400, 1000));
+    }
+
+    /**
+     * Compare {@link CapacityProfile} with peaks computed from {@link RangeSet}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRangeSet() throws Exception
+    {
+        Random random = new Random(0);
+        for (int test = 0; test < 20; test++) {
+            CapacityProfile capacityProfile = new CapacityProfile();
+            RangeSet<Integer, Long> rangeSet = new RangeSet<Integer, Long>();
+            for (int value = 0; value < 200; value++) {
+                long start = random.nextInt(10000);
+                long end = start + 1 + random.nextInt(1000);
+                capacityProfile.add(start, end, value % 5 + 1);
+                rangeSet.add(value, start, end);
+            }
+            for (int query = 0; query < 100; query++) {
+                long start = random.nextInt(11000) - 500;
+                long end = start + 1 + random.nextInt(2000);
+                int peak = 0;
+                List<Integer> capacities = new ArrayList<Integer>();
+                for (RangeSet.Bucket<Long, Integer> bucket : rangeSet.getBuckets(start, end)) {
+                    int capacity = 0;
+                    for (Integer value : bucket) {
+                        capacity += value % 5 + 1;
+                    }
+                    peak = Math.max(peak, capacity);
+                    if (capacity > 0) {
+                        capacities.add(capacity);
+                    }
+                }
+                Assert.assertEquals(peak, capacityProfile.getPeak(start, end));
+                List<Integer> profileCapacities = new ArrayList<Integer>();
+                for (int capacity : capacityProfile.getCapacities(start, end)) {
+                    if (capacity > 0) {
+                        profileCapacities.add(capacity);
+                    }
+                }
+                Assert.assertEquals(capacities, profileCapacities);
+            }
+        }
+    }
+
+    /**
+     * Compare {@link CapacityProfile} modified by adding and removing of ranges (and its copies) with
+     * {@link CapacityProfile} built from remaining ranges.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRemove() throws Exception
+    {
+        Random random = new Random(0);
+        CapacityProfile capacityProfile = new CapacityProfile();
+        List<long[]> ranges = new ArrayList<long[]>();
+        for (int step = 0; step < 2000; step++) {
+            if (ranges.isEmpty() || random.nextInt(3) > 0) {
+                long start = random.nextInt(10000);
+                long end = start + 1 + random.nextInt(1000);
+                long[] range = new long[]{start, end, random.nextInt(5) + 1};
+                capacityProfile.add(range[0], range[1], (int) range[2]);
+                ranges.add(range);
+            }
+            else {
+                long[] range = ranges.remove(random.nextInt(ranges.size()));
+                capacityProfile.remove(range[0], range[1], (int) range[2]);
+            }
+            if (step % 20 != 0) {
+                continue;
+            }
+            long start = random.nextInt(11000) - 500;
+            long end = start + 1 + random.nextInt(2000);
+            assertEquals(ranges, capacityProfile, start, end);
+
+            // Modify copy of the profile
+            CapacityProfile capacityProfileCopy = capacityProfile.copy(start, end);
+            List<long[]> rangesCopy = new ArrayList<long[]>(ranges);
+            for (int index = 0; index < 5 && !rangesCopy.isEmpty(); index++) {
+                long[] range = rangesCopy.remove(random.nextInt(rangesCopy.size()));
+                capacityProfileCopy.remove(range[0], range[1], (int) range[2]);
+                range = new long[]{start - 500 + random.nextInt(1000), 0, random.nextInt(5) + 1};
+                range[1] = range[0] + 1 + random.nextInt(1000);
+                capacityProfileCopy.add(range[0], range[1], (int) range[2]);
+                rangesCopy.add(range);
+            }
+            assertEquals(rangesCopy, capacityProfileCopy, start, end);
+        }
+    }
+
+    /**
+     * Measure queries to {@link CapacityProfile} which is maintained incrementally (and copied for each query)
+     * with {@link CapacityProfile} which is built for each query from the ranges intersecting the queried range.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPerformance() throws Exception
+    {
+        int rangeCount = 20000;
+        long hour = 3600000;
+        long range = 365 * 24 * hour;
+        long queryDuration = 30 * 24 * hour;
+        int queryCount = 100;
+        Random random = new Random(0);
+        List<long[]> ranges = new ArrayList<long[]>();
+        long addTime = System.nanoTime();
+        CapacityProfile capacityProfile = new CapacityProfile();
+        for (int index = 0; index < rangeCount; index++) {
+            long start = (random.nextLong() & Long.MAX_VALUE) % range;
+            long[] rangeValues = new long[]{start, start + hour * (1 + random.nextInt(4)), 1 + random.nextInt(10)};
+            capacityProfile.add(rangeValues[0], rangeValues[1], (int) rangeValues[2]);
+            ranges.add(rangeValues);
+        }
+        addTime = System.nanoTime() - addTime;
+
+        long[] queryStarts = new long[queryCount];
+        for (int index = 0; index < queryCount; index++) {
+            queryStarts[index] = (random.nextLong() & Long.MAX_VALUE) % (range - queryDuration);
+        }
+        long buildTime = System.nanoTime();
+        for (long queryStart : queryStarts) {
+            long queryEnd = queryStart + queryDuration;
+            CapacityProfile queryCapacityProfile = new CapacityProfile();
+            for (long[] rangeValues : ranges) {
+                if (rangeValues[0] < queryEnd && rangeValues[1] > queryStart) {
+                    queryCapacityProfile.add(rangeValues[0], rangeValues[1], (int) rangeValues[2]);
+                }
+            }
+            queryCapacityProfile.getPeak(queryStart, queryEnd);
+        }
+        buildTime = System.nanoTime() - buildTime;
+        long copyTime = System.nanoTime();
+        for (long queryStart : queryStarts) {
+            long queryEnd = queryStart + queryDuration;
+            capacityProfile.copy(queryStart, queryEnd).getPeak(queryStart, queryEnd);
+        }
+        copyTime = System.nanoTime() - copyTime;
+        logger.info("Adding {} ranges took {} ms, query by building took {} us and query by copying took {} us.",
+                new Object[]{rangeCount, addTime / 1000000, buildTime / queryCount / 1000,
+                        copyTime / queryCount / 1000});
+    }
+
+    /**
+     * Assert that given {@code capacityProfile} answers queries in given range as profile built from {@code ranges}.
+     *
+     * @param ranges          expected ranges
+     * @param capacityProfile to be checked
+     * @param start           of range
+     * @param end             of range
+     */
+    private static void assertEquals(List<long[]> ranges, CapacityProfile capacityProfile, long start, long end)
+    {
+        CapacityProfile expectedCapacityProfile = new CapacityProfile();
+        for (long[] range : ranges) {
+            expectedCapacityProfile.add(range[0], range[1], (int) range[2]);
+        }
+        Assert.assertEquals(expectedCapacityProfile.getPeak(start, end), capacityProfile.getPeak(start, end));
+        long step = Math.max((end - start) / 10, 1);
+        for (long partStart = start; partStart < end; partStart += step) {
+            long partEnd = Math.min(partStart + step, end);
+            Assert.assertEquals(expectedCapacityProfile.getPeak(partStart, partEnd),
+                    capacityProfile.getPeak(partStart, partEnd));
+        }
+    }
+}
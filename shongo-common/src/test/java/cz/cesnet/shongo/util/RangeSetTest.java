@@ -2,8 +2,13 @@ package cz.cesnet.shongo.util;
 
 import cz.cesnet.shongo.util.RangeSet;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 /**
  * Tests for {@link cz.cesnet.shongo.util.RangeSet}.
@@ -13,6 +18,8 @@ import static org.junit.Assert.assertArrayEquals;
 @SuppressWarnings("unchecked")
 public class RangeSetTest
 {
+    private static Logger logger = LoggerFactory.getLogger(RangeSetTest.class);
+
     @Test
     public void test() throws Exception
     {
@@ -82,4 +89,134 @@ public class RangeSetTest
         rangeSet.add(1, 50, 50);
         rangeSet.remove(1);
     }
+
+    /**
+     * Compare {@link RangeSet} with buckets computed from all ranges (it must be large enough to contain checkpoints).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRandom() throws Exception
+    {
+        Random random = new Random(0);
+        RangeSet<Integer, Integer> rangeSet = new RangeSet<Integer, Integer>();
+        Map<Integer, int[]> ranges = new HashMap<Integer, int[]>();
+        for (int step = 0; step < 2000; step++) {
+            if (ranges.isEmpty() || random.nextInt(3) > 0) {
+                int value = step;
+                int start = random.nextInt(5000);
+                int end = start + random.nextInt(500);
+                rangeSet.add(value, start, end);
+                ranges.put(value, new int[]{start, end});
+            }
+            else {
+                List<Integer> values = new ArrayList<Integer>(ranges.keySet());
+                Integer value = values.get(random.nextInt(values.size()));
+                rangeSet.remove(value);
+                ranges.remove(value);
+            }
+            if (step % 10 != 0) {
+                continue;
+            }
+            assertEquals(getBuckets(ranges), new ArrayList<RangeSet.Bucket<Integer, Integer>>(rangeSet.getBuckets()));
+            int start = random.nextInt(5500) - 250;
+            int end = start + random.nextInt(500);
+            List<RangeSet.Bucket<Integer, Integer>> buckets = getBuckets(ranges, start, end);
+            assertEquals(buckets, new ArrayList<RangeSet.Bucket<Integer, Integer>>(rangeSet.getBuckets(start, end)));
+            Set<Integer> values = new HashSet<Integer>();
+            for (RangeSet.Bucket<Integer, Integer> bucket : buckets) {
+                values.addAll(bucket);
+            }
+            assertEquals(values, rangeSet.getValues(start, end));
+        }
+        assertEquals(ranges.size(), rangeSet.size());
+    }
+
+    /**
+     * Measure {@link RangeSet} with groups of ranges which end at the same range value (the set of values active
+     * before such boundary is not larger than the list of values ending at it).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPerformance() throws Exception
+    {
+        int groupCount = 10;
+        int groupSize = 2000;
+        int groupDistance = 3000;
+        long addTime = System.nanoTime();
+        RangeSet<Integer, Integer> rangeSet = new RangeSet<Integer, Integer>();
+        for (int group = 0; group < groupCount; group++) {
+            int groupStart = group * groupDistance;
+            for (int index = 0; index < groupSize; index++) {
+                rangeSet.add(groupStart + index, groupStart + index, groupStart + groupSize);
+            }
+        }
+        addTime = System.nanoTime() - addTime;
+        int count = 10;
+        long valuesTime = System.nanoTime();
+        for (int index = 0; index < count; index++) {
+            for (int group = 0; group < groupCount; group++) {
+                int groupEnd = group * groupDistance + groupSize;
+                assertEquals(0, rangeSet.getValues(groupEnd, groupEnd + 1).size());
+            }
+        }
+        valuesTime = System.nanoTime() - valuesTime;
+        logger.info("Adding {} ranges took {} ms and retrieval of values after group end took {} us.", new Object[]{
+                groupCount * groupSize, addTime / 1000000, valuesTime / (count * groupCount) / 1000
+        });
+    }
+
+    /**
+     * @param ranges
+     * @return all buckets for given {@code ranges}
+     */
+    private static List<RangeSet.Bucket<Integer, Integer>> getBuckets(Map<Integer, int[]> ranges)
+    {
+        TreeSet<Integer> rangeValues = new TreeSet<Integer>();
+        for (int[] range : ranges.values()) {
+            rangeValues.add(range[0]);
+            rangeValues.add(range[1]);
+        }
+        List<RangeSet.Bucket<Integer, Integer>> buckets = new ArrayList<RangeSet.Bucket<Integer, Integer>>();
+        for (Integer rangeValue : rangeValues) {
+            RangeSet.Bucket<Integer, Integer> bucket = new RangeSet.Bucket<Integer, Integer>(rangeValue);
+            for (Map.Entry<Integer, int[]> entry : ranges.entrySet()) {
+                int[] range = entry.getValue();
+                if (range[0] <= rangeValue && rangeValue < range[1]) {
+                    bucket.add(entry.getKey());
+                }
+            }
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    /**
+     * @param ranges
+     * @param start
+     * @param end
+     * @return buckets for given {@code ranges} which should be returned for given {@code start} and {@code end}
+     */
+    private static List<RangeSet.Bucket<Integer, Integer>> getBuckets(Map<Integer, int[]> ranges, int start, int end)
+    {
+        List<RangeSet.Bucket<Integer, Integer>> buckets = getBuckets(ranges);
+        if (buckets.isEmpty()) {
+            return buckets;
+        }
+        // From the last bucket before (or at) start to the first bucket after (or at) end (exclusive)
+        int from = 0;
+        int to = buckets.size() - 1;
+        for (int index = 0; index < buckets.size(); index++) {
+            int rangeValue = buckets.get(index).getRangeValue();
+            if (rangeValue <= start) {
+                from = index;
+            }
+            if (rangeValue >= end) {
+                to = index;
+                break;
+            }
+        }
+        return buckets.subList(from, Math.max(from, to));
+    }
 }
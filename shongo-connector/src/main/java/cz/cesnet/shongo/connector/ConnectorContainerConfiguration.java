@@ -30,6 +30,8 @@ public class ConnectorContainerConfiguration extends CombinedConfiguration
     public static final String CONTROLLER_CONNECTION_CHECK_PERIOD = "controller.connection-check-period";
     public static final String JADE_HOST = "jade.host";
     public static final String JADE_PORT = "jade.port";
+    public static final String JADE_COMMAND_THREAD_COUNT = "jade.command-thread-count";
+    public static final String JADE_COMMAND_QUEUE_SIZE = "jade.command-queue-size";
 
     Map<String, CombinedConfiguration> connectorConfigurationByName = new LinkedHashMap<String, CombinedConfiguration>();
 
@@ -26,6 +26,12 @@ abstract public class AbstractDeviceConnector extends AbstractConnector
     public static final String OPTION_TIMEOUT = "timeout";
     public static final Duration OPTION_TIMEOUT_DEFAULT = Duration.standardSeconds(30);
 
+    /**
+     * Maximum number of HTTP connections to the device (i.e., number of requests performed in parallel) option
+     */
+    public static final String OPTION_MAX_CONNECTIONS = "max-connections";
+    public static final int OPTION_MAX_CONNECTIONS_DEFAULT = 4;
+
     /**
      * {@link DeviceAddress} of managed device.
      */
@@ -136,6 +142,27 @@ abstract public class AbstractDeviceConnector extends AbstractConnector
         return requestTimeout;
     }
 
+    /**
+     * @param username       for the {@code authentication}
+     * @param password       for the {@code authentication}
+     * @param authentication {@link DeviceHttpClient.Authentication} of requests
+     * @return new {@link DeviceHttpClient} for the {@link #deviceAddress} with {@link #requestTimeout}
+     *         and with maximum number of connections from {@link #OPTION_MAX_CONNECTIONS}
+     *         (registered for monitoring by JMX under the name of the {@link #agent})
+     */
+    protected DeviceHttpClient createDeviceHttpClient(String username, String password,
+            DeviceHttpClient.Authentication authentication)
+    {
+        int maxConnections = OPTION_MAX_CONNECTIONS_DEFAULT;
+        if (configuration != null) {
+            maxConnections = configuration.getOptionInt(OPTION_MAX_CONNECTIONS, OPTION_MAX_CONNECTIONS_DEFAULT);
+        }
+        DeviceHttpClient httpClient = new DeviceHttpClient(deviceAddress, username, password, authentication,
+                requestTimeout, maxConnections);
+        httpClient.registerMBean(agent != null ? agent.getLocalName() : deviceAddress.toString());
+        return httpClient;
+    }
+
     @Override
     public final void connect(ConnectorConfiguration configuration) throws CommandException
     {
@@ -0,0 +1,578 @@
+package cz.cesnet.shongo.connector.common;
+
+import cz.cesnet.shongo.api.util.DeviceAddress;
+import cz.cesnet.shongo.ssl.ConfiguredSSLContext;
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.auth.AUTH;
+import org.apache.http.auth.AuthScheme;
+import org.apache.http.auth.AuthenticationException;
+import org.apache.http.auth.MalformedChallengeException;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.auth.DigestScheme;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pooled HTTP client for a single managed device. Connections to the device are kept alive in a pool
+ * (thus the TCP and TLS handshakes are performed only when a new connection is opened) and the maximum number
+ * of connections limits the number of requests which are performed on the device in parallel.
+ * <p/>
+ * Requests are authenticated preemptively. For {@link Authentication#DIGEST} the {@link DigestScheme} solving
+ * the last challenge from the device is cached (so that the nonce count is incremented for each request) and
+ * the device is challenged again only when it rejects the cached one. Durations of requests are
+ * collected by command names to {@link CommandStatistics} which can be monitored by JMX
+ * (see {@link #registerMBean}).
+ */
+public class DeviceHttpClient implements DeviceHttpClientMBean, Closeable
+{
+    private static Logger logger = LoggerFactory.getLogger(DeviceHttpClient.class);
+
+    /**
+     * Duration in seconds after which idle connections are closed.
+     */
+    private static final int IDLE_CONNECTION_TIMEOUT = 60;
+
+    /**
+     * {@link DeviceAddress} of the device.
+     */
+    private final DeviceAddress deviceAddress;
+
+    /**
+     * {@link Authentication} of requests.
+     */
+    private final Authentication authentication;
+
+    /**
+     * Credentials for the {@link #authentication}.
+     */
+    private final UsernamePasswordCredentials credentials;
+
+    /**
+     * Pool of connections to the device.
+     */
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * Underlying {@link CloseableHttpClient}.
+     */
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * Cookies shared by all requests to the device (e.g., for devices with form based login).
+     */
+    private final BasicCookieStore cookieStore = new BasicCookieStore();
+
+    /**
+     * Cached {@link AUTH#WWW_AUTH_RESP} header for {@link Authentication#BASIC}.
+     */
+    private Header basicAuthorization;
+
+    /**
+     * {@link DigestScheme}s solving the last {@link AUTH#WWW_AUTH} challenges by hosts
+     * for {@link Authentication#DIGEST}.
+     */
+    private final AuthCache digestAuthCache = new DigestAuthCache();
+
+    /**
+     * {@link CommandStatistics} by command names.
+     */
+    private final ConcurrentMap<String, CommandStatistics> commandStatistics =
+            new ConcurrentHashMap<String, CommandStatistics>();
+
+    /**
+     * {@link ObjectName} under which the client is registered to the platform {@link MBeanServer}
+     * ({@code null} when it isn't registered).
+     */
+    private ObjectName objectName;
+
+    /**
+     * Constructor.
+     *
+     * @param deviceAddress  sets the {@link #deviceAddress}
+     * @param username       for the {@link #authentication}
+     * @param password       for the {@link #authentication}
+     * @param authentication sets the {@link #authentication}
+     * @param timeout        timeout in milliseconds for connecting, reading and for waiting for a connection from pool
+     * @param maxConnections maximum number of connections to the device
+     */
+    public DeviceHttpClient(DeviceAddress deviceAddress, String username, String password,
+            Authentication authentication, int timeout, int maxConnections)
+    {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("Argument maxConnections must be positive.");
+        }
+        this.deviceAddress = deviceAddress;
+        this.authentication = authentication;
+        this.credentials = new UsernamePasswordCredentials(username, password);
+
+        ConfiguredSSLContext configuredSSLContext = ConfiguredSSLContext.getInstance();
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(
+                        configuredSSLContext.getContext(), configuredSSLContext.getHostnameVerifier()))
+                .build();
+        connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(IDLE_CONNECTION_TIMEOUT * 1000 / 2);
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(createRequestConfig(timeout))
+                .setDefaultCookieStore(cookieStore)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.SECONDS)
+                .build();
+
+        if (Authentication.BASIC.equals(authentication)) {
+            try {
+                basicAuthorization = new BasicScheme().authenticate(credentials,
+                        new BasicHttpRequest("GET", "/"), new BasicHttpContext());
+            }
+            catch (AuthenticationException exception) {
+                throw new IllegalArgumentException("Basic authentication cannot be created.", exception);
+            }
+        }
+    }
+
+    /**
+     * @return {@link #deviceAddress}
+     */
+    public DeviceAddress getDeviceAddress()
+    {
+        return deviceAddress;
+    }
+
+    /**
+     * @return new {@link HttpClientContext} sharing cookies with other requests to the device
+     */
+    public HttpClientContext createContext()
+    {
+        HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(cookieStore);
+        return context;
+    }
+
+    /**
+     * @see #execute(String, HttpUriRequest, HttpClientContext)
+     */
+    public CloseableHttpResponse execute(String command, HttpUriRequest request) throws IOException
+    {
+        return execute(command, request, createContext());
+    }
+
+    /**
+     * Execute given {@code request} on the device. The entity of the returned response must be consumed
+     * (or the response closed) to return the connection back to the pool.
+     *
+     * @param command name of the command for which the {@code request} is executed (for {@link CommandStatistics})
+     * @param request to be executed
+     * @param context in which the {@code request} should be executed
+     * @return {@link CloseableHttpResponse}
+     * @throws IOException when the request fails
+     */
+    public CloseableHttpResponse execute(String command, HttpUriRequest request, HttpClientContext context)
+            throws IOException
+    {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            CloseableHttpResponse response;
+            switch (authentication) {
+                case BASIC:
+                    request.setHeader(basicAuthorization);
+                    response = httpClient.execute(request, context);
+                    break;
+                case DIGEST:
+                    response = executeDigest(request, context);
+                    break;
+                default:
+                    response = httpClient.execute(request, context);
+                    break;
+            }
+            succeeded = true;
+            return response;
+        }
+        finally {
+            long duration = System.nanoTime() - start;
+            CommandStatistics statistics = commandStatistics.get(command);
+            if (statistics == null) {
+                CommandStatistics newStatistics = new CommandStatistics();
+                statistics = commandStatistics.putIfAbsent(command, newStatistics);
+                if (statistics == null) {
+                    statistics = newStatistics;
+                }
+            }
+            statistics.add(duration, succeeded);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Command '{}' on {} {} in {} ms.", new Object[]{command, deviceAddress,
+                        (succeeded ? "performed" : "failed"), TimeUnit.NANOSECONDS.toMillis(duration)});
+            }
+        }
+    }
+
+    /**
+     * Execute given {@code request} with {@link DigestScheme} from {@link #digestAuthCache}. When the device
+     * doesn't accept it (or no scheme is cached yet) the request is performed again with a new scheme for
+     * the new challenge from the device.
+     *
+     * @param request to be executed
+     * @param context in which the {@code request} should be executed
+     * @return {@link CloseableHttpResponse}
+     * @throws IOException when the request fails
+     */
+    private CloseableHttpResponse executeDigest(HttpUriRequest request, HttpClientContext context)
+            throws IOException
+    {
+        HttpHost host = URIUtils.extractHost(request.getURI());
+        DigestScheme digestScheme = (DigestScheme) digestAuthCache.get(host);
+        if (digestScheme != null) {
+            request.setHeader(authenticateDigest(digestScheme, request));
+        }
+        CloseableHttpResponse response = httpClient.execute(request, context);
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_UNAUTHORIZED) {
+            return response;
+        }
+        Header newChallenge = response.getFirstHeader(AUTH.WWW_AUTH);
+        EntityUtils.consumeQuietly(response.getEntity());
+        response.close();
+        if (newChallenge == null) {
+            throw new IOException("Device " + deviceAddress + " responded with HTTP 401, "
+                    + "but didn't send an usable " + AUTH.WWW_AUTH + " header.");
+        }
+        DigestScheme newDigestScheme = new DigestScheme();
+        try {
+            newDigestScheme.processChallenge(newChallenge);
+        }
+        catch (MalformedChallengeException exception) {
+            throw new IOException("Digest challenge from device " + deviceAddress + " is malformed.", exception);
+        }
+        request.setHeader(authenticateDigest(newDigestScheme, request));
+        response = httpClient.execute(request, context);
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_UNAUTHORIZED) {
+            digestAuthCache.put(host, newDigestScheme);
+        }
+        return response;
+    }
+
+    /**
+     * @param digestScheme solving a challenge from the device
+     * @param request      to be authenticated
+     * @return {@link AUTH#WWW_AUTH_RESP} header for given {@code request} by given {@code digestScheme}
+     * @throws IOException when the request cannot be authenticated
+     */
+    private Header authenticateDigest(DigestScheme digestScheme, HttpUriRequest request) throws IOException
+    {
+        URI uri = request.getURI();
+        String requestUri = uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            requestUri += "?" + uri.getRawQuery();
+        }
+        HttpRequest authenticatedRequest = new BasicHttpRequest(request.getMethod(), requestUri);
+        try {
+            // Nonce count is incremented by the scheme and thus it must not be shared by parallel requests
+            synchronized (digestScheme) {
+                return digestScheme.authenticate(credentials, authenticatedRequest, new BasicHttpContext());
+            }
+        }
+        catch (AuthenticationException exception) {
+            throw new IOException("Digest authentication to device " + deviceAddress + " failed.", exception);
+        }
+    }
+
+    /**
+     * @return {@link CommandStatistics} by command names
+     */
+    public Map<String, CommandStatistics> getCommandStatistics()
+    {
+        return new TreeMap<String, CommandStatistics>(commandStatistics);
+    }
+
+    @Override
+    public String[] getCommandNames()
+    {
+        return getCommandStatistics().keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public long getRequestCount()
+    {
+        long requestCount = 0;
+        for (CommandStatistics statistics : commandStatistics.values()) {
+            requestCount += statistics.getCount();
+        }
+        return requestCount;
+    }
+
+    @Override
+    public long getFailedRequestCount()
+    {
+        long failedRequestCount = 0;
+        for (CommandStatistics statistics : commandStatistics.values()) {
+            failedRequestCount += statistics.getFailedCount();
+        }
+        return failedRequestCount;
+    }
+
+    @Override
+    public String getCommandSummary(String commandName)
+    {
+        CommandStatistics statistics = commandStatistics.get(commandName);
+        return (statistics != null ? statistics.toString() : null);
+    }
+
+    @Override
+    public String getSummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, CommandStatistics> entry : getCommandStatistics().entrySet()) {
+            summary.append(entry.getKey());
+            summary.append(" (");
+            summary.append(entry.getValue());
+            summary.append(")\n");
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Register the client to the platform {@link MBeanServer} to allow monitoring of {@link CommandStatistics}
+     * while the device is connected (the client is unregistered by {@link #close()}).
+     *
+     * @param name of the client (e.g., name of the connector)
+     */
+    public void registerMBean(String name)
+    {
+        try {
+            ObjectName objectName = new ObjectName(
+                    "cz.cesnet.shongo.connector:type=DeviceHttpClient,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        }
+        catch (InstanceAlreadyExistsException exception) {
+            logger.warn("HTTP client for {} cannot be registered, because {} is already registered.",
+                    deviceAddress, name);
+        }
+        catch (JMException exception) {
+            logger.warn("HTTP client for " + deviceAddress + " cannot be registered.", exception);
+        }
+    }
+
+    /**
+     * Close the client and all its connections.
+     */
+    @Override
+    public void close()
+    {
+        if (!commandStatistics.isEmpty()) {
+            logger.info("Closing HTTP client for {} (commands: {}).", deviceAddress, getCommandStatistics());
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+            catch (JMException exception) {
+                logger.warn("HTTP client for " + deviceAddress + " cannot be unregistered.", exception);
+            }
+            objectName = null;
+        }
+        try {
+            httpClient.close();
+        }
+        catch (IOException exception) {
+            logger.warn("Failed to close HTTP client for " + deviceAddress + ".", exception);
+        }
+    }
+
+    /**
+     * @param timeout in milliseconds
+     * @return {@link RequestConfig} with given {@code timeout} for connecting, reading and for waiting
+     *         for a connection from pool
+     */
+    public static RequestConfig createRequestConfig(int timeout)
+    {
+        return RequestConfig.custom()
+                .setConnectTimeout(timeout)
+                .setSocketTimeout(timeout)
+                .setConnectionRequestTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Authentication of requests to the device.
+     */
+    public static enum Authentication
+    {
+        /**
+         * Requests are not authenticated by HTTP (e.g., the device uses form based login or tokens).
+         */
+        NONE,
+
+        /**
+         * Preemptive HTTP basic authentication.
+         */
+        BASIC,
+
+        /**
+         * HTTP digest authentication with cached challenge.
+         */
+        DIGEST
+    }
+
+    /**
+     * {@link AuthCache} which keeps the {@link AuthScheme} instances (the
+     * {@link org.apache.http.impl.client.BasicAuthCache} stores serialized copies of schemes and thus the nonce
+     * count of a cached {@link DigestScheme} wouldn't be incremented).
+     */
+    private static class DigestAuthCache implements AuthCache
+    {
+        /**
+         * Cached {@link AuthScheme}s by hosts.
+         */
+        private final ConcurrentMap<HttpHost, AuthScheme> authSchemes = new ConcurrentHashMap<HttpHost, AuthScheme>();
+
+        @Override
+        public void put(HttpHost host, AuthScheme authScheme)
+        {
+            authSchemes.put(host, authScheme);
+        }
+
+        @Override
+        public AuthScheme get(HttpHost host)
+        {
+            return authSchemes.get(host);
+        }
+
+        @Override
+        public void remove(HttpHost host)
+        {
+            authSchemes.remove(host);
+        }
+
+        @Override
+        public void clear()
+        {
+            authSchemes.clear();
+        }
+    }
+
+    /**
+     * Durations of requests performed for a single command.
+     */
+    public static class CommandStatistics
+    {
+        /**
+         * Number of performed requests.
+         */
+        private final AtomicLong count = new AtomicLong();
+
+        /**
+         * Number of failed requests.
+         */
+        private final AtomicLong failedCount = new AtomicLong();
+
+        /**
+         * Total duration of all requests in nanoseconds.
+         */
+        private final AtomicLong totalDuration = new AtomicLong();
+
+        /**
+         * Maximum duration of a single request in nanoseconds.
+         */
+        private final AtomicLong maxDuration = new AtomicLong();
+
+        /**
+         * @param duration  of a request in nanoseconds
+         * @param succeeded specifies whether the request succeeded
+         */
+        private void add(long duration, boolean succeeded)
+        {
+            count.incrementAndGet();
+            if (!succeeded) {
+                failedCount.incrementAndGet();
+            }
+            totalDuration.addAndGet(duration);
+            long currentMaxDuration;
+            do {
+                currentMaxDuration = maxDuration.get();
+            }
+            while (duration > currentMaxDuration && !maxDuration.compareAndSet(currentMaxDuration, duration));
+        }
+
+        /**
+         * @return {@link #count}
+         */
+        public long getCount()
+        {
+            return count.get();
+        }
+
+        /**
+         * @return {@link #failedCount}
+         */
+        public long getFailedCount()
+        {
+            return failedCount.get();
+        }
+
+        /**
+         * @return average duration of a request in milliseconds
+         */
+        public long getAverageDuration()
+        {
+            long count = this.count.get();
+            return (count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalDuration.get() / count) : 0);
+        }
+
+        /**
+         * @return maximum duration of a request in milliseconds
+         */
+        public long getMaxDuration()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(maxDuration.get());
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("count: %d, failed: %d, average: %d ms, max: %d ms",
+                    getCount(), getFailedCount(), getAverageDuration(), getMaxDuration());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package cz.cesnet.shongo.connector.common;
+
+/**
+ * JMX interface of {@link DeviceHttpClient}.
+ */
+public interface DeviceHttpClientMBean
+{
+    /**
+     * @return names of commands which have been performed (e.g., "getSystemInformation")
+     */
+    public String[] getCommandNames();
+
+    /**
+     * @return total number of requests
+     */
+    public long getRequestCount();
+
+    /**
+     * @return total number of failed requests
+     */
+    public long getFailedRequestCount();
+
+    /**
+     * @param commandName name of command
+     * @return summary of statistics for given {@code commandName}
+     */
+    public String getCommandSummary(String commandName);
+
+    /**
+     * @return summary of statistics for all commands
+     */
+    public String getSummary();
+}
@@ -12,21 +12,18 @@ import cz.cesnet.shongo.connector.api.Configuration;
 import cz.cesnet.shongo.connector.api.UsageStats;
 import cz.cesnet.shongo.connector.common.AbstractMultipointConnector;
 import cz.cesnet.shongo.connector.common.Command;
+import cz.cesnet.shongo.connector.common.DeviceHttpClient;
 import cz.cesnet.shongo.connector.support.KeepAliveTransportFactory;
 import cz.cesnet.shongo.controller.api.jade.NotifyTarget;
 import cz.cesnet.shongo.controller.api.jade.Service;
-import cz.cesnet.shongo.ssl.ConfiguredSSLContext;
 import cz.cesnet.shongo.util.MathHelper;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.*;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.protocol.BasicHttpContext;
-import org.apache.http.protocol.ExecutionContext;
-import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.apache.tika.detect.DefaultDetector;
 import org.apache.tika.io.TikaInputStream;
@@ -108,9 +105,9 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     private XmlRpcClient xmlRpcClient;
 
     /**
-     * {@link XmlRpcClient} used for the Http communication with the device.
+     * {@link DeviceHttpClient} used for the Http communication with the device.
      */
-    private HttpClient httpClient;
+    private DeviceHttpClient httpClient;
 
     /**
      * Detector for {@link MediaType}s.
@@ -235,8 +232,11 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
             xmlRpcClient.setConfig(config);
             xmlRpcClient.setTransportFactory(new KeepAliveTransportFactory(xmlRpcClient));
 
-            // Create HttpClient for Http communication
-            httpClient = ConfiguredSSLContext.getInstance().createHttpClient(requestTimeout);
+            // Create HttpClient for Http communication (login is performed by form)
+            if (httpClient != null) {
+                httpClient.close();
+            }
+            httpClient = createDeviceHttpClient(username, password, DeviceHttpClient.Authentication.NONE);
 
             // Get and check device info
             Map<String, Object> device = execApi(new Command("device.query"));
@@ -300,6 +300,10 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         // TODO: consider publishing feedback events from the MCU
         // no real operation - the communication protocol is stateless
         xmlRpcClient = null; // just for sure the attributes are not used anymore
+        if (httpClient != null) {
+            httpClient.close();
+            httpClient = null;
+        }
 
         //Disconnect Alias service
         if (this.lifeSizeUVCClearSea != null) {
@@ -977,16 +981,18 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         try {
             URL requestUrl = getDeviceHttpUrl(file);
             HttpGet request = new HttpGet(requestUrl.toURI());
-            HttpContext context = new BasicHttpContext();
-            HttpResponse response = httpClient.execute(request, context);
-            HttpRequest responseRequest = (HttpRequest) context.getAttribute(ExecutionContext.HTTP_REQUEST);
+            HttpClientContext context = httpClient.createContext();
+            String command = requestUrl.getPath();
+            HttpResponse response = httpClient.execute(command, request, context);
+            HttpRequest responseRequest = context.getRequest();
             StatusLine responseStatusLine = response.getStatusLine();
             if (responseStatusLine.getStatusCode() == HttpStatus.SC_OK) {
                 if (responseRequest.getRequestLine().getUri().startsWith("/login.html")) {
+                    EntityUtils.consumeQuietly(response.getEntity());
                     // Perform login
                     loginHttp();
                     // Perform the request again
-                    response = httpClient.execute(request, context);
+                    response = httpClient.execute(command, request, context);
                 }
                 HttpEntity responseEntity = response.getEntity();
                 if (responseEntity != null) {
@@ -995,6 +1001,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
                     return new MediaData(mediaType, mediaContent);
                 }
             }
+            EntityUtils.consumeQuietly(response.getEntity());
             throw new RuntimeException(response.getStatusLine().toString());
         }
         catch (CommandException exception) {
@@ -1019,10 +1026,11 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
             parameters.add(new BasicNameValuePair("password", authPassword));
             parameters.add(new BasicNameValuePair("ok", "OK"));
             request.setEntity(new UrlEncodedFormEntity(parameters, "UTF-8"));
-            HttpContext context = new BasicHttpContext();
-            HttpResponse response = httpClient.execute(request, context);
-            HttpRequest responseRequest = (HttpRequest) context.getAttribute(ExecutionContext.HTTP_REQUEST);
+            HttpClientContext context = httpClient.createContext();
+            HttpResponse response = httpClient.execute("/login_change.html", request, context);
+            HttpRequest responseRequest = context.getRequest();
             StatusLine responseStatusLine = response.getStatusLine();
+            EntityUtils.consumeQuietly(response.getEntity());
             if (responseStatusLine.getStatusCode() != HttpStatus.SC_OK) {
                 throw new RuntimeException("Wrong status " + responseStatusLine);
             }
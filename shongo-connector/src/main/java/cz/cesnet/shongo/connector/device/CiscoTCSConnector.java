@@ -14,6 +14,7 @@ import cz.cesnet.shongo.connector.api.RecordingService;
 import cz.cesnet.shongo.connector.api.RecordingSettings;
 import cz.cesnet.shongo.connector.common.AbstractDeviceConnector;
 import cz.cesnet.shongo.connector.common.Command;
+import cz.cesnet.shongo.connector.common.DeviceHttpClient;
 import cz.cesnet.shongo.connector.storage.*;
 import cz.cesnet.shongo.connector.storage.File;
 import cz.cesnet.shongo.controller.NotEnoughSpaceException;
@@ -21,21 +22,14 @@ import cz.cesnet.shongo.controller.api.jade.NotifyTarget;
 import cz.cesnet.shongo.controller.api.jade.Service;
 import cz.cesnet.shongo.ssl.ConfiguredSSLContext;
 import cz.cesnet.shongo.util.MathHelper;
-import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.HttpVersion;
-import org.apache.http.auth.ContextAwareAuthScheme;
-import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.auth.DigestScheme;
-import org.apache.http.message.BasicHttpRequest;
-import org.apache.http.params.CoreProtocolPNames;
-import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
 import org.apache.tika.io.IOUtils;
 import org.jdom2.Document;
@@ -102,6 +96,11 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
      */
     private String password;
 
+    /**
+     * Client used for the Http communication with the device.
+     */
+    private DeviceHttpClient httpClient;
+
     /**
      * {@link DateTimeFormatter} for new file-ids.
      * <p/>
@@ -168,7 +167,7 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
     /**
      * Namespace
      */
-    private Namespace ns1;
+    private volatile Namespace ns1;
 
     /**
      * Free space limit on TCS to start recording.
@@ -195,6 +194,12 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
      */
     private boolean debug = false;
 
+    /**
+     * Specifies whether API requests should use HTTP/1.1 and thus keep connections alive
+     * (by default HTTP/1.0 is used because of compatibility with TCS and thus each request opens new connection).
+     */
+    private boolean httpKeepAlive = false;
+
     /**
      * Thread for checking recordings.
      */
@@ -275,6 +280,14 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
         // Enable xml output do debug log
         this.debug = configuration.getOptionBool("debug");
 
+        this.httpKeepAlive = configuration.getOptionBool("http-keep-alive");
+
+        // Create HttpClient for Http communication
+        if (this.httpClient != null) {
+            this.httpClient.close();
+        }
+        this.httpClient = createDeviceHttpClient(username, password, DeviceHttpClient.Authentication.DIGEST);
+
         checkServerVitality();
 
         final AtomicReference<Thread> threadReference = new AtomicReference<>();
@@ -368,6 +381,9 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
             this.checkRecordingsThreadReference.set(null);
             checkRecordingsThread.interrupt();
         }
+        if (httpClient != null) {
+            httpClient.close();
+        }
     }
 
     /**
@@ -969,127 +985,90 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
      * @return Document Element
      * @throws CommandException
      */
-    private synchronized Element execApi(Command command, int timeout, String requestUrl) throws CommandException
+    private Element execApi(Command command, int timeout, String requestUrl) throws CommandException
     {
         if (requestUrl == null) {
             requestUrl = SOAP_PATH;
         }
         try {
-            HttpClient httpClient = ConfiguredSSLContext.getInstance().createHttpClient(timeout);
-            while (true) {
+            logger.debug(String.format("Issuing command '%s' on %s", command.getCommand(), deviceAddress));
 
-                logger.debug(String.format("Issuing command '%s' on %s", command.getCommand(), deviceAddress));
-
-                final ContextAwareAuthScheme md5Auth = new DigestScheme();
+            // Setup POST request
+            HttpPost lHttpPost = new HttpPost(deviceAddress.getUrl() + requestUrl);
+            if (timeout != this.requestTimeout) {
+                lHttpPost.setConfig(DeviceHttpClient.createRequestConfig(timeout));
+            }
 
-                // Setup POST request
-                HttpPost lHttpPost = new HttpPost(deviceAddress.getUrl() + requestUrl);
+            // Set SOAPAction header
+            lHttpPost.addHeader("SOAPAction", "http://www.tandberg.net/XML/Streaming/1.0/GetSystemInformation");
 
-                // Set SOAPAction header
-                lHttpPost.addHeader("SOAPAction", "http://www.tandberg.net/XML/Streaming/1.0/GetSystemInformation");
+            // Add XML to request, direct in the body - no parameter name
+            String xml = buildExecXml(command);
 
-                // Add XML to request, direct in the body - no parameter name
-                String xml = buildExecXml(command);
+            if (debug) {
+                System.out.println("===================");
+                System.out.println("INPUT");
+                System.out.println("===================");
+                System.out.println(xml);
+            }
 
-                if (debug) {
-                    System.out.println("===================");
-                    System.out.println("INPUT");
-                    System.out.println("===================");
-                    System.out.println(xml);
-                }
+            StringEntity lEntity = new StringEntity(xml, ContentType.create("text/xml", "utf-8"));
+            lHttpPost.setEntity(lEntity);
 
-                StringEntity lEntity = new StringEntity(xml, ContentType.create("text/xml", "utf-8"));
-                lHttpPost.setEntity(lEntity);
-
-                // Protocol version should be 1.0 because of compatibility with TCS
-                lHttpPost.getParams().setParameter(CoreProtocolPNames.PROTOCOL_VERSION, HttpVersion.HTTP_1_0);
-                HttpResponse authResponse = httpClient.execute(lHttpPost);
-
-                // Validate that we got an HTTP 401 back
-                if (authResponse.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
-                    if (authResponse.containsHeader("WWW-Authenticate")) {
-                        // Get the challenge.
-                        final Header challenge =
-                                authResponse.getHeaders("WWW-Authenticate")[0];
-                        // Solve it.
-                        md5Auth.processChallenge(challenge);
-                        // Generate a solution Authentication header using your
-                        // username and password.
-                        // Do another POST, but this time include the solution
-                        final Header solution = md5Auth.authenticate(
-                                new UsernamePasswordCredentials(this.login, this.password),
-                                new BasicHttpRequest(HttpPost.METHOD_NAME, requestUrl),
-                                new BasicHttpContext());
-
-                        // Authentication header as generated by HttpClient.
-                        lHttpPost.setHeader(solution);
-
-                        lHttpPost.releaseConnection();
-
-                        /*
-                        System.out.println("===================");
-                        System.out.println(lHttpPost.getURI());
-                        System.out.println("===================");
-                        for (Header header : lHttpPost.getAllHeaders()){
-                            System.out.println(header.toString() + " : " + header.getName() + " --- " + header.getValue());
-                        }
-                        System.out.println("===================");
-                        */
+            // Protocol version should be 1.0 because of compatibility with TCS (unless keep-alive is enabled)
+            if (!httpKeepAlive) {
+                lHttpPost.setProtocolVersion(HttpVersion.HTTP_1_0);
+            }
 
-                        final HttpResponse goodResponse = httpClient.execute(lHttpPost);
+            // Digest authentication is performed by the client (the TCS is challenged only when needed)
+            final HttpResponse goodResponse = httpClient.execute(command.getCommand(), lHttpPost);
 
-                        String resultString = EntityUtils.toString(goodResponse.getEntity());
+            String resultString = EntityUtils.toString(goodResponse.getEntity());
 
-                        if (debug) {
-                            System.out.println("==========");
-                            System.out.println("OUTPUT");
-                            System.out.println("==========");
-                            System.out.println(resultString);
-                        }
+            if (debug) {
+                System.out.println("==========");
+                System.out.println("OUTPUT");
+                System.out.println("==========");
+                System.out.println(resultString);
+            }
 
-                        // For requested status info return whole XML response
-                        if (requestUrl.equals(STATUS_PATH)) {
-                            Document resultDocument = saxBuilder.build(new StringReader(removeNamespace(resultString)));
-                            return resultDocument.getRootElement();
-                        }
+            if (goodResponse.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
+                throw new CommandException("Command '" + command.getCommand() + "' was not authorized: "
+                        + goodResponse.getStatusLine().getReasonPhrase());
+            }
 
-                        // Remove namespace NS_NS1
-                        if (this.ns1 == null) {
-                            Document resultDocumentTmp = saxBuilder.build(new StringReader(resultString));
-                            Element rootElementTmp = resultDocumentTmp.getRootElement();
-                            this.ns1 = rootElementTmp.getNamespace(NS_NS1);
-                            if (this.ns1 == null) {
-                                throw new IllegalStateException("Namespace doesn't exist.");
-                            }
+            // For requested status info return whole XML response
+            if (requestUrl.equals(STATUS_PATH)) {
+                Document resultDocument = saxBuilder.build(new StringReader(removeNamespace(resultString)));
+                return resultDocument.getRootElement();
+            }
 
-                        }
-                        Document resultDocument = saxBuilder.build(new StringReader(removeNamespace(resultString)));
-                        Element rootElement = resultDocument.getRootElement();
-                        Namespace envelopeNS = rootElement.getNamespace(NS_ENVELOPE);
-                        Element bodyElement = rootElement.getChild("Body", envelopeNS);
-                        if (bodyElement == null || goodResponse.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
-                            String faultString = "Unknown";
-                            Element fault = bodyElement != null ? bodyElement.getChild("Fault", envelopeNS) : null;
-                            if (fault != null) {
-                                faultString = fault.getChildText("faultstring");
-                            }
-                            throw new FaultException("Command '" + command.getCommand() + "' issuing error: "
-                                    + goodResponse.getStatusLine().getReasonPhrase(), faultString);
-                        }
-                        return bodyElement;
-                    }
-                    else {
-                        throw new Error("Web-service responded with Http 401, " +
-                                "but didn't send us a usable WWW-Authenticate header.");
-                    }
+            // Remove namespace NS_NS1
+            if (this.ns1 == null) {
+                Document resultDocumentTmp = saxBuilder.build(new StringReader(resultString));
+                Element rootElementTmp = resultDocumentTmp.getRootElement();
+                this.ns1 = rootElementTmp.getNamespace(NS_NS1);
+                if (this.ns1 == null) {
+                    throw new IllegalStateException("Namespace doesn't exist.");
                 }
-                else {
-                    throw new Error("Didn't get an Http 401 like we were expecting, but (" +
-                            authResponse.getStatusLine().getStatusCode() + ").");
+
+            }
+            Document resultDocument = saxBuilder.build(new StringReader(removeNamespace(resultString)));
+            Element rootElement = resultDocument.getRootElement();
+            Namespace envelopeNS = rootElement.getNamespace(NS_ENVELOPE);
+            Element bodyElement = rootElement.getChild("Body", envelopeNS);
+            if (bodyElement == null || goodResponse.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                String faultString = "Unknown";
+                Element fault = bodyElement != null ? bodyElement.getChild("Fault", envelopeNS) : null;
+                if (fault != null) {
+                    faultString = fault.getChildText("faultstring");
                 }
+                throw new FaultException("Command '" + command.getCommand() + "' issuing error: "
+                        + goodResponse.getStatusLine().getReasonPhrase(), faultString);
             }
+            return bodyElement;
         }
-        catch (FaultException exception) {
+        catch (CommandException exception) {
             throw exception;
         }
         catch (Exception exception) {
@@ -5,18 +5,28 @@ import cz.cesnet.shongo.api.jade.CommandException;
 import cz.cesnet.shongo.api.util.DeviceAddress;
 import cz.cesnet.shongo.connector.api.AliasService;
 import cz.cesnet.shongo.connector.common.AbstractDeviceConnector;
+import cz.cesnet.shongo.connector.common.DeviceHttpClient;
 import cz.cesnet.shongo.controller.api.jade.NotifyTarget;
 import cz.cesnet.shongo.controller.api.jade.Service;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.HttpsURLConnection;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -57,6 +67,11 @@ public class LifeSizeUVCClearSea extends AbstractDeviceConnector implements Alia
     private static String serviceUserID;
     private static String serviceUserPassword;
 
+    /**
+     * Client used for the Http communication with the server.
+     */
+    private DeviceHttpClient httpClient;
+
     /**
      * state of the connection
      */
@@ -203,6 +218,10 @@ public class LifeSizeUVCClearSea extends AbstractDeviceConnector implements Alia
         serviceUserID = username;
         serviceUserPassword = password;
         connectionState = ConnectionState.DISCONNECTED;
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        httpClient = createDeviceHttpClient(username, password, DeviceHttpClient.Authentication.NONE);
         login();
     }
 
@@ -226,6 +245,10 @@ public class LifeSizeUVCClearSea extends AbstractDeviceConnector implements Alia
         serviceUserPassword = null;
         accessToken = null;
         connectionState = ConnectionState.DISCONNECTED;
+        if (httpClient != null) {
+            httpClient.close();
+            httpClient = null;
+        }
     }
 
     /**
@@ -269,10 +292,10 @@ public class LifeSizeUVCClearSea extends AbstractDeviceConnector implements Alia
         Exception exception = null;
         try {
             String actionUrl = buildURLString(ACTION_STATUS);
-            HttpsURLConnection connection = (HttpsURLConnection)new URL(actionUrl).openConnection();
-            connection.setConnectTimeout(this.requestTimeout);
+            HttpResponse response = executeRequest(ACTION_STATUS, RequestType.GET, actionUrl, null);
+            EntityUtils.consumeQuietly(response.getEntity());
             // Throws exception when an error is found
-            checkError(connection);
+            checkError(response.getStatusLine());
         } catch (SocketTimeoutException e) {
             logged = false;
             message = "Timeout in checkTokenValidity.";
@@ -308,69 +331,56 @@ public class LifeSizeUVCClearSea extends AbstractDeviceConnector implements Alia
 
     /**
      * performRequest function performs the REST request with given action,
-     * depending on request converts the attribute map to JSON string and sends the data
+     * depending on request converts the attribute map to JSON string and sends the data.
+     * When the access token is refused (it has expired), new one is retrieved and the request is performed again.
      * @param requestType REST request GET, POST or DELETE
      * @param action requested information source -> entire URL
      * @param jsonObject JSON object
+     * @param checkTokenValidity whether the request should be performed with (renewed) access token
      * @return JSON object
      * @throws CommandException
      */
     private JSONObject performRequest(RequestType requestType, String action, JSONObject jsonObject, boolean checkTokenValidity)
             throws CommandException {
+        boolean useToken = connectionState != ConnectionState.DISCONNECTED && checkTokenValidity;
+        String command;
         String actionUrl;
-        if (connectionState != ConnectionState.DISCONNECTED && checkTokenValidity) {
-            checkTokenValidity();
+        if (useToken) {
             logger.info("Performing action: " + requestType + ":" + action + " ...");
+            command = requestType + " " + (action.startsWith(ACTION_ACCOUNTS + "/") ? ACTION_ACCOUNTS + "/{id}" : action);
             actionUrl = buildURLString(action);
         }
         else {
             logger.info("Performing action: login on server " + this.deviceAddress.getHost() + " ...");
+            command = "login";
             actionUrl = buildLoginUrlString(action);
         }
 
-        HttpsURLConnection connection;
-        try {
-            connection = (HttpsURLConnection) new URL(actionUrl).openConnection();
-            connection.setConnectTimeout(this.requestTimeout);
-        }
-        catch (MalformedURLException e) {
-            String message = "Malformed URL \"" + actionUrl + "\".";
-            logger.error(message);
-            throw new CommandException(message, e);
-        }
-        catch (IOException e) {
-            String message = "Failed to initialize url connection for action: " + actionUrl;
-            logger.error(message);
-            throw new CommandException(message, e);
-        }
         try {
-            connection.setRequestMethod(requestType.toString());
-            JSONObject jsonResponse = null;
-            if (requestType == RequestType.GET) {
-                connection.setRequestProperty("Accept", "application/json");
-                checkError(connection);
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                StringBuilder stringBuilder = new StringBuilder();
-                String responseLine;
-                while ((responseLine = bufferedReader.readLine()) != null) {
-                    stringBuilder.append(responseLine);
+            HttpResponse response = executeRequest(command, requestType, actionUrl, jsonObject);
+            if (useToken && response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                logger.info("Access token was refused, retrieving new one.");
+                login();
+                actionUrl = buildURLString(action);
+                response = executeRequest(command, requestType, actionUrl, jsonObject);
+            }
+            try {
+                checkError(response.getStatusLine());
+                JSONObject jsonResponse = null;
+                if (requestType == RequestType.GET) {
+                    jsonResponse = new JSONObject(EntityUtils.toString(response.getEntity()));
                 }
-                jsonResponse = new JSONObject(stringBuilder.toString());
-            } else {
-                connection.setDoOutput(true);
-                connection.setRequestProperty("Content-Type", "application/json");
-                if (jsonObject != null) {
-                    connection.getOutputStream().write(jsonObject.toString().getBytes());
+                if (actionUrl.contains(API_V2)) {
+                    logger.info("Action: " + action + " was successful.");
+                } else {
+                    logger.info("Action login was successful.");
                 }
-                checkError(connection);
+                return jsonResponse;
             }
-            connection.disconnect();
-            if (actionUrl.contains(API_V2)) {
-                logger.info("Action: " + action + " was successful.");
-            } else {
-                logger.info("Action login was successful.");
+            finally {
+                EntityUtils.consumeQuietly(response.getEntity());
             }
-            return jsonResponse;
         } catch (SocketTimeoutException e) {
             logger.warn("Timeout in performRequest.", e);
         } catch (IOException e) {
@@ -380,58 +390,97 @@ public class LifeSizeUVCClearSea extends AbstractDeviceConnector implements Alia
         } catch (Exception e) {
             logger.error("UNKWNOW ERROR: ", e);
             planConnection();
-        } finally {
-            connection.disconnect();
         }
         return null;
     }
 
     /**
-     * Function throws exceptions for different HTTP connection error response codes.
-     * @param connection https connection
-     * @throws CommandException
+     * Performs single REST request on the server.
+     * @param command name of the command (for statistics)
+     * @param requestType REST request GET, POST or DELETE
+     * @param actionUrl entire URL of the request
+     * @param jsonObject JSON object to be sent (only for POST)
+     * @return HttpResponse which must be consumed
+     * @throws IOException
+     * @throws CommandException when the URL is malformed
      */
-    private void checkError(HttpsURLConnection connection) throws CommandException {
+    private HttpResponse executeRequest(String command, RequestType requestType, String actionUrl,
+            JSONObject jsonObject) throws IOException, CommandException {
+        URI uri;
         try {
-            int errorCode = connection.getResponseCode();
-            switch (errorCode) {
-                case 200: {
-                    // 200 OK - The API call succeeded with no errors; a JSON Result list of objects is returned.
-                    break;
-                }
-                case 204: {
-                    // 204 No Content - The API call succeeded with no errors.
-                    break;
-                }
-                case 400: {
-                    throw new CommandException("400 Bad Request - The API call failed because of an error in the input" +
-                            " arguments; a JSON error is returned. May have attempted to assign endpoint" +
-                            " to a non-existing alias.");
-                }
-                case 401: {
-                    throw new CommandException("401 Unauthorized - Authentication failed.");
-                }
-                case 404: {
-                    throw new CommandException("404 Not Found - The API call failed because the endpoint was not found;" +
-                            " a JSON error is returned. Refer to Error. Alias may have been already deleted.");
-                }
-                case 500: {
-                    throw new CommandException("500 Internal Server Error - An internal error occurred while processing" +
-                            " the API call; an error is returned.");
+            // Quote characters which are not allowed in URI (e.g., in credentials)
+            URL url = new URL(actionUrl);
+            uri = new URI(url.getProtocol(), url.getUserInfo(), url.getHost(), url.getPort(), url.getPath(),
+                    url.getQuery(), url.getRef());
+        }
+        catch (MalformedURLException | URISyntaxException e) {
+            String message = "Malformed URL \"" + actionUrl + "\".";
+            logger.error(message);
+            throw new CommandException(message, e);
+        }
+        HttpRequestBase request;
+        switch (requestType) {
+            case GET: {
+                request = new HttpGet(uri);
+                request.setHeader("Accept", "application/json");
+                break;
+            }
+            case POST: {
+                HttpPost httpPost = new HttpPost(uri);
+                if (jsonObject != null) {
+                    httpPost.setEntity(new StringEntity(jsonObject.toString(), ContentType.APPLICATION_JSON));
                 }
-                default: {
-                    if (errorCode > 400) {
-                        throw new CommandException(errorCode + " " + connection.getResponseMessage());
-                    }
+                request = httpPost;
+                break;
+            }
+            case DELETE: {
+                request = new HttpDelete(uri);
+                break;
+            }
+            default: {
+                throw new IllegalArgumentException("Invalid request type: " + requestType);
+            }
+        }
+        return httpClient.execute(command, request);
+    }
+
+    /**
+     * Function throws exceptions for different HTTP connection error response codes.
+     * @param statusLine of the response
+     * @throws CommandException
+     */
+    private void checkError(StatusLine statusLine) throws CommandException {
+        int errorCode = statusLine.getStatusCode();
+        switch (errorCode) {
+            case 200: {
+                // 200 OK - The API call succeeded with no errors; a JSON Result list of objects is returned.
+                break;
+            }
+            case 204: {
+                // 204 No Content - The API call succeeded with no errors.
+                break;
+            }
+            case 400: {
+                throw new CommandException("400 Bad Request - The API call failed because of an error in the input" +
+                        " arguments; a JSON error is returned. May have attempted to assign endpoint" +
+                        " to a non-existing alias.");
+            }
+            case 401: {
+                throw new CommandException("401 Unauthorized - Authentication failed.");
+            }
+            case 404: {
+                throw new CommandException("404 Not Found - The API call failed because the endpoint was not found;" +
+                        " a JSON error is returned. Refer to Error. Alias may have been already deleted.");
+            }
+            case 500: {
+                throw new CommandException("500 Internal Server Error - An internal error occurred while processing" +
+                        " the API call; an error is returned.");
+            }
+            default: {
+                if (errorCode > 400) {
+                    throw new CommandException(errorCode + " " + statusLine.getReasonPhrase());
                 }
             }
-        } catch (IOException e) {
-            String message = "Error code could not be read from the connection.";
-            logger.error(message);
-            throw new CommandException(message, e);
-        } catch (Exception e) {
-            logger.error("CONNECTION ERROR: " + e.getMessage(), e);
-            throw e;
         }
     }
 
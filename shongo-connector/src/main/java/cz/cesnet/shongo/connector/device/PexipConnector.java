@@ -2,7 +2,6 @@ package cz.cesnet.shongo.connector.device;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
-import java.util.Base64;
 import cz.cesnet.shongo.AliasType;
 import cz.cesnet.shongo.ParticipantRole;
 import cz.cesnet.shongo.Technology;
@@ -12,12 +11,11 @@ import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
 import cz.cesnet.shongo.api.util.DeviceAddress;
 import cz.cesnet.shongo.connector.api.UsageStats;
 import cz.cesnet.shongo.connector.common.AbstractMultipointConnector;
+import cz.cesnet.shongo.connector.common.DeviceHttpClient;
 import cz.cesnet.shongo.connector.common.RequestAttributeList;
 import cz.cesnet.shongo.connector.util.HttpReqUtils;
-import cz.cesnet.shongo.ssl.ConfiguredSSLContext;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.*;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHeader;
@@ -31,7 +29,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -46,12 +43,6 @@ public class PexipConnector extends AbstractMultipointConnector {
 
     public static final int DEFAULT_PORT = 443;
 
-    /**
-     * Authentication for the device.
-     */
-    private String authUsername;
-    private String authPassword;
-
     /**
      * Request timeout to device in milliseconds.
      */
@@ -60,7 +51,7 @@ public class PexipConnector extends AbstractMultipointConnector {
     /**
      * Client used for the Http communication with the device.
      */
-    private HttpClient httpClient;
+    private DeviceHttpClient httpClient;
 
     /**
      * Option for the {@link PexipConnector}.
@@ -283,7 +274,10 @@ public class PexipConnector extends AbstractMultipointConnector {
 
     @Override
     public void disconnect() throws CommandException {
-        // no real operation - the communication protocol is stateless
+        // the communication protocol is stateless, only the pooled connections are closed
+        if (httpClient != null) {
+            httpClient.close();
+        }
         httpClient = null; // just for sure the attributes are not used anymore
 
     }
@@ -520,14 +514,14 @@ public class PexipConnector extends AbstractMultipointConnector {
         roomNumberFromH323Number = configuration.getOptionPattern(ROOM_NUMBER_EXTRACTION_FROM_H323_NUMBER);
 
 
-        //standard basic auth
-        this.authUsername = username;
-        this.authPassword = password;
         this.deviceAddress = deviceAddress;
         this.requestTimeout = (int) configuration.getOptionDuration(OPTION_TIMEOUT, OPTION_TIMEOUT_DEFAULT).getMillis();
 
-        // Create HttpClient for Http communication
-        httpClient = ConfiguredSSLContext.getInstance().createHttpClient(requestTimeout);
+        // Create HttpClient for Http communication (with standard basic auth)
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        httpClient = createDeviceHttpClient(username, password, DeviceHttpClient.Authentication.BASIC);
 
         //Try to fetch nodes list
         try {
@@ -575,17 +569,16 @@ public class PexipConnector extends AbstractMultipointConnector {
      * @throws CommandException
      */
     private HttpResponse execApiToResponse(String actionPath, RequestAttributeList attributes, String body, HttpMethod reqMethod) throws CommandException {
-        String authString = authUsername + ":" + authPassword;
-        String authStringEnc = Base64.getEncoder().encodeToString(authString.getBytes(StandardCharsets.UTF_8));
         String command = getCallUrl(actionPath, attributes);
         logger.debug(String.format("Issuing request " + reqMethod + " '%s'", command));
         HttpRequestBase request = getRequest(command, reqMethod);
-        request.setHeader("Authorization", "Basic " + authStringEnc);
         HttpResponse response;
 
         try {
             addBodyToRequest(request, body);
-            response = httpClient.execute(request);
+            // Identifiers are removed from the path to collect statistics per action
+            String commandName = reqMethod + " " + actionPath.replaceAll("/\\d+(?=/|$)", "/{id}");
+            response = httpClient.execute(commandName, request);
             StatusLine responseStatusLine = response.getStatusLine();
 
             if (responseStatusLine.getStatusCode() >= 400) {
@@ -21,6 +21,8 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Jade Agent for Device Connector
@@ -65,6 +67,11 @@ public class ConnectorAgent extends Agent
         addOntology(ConnectorOntology.getInstance());
         addOntology(ControllerOntology.getInstance());
         setCommandTimeout((int) connectorContainerConfiguration.getJadeCommandTimeout().getMillis());
+        setCommandExecutor(
+                connectorConfiguration.getOptionInt("command-thread-count", connectorContainerConfiguration.getInt(
+                        ConnectorContainerConfiguration.JADE_COMMAND_THREAD_COUNT)),
+                connectorConfiguration.getOptionInt("command-queue-size", connectorContainerConfiguration.getInt(
+                        ConnectorContainerConfiguration.JADE_COMMAND_QUEUE_SIZE)));
 
         // Create and initialize connector
         Class<? extends CommonService> connectorClass;
@@ -144,30 +151,20 @@ public class ConnectorAgent extends Agent
     }
 
     @Override
-    public SendLocalCommand sendCommand(String receiverAgentName, Command command)
+    public CompletableFuture<SendLocalCommand> sendCommandAsync(String receiverAgentName, final Command command)
     {
         ConnectorContainer.requestedCommands.info("Action:{} {}.", command.getId(), command);
-        SendLocalCommand sendLocalCommand = super.sendCommand(receiverAgentName, command);
-        String commandState;
-        switch (sendLocalCommand.getState()) {
-            case SUCCESSFUL:
-                Object result = sendLocalCommand.getResult();
-                if (result != null && result instanceof String) {
-                    commandState = String.format("OK: %s", result);
-                }
-                else {
-                    commandState = "OK";
-                }
-                break;
-            case FAILED:
-                commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
-                break;
-            default:
-                commandState = "UNKNOWN";
-                break;
-        }
-        ConnectorContainer.requestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
-        return sendLocalCommand;
+        return super.sendCommandAsync(receiverAgentName, command).thenApplyAsync(
+                new Function<SendLocalCommand, SendLocalCommand>()
+                {
+                    @Override
+                    public SendLocalCommand apply(SendLocalCommand sendLocalCommand)
+                    {
+                        ConnectorContainer.requestedCommands.info("Action:{} Done ({}).", command.getId(),
+                                sendLocalCommand.getStateDescription());
+                        return sendLocalCommand;
+                    }
+                }, SendLocalCommand.getCallbackExecutor());
     }
 
     @Override
@@ -0,0 +1,163 @@
+package cz.cesnet.shongo.connector.common;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import cz.cesnet.shongo.api.util.DeviceAddress;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link DeviceHttpClient}.
+ */
+public class DeviceHttpClientTest
+{
+    private HttpServer httpServer;
+
+    /**
+     * Authorization headers of requests received by the {@link #httpServer}.
+     */
+    private final List<String> authorizations = new ArrayList<String>();
+
+    @Before
+    public void before() throws Exception
+    {
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                exchange.getRequestBody().close();
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                synchronized (authorizations) {
+                    authorizations.add(authorization);
+                }
+                byte[] body;
+                if (authorization == null) {
+                    exchange.getResponseHeaders().add("WWW-Authenticate",
+                            "Digest realm=\"test\", nonce=\"1234\", qop=\"auth\"");
+                    body = "Unauthorized".getBytes();
+                    exchange.sendResponseHeaders(HttpStatus.SC_UNAUTHORIZED, body.length);
+                }
+                else {
+                    body = "OK".getBytes();
+                    exchange.sendResponseHeaders(HttpStatus.SC_OK, body.length);
+                }
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        httpServer.start();
+    }
+
+    @After
+    public void after()
+    {
+        httpServer.stop(0);
+    }
+
+    @Test
+    public void testDigestChallengeCached() throws Exception
+    {
+        DeviceHttpClient httpClient = createHttpClient(DeviceHttpClient.Authentication.DIGEST);
+        try {
+            Assert.assertEquals("OK", execute(httpClient, "test"));
+            Assert.assertEquals(2, authorizations.size());
+            Assert.assertNull(authorizations.get(0));
+            Assert.assertTrue(authorizations.get(1).startsWith("Digest"));
+            Assert.assertTrue(authorizations.get(1).contains("username=\"user\""));
+
+            Assert.assertTrue(authorizations.get(1).contains("nc=00000001"));
+
+            // Cached challenge is used without additional round trip and the nonce count is incremented
+            Assert.assertEquals("OK", execute(httpClient, "test"));
+            Assert.assertEquals(3, authorizations.size());
+            Assert.assertTrue(authorizations.get(2).startsWith("Digest"));
+            Assert.assertTrue(authorizations.get(2).contains("nc=00000002"));
+            Assert.assertEquals("OK", execute(httpClient, "test"));
+            Assert.assertEquals(4, authorizations.size());
+            Assert.assertTrue(authorizations.get(3).contains("nc=00000003"));
+
+            DeviceHttpClient.CommandStatistics statistics = httpClient.getCommandStatistics().get("test");
+            Assert.assertEquals(3, statistics.getCount());
+            Assert.assertEquals(0, statistics.getFailedCount());
+        }
+        finally {
+            httpClient.close();
+        }
+    }
+
+    @Test
+    public void testBasicPreemptive() throws Exception
+    {
+        DeviceHttpClient httpClient = createHttpClient(DeviceHttpClient.Authentication.BASIC);
+        try {
+            Assert.assertEquals("OK", execute(httpClient, "first"));
+            Assert.assertEquals("OK", execute(httpClient, "second"));
+            Assert.assertEquals(2, authorizations.size());
+            Assert.assertEquals("Basic dXNlcjpwYXNzd29yZA==", authorizations.get(0));
+            Assert.assertEquals("Basic dXNlcjpwYXNzd29yZA==", authorizations.get(1));
+            Assert.assertEquals(1, httpClient.getCommandStatistics().get("first").getCount());
+            Assert.assertEquals(1, httpClient.getCommandStatistics().get("second").getCount());
+        }
+        finally {
+            httpClient.close();
+        }
+    }
+
+    @Test
+    public void testMBean() throws Exception
+    {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("cz.cesnet.shongo.connector:type=DeviceHttpClient,name=\"test\"");
+        DeviceHttpClient httpClient = createHttpClient(DeviceHttpClient.Authentication.BASIC);
+        try {
+            httpClient.registerMBean("test");
+            Assert.assertEquals("OK", execute(httpClient, "first"));
+            Assert.assertEquals("OK", execute(httpClient, "first"));
+            Assert.assertEquals(2L, mBeanServer.getAttribute(objectName, "RequestCount"));
+            Assert.assertEquals(0L, mBeanServer.getAttribute(objectName, "FailedRequestCount"));
+            Assert.assertArrayEquals(new String[]{"first"},
+                    (String[]) mBeanServer.getAttribute(objectName, "CommandNames"));
+            String commandSummary = (String) mBeanServer.invoke(objectName, "getCommandSummary",
+                    new Object[]{"first"}, new String[]{String.class.getName()});
+            Assert.assertTrue(commandSummary.startsWith("count: 2, failed: 0"));
+        }
+        finally {
+            httpClient.close();
+        }
+        Assert.assertFalse(mBeanServer.isRegistered(objectName));
+    }
+
+    private DeviceHttpClient createHttpClient(DeviceHttpClient.Authentication authentication)
+    {
+        DeviceAddress deviceAddress = DeviceAddress.parseAddress("http://127.0.0.1:" + httpServer.getAddress().getPort());
+        return new DeviceHttpClient(deviceAddress, "user", "password", authentication, 5000, 2);
+    }
+
+    private String execute(DeviceHttpClient httpClient, String command) throws Exception
+    {
+        HttpPost request = new HttpPost("http://127.0.0.1:" + httpServer.getAddress().getPort() + "/api");
+        request.setEntity(new StringEntity("<request/>"));
+        HttpResponse response = httpClient.execute(command, request);
+        return EntityUtils.toString(response.getEntity());
+    }
+}
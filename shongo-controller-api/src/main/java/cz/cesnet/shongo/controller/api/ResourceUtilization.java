@@ -0,0 +1,192 @@
+package cz.cesnet.shongo.controller.api;
+
+import cz.cesnet.shongo.api.AbstractComplexType;
+import cz.cesnet.shongo.api.DataMap;
+import org.joda.time.Interval;
+
+/**
+ * Represents utilization of licenses of a single resource in a single interval (e.g., utilization of room licenses
+ * by {@link ReservationSummary.Type#ROOM} reservations).
+ * <p/>
+ * The interval is divided into parts in which the utilization doesn't change. The {@link #peakLicenseCount} is
+ * maximum from utilized license counts of all parts and the average is computed only from parts in which
+ * the resource is utilized.
+ */
+public class ResourceUtilization extends AbstractComplexType
+{
+    /**
+     * Identifier of the resource.
+     */
+    private String resourceId;
+
+    /**
+     * {@link ReservationSummary.Type} of reservations which utilize the licenses.
+     */
+    private ReservationSummary.Type reservationType;
+
+    /**
+     * Interval of the utilization.
+     */
+    private Interval interval;
+
+    /**
+     * Maximum number of utilized licenses in the {@link #interval}.
+     */
+    private int peakLicenseCount;
+
+    /**
+     * Sum of utilized license counts from all parts of the {@link #interval} in which the resource is utilized.
+     */
+    private int totalLicenseCount;
+
+    /**
+     * Number of parts of the {@link #interval} in which the resource is utilized.
+     */
+    private int utilizedPartCount;
+
+    /**
+     * Constructor.
+     */
+    public ResourceUtilization()
+    {
+    }
+
+    /**
+     * @return {@link #resourceId}
+     */
+    public String getResourceId()
+    {
+        return resourceId;
+    }
+
+    /**
+     * @param resourceId sets the {@link #resourceId}
+     */
+    public void setResourceId(String resourceId)
+    {
+        this.resourceId = resourceId;
+    }
+
+    /**
+     * @return {@link #reservationType}
+     */
+    public ReservationSummary.Type getReservationType()
+    {
+        return reservationType;
+    }
+
+    /**
+     * @param reservationType sets the {@link #reservationType}
+     */
+    public void setReservationType(ReservationSummary.Type reservationType)
+    {
+        this.reservationType = reservationType;
+    }
+
+    /**
+     * @return {@link #interval}
+     */
+    public Interval getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * @param interval sets the {@link #interval}
+     */
+    public void setInterval(Interval interval)
+    {
+        this.interval = interval;
+    }
+
+    /**
+     * @return {@link #peakLicenseCount}
+     */
+    public int getPeakLicenseCount()
+    {
+        return peakLicenseCount;
+    }
+
+    /**
+     * @param peakLicenseCount sets the {@link #peakLicenseCount}
+     */
+    public void setPeakLicenseCount(int peakLicenseCount)
+    {
+        this.peakLicenseCount = peakLicenseCount;
+    }
+
+    /**
+     * @return {@link #totalLicenseCount}
+     */
+    public int getTotalLicenseCount()
+    {
+        return totalLicenseCount;
+    }
+
+    /**
+     * @param totalLicenseCount sets the {@link #totalLicenseCount}
+     */
+    public void setTotalLicenseCount(int totalLicenseCount)
+    {
+        this.totalLicenseCount = totalLicenseCount;
+    }
+
+    /**
+     * @return {@link #utilizedPartCount}
+     */
+    public int getUtilizedPartCount()
+    {
+        return utilizedPartCount;
+    }
+
+    /**
+     * @param utilizedPartCount sets the {@link #utilizedPartCount}
+     */
+    public void setUtilizedPartCount(int utilizedPartCount)
+    {
+        this.utilizedPartCount = utilizedPartCount;
+    }
+
+    /**
+     * @return average number of utilized licenses in parts of the {@link #interval} in which the resource is utilized
+     */
+    public double getAverageLicenseCount()
+    {
+        if (utilizedPartCount == 0) {
+            return 0;
+        }
+        return (double) totalLicenseCount / (double) utilizedPartCount;
+    }
+
+    private static final String RESOURCE_ID = "resourceId";
+    private static final String RESERVATION_TYPE = "reservationType";
+    private static final String INTERVAL = "interval";
+    private static final String PEAK_LICENSE_COUNT = "peakLicenseCount";
+    private static final String TOTAL_LICENSE_COUNT = "totalLicenseCount";
+    private static final String UTILIZED_PART_COUNT = "utilizedPartCount";
+
+    @Override
+    public DataMap toData()
+    {
+        DataMap dataMap = super.toData();
+        dataMap.set(RESOURCE_ID, resourceId);
+        dataMap.set(RESERVATION_TYPE, reservationType);
+        dataMap.set(INTERVAL, interval);
+        dataMap.set(PEAK_LICENSE_COUNT, peakLicenseCount);
+        dataMap.set(TOTAL_LICENSE_COUNT, totalLicenseCount);
+        dataMap.set(UTILIZED_PART_COUNT, utilizedPartCount);
+        return dataMap;
+    }
+
+    @Override
+    public void fromData(DataMap dataMap)
+    {
+        super.fromData(dataMap);
+        resourceId = dataMap.getString(RESOURCE_ID);
+        reservationType = dataMap.getEnum(RESERVATION_TYPE, ReservationSummary.Type.class);
+        interval = dataMap.getInterval(INTERVAL);
+        peakLicenseCount = dataMap.getInt(PEAK_LICENSE_COUNT);
+        totalLicenseCount = dataMap.getInt(TOTAL_LICENSE_COUNT);
+        utilizedPartCount = dataMap.getInt(UTILIZED_PART_COUNT);
+    }
+}
@@ -0,0 +1,102 @@
+package cz.cesnet.shongo.controller.api;
+
+import cz.cesnet.shongo.api.AbstractComplexType;
+import cz.cesnet.shongo.api.DataMap;
+import org.joda.time.Interval;
+
+/**
+ * Represents availability of a single occurrence of periodic
+ * {@link cz.cesnet.shongo.controller.api.request.AvailabilityCheckRequest}.
+ */
+public class SlotAvailability extends AbstractComplexType
+{
+    /**
+     * Time slot of the occurrence.
+     */
+    private Interval slot;
+
+    /**
+     * {@link AllocationStateReport} describing the reason why the {@link #slot} is not available
+     * ({@code null} when it is available).
+     */
+    private AllocationStateReport report;
+
+    /**
+     * Constructor.
+     */
+    public SlotAvailability()
+    {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param slot   sets the {@link #slot}
+     * @param report sets the {@link #report}
+     */
+    public SlotAvailability(Interval slot, AllocationStateReport report)
+    {
+        this.slot = slot;
+        this.report = report;
+    }
+
+    /**
+     * @return {@link #slot}
+     */
+    public Interval getSlot()
+    {
+        return slot;
+    }
+
+    /**
+     * @param slot sets the {@link #slot}
+     */
+    public void setSlot(Interval slot)
+    {
+        this.slot = slot;
+    }
+
+    /**
+     * @return {@link #report}
+     */
+    public AllocationStateReport getReport()
+    {
+        return report;
+    }
+
+    /**
+     * @param report sets the {@link #report}
+     */
+    public void setReport(AllocationStateReport report)
+    {
+        this.report = report;
+    }
+
+    /**
+     * @return true whether the {@link #slot} is available, false otherwise
+     */
+    public boolean isAvailable()
+    {
+        return report == null;
+    }
+
+    private static final String SLOT = "slot";
+    private static final String REPORT = "report";
+
+    @Override
+    public DataMap toData()
+    {
+        DataMap dataMap = super.toData();
+        dataMap.set(SLOT, slot);
+        dataMap.set(REPORT, report);
+        return dataMap;
+    }
+
+    @Override
+    public void fromData(DataMap dataMap)
+    {
+        super.fromData(dataMap);
+        slot = dataMap.getInterval(SLOT);
+        report = dataMap.getComplexType(REPORT, AllocationStateReport.class);
+    }
+}
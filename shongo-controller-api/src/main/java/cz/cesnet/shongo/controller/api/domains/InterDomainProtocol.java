@@ -26,6 +26,10 @@ public interface InterDomainProtocol {
     List<DomainCapability> handleListCapabilities(HttpServletRequest request, Interval slot, List<CapabilitySpecificationRequest> capabilitySpecificationRequests)
             throws NotAuthorizedException;
 
+    ListDelta<DomainCapability> handleListCapabilitiesDelta(HttpServletRequest request, Interval slot, String since,
+            List<CapabilitySpecificationRequest> capabilitySpecificationRequests)
+            throws NotAuthorizedException;
+
     Reservation handleAllocateResource(HttpServletRequest request, Interval slot, String resourceId,
                                               String userId, String description, String reservationRequestId)
             throws NotAuthorizedException, ForbiddenException;
@@ -44,6 +48,10 @@ public interface InterDomainProtocol {
     List<Reservation> handleListReservations(HttpServletRequest request, String resourceId, Interval slot)
             throws NotAuthorizedException, ForbiddenException;
 
+    ListDelta<Reservation> handleListReservationsDelta(HttpServletRequest request, String resourceId, Interval slot,
+            String since)
+            throws NotAuthorizedException, ForbiddenException;
+
     AbstractResponse handleSetParticipants(HttpServletRequest request, String reservationRequestId, List<ForeignRoomParticipantRole> participants)
             throws NotAuthorizedException, ForbiddenException;
 
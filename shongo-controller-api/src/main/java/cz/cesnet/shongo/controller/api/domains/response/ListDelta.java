@@ -0,0 +1,79 @@
+package cz.cesnet.shongo.controller.api.domains.response;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.*;
+
+/**
+ * Represents changes in a list of items (e.g., {@link DomainCapability}s or {@link Reservation}s) since
+ * a given revision. When {@link #full} is set, {@link #changed} contains all items and the previous items
+ * should be discarded.
+ */
+public class ListDelta<T> {
+    @JsonProperty("revision")
+    private String revision;
+
+    @JsonProperty("full")
+    private boolean full;
+
+    @JsonProperty("changed")
+    private Map<String, T> changed = new LinkedHashMap<>();
+
+    @JsonProperty("removed")
+    private List<String> removed = new ArrayList<>();
+
+    @JsonCreator
+    public ListDelta(@JsonProperty("revision") String revision, @JsonProperty("full") boolean full) {
+        this.revision = revision;
+        this.full = full;
+    }
+
+    /**
+     * @return revision which should be sent by the next request to get further changes
+     */
+    public String getRevision() {
+        return revision;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * @return added or modified items by their keys
+     */
+    public Map<String, T> getChanged() {
+        return changed;
+    }
+
+    public void addChanged(String key, T item) {
+        changed.put(key, item);
+    }
+
+    /**
+     * @return keys of removed items
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void addRemoved(String key) {
+        removed.add(key);
+    }
+
+    /**
+     * Apply this delta to given {@code items}.
+     *
+     * @param items by their keys which should be updated
+     */
+    public void apply(Map<String, T> items) {
+        if (full) {
+            items.clear();
+        }
+        for (String key : removed) {
+            items.remove(key);
+        }
+        items.putAll(changed);
+    }
+}
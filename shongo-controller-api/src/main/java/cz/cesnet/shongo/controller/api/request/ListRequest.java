@@ -20,6 +20,19 @@ public class ListRequest extends AbstractRequest
      */
     private Integer count;
 
+    /**
+     * Cursor returned in {@link ListResponse#getNextCursor()} of the previous page. When it is set, the items
+     * after the cursor are listed (instead of skipping {@link #start} items) and {@link ListResponse#getCount()}
+     * is the number of items after the cursor.
+     */
+    private String cursor;
+
+    /**
+     * Specifies whether the total number of items shouldn't be counted. {@link ListResponse#getCount()} is then
+     * only approximate (it is greater than index of the last returned item when more items are available).
+     */
+    private boolean approximateCount = false;
+
     /**
      * Constructor.
      */
@@ -115,8 +128,42 @@ public class ListRequest extends AbstractRequest
         this.count = count;
     }
 
+    /**
+     * @return {@link #cursor}
+     */
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * @param cursor sets the {@link #cursor}
+     */
+    public void setCursor(String cursor)
+    {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return {@link #approximateCount}
+     */
+    public boolean isApproximateCount()
+    {
+        return approximateCount;
+    }
+
+    /**
+     * @param approximateCount sets the {@link #approximateCount}
+     */
+    public void setApproximateCount(boolean approximateCount)
+    {
+        this.approximateCount = approximateCount;
+    }
+
     private static final String START = "start";
     private static final String COUNT = "count";
+    private static final String CURSOR = "cursor";
+    private static final String APPROXIMATE_COUNT = "approximateCount";
 
     @Override
     public DataMap toData()
@@ -124,6 +171,10 @@ public class ListRequest extends AbstractRequest
         DataMap dataMap = super.toData();
         dataMap.set(START, start);
         dataMap.set(COUNT, count);
+        dataMap.set(CURSOR, cursor);
+        if (approximateCount) {
+            dataMap.set(APPROXIMATE_COUNT, approximateCount);
+        }
         return dataMap;
     }
 
@@ -133,5 +184,7 @@ public class ListRequest extends AbstractRequest
         super.fromData(dataMap);
         start = dataMap.getInteger(START);
         count = dataMap.getInteger(COUNT);
+        cursor = dataMap.getString(CURSOR);
+        approximateCount = dataMap.getBool(APPROXIMATE_COUNT);
     }
 }
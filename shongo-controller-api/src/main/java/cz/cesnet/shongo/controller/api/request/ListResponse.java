@@ -31,6 +31,12 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
      */
     private List<T> items = new LinkedList<T>();
 
+    /**
+     * Cursor which can be used as {@link ListRequest#getCursor()} for listing items after the {@link #items}
+     * (or {@code null} when no more items are available or when the listing doesn't support cursors).
+     */
+    private String nextCursor;
+
     /**
      * Constructor.
      */
@@ -70,6 +76,22 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         this.count = count;
     }
 
+    /**
+     * @return {@link #nextCursor}
+     */
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    /**
+     * @param nextCursor sets the {@link #nextCursor}
+     */
+    public void setNextCursor(String nextCursor)
+    {
+        this.nextCursor = nextCursor;
+    }
+
     /**
      * @return {@link #items}
      */
@@ -122,6 +144,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
     private static final String START = "start";
     private static final String COUNT = "count";
     private static final String ITEMS = "items";
+    private static final String NEXT_CURSOR = "nextCursor";
 
     @Override
     public DataMap toData()
@@ -130,6 +153,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         dataMap.set(START, start);
         dataMap.set(COUNT, count);
         dataMap.set(ITEMS, items);
+        dataMap.set(NEXT_CURSOR, nextCursor);
         return dataMap;
     }
 
@@ -140,6 +164,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         start = dataMap.getInt(START);
         count = dataMap.getInt(COUNT);
         items = (List<T>) dataMap.getList(ITEMS, Object.class);
+        nextCursor = dataMap.getString(NEXT_CURSOR);
     }
 
     @Override
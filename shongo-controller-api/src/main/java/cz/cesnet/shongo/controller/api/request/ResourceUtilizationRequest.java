@@ -0,0 +1,129 @@
+package cz.cesnet.shongo.controller.api.request;
+
+import cz.cesnet.shongo.api.DataMap;
+import cz.cesnet.shongo.controller.api.ResourceUtilization;
+import cz.cesnet.shongo.controller.api.SecurityToken;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link AbstractRequest} for {@link ResourceUtilization}s.
+ */
+public class ResourceUtilizationRequest extends AbstractRequest
+{
+    /**
+     * Identifiers of resources for which the {@link ResourceUtilization}s should be returned.
+     */
+    private Set<String> resourceIds = new HashSet<String>();
+
+    /**
+     * Interval for which the {@link ResourceUtilization}s should be returned.
+     */
+    private Interval interval;
+
+    /**
+     * Period by which the {@link #interval} should be split and for each part should be
+     * {@link ResourceUtilization} computed.
+     */
+    private Period period;
+
+    /**
+     * Constructor.
+     */
+    public ResourceUtilizationRequest()
+    {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param securityToken sets the {@link #securityToken}
+     */
+    public ResourceUtilizationRequest(SecurityToken securityToken)
+    {
+        super(securityToken);
+    }
+
+    /**
+     * @return {@link #resourceIds}
+     */
+    public Set<String> getResourceIds()
+    {
+        return resourceIds;
+    }
+
+    /**
+     * @param resourceIds sets the {@link #resourceIds}
+     */
+    public void setResourceIds(Set<String> resourceIds)
+    {
+        this.resourceIds.clear();
+        this.resourceIds.addAll(resourceIds);
+    }
+
+    /**
+     * @param resourceId to be added to the {@link #resourceIds}
+     */
+    public void addResourceId(String resourceId)
+    {
+        resourceIds.add(resourceId);
+    }
+
+    /**
+     * @return {@link #interval}
+     */
+    public Interval getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * @param interval sets the {@link #interval}
+     */
+    public void setInterval(Interval interval)
+    {
+        this.interval = interval;
+    }
+
+    /**
+     * @return {@link #period}
+     */
+    public Period getPeriod()
+    {
+        return period;
+    }
+
+    /**
+     * @param period sets the {@link #period}
+     */
+    public void setPeriod(Period period)
+    {
+        this.period = period;
+    }
+
+    private static final String RESOURCE_IDS = "resourceIds";
+    private static final String INTERVAL = "interval";
+    private static final String PERIOD = "period";
+
+    @Override
+    public DataMap toData()
+    {
+        DataMap dataMap = super.toData();
+        dataMap.set(RESOURCE_IDS, resourceIds);
+        dataMap.set(INTERVAL, interval);
+        dataMap.set(PERIOD, period);
+        return dataMap;
+    }
+
+    @Override
+    public void fromData(DataMap dataMap)
+    {
+        super.fromData(dataMap);
+        resourceIds = dataMap.getSet(RESOURCE_IDS, String.class);
+        interval = dataMap.getIntervalRequired(INTERVAL);
+        period = dataMap.getPeriodRequired(PERIOD);
+    }
+}
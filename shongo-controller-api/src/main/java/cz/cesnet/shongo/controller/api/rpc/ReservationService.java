@@ -30,6 +30,16 @@ public interface ReservationService extends Service
     @API
     public Object checkPeriodicAvailability(AvailabilityCheckRequest request);
 
+    /**
+     * Check availability of all occurrences of given periodic {@code request} (unlike
+     * {@link #checkPeriodicAvailability} it doesn't stop at the first occurrence which is not available).
+     *
+     * @param request {@link AvailabilityCheckRequest}
+     * @return list of {@link SlotAvailability} for each occurrence of given periodic {@code request}
+     */
+    @API
+    public List<SlotAvailability> checkPeriodicSlotAvailability(AvailabilityCheckRequest request);
+
     /**
      * Creates a new reservation request.
      * <p/>
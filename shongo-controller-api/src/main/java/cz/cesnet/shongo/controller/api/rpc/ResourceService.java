@@ -82,6 +82,16 @@ public interface ResourceService extends Service {
     @API
     public ResourceAllocation getResourceAllocation(SecurityToken token, String resourceId, Interval interval);
 
+    /**
+     * Gets utilization of room and recording licenses of resources aggregated by parts of requested interval.
+     *
+     * @param request {@link ResourceUtilizationRequest}
+     * @return list of {@link ResourceUtilization}s for requested resources and for each part of requested interval
+     *         in which the resource is utilized
+     */
+    @API
+    public List<ResourceUtilization> listResourceUtilization(ResourceUtilizationRequest request);
+
     @API
     public String createTag(SecurityToken token, Tag tag);
 
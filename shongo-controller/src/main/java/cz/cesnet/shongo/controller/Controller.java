@@ -41,12 +41,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.servlet.DispatcherServlet;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import javax.servlet.DispatcherType;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyStore;
@@ -552,6 +555,8 @@ public class Controller
         logger.info("Starting Controller XML-RPC server on {}:{}...", getRpcHost(), getRpcPort());
 
         RpcServlet rpcServlet = new RpcServlet();
+        rpcServlet.setMulticallMaxCallCount(configuration.getInt(ControllerConfiguration.RPC_MULTICALL_MAX_CALL_COUNT,
+                Service.MULTICALL_MAX_CALL_COUNT));
         for (Service rpcService : rpcServices) {
             logger.debug("Adding XML-RPC service '" + rpcService.getServiceName() + "'...");
             rpcServlet.addHandler(rpcService.getServiceName(), rpcService);
@@ -604,6 +609,25 @@ public class Controller
         servletMapping.setPathSpec("/");
         servletMapping.setServletName(servletHolder.getName());
         servletHandler.addServletMapping(servletMapping);
+
+        // Statistics of API requests
+        RpcStatistics rpcStatistics = RpcStatistics.getInstance();
+        rpcStatistics.setSlowRequestThreshold(
+                configuration.getDuration(ControllerConfiguration.RPC_SLOW_REQUEST_THRESHOLD));
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName rpcStatisticsName = new ObjectName("cz.cesnet.shongo.controller:type=RpcStatistics");
+        if (!mBeanServer.isRegistered(rpcStatisticsName)) {
+            mBeanServer.registerMBean(rpcStatistics, rpcStatisticsName);
+        }
+        String rpcMetricsPath = configuration.getRpcMetricsPath();
+        if (rpcMetricsPath != null) {
+            ServletHolder metricsServletHolder = new ServletHolder("RpcMetricsServlet", new RpcMetricsServlet());
+            servletHandler.addServlet(metricsServletHolder);
+            ServletMapping metricsServletMapping = new ServletMapping();
+            metricsServletMapping.setPathSpec(rpcMetricsPath);
+            metricsServletMapping.setServletName(metricsServletHolder.getName());
+            servletHandler.addServletMapping(metricsServletMapping);
+        }
         rpcServer.setHandler(servletHandler);
         rpcServer.start();
     }
@@ -741,6 +765,12 @@ public class Controller
                 notificationManager, calendarManager, entityManagerFactory);
         workerThread.setPeriod(configuration.getDuration(ControllerConfiguration.WORKER_PERIOD));
         workerThread.setLookahead(configuration.getPeriod(ControllerConfiguration.WORKER_LOOKAHEAD));
+        workerThread.setFullSweepPeriod(configuration.getDuration(ControllerConfiguration.WORKER_FULL_SWEEP_PERIOD));
+        workerThread.setSummaryCheckPeriod(configuration.getDuration(ControllerConfiguration.WORKER_SUMMARY_CHECK_PERIOD));
+        Cache cache = getComponent(Cache.class);
+        if (cache != null) {
+            workerThread.setSchedulerQueue(cache.getSchedulerQueue());
+        }
         addThread(workerThread);
     }
 
@@ -17,6 +17,8 @@ import jade.core.AID;
 import org.apache.commons.cli.CommandLine;
 
 import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Jade Agent for Domain Controller
@@ -38,6 +40,8 @@ public class ControllerAgent extends Agent
     public ControllerAgent(ControllerConfiguration configuration)
     {
         setCommandTimeout((int) configuration.getJadeCommandTimeout().getMillis());
+        setCommandExecutor(configuration.getInt(ControllerConfiguration.JADE_COMMAND_THREAD_COUNT),
+                configuration.getInt(ControllerConfiguration.JADE_COMMAND_QUEUE_SIZE));
     }
 
     /**
@@ -87,30 +91,20 @@ public class ControllerAgent extends Agent
     }
 
     @Override
-    public SendLocalCommand sendCommand(String receiverAgentName, Command command)
+    public CompletableFuture<SendLocalCommand> sendCommandAsync(String receiverAgentName, final Command command)
     {
         Controller.loggerRequestedCommands.info("Action:{} {}.", command.getId(), command);
-        SendLocalCommand sendLocalCommand = super.sendCommand(receiverAgentName, command);
-        String commandState;
-        switch (sendLocalCommand.getState()) {
-            case SUCCESSFUL:
-                Object result = sendLocalCommand.getResult();
-                if (result != null && result instanceof String) {
-                    commandState = String.format("OK: %s", result);
-                }
-                else {
-                    commandState = "OK";
-                }
-                break;
-            case FAILED:
-                commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
-                break;
-            default:
-                commandState = "UNKNOWN";
-                break;
-        }
-        Controller.loggerRequestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
-        return sendLocalCommand;
+        return super.sendCommandAsync(receiverAgentName, command).thenApplyAsync(
+                new Function<SendLocalCommand, SendLocalCommand>()
+                {
+                    @Override
+                    public SendLocalCommand apply(SendLocalCommand sendLocalCommand)
+                    {
+                        Controller.loggerRequestedCommands.info("Action:{} Done ({}).", command.getId(),
+                                sendLocalCommand.getStateDescription());
+                        return sendLocalCommand;
+                    }
+                }, SendLocalCommand.getCallbackExecutor());
     }
 
     @Override
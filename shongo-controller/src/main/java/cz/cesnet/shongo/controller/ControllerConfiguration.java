@@ -50,6 +50,9 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String RPC_HOST = "rpc.host";
     public static final String RPC_PORT = "rpc.port";
+    public static final String RPC_SLOW_REQUEST_THRESHOLD = "rpc.slow-request-threshold";
+    public static final String RPC_METRICS_PATH = "rpc.metrics-path";
+    public static final String RPC_MULTICALL_MAX_CALL_COUNT = "rpc.multicall-max-call-count";
 
     /**
      * Jade configuration.
@@ -58,6 +61,8 @@ public class ControllerConfiguration extends CombinedConfiguration
     public static final String JADE_PORT = "jade.port";
     public static final String JADE_AGENT_NAME = "jade.agent-name";
     public static final String JADE_PLATFORM_ID = "jade.platform-id";
+    public static final String JADE_COMMAND_THREAD_COUNT = "jade.command-thread-count";
+    public static final String JADE_COMMAND_QUEUE_SIZE = "jade.command-queue-size";
 
     /**
      * Interdomains configuration
@@ -79,6 +84,19 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String WORKER_PERIOD = "worker.period";
     public static final String WORKER_LOOKAHEAD = "worker.lookahead";
+    public static final String WORKER_FULL_SWEEP_PERIOD = "worker.full-sweep-period";
+    public static final String WORKER_SUMMARY_CHECK_PERIOD = "worker.summary-check-period";
+
+    /**
+     * Scheduler configuration (in-memory cache of allocated reservations and whether it should be checked
+     * against the database, number of threads for allocating reservation requests for disjoint resources
+     * and for checking availability of periodic slots).
+     */
+    public static final String SCHEDULER_RESERVATION_CACHE = "scheduler.reservation-cache.enabled";
+    public static final String SCHEDULER_RESERVATION_CACHE_CHECK = "scheduler.reservation-cache.consistency-check";
+    public static final String SCHEDULER_PARALLEL_THREADS = "scheduler.parallel.threads";
+    public static final String SCHEDULER_AVAILABILITY_CHECK_THREADS = "scheduler.availability-check.threads";
+    public static final String SCHEDULER_RESOURCE_LOCK_TIMEOUT = "scheduler.resource-lock-timeout";
 
     /**
      * Maximum duration of reservations.
@@ -133,6 +151,20 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String EXECUTOR_STARTING_DURATION_ROOM = "executor.starting-duration.room";
 
+    /**
+     * Maximum number of threads in which {@link cz.cesnet.shongo.controller.executor.Executor} performs actions
+     * and maximum number of concurrently performed actions for a single resource.
+     */
+    public static final String EXECUTOR_THREADS = "executor.threads";
+    public static final String EXECUTOR_RESOURCE_ACTION_LIMIT = "executor.resource-action-limit";
+
+    /**
+     * Duration before slot start in which {@link cz.cesnet.shongo.controller.executor.Executor} can start
+     * executables ahead of time and maximum number of such executables for a single resource in each period.
+     */
+    public static final String EXECUTOR_PRESTART_LOOKAHEAD = "executor.prestart.lookahead";
+    public static final String EXECUTOR_PRESTART_RESOURCE_LIMIT = "executor.prestart.resource-limit";
+
     /**
      * URL to AA server.
      */
@@ -183,6 +215,11 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String SECURITY_EXPIRATION_GROUP = "security.expiration.group";
 
+    /**
+     * Maximum number of permitted object identifiers which are inlined to list queries.
+     */
+    public static final String SECURITY_ACL_INLINE_ID_COUNT = "security.acl-inline-id-count";
+
     /**
      * Specifies filename where the root access token will be written when controller starts.
      */
@@ -314,6 +351,19 @@ public class ControllerConfiguration extends CombinedConfiguration
         return getString("rpc.ssl-key-store-password");
     }
 
+    /**
+     * @return path on which the statistics of API requests are provided in Prometheus text format
+     *         ({@code null} means that the statistics aren't provided)
+     */
+    public String getRpcMetricsPath()
+    {
+        String metricsPath = getString(RPC_METRICS_PATH);
+        if (metricsPath == null || metricsPath.trim().isEmpty()) {
+            return null;
+        }
+        return metricsPath;
+    }
+
     /**
      * @return subject prefix for emails sent by SMTP
      */
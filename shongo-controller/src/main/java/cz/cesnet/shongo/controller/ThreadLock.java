@@ -4,23 +4,226 @@ import cz.cesnet.shongo.controller.acl.AclEntry;
 import cz.cesnet.shongo.controller.booking.executable.Executable;
 import cz.cesnet.shongo.controller.executor.Executor;
 import cz.cesnet.shongo.controller.scheduler.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * This class represents a common lock used in {@link WorkerThread} and {@link Executor} to not execute theirs code
- * at the same time (e.g., {@link WorkerThread#work} and {@link Executor#execute}).
+ * This class represents locks of resources used in {@link Scheduler} and {@link Executor} to not modify
+ * and execute {@link Executable}s for the same resources at the same time (e.g., {@link Scheduler#run}
+ * and {@link Executor#execute}).
  * <p/>
  * It is required because we don't want to execute some {@link Executable} for which hasn't been
- * created all {@link AclEntry}s yet. {@link AclEntry}s are created in the end of
- * {@link Scheduler#run} which is executed at the end of {@link WorkerThread#work}.
+ * created all {@link AclEntry}s yet. {@link AclEntry}s are created in the end of each reservation request
+ * allocation in {@link Scheduler#run} and thus the allocated resources must be locked until then.
+ * <p/>
+ * Resources are mapped to a fixed number of stripes (each stripe is a {@link ReentrantLock}
+ * because all callers modify the locked resources) and
+ * the stripes are always locked in ascending order to prevent deadlocks.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
 public class ThreadLock
 {
+    private static Logger logger = LoggerFactory.getLogger(ThreadLock.class);
+
+    /**
+     * Number of stripes to which the resources are mapped.
+     */
+    private static final int STRIPE_COUNT = 64;
+
+    /**
+     * Duration of waiting for a lock which should be reported.
+     */
+    private static final long REPORTED_WAIT_MILLIS = 1000;
+
+    /**
+     * Locks for the stripes.
+     */
+    private static final ReentrantLock[] stripes = new ReentrantLock[STRIPE_COUNT];
+
+    static {
+        for (int index = 0; index < STRIPE_COUNT; index++) {
+            stripes[index] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Number of performed lock acquisitions.
+     */
+    private static final AtomicLong lockCount = new AtomicLong();
+
+    /**
+     * Total time in nanoseconds spent by waiting for locks.
+     */
+    private static final AtomicLong lockWaitNanos = new AtomicLong();
+
+    /**
+     * Maximum time in nanoseconds spent by waiting for a lock.
+     */
+    private static final AtomicLong maxLockWaitNanos = new AtomicLong();
+
     /**
      * No instance can be created.
      */
     private ThreadLock()
     {
     }
+
+    /**
+     * Lock given resources exclusively (wait until they are available).
+     *
+     * @param resourceIds identifiers of resources which should be locked ({@code null} means all resources)
+     * @return {@link ResourceLocks} which must be {@link ResourceLocks#unlock()}ed
+     */
+    public static ResourceLocks lockResources(Collection<Long> resourceIds)
+    {
+        long startNanos = System.nanoTime();
+        List<Lock> locks = new ArrayList<Lock>();
+        for (int stripe : getStripes(resourceIds)) {
+            Lock lock = stripes[stripe];
+            lock.lock();
+            locks.add(lock);
+        }
+        recordLockWait(startNanos, resourceIds);
+        return new ResourceLocks(locks);
+    }
+
+    /**
+     * Lock given resources exclusively (wait until they are available but no longer than given {@code timeout}).
+     *
+     * @param resourceIds identifiers of resources which should be locked ({@code null} means all resources)
+     * @param timeout     maximum duration in milliseconds of waiting for the locks
+     * @return {@link ResourceLocks} which must be {@link ResourceLocks#unlock()}ed
+     *         or {@code null} when the resources haven't been locked in given {@code timeout}
+     */
+    public static ResourceLocks tryLockResources(Collection<Long> resourceIds, long timeout)
+    {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeout);
+        List<Lock> locks = new ArrayList<Lock>();
+        try {
+            for (int stripe : getStripes(resourceIds)) {
+                Lock lock = stripes[stripe];
+                if (!lock.tryLock(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    new ResourceLocks(locks).unlock();
+                    recordLockWait(startNanos, resourceIds);
+                    return null;
+                }
+                locks.add(lock);
+            }
+        }
+        catch (InterruptedException exception) {
+            new ResourceLocks(locks).unlock();
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        recordLockWait(startNanos, resourceIds);
+        return new ResourceLocks(locks);
+    }
+
+    /**
+     * @return number of performed lock acquisitions
+     */
+    public static long getLockCount()
+    {
+        return lockCount.get();
+    }
+
+    /**
+     * @return total time in milliseconds spent by waiting for locks
+     */
+    public static long getLockWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(lockWaitNanos.get());
+    }
+
+    /**
+     * @return maximum time in milliseconds spent by waiting for a lock
+     */
+    public static long getMaxLockWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(maxLockWaitNanos.get());
+    }
+
+    /**
+     * @param resourceIds identifiers of resources ({@code null} means all resources)
+     * @return sorted indexes of stripes for given {@code resourceIds}
+     */
+    private static SortedSet<Integer> getStripes(Collection<Long> resourceIds)
+    {
+        SortedSet<Integer> stripes = new TreeSet<Integer>();
+        if (resourceIds == null) {
+            for (int index = 0; index < STRIPE_COUNT; index++) {
+                stripes.add(index);
+            }
+        }
+        else {
+            for (Long resourceId : resourceIds) {
+                stripes.add((int) Math.floorMod(resourceId, (long) STRIPE_COUNT));
+            }
+        }
+        return stripes;
+    }
+
+    /**
+     * Update lock statistics.
+     *
+     * @param startNanos  when the waiting for lock started
+     * @param resourceIds which were locked
+     */
+    private static void recordLockWait(long startNanos, Collection<Long> resourceIds)
+    {
+        long waitNanos = System.nanoTime() - startNanos;
+        lockCount.incrementAndGet();
+        lockWaitNanos.addAndGet(waitNanos);
+        long maxWaitNanos = maxLockWaitNanos.get();
+        while (waitNanos > maxWaitNanos && !maxLockWaitNanos.compareAndSet(maxWaitNanos, waitNanos)) {
+            maxWaitNanos = maxLockWaitNanos.get();
+        }
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        if (waitMillis >= REPORTED_WAIT_MILLIS) {
+            logger.info("Thread '{}' waited {} ms for resources {}.", new Object[]{
+                    Thread.currentThread().getName(), waitMillis, (resourceIds != null ? resourceIds : "(all)")
+            });
+        }
+    }
+
+    /**
+     * Acquired locks of resources.
+     */
+    public static class ResourceLocks
+    {
+        /**
+         * Acquired {@link Lock}s.
+         */
+        private final List<Lock> locks;
+
+        /**
+         * Constructor.
+         *
+         * @param locks sets the {@link #locks}
+         */
+        private ResourceLocks(List<Lock> locks)
+        {
+            this.locks = locks;
+        }
+
+        /**
+         * Release all {@link #locks}.
+         */
+        public void unlock()
+        {
+            ListIterator<Lock> iterator = locks.listIterator(locks.size());
+            while (iterator.hasPrevious()) {
+                iterator.previous().unlock();
+            }
+            locks.clear();
+        }
+    }
 }
@@ -1,10 +1,14 @@
 package cz.cesnet.shongo.controller;
 
 import cz.cesnet.shongo.Temporal;
+import cz.cesnet.shongo.controller.booking.request.ReservationRequest;
+import cz.cesnet.shongo.controller.booking.request.ReservationRequestManager;
 import cz.cesnet.shongo.controller.calendar.CalendarManager;
 import cz.cesnet.shongo.controller.notification.NotificationManager;
 import cz.cesnet.shongo.controller.scheduler.Preprocessor;
 import cz.cesnet.shongo.controller.scheduler.Scheduler;
+import cz.cesnet.shongo.controller.scheduler.SchedulerQueue;
+import cz.cesnet.shongo.controller.util.SummaryRefresh;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.joda.time.Interval;
@@ -14,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.util.Set;
 
 /**
  * Thread which periodically runs {@link Preprocessor} and {@link Scheduler}.
@@ -34,6 +39,17 @@ public class WorkerThread extends Thread
      */
     private Period lookahead;
 
+    /**
+     * Period in which all reservation requests are processed (in between only modified reservation requests
+     * from {@link #schedulerQueue} and reservation requests entering the working interval are processed).
+     */
+    private Duration fullSweepPeriod;
+
+    /**
+     * Period in which the summary tables are reconciled with their views (see {@link SummaryRefresh#reconcile}).
+     */
+    private Duration summaryCheckPeriod;
+
     /**
      * @see Preprocessor
      */
@@ -51,6 +67,11 @@ public class WorkerThread extends Thread
 
     private CalendarManager calendarManager;
 
+    /**
+     * @see SchedulerQueue
+     */
+    private SchedulerQueue schedulerQueue;
+
     /**
      * {@link EntityManagerFactory} for {@link Preprocessor} and {@link Scheduler}.
      */
@@ -61,6 +82,22 @@ public class WorkerThread extends Thread
      */
     private DateTime clearCacheDateTime;
 
+    /**
+     * {@link DateTime} when the last full sweep was performed.
+     */
+    private DateTime fullSweepDateTime;
+
+    /**
+     * {@link DateTime} when the last summary reconciliation was performed.
+     */
+    private DateTime summaryCheckDateTime;
+
+    /**
+     * End of the working interval from the last run (reservation requests which start after it are entering
+     * the working interval in the next run).
+     */
+    private DateTime workingIntervalEnd;
+
     /**
      * Constructor.
      *
@@ -99,6 +136,30 @@ public class WorkerThread extends Thread
         this.lookahead = lookahead;
     }
 
+    /**
+     * @param fullSweepPeriod sets the {@link #fullSweepPeriod}
+     */
+    public void setFullSweepPeriod(Duration fullSweepPeriod)
+    {
+        this.fullSweepPeriod = fullSweepPeriod;
+    }
+
+    /**
+     * @param summaryCheckPeriod sets the {@link #summaryCheckPeriod}
+     */
+    public void setSummaryCheckPeriod(Duration summaryCheckPeriod)
+    {
+        this.summaryCheckPeriod = summaryCheckPeriod;
+    }
+
+    /**
+     * @param schedulerQueue sets the {@link #schedulerQueue}
+     */
+    public void setSchedulerQueue(SchedulerQueue schedulerQueue)
+    {
+        this.schedulerQueue = schedulerQueue;
+    }
+
     @Override
     public void run()
     {
@@ -150,41 +211,84 @@ public class WorkerThread extends Thread
      */
     private void work()
     {
-        // Globally synchronized (see ThreadLock documentation)
-        //logger.debug("Worker waiting for lock...........................");
-        synchronized (ThreadLock.class) {
-            //logger.debug("Worker lock acquired...   [[[[[")
+        work(Temporal.nowRoundedToSeconds());
+    }
 
-            // We want to pre-process and schedule only reservation requests in specific interval
-            Interval interval = new Interval(Temporal.nowRoundedToSeconds(), lookahead);
+    /**
+     * Run {@link Preprocessor} and {@link Scheduler}.
+     *
+     * @param dateTime representing now
+     */
+    void work(DateTime dateTime)
+    {
+        // We want to pre-process and schedule only reservation requests in specific interval
+        Interval interval = new Interval(dateTime, lookahead);
 
-            EntityManager entityManager = entityManagerFactory.createEntityManager();
-            EntityManager bypassEntityManager = entityManagerFactory.createEntityManager();
-            Reporter reporter = Reporter.getInstance();
-            try {
-                // Run preprocessor, scheduler and notifications
-                preprocessor.run(interval, entityManager);
-                scheduler.run(interval, entityManager, bypassEntityManager);
-                notificationManager.executeNotifications(entityManager);
-                calendarManager.sendCalendarNotifications(entityManager);
+        // Determine which reservation requests should be processed (null means all)
+        Set<Long> reservationRequestIds = null;
+        if (schedulerQueue != null) {
+            reservationRequestIds = schedulerQueue.poll();
+            if (reservationRequestIds != null && fullSweepPeriod != null && (fullSweepDateTime == null
+                    || !fullSweepDateTime.plus(fullSweepPeriod).isAfter(interval.getStart()))) {
+                reservationRequestIds = null;
+            }
+            if (reservationRequestIds == null) {
+                fullSweepDateTime = interval.getStart();
+            }
+        }
 
-                // Clear reporter cache once per hour
-                DateTime clearCacheDateTime = Temporal.nowRoundedToHours();
-                if (!clearCacheDateTime.equals(this.clearCacheDateTime)) {
-                    reporter.clearCache(interval.getStart());
-                    this.clearCacheDateTime = clearCacheDateTime;
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityManager bypassEntityManager = entityManagerFactory.createEntityManager();
+        Reporter reporter = Reporter.getInstance();
+        try {
+            // Run preprocessor (it processes only reservation request sets which are modified or which have not been
+            // pre-processed for the interval yet, and the interval changes only once per hour)
+            Preprocessor.Result preprocessorResult = preprocessor.run(interval, entityManager);
+            if (reservationRequestIds != null) {
+                // Allocate also reservation requests from pre-processed sets and reservation requests
+                // which are entering the working interval
+                reservationRequestIds.addAll(preprocessorResult.getReservationRequestSetIds());
+                if (workingIntervalEnd != null && workingIntervalEnd.isBefore(interval.getEnd())) {
+                    ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+                    for (ReservationRequest reservationRequest : reservationRequestManager
+                            .listCompletedReservationRequests(new Interval(workingIntervalEnd, interval.getEnd()))) {
+                        reservationRequestIds.add(reservationRequest.getId());
+                    }
                 }
             }
-            catch (Exception exception) {
-                reporter.reportInternalError(Reporter.WORKER, exception);
-            }
-            finally {
-                entityManager.close();
-                bypassEntityManager.close();
+            workingIntervalEnd = interval.getEnd();
+
+            // Run scheduler (also when nothing should be allocated to delete not referenced reservations)
+            scheduler.run(interval, entityManager, bypassEntityManager, reservationRequestIds);
+
+            // Run notifications
+            notificationManager.executeNotifications(entityManager);
+            calendarManager.sendCalendarNotifications(entityManager);
+
+            // Clear reporter cache once per hour
+            DateTime clearCacheDateTime = Temporal.nowRoundedToHours();
+            if (!clearCacheDateTime.equals(this.clearCacheDateTime)) {
+                reporter.clearCache(interval.getStart());
+                this.clearCacheDateTime = clearCacheDateTime;
             }
 
-            //logger.debug("Worker releasing lock...  ]]]]]");
+            // Reconcile summary tables which could become inconsistent (e.g., by external modifications)
+            if (summaryCheckPeriod != null && (summaryCheckDateTime == null
+                    || !summaryCheckDateTime.plus(summaryCheckPeriod).isAfter(interval.getStart()))) {
+                summaryCheckDateTime = interval.getStart();
+                SummaryRefresh.reconcile(entityManager);
+            }
+        }
+        catch (Exception exception) {
+            if (schedulerQueue != null) {
+                // Modified reservation requests may not have been processed
+                schedulerQueue.requestFullSweep();
+            }
+            reporter.reportInternalError(Reporter.WORKER, exception);
+        }
+        finally {
+            entityManager.close();
+            bypassEntityManager.close();
         }
-        //logger.debug("Worker lock released...");
     }
 }
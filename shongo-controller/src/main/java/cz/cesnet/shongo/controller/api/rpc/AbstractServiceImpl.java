@@ -45,6 +45,9 @@ public abstract class AbstractServiceImpl extends Component
     }
 
     /**
+     * The total number of items isn't counted when {@link ListRequest#isApproximateCount()} is set and
+     * keyset pagination is used when {@link ListRequest#getCursor()} is set (see {@link QueryFilter#addFilterCursor}).
+     *
      * @param query            query
      * @param queryFilter      {@link QueryFilter} for filtering select and count statement
      * @param listRequest      {@link ListRequest}  object
@@ -106,19 +109,29 @@ public abstract class AbstractServiceImpl extends Component
         queryFilter.fillQueryParameters(queryList);
         queryFilter.fillQueryParameters(queryCount);
 
-        // Restrict first result
-        Integer firstResult = listRequest.getStart(0);
+        // Restrict first result (items before the cursor are already filtered)
+        if (listRequest.getCursor() != null && !queryFilter.isCursorSupported()) {
+            throw new IllegalArgumentException("Cursor isn't supported for the request.");
+        }
+        Integer firstResult = (listRequest.getCursor() != null ? 0 : listRequest.getStart(0));
         queryList.setFirstResult(firstResult);
 
         // Restrict result count
         Integer totalResultCount = null;
         int maxResultCount = listRequest.getCount();
+        boolean approximateCount = listRequest.isApproximateCount();
         if (maxResultCount != -1) {
-            totalResultCount = ((Number) queryCount.getSingleResult()).intValue();
-            if ((firstResult + maxResultCount) > totalResultCount) {
-                maxResultCount = totalResultCount - firstResult;
+            if (approximateCount) {
+                // One more result is fetched to determine whether more results are available
+                queryList.setMaxResults(maxResultCount + 1);
+            }
+            else {
+                totalResultCount = ((Number) queryCount.getSingleResult()).intValue();
+                if ((firstResult + maxResultCount) > totalResultCount) {
+                    maxResultCount = totalResultCount - firstResult;
+                }
+                queryList.setMaxResults(maxResultCount);
             }
-            queryList.setMaxResults(maxResultCount);
         }
 
         // List requested results
@@ -131,13 +144,28 @@ public abstract class AbstractServiceImpl extends Component
             resultList = Collections.emptyList();
         }
 
+        boolean hasMoreResults = false;
         if (totalResultCount == null) {
-            totalResultCount = resultList.size();
+            if (approximateCount && resultList.size() > maxResultCount) {
+                resultList = resultList.subList(0, maxResultCount);
+                hasMoreResults = true;
+            }
+            totalResultCount = firstResult + resultList.size() + (hasMoreResults ? 1 : 0);
+        }
+        else {
+            hasMoreResults = (firstResult + resultList.size()) < totalResultCount;
         }
 
         // Setup response
         listResponse.setCount(totalResultCount);
         listResponse.setStart(firstResult);
+        if (queryFilter.isCursorSupported() && hasMoreResults && resultList.size() > 0) {
+            Object lastResult = resultList.get(resultList.size() - 1);
+            if (lastResult instanceof Object[]) {
+                lastResult = ((Object[]) lastResult)[0];
+            }
+            listResponse.setNextCursor(lastResult.toString());
+        }
 
         return resultList;
     }
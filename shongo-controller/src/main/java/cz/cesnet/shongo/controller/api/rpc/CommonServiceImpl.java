@@ -19,6 +19,7 @@ import org.slf4j.LoggerFactory;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Room service implementation.
@@ -116,14 +117,22 @@ public class CommonServiceImpl extends AbstractServiceImpl
                 deviceResourceMap.put(agentName, deviceResource);
             }
 
-            List<Connector> connectorList = new ArrayList<Connector>();
+            // Request status from all connectors at once
+            Map<String, CompletableFuture<SendLocalCommand>> statusFutures =
+                    new LinkedHashMap<String, CompletableFuture<SendLocalCommand>>();
             for (AID aid : controllerAgent.listConnectorAgents()) {
                 String agentName = aid.getLocalName();
+                statusFutures.put(agentName, controllerAgent.sendCommandAsync(agentName, new GetStatus()));
+            }
+
+            List<Connector> connectorList = new ArrayList<Connector>();
+            for (Map.Entry<String, CompletableFuture<SendLocalCommand>> entry : statusFutures.entrySet()) {
+                String agentName = entry.getKey();
 
                 Connector connector = new Connector();
                 connector.setName(agentName);
 
-                SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName, new GetStatus());
+                SendLocalCommand sendLocalCommand = entry.getValue().join();
                 if (sendLocalCommand.getState().equals(SendLocalCommand.State.SUCCESSFUL)) {
                     ConnectorStatus connectorStatus = (ConnectorStatus) sendLocalCommand.getResult();
                     connector.setAgentState(Connector.AgentState.AVAILABLE);
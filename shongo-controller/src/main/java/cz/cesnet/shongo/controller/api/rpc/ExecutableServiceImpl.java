@@ -52,6 +52,7 @@ import org.joda.time.Interval;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implementation of {@link ExecutableService}.
@@ -462,17 +463,12 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
                     executionPlan.build();
 
                     // Perform execution plan
-                    while (!executionPlan.isEmpty()) {
-                        Collection<ExecutionAction> executionActions = executionPlan.popExecutionActions();
-                        for (ExecutionAction executionAction : executionActions) {
-                            executionAction.start();
-                        }
-                        try {
-                            Thread.sleep(100);
-                        }
-                        catch (InterruptedException exception) {
-                            executor.getLogger().error("Execution interrupted.", exception);
-                        }
+                    try {
+                        executor.performExecutionPlan(executionPlan);
+                    }
+                    catch (InterruptedException exception) {
+                        executor.getLogger().error("Execution interrupted.", exception);
+                        Thread.currentThread().interrupt();
                     }
 
                     // Set services as checked
@@ -985,19 +981,29 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
                     recordingFolders = Collections.emptyMap();
                 }
 
-                // Get all recordings from folders
-                resourceRecordings = new LinkedList<ResourceRecording>();
+                // Request recordings from all folders at once (they can be stored in multiple devices)
+                Map<RecordingCapability, CompletableFuture<SendLocalCommand>> listRecordingsFutures =
+                        new LinkedHashMap<RecordingCapability, CompletableFuture<SendLocalCommand>>();
                 for (Map.Entry<RecordingCapability, String> entry : recordingFolders.entrySet()) {
                     RecordingCapability recordingCapability = entry.getKey();
                     DeviceResource recordingDeviceResource = recordingCapability.getDeviceResource();
-                    String recordingDeviceResourceId = ObjectIdentifier.formatId(recordingDeviceResource);
                     String recordingFolderId = entry.getValue();
                     if (recordingFolderId == null) {
                         continue;
                     }
+                    listRecordingsFutures.put(recordingCapability, performDeviceCommandAsync(
+                            recordingDeviceResource, new ListRecordings(recordingFolderId)));
+                }
+
+                // Get all recordings from folders
+                resourceRecordings = new LinkedList<ResourceRecording>();
+                for (Map.Entry<RecordingCapability, CompletableFuture<SendLocalCommand>> entry :
+                        listRecordingsFutures.entrySet()) {
+                    DeviceResource recordingDeviceResource = entry.getKey().getDeviceResource();
+                    String recordingDeviceResourceId = ObjectIdentifier.formatId(recordingDeviceResource);
                     @SuppressWarnings("unchecked")
-                    Collection<Recording> serviceRecordings = (Collection<Recording>) performDeviceCommand(
-                            recordingDeviceResource, new ListRecordings(recordingFolderId));
+                    Collection<Recording> serviceRecordings = (Collection<Recording>) getDeviceCommandResult(
+                            recordingDeviceResource, entry.getValue().join());
                     for (Recording recording : serviceRecordings) {
                         resourceRecordings.add(
                                 new ResourceRecording(recordingDeviceResourceId, recording));
@@ -1059,13 +1065,34 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
     }
 
     private Object performDeviceCommand(DeviceResource deviceResource, Command command)
+    {
+        return getDeviceCommandResult(deviceResource, performDeviceCommandAsync(deviceResource, command).join());
+    }
+
+    /**
+     * @param deviceResource which should perform given {@code command}
+     * @param command        to be performed
+     * @return {@link CompletableFuture} which is completed when the {@code command} is processed
+     */
+    private CompletableFuture<SendLocalCommand> performDeviceCommandAsync(DeviceResource deviceResource,
+            Command command)
     {
         ManagedMode managedMode = deviceResource.requireManaged();
         String agentName = managedMode.getConnectorAgentName();
-        SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName, command);
+        return controllerAgent.sendCommandAsync(agentName, command);
+    }
+
+    /**
+     * @param deviceResource   which has performed the command
+     * @param sendLocalCommand processed command
+     * @return result of given {@code sendLocalCommand}
+     * @throws ControllerReportSet.DeviceCommandFailedException when the command has failed
+     */
+    private Object getDeviceCommandResult(DeviceResource deviceResource, SendLocalCommand sendLocalCommand)
+    {
         if (!sendLocalCommand.getState().equals(SendLocalCommand.State.SUCCESSFUL)) {
             throw new ControllerReportSet.DeviceCommandFailedException(ObjectIdentifier.formatId(deviceResource),
-                    command.toString(), sendLocalCommand.getJadeReport());
+                    sendLocalCommand.getCommand().toString(), sendLocalCommand.getJadeReport());
         }
         return sendLocalCommand.getResult();
     }
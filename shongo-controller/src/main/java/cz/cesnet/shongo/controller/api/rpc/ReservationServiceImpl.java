@@ -24,6 +24,7 @@ import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceSpecification;
 import cz.cesnet.shongo.controller.booking.room.RoomSpecification;
 import cz.cesnet.shongo.controller.cache.Cache;
+import cz.cesnet.shongo.controller.cache.CalendarFeedCache;
 import cz.cesnet.shongo.controller.domains.InterDomainAgent;
 import cz.cesnet.shongo.controller.notification.NotificationManager;
 import cz.cesnet.shongo.controller.notification.ReservationRequestConfirmationNotification;
@@ -38,6 +39,12 @@ import org.joda.time.*;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of {@link ReservationService}.
@@ -68,6 +75,24 @@ public class ReservationServiceImpl extends AbstractServiceImpl
      */
     private NotificationManager notificationManager;
 
+    /**
+     * Minimum number of slots which are checked by a single thread in {@link #checkSlotAvailability}.
+     */
+    private static final int AVAILABILITY_CHECK_MINIMUM_PART_SIZE = 4;
+
+    /**
+     * Number of threads for checking availability of periodic slots.
+     *
+     * @see ControllerConfiguration#SCHEDULER_AVAILABILITY_CHECK_THREADS
+     */
+    private int availabilityCheckThreadCount = 1;
+
+    /**
+     * Thread pool for checking availability of periodic slots in parallel ({@code null} when the slots are checked
+     * only serially).
+     */
+    private ExecutorService availabilityCheckExecutorService;
+
     /**
      * Constructor.
      */
@@ -100,6 +125,35 @@ public class ReservationServiceImpl extends AbstractServiceImpl
         checkDependency(entityManagerFactory, EntityManagerFactory.class);
         checkDependency(authorization, Authorization.class);
         super.init(configuration);
+
+        availabilityCheckThreadCount =
+                configuration.getInt(ControllerConfiguration.SCHEDULER_AVAILABILITY_CHECK_THREADS, 1);
+        if (availabilityCheckThreadCount > 1) {
+            availabilityCheckExecutorService = Executors.newFixedThreadPool(availabilityCheckThreadCount,
+                    new ThreadFactory()
+                    {
+                        private final AtomicInteger threadNumber = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread thread = new Thread(runnable,
+                                    "availability-check-" + threadNumber.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (availabilityCheckExecutorService != null) {
+            availabilityCheckExecutorService.shutdownNow();
+            availabilityCheckExecutorService = null;
+        }
+        super.destroy();
     }
 
     @Override
@@ -225,69 +279,214 @@ public class ReservationServiceImpl extends AbstractServiceImpl
         SecurityToken securityToken = request.getSecurityToken();
         authorization.validate(securityToken);
         // Check if local resource
-        if (request.getSpecification() instanceof cz.cesnet.shongo.controller.api.ResourceSpecification) {
+        if (!isLocalSpecification(request.getSpecification())) {
+            //TODO: check availability for foreign resources???
+            return Boolean.TRUE;
+        }
+
+        AllocationStateReport[] reports = checkSlotAvailability(request, getAvailabilityCheckSlots(request), true);
+        for (AllocationStateReport report : reports) {
+            if (report != null) {
+                // Specification cannot be allocated or reservation request cannot be reused in requested time slot
+                return report;
+            }
+        }
+        // Request is available
+        return Boolean.TRUE;
+    }
+
+    @Override
+    public List<SlotAvailability> checkPeriodicSlotAvailability(AvailabilityCheckRequest request)
+    {
+        checkNotNull("request", request);
+        SecurityToken securityToken = request.getSecurityToken();
+        authorization.validate(securityToken);
+
+        List<Interval> slots = getAvailabilityCheckSlots(request);
+        AllocationStateReport[] reports;
+        if (isLocalSpecification(request.getSpecification())) {
+            reports = checkSlotAvailability(request, slots, false);
+        }
+        else {
+            reports = new AllocationStateReport[slots.size()];
+        }
+        List<SlotAvailability> slotAvailabilities = new LinkedList<SlotAvailability>();
+        for (int index = 0; index < slots.size(); index++) {
+            slotAvailabilities.add(new SlotAvailability(slots.get(index), reports[index]));
+        }
+        return slotAvailabilities;
+    }
+
+    /**
+     * @param specificationApi
+     * @return false when given {@code specificationApi} is for a foreign resource, true otherwise
+     */
+    private boolean isLocalSpecification(Specification specificationApi)
+    {
+        if (specificationApi instanceof cz.cesnet.shongo.controller.api.ResourceSpecification) {
             cz.cesnet.shongo.controller.api.ResourceSpecification resourceSpecificationApi =
-                    (cz.cesnet.shongo.controller.api.ResourceSpecification) request.getSpecification();
-            if (!ObjectIdentifier.isLocal(resourceSpecificationApi.getResourceId())) {
-                //TODO: check availability for foreign resources???
-                return Boolean.TRUE;
+                    (cz.cesnet.shongo.controller.api.ResourceSpecification) specificationApi;
+            return ObjectIdentifier.isLocal(resourceSpecificationApi.getResourceId());
+        }
+        return true;
+    }
+
+    /**
+     * @param request {@link AvailabilityCheckRequest}
+     * @return list of all occurrences of periodic time slots from given {@code request}
+     */
+    private List<Interval> getAvailabilityCheckSlots(AvailabilityCheckRequest request)
+    {
+        List<Interval> slots = new ArrayList<Interval>();
+        for (PeriodicDateTimeSlot slot : request.getSlots()) {
+            PeriodicDateTime periodicDateTime = new PeriodicDateTime(slot.getStart(), slot.getPeriod(), slot.getEnd(), slot.getPeriodicityDayOrder(), slot.getPeriodicityDayInMonth());
+            periodicDateTime.setTimeZone(slot.getTimeZone());
+            periodicDateTime.addAllRules(PeriodicDateTime.RuleType.DISABLE, slot.getExcludeDates());
+
+            for (DateTime slotStart : periodicDateTime.enumerate()) {
+                slots.add(new Interval(slotStart, slot.getDuration()));
             }
         }
+        return slots;
+    }
 
-        EntityManager entityManager = entityManagerFactory.createEntityManager();
-        ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
-        try {
-            List<Interval> slots = new ArrayList<Interval>();
-            for (PeriodicDateTimeSlot slot : request.getSlots()) {
-                PeriodicDateTime periodicDateTime = new PeriodicDateTime(slot.getStart(), slot.getPeriod(), slot.getEnd(), slot.getPeriodicityDayOrder(), slot.getPeriodicityDayInMonth());
-                periodicDateTime.setTimeZone(slot.getTimeZone());
-                periodicDateTime.addAllRules(PeriodicDateTime.RuleType.DISABLE, slot.getExcludeDates());
+    /**
+     * Check availability of given {@code slots} for given {@code request}.
+     * <p/>
+     * The {@code slots} are divided into continuous parts which are checked in parallel by
+     * {@link #availabilityCheckExecutorService} (when configured). Each part is checked with single
+     * {@link EntityManager} and thus the {@link Specification} and reservation requests from the {@code request}
+     * are loaded only once for each part (the reservations are loaded only once by the {@link Cache}).
+     *
+     * @param request           {@link AvailabilityCheckRequest}
+     * @param slots             to be checked
+     * @param stopOnUnavailable specifies whether slots after the first slot which is not available can be skipped
+     * @return array of {@link AllocationStateReport} for each slot which is not available ({@code null} for slots
+     *         which are available or which have been skipped)
+     */
+    private AllocationStateReport[] checkSlotAvailability(final AvailabilityCheckRequest request,
+            final List<Interval> slots, boolean stopOnUnavailable)
+    {
+        // We must check only the future (because scheduler allocates only in future)
+        DateTime minimumDateTime = DateTime.now();
+        for (Interval slot : slots) {
+            if (slot.getEnd().isBefore(minimumDateTime)) {
+                throw new ControllerReportSet.ReservationRequestEmptyDurationException();
+            }
+        }
+
+        final AllocationStateReport[] reports = new AllocationStateReport[slots.size()];
+        final AtomicInteger unavailableIndex = (stopOnUnavailable ? new AtomicInteger(slots.size()) : null);
+        int partCount = 1;
+        if (availabilityCheckExecutorService != null) {
+            partCount = Math.min(availabilityCheckThreadCount, slots.size() / AVAILABILITY_CHECK_MINIMUM_PART_SIZE);
+        }
+        if (partCount <= 1) {
+            checkSlotAvailability(request, slots, 0, slots.size(), reports, unavailableIndex);
+            return reports;
+        }
 
-                for (DateTime slotStart : periodicDateTime.enumerate()) {
-                    slots.add(new Interval(slotStart, slot.getDuration()));
+        List<Future<?>> futures = new LinkedList<Future<?>>();
+        for (int part = 0; part < partCount; part++) {
+            final int fromIndex = part * slots.size() / partCount;
+            final int toIndex = (part + 1) * slots.size() / partCount;
+            futures.add(availabilityCheckExecutorService.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    checkSlotAvailability(request, slots, fromIndex, toIndex, reports, unavailableIndex);
                 }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
             }
+        }
+        return reports;
+    }
 
-            boolean rollback = false;
-            // For each time slot in periodic reservation request
-            for (Interval slotToTest : slots) {
-                // We must check only the future (because scheduler allocates only in future)
-                DateTime minimumDateTime = DateTime.now();
-                Interval slot = slotToTest;
-                if (slot.getEnd().isBefore(minimumDateTime)) {
-                    throw new ControllerReportSet.ReservationRequestEmptyDurationException();
-                }
-                if (slot.getStart().isBefore(minimumDateTime)) {
-                    slot = slot.withStart(minimumDateTime);
-                }
+    /**
+     * Check availability of {@code slots} from {@code fromIndex} to {@code toIndex} for given {@code request}.
+     *
+     * @param request          {@link AvailabilityCheckRequest}
+     * @param slots            to be checked
+     * @param fromIndex        index of the first slot to be checked
+     * @param toIndex          index after the last slot to be checked
+     * @param reports          to which the {@link AllocationStateReport}s for slots which are not available are stored
+     * @param unavailableIndex index of the first slot which is not available (slots after it are skipped)
+     *                         or {@code null} when all slots should be checked
+     */
+    private void checkSlotAvailability(AvailabilityCheckRequest request, List<Interval> slots, int fromIndex,
+            int toIndex, AllocationStateReport[] reports, AtomicInteger unavailableIndex)
+    {
+        SecurityToken securityToken = request.getSecurityToken();
+        Report.UserType userType = authorization.isAdministrator(securityToken) ?
+                Report.UserType.DOMAIN_ADMIN : Report.UserType.USER;
 
+        // For each time slot in given part
+        for (int index = fromIndex; index < toIndex; index++) {
+            if (unavailableIndex != null && index > unavailableIndex.get()) {
+                break;
+            }
+            // Each slot is checked by new entity manager, so that no entities from rolled back check are reused
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+            try {
                 Specification specificationApi = request.getSpecification();
                 cz.cesnet.shongo.controller.booking.specification.Specification specification = null;
-                Interval allocationSlot = slot;
                 if (specificationApi != null) {
                     specification = cz.cesnet.shongo.controller.booking.specification.Specification.createFromApi(
                             specificationApi, entityManager);
-                    if (specification instanceof SpecificationIntervalUpdater) {
-                        SpecificationIntervalUpdater intervalUpdater = (SpecificationIntervalUpdater) specification;
-                        allocationSlot = intervalUpdater.updateInterval(allocationSlot, minimumDateTime);
-                    }
+                }
+
+                // Reservations for already allocated reservation request will be ignored
+                cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest ignoredReservationRequest =
+                        null;
+                String ignoredReservationRequestId = request.getIgnoredReservationRequestId();
+                if (ignoredReservationRequestId != null) {
+                    ObjectIdentifier objectId = ObjectIdentifier.parse(
+                            ignoredReservationRequestId, ObjectType.RESERVATION_REQUEST);
+                    ignoredReservationRequest = reservationRequestManager.get(objectId.getPersistenceId());
+                }
+
+                DateTime minimumDateTime = DateTime.now();
+                Interval slot = slots.get(index);
+                if (slot.getStart().isBefore(minimumDateTime)) {
+                    slot = slot.withStart(minimumDateTime);
+                }
+                Interval allocationSlot = slot;
+                if (specification instanceof SpecificationIntervalUpdater) {
+                    SpecificationIntervalUpdater intervalUpdater = (SpecificationIntervalUpdater) specification;
+                    allocationSlot = intervalUpdater.updateInterval(allocationSlot, minimumDateTime);
                 }
 
                 // Create scheduler context
-                SchedulerContext schedulerContext = new SchedulerContext(DateTime.now(), cache, entityManager,
+                SchedulerContext schedulerContext = new SchedulerContext(minimumDateTime, cache, entityManager,
                         new AuthorizationManager(entityManager, authorization));
                 schedulerContext.setUserId(securityToken.getUserId());
                 schedulerContext.setPurpose(request.getPurpose());
 
-
                 // Ignore reservations for already allocated reservation request
                 SchedulerContextState schedulerContextState = schedulerContext.getState();
-                String ignoredReservationRequestId = request.getIgnoredReservationRequestId();
-                if (ignoredReservationRequestId != null) {
-                    ObjectIdentifier objectId = ObjectIdentifier.parse(
-                            ignoredReservationRequestId, ObjectType.RESERVATION_REQUEST);
-                    cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest ignoredReservationRequest =
-                            reservationRequestManager.get(objectId.getPersistenceId());
+                if (ignoredReservationRequest != null) {
                     for (cz.cesnet.shongo.controller.booking.reservation.Reservation reservation :
                             ignoredReservationRequest.getAllocation().getReservations()) {
                         if (allocationSlot.overlaps(reservation.getSlot())) {
@@ -308,6 +507,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
                     }
                 }
 
+                boolean rollback = false;
                 try {
                     // Check reservation request reusability (TODO: check if permanent room)
                     String reservationRequestId = request.getReservationRequestId();
@@ -323,49 +523,38 @@ public class ReservationServiceImpl extends AbstractServiceImpl
                     if (specification != null) {
                         if (specification instanceof ReservationTaskProvider) {
                             entityManager.getTransaction().begin();
-                            try {
-                                schedulerContext.setAvailabilityCheck(true);
-                                ReservationTaskProvider reservationTaskProvider = (ReservationTaskProvider) specification;
-                                ReservationTask reservationTask =
-                                        reservationTaskProvider.createReservationTask(schedulerContext, slot);
-                                reservationTask.perform();
-                            } finally {
-                                rollback = true;
-                            }
-                        } else {
+                            rollback = true;
+                            schedulerContext.setAvailabilityCheck(true);
+                            ReservationTaskProvider reservationTaskProvider = (ReservationTaskProvider) specification;
+                            ReservationTask reservationTask =
+                                    reservationTaskProvider.createReservationTask(schedulerContext, slot);
+                            reservationTask.perform();
+                        }
+                        else {
                             throw new SchedulerReportSet.SpecificationNotAllocatableException(specification);
                         }
                     }
                 }
                 catch (SchedulerException exception) {
-                    SchedulerReport schedulerReport = exception.getReport();
-
-                    // Specification cannot be allocated or reservation request cannot be reused in requested time slot
-                    /* TODO: PREPARED for reporting all errors at once
-                    if (slotsLeft > 0) {
-                        AvailabilityCheckRequest newRequest = request;
-                        newRequest.setSlot(slots.get(slots.size()-slotsLeft));
-                        Object availabilityCheckResult = checkPeriodicAvailability(newRequest);
-                        if (!Boolean.TRUE.equals(availabilityCheckResult)) {
-                            AllocationStateReport report = (AllocationStateReport) availabilityCheckResult;
-                            return schedulerReport.toAllocationStateReport(report);
+                    // Specification cannot be allocated or reservation request cannot be reused in the time slot
+                    reports[index] = exception.getReport().toAllocationStateReport(userType);
+                    if (unavailableIndex != null) {
+                        int currentIndex = unavailableIndex.get();
+                        while (index < currentIndex && !unavailableIndex.compareAndSet(currentIndex, index)) {
+                            currentIndex = unavailableIndex.get();
                         }
-                    }*/
-                    return schedulerReport.toAllocationStateReport(authorization.isAdministrator(securityToken) ?
-                            Report.UserType.DOMAIN_ADMIN : Report.UserType.USER);
+                        break;
+                    }
                 }
                 finally {
                     if (rollback) {
                         entityManager.getTransaction().rollback();
                     }
                 }
-
-            } //END OF FOR-EACH LOOP
-            // Request is available
-            return Boolean.TRUE;
-        }
-        finally {
-            entityManager.close();
+            }
+            finally {
+                entityManager.close();
+            }
         }
     }
 
@@ -439,6 +628,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            cache.getSchedulerQueue().add(reservationRequest);
 
             if (reservationRequest instanceof ReservationRequest) {
                 ReservationRequest simpleReservationRequest = (ReservationRequest) reservationRequest;
@@ -576,6 +766,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            cache.getSchedulerQueue().add(newReservationRequest);
 
             return ObjectIdentifier.formatId(newReservationRequest);
         }
@@ -645,6 +836,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             reservationRequestManager.update(reservationRequest);
 
             entityManager.getTransaction().commit();
+            cache.getSchedulerQueue().add(reservationRequest);
         }
         finally {
             if (entityManager.getTransaction().isActive()) {
@@ -848,6 +1040,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            cache.getSchedulerQueue().add(modifiedReservationRequest);
 
             return ObjectIdentifier.formatId(modifiedReservationRequest);
         }
@@ -899,6 +1092,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            cache.getSchedulerQueue().add(reservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
@@ -946,6 +1140,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            cache.getSchedulerQueue().add(reservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
@@ -1008,6 +1203,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            cache.getSchedulerQueue().add(abstractReservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
@@ -1227,6 +1423,10 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             }
             Boolean sortDescending = request.getSortDescending();
             sortDescending = (sortDescending != null ? sortDescending : false);
+            if (sort == null) {
+                // Keyset pagination by identifiers
+                queryFilter.addFilterCursor(queryOrderBy, request, sortDescending);
+            }
             if (sortDescending) {
                 queryOrderBy = queryOrderBy + " DESC";
             }
@@ -1350,6 +1550,10 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             }
             Boolean sortDescending = request.getSortDescending();
             sortDescending = (sortDescending != null ? sortDescending : false);
+            if (sort == null) {
+                // Keyset pagination by identifiers
+                queryFilter.addFilterCursor(queryOrderBy, request, sortDescending);
+            }
             if (sortDescending) {
                 queryOrderBy = queryOrderBy + " DESC";
             }
@@ -1555,7 +1759,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
         EntityManager entityManager = entityManagerFactory.createEntityManager();
         ResourceManager resourceManager = new ResourceManager(entityManager);
         try {
-            QueryFilter queryFilter = new QueryFilter("reservation_summary");
+            QueryFilter queryFilter = new QueryFilter("reservation_summary", true);
 
             // Show reservations
             Boolean hasReadForAll = false;
@@ -1581,26 +1785,21 @@ public class ReservationServiceImpl extends AbstractServiceImpl
                 }
             }
             // List only reservations which is current user permitted to read or which allocates resource owned by the user
-            Set<Long> readableReservationIds = null;
             if (!hasReadForAll) {
-                readableReservationIds = authorization.getEntitiesWithPermission(securityToken,
+                String readableFilter = queryFilter.getFilterId("id", authorization, securityToken,
                         cz.cesnet.shongo.controller.booking.reservation.Reservation.class, ObjectPermission.READ);
-            }
-            if (readableReservationIds != null) {
-                Set<Long> ownedResourceIds = authorization.getEntitiesWithRole(securityToken,
-                        cz.cesnet.shongo.controller.booking.resource.Resource.class, ObjectRole.OWNER);
-                StringBuilder filterBuilder = new StringBuilder();
-                filterBuilder.append("1=0");
-                //TODO: except reservations without slot (see AbstractForeingReservation)
-                if (!readableReservationIds.isEmpty()) {
-                    filterBuilder.append(" OR reservation_summary.id IN(:readableReservationIds)");
-                    queryFilter.addFilterParameter("readableReservationIds", readableReservationIds);
-                }
-                if (!ownedResourceIds.isEmpty()) {
-                    filterBuilder.append(" OR reservation_summary.resource_id IN(:ownedResourceIds)");
-                    queryFilter.addFilterParameter("ownedResourceIds", ownedResourceIds);
+                if (readableFilter != null) {
+                    Set<Long> ownedResourceIds = authorization.getEntitiesWithRole(securityToken,
+                            cz.cesnet.shongo.controller.booking.resource.Resource.class, ObjectRole.OWNER);
+                    StringBuilder filterBuilder = new StringBuilder();
+                    //TODO: except reservations without slot (see AbstractForeingReservation)
+                    filterBuilder.append(readableFilter);
+                    if (!ownedResourceIds.isEmpty()) {
+                        filterBuilder.append(" OR reservation_summary.resource_id IN(:ownedResourceIds)");
+                        queryFilter.addFilterParameter("ownedResourceIds", ownedResourceIds);
+                    }
+                    queryFilter.addFilter(filterBuilder.toString());
                 }
-                queryFilter.addFilter(filterBuilder.toString());
             }
 
             // List only reservations of requested types
@@ -1667,6 +1866,10 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             }
             Boolean sortDescending = request.getSortDescending();
             sortDescending = (sortDescending != null ? sortDescending : false);
+            if (sort == null) {
+                // Keyset pagination by identifiers
+                queryFilter.addFilterCursor(queryOrderBy, request, sortDescending);
+            }
             if (sortDescending) {
                 queryOrderBy = queryOrderBy + " DESC";
             }
@@ -1811,17 +2014,25 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
         if (request.getResourceIds().size() == 1) {
             String resourceId = request.getResourceIds().iterator().next();
-            String iCalendarData = cache.getICalReservation(resourceId);
-            if (iCalendarData == null) {
-                if  (isCachedResourceNullOrNotPublicCalnedar(resourceId)) {
-                    //To prevent DoS
-                    return "";
+            if  (isCachedResourceNullOrNotPublicCalnedar(resourceId)) {
+                //To prevent DoS
+                return "";
+            }
+            Long persistentResourceId = ObjectIdentifier.parseLocalId(resourceId, ObjectType.RESOURCE);
+            CalendarFeedCache calendarFeedCache = cache.getCalendarFeedCache();
+            CalendarFeedCache.Feed feed = calendarFeedCache.getFeed(persistentResourceId);
+            if (feed == null) {
+                Resource resource = cache.getResourceCache().getObject(persistentResourceId);
+                EntityManager entityManager = entityManagerFactory.createEntityManager();
+                try {
+                    String author = getConfiguration().getString(ControllerConfiguration.DOMAIN_NAME);
+                    feed = calendarFeedCache.getFeed(resource, author, entityManager);
+                }
+                finally {
+                    entityManager.close();
                 }
-
-                iCalendarData = getResourceReservationsICalendar(request);
-                cache.addICalReservation(resourceId, iCalendarData);
             }
-            return iCalendarData;
+            return feed.getData();
         } else {
             throw new TodoImplementException("ReservationService.getCachedResourceReservationsICalendar() support just one resource ID.");
         }
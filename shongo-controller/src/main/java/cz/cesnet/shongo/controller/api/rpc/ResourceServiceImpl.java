@@ -29,6 +29,7 @@ import cz.cesnet.shongo.controller.domains.InterDomainAgent;
 import cz.cesnet.shongo.controller.scheduler.SchedulerContext;
 import cz.cesnet.shongo.controller.util.NativeQuery;
 import cz.cesnet.shongo.controller.util.QueryFilter;
+import cz.cesnet.shongo.util.CapacityProfile;
 import org.hibernate.exception.ConstraintViolationException;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -676,6 +677,110 @@ public class ResourceServiceImpl extends AbstractServiceImpl
         }
     }
 
+    @Override
+    public List<ResourceUtilization> listResourceUtilization(ResourceUtilizationRequest request)
+    {
+        checkNotNull("request", request);
+        SecurityToken securityToken = request.getSecurityToken();
+        authorization.validate(securityToken);
+        Interval interval = request.getInterval();
+        Period period = request.getPeriod();
+        checkNotNull("interval", interval);
+        checkNotNull("period", period);
+
+        // Split the interval into parts for which the utilization should be computed
+        List<Interval> parts = new LinkedList<Interval>();
+        DateTime start = interval.getStart();
+        DateTime maxEnd = interval.getEnd();
+        while (start.isBefore(maxEnd)) {
+            DateTime end = start.plus(period);
+            if (!end.isAfter(start)) {
+                throw new IllegalArgumentException("Argument period must be positive.");
+            }
+            if (end.isAfter(maxEnd)) {
+                end = maxEnd;
+            }
+            parts.add(new Interval(start, end));
+            start = end;
+        }
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        ResourceManager resourceManager = new ResourceManager(entityManager);
+        try {
+            List<ResourceUtilization> resourceUtilizations = new LinkedList<ResourceUtilization>();
+            for (String resourceId : request.getResourceIds()) {
+                if (!ObjectIdentifier.isLocal(resourceId)) {
+                    continue;
+                }
+                ObjectIdentifier objectId = ObjectIdentifier.parse(resourceId, ObjectType.RESOURCE);
+                cz.cesnet.shongo.controller.booking.resource.Resource resourceImpl =
+                        resourceManager.get(objectId.getPersistenceId());
+                if (!authorization.hasObjectPermission(securityToken, resourceImpl, ObjectPermission.READ)) {
+                    ControllerReportSetHelper.throwSecurityNotAuthorizedFault(
+                            "read utilization for resource %s", objectId);
+                }
+
+                // Reservations are taken from the scheduler cache
+                RoomProviderCapability roomProviderCapability =
+                        resourceImpl.getCapability(RoomProviderCapability.class);
+                if (roomProviderCapability != null) {
+                    CapacityProfile capacityProfile = cache.getResourceCache().getRoomCapacityProfile(
+                            roomProviderCapability, interval, Collections.<Long>emptySet(), entityManager);
+                    addResourceUtilizations(resourceUtilizations, resourceId, ReservationSummary.Type.ROOM,
+                            capacityProfile, parts);
+                }
+                cz.cesnet.shongo.controller.booking.recording.RecordingCapability recordingCapability =
+                        resourceImpl.getCapability(cz.cesnet.shongo.controller.booking.recording.RecordingCapability.class);
+                if (recordingCapability != null && recordingCapability.getLicenseCount() != null) {
+                    CapacityProfile capacityProfile = cache.getResourceCache().getRecordingCapacityProfile(
+                            recordingCapability, interval, Collections.<Long>emptySet(), entityManager);
+                    addResourceUtilizations(resourceUtilizations, resourceId,
+                            ReservationSummary.Type.RECORDING_SERVICE, capacityProfile, parts);
+                }
+            }
+            return resourceUtilizations;
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Add {@link ResourceUtilization}s from given {@code capacityProfile} for each part in which it is utilized.
+     *
+     * @param resourceUtilizations to which the {@link ResourceUtilization}s should be added
+     * @param resourceId           of the utilized resource
+     * @param reservationType      of reservations which utilize the resource
+     * @param capacityProfile      of utilized licenses
+     * @param parts                for which the {@link ResourceUtilization}s should be computed
+     */
+    private void addResourceUtilizations(List<ResourceUtilization> resourceUtilizations, String resourceId,
+            ReservationSummary.Type reservationType, CapacityProfile capacityProfile, List<Interval> parts)
+    {
+        for (Interval part : parts) {
+            int peakLicenseCount = 0;
+            int totalLicenseCount = 0;
+            int utilizedPartCount = 0;
+            for (int licenseCount : capacityProfile.getCapacities(part)) {
+                if (licenseCount > 0) {
+                    peakLicenseCount = Math.max(peakLicenseCount, licenseCount);
+                    totalLicenseCount += licenseCount;
+                    utilizedPartCount++;
+                }
+            }
+            if (utilizedPartCount > 0) {
+                ResourceUtilization resourceUtilization = new ResourceUtilization();
+                resourceUtilization.setResourceId(resourceId);
+                resourceUtilization.setReservationType(reservationType);
+                resourceUtilization.setInterval(part);
+                resourceUtilization.setPeakLicenseCount(peakLicenseCount);
+                resourceUtilization.setTotalLicenseCount(totalLicenseCount);
+                resourceUtilization.setUtilizedPartCount(utilizedPartCount);
+                resourceUtilizations.add(resourceUtilization);
+            }
+        }
+    }
+
     @Override
     public String createTag(SecurityToken securityToken, Tag tagApi) {
         authorization.validate(securityToken);
@@ -9,11 +9,13 @@ import cz.cesnet.shongo.controller.Reporter;
 import cz.cesnet.shongo.controller.api.SecurityToken;
 import cz.cesnet.shongo.controller.api.request.AbstractRequest;
 import cz.cesnet.shongo.controller.authorization.Authorization;
+import cz.cesnet.shongo.controller.util.StatementTracer;
 import cz.cesnet.shongo.report.*;
 import cz.cesnet.shongo.util.Timer;
 import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.XmlRpcHandler;
 import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.XmlRpcRequestConfig;
 import org.apache.xmlrpc.common.TypeConverter;
 import org.apache.xmlrpc.common.XmlRpcNotAuthorizedException;
 import org.apache.xmlrpc.metadata.Util;
@@ -148,11 +150,15 @@ public class RpcHandler implements XmlRpcHandler
         // Get user information from the first SecurityToken argument
         if (pArgs.length > 0) {
             SecurityToken securityToken = null;
+            // Security tokens are shared by calls in one multicall to retrieve user information only once
             if (pArgs[0] instanceof SecurityToken) {
-                securityToken = (SecurityToken) pArgs[0];
+                securityToken = RpcMulticallHandler.getSecurityToken((SecurityToken) pArgs[0]);
+                pArgs[0] = securityToken;
             }
             else if (pArgs[0] instanceof AbstractRequest) {
-                securityToken = ((AbstractRequest) pArgs[0]).getSecurityToken();
+                AbstractRequest request = (AbstractRequest) pArgs[0];
+                securityToken = RpcMulticallHandler.getSecurityToken(request.getSecurityToken());
+                request.setSecurityToken(securityToken);
             }
             if (securityToken != null) {
                 try {
@@ -185,9 +191,11 @@ public class RpcHandler implements XmlRpcHandler
 
         // Execute request
         String requestState = "OK";
+        Object result = null;
+        StatementTracer.Trace statementTrace = StatementTracer.start();
         try {
             pMethod.setAccessible(true);
-            Object result = pMethod.invoke(pInstance, pArgs);
+            result = pMethod.invoke(pInstance, pArgs);
             return result;
         }
         catch (IllegalAccessException exception) {
@@ -224,8 +232,12 @@ public class RpcHandler implements XmlRpcHandler
             }
         }
         finally {
+            StatementTracer.stop();
+
             // Log request end
             long duration = requestTimer.stop();
+            RpcStatistics.getInstance().record(
+                    requestContext, duration, !requestState.equals("OK"), result, statementTrace);
             logMessage = "Request:{} Done in {} ms ({}).";
             logMessageParameters = new Object[]{requestContext.requestId, duration, requestState};
             if (debug) {
@@ -308,4 +320,41 @@ public class RpcHandler implements XmlRpcHandler
         xmlRpcException.setStackTrace(throwable.getStackTrace());
         return xmlRpcException;
     }
+
+    /**
+     * @param config     for the request
+     * @param methodName name of requested method
+     * @param params     parameters for the method
+     * @return new {@link XmlRpcRequest}
+     */
+    public static XmlRpcRequest createRequest(final XmlRpcRequestConfig config, final String methodName,
+            final Object[] params)
+    {
+        return new XmlRpcRequest()
+        {
+            @Override
+            public XmlRpcRequestConfig getConfig()
+            {
+                return config;
+            }
+
+            @Override
+            public String getMethodName()
+            {
+                return methodName;
+            }
+
+            @Override
+            public int getParameterCount()
+            {
+                return params.length;
+            }
+
+            @Override
+            public Object getParameter(int index)
+            {
+                return params[index];
+            }
+        };
+    }
 }
@@ -31,6 +31,19 @@ class RpcHandlerMapping extends PropertyHandlerMapping
      */
     Map<String, Class> handlerClassMap = new HashMap<String, Class>();
 
+    /**
+     * Handler for {@link Service#MULTICALL_METHOD}.
+     */
+    private final RpcMulticallHandler multicallHandler = new RpcMulticallHandler(this);
+
+    /**
+     * @param maxCallCount maximum number of calls in one {@link Service#MULTICALL_METHOD} request
+     */
+    public void setMulticallMaxCallCount(int maxCallCount)
+    {
+        multicallHandler.setMaxCallCount(maxCallCount);
+    }
+
     @Override
     protected boolean isHandlerMethod(Method pMethod)
     {
@@ -53,6 +66,9 @@ class RpcHandlerMapping extends PropertyHandlerMapping
     @SuppressWarnings("unchecked")
     public XmlRpcHandler getHandler(String pHandlerName) throws XmlRpcException
     {
+        if (Service.MULTICALL_METHOD.equals(pHandlerName)) {
+            return multicallHandler;
+        }
         XmlRpcHandler result = (XmlRpcHandler) handlerMap.get(pHandlerName);
         if (result == null) {
             Exception exception = null;
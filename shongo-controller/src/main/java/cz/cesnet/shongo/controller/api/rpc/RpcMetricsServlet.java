@@ -0,0 +1,28 @@
+package cz.cesnet.shongo.controller.api.rpc;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Servlet which provides {@link RpcStatistics} in Prometheus text format.
+ */
+public class RpcMetricsServlet extends HttpServlet
+{
+    /**
+     * Content type of Prometheus text format.
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(CONTENT_TYPE);
+        PrintWriter writer = response.getWriter();
+        RpcStatistics.getInstance().writePrometheus(writer);
+        writer.flush();
+    }
+}
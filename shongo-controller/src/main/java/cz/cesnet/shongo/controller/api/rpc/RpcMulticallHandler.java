@@ -0,0 +1,138 @@
+package cz.cesnet.shongo.controller.api.rpc;
+
+import cz.cesnet.shongo.CommonReportSet;
+import cz.cesnet.shongo.api.rpc.Service;
+import cz.cesnet.shongo.controller.api.SecurityToken;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcHandler;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.server.XmlRpcHandlerMapping;
+
+import java.util.*;
+
+/**
+ * {@link XmlRpcHandler} for {@link Service#MULTICALL_METHOD} which executes multiple calls in one request.
+ * <p/>
+ * Each call is executed by it's own handler (and thus in it's own transaction) and a failure of one call doesn't
+ * affect the other calls. Calls with the same access token share one {@link SecurityToken} instance and thus
+ * the user information is retrieved only once for the whole request. The number of calls in one request
+ * is limited by {@link #maxCallCount}.
+ */
+class RpcMulticallHandler implements XmlRpcHandler
+{
+    /**
+     * {@link SecurityToken}s by access tokens for multicall which is executed by current thread.
+     */
+    private static final ThreadLocal<Map<String, SecurityToken>> securityTokens =
+            new ThreadLocal<Map<String, SecurityToken>>();
+
+    /**
+     * Mapping of handlers for the calls.
+     */
+    private final XmlRpcHandlerMapping handlerMapping;
+
+    /**
+     * Maximum number of calls in one request.
+     */
+    private int maxCallCount = Service.MULTICALL_MAX_CALL_COUNT;
+
+    /**
+     * Constructor.
+     *
+     * @param handlerMapping sets the {@link #handlerMapping}
+     */
+    public RpcMulticallHandler(XmlRpcHandlerMapping handlerMapping)
+    {
+        this.handlerMapping = handlerMapping;
+    }
+
+    /**
+     * @param maxCallCount sets the {@link #maxCallCount}
+     */
+    public void setMaxCallCount(int maxCallCount)
+    {
+        this.maxCallCount = maxCallCount;
+    }
+
+    @Override
+    public Object execute(XmlRpcRequest request) throws XmlRpcException
+    {
+        if (request.getParameterCount() != 1) {
+            throw new CommonReportSet.MethodNotDefinedException(Service.MULTICALL_METHOD);
+        }
+        Object[] calls = toArray(request.getParameter(0));
+        if (calls.length > maxCallCount) {
+            throw new CommonReportSet.ValueMaximumLengthExceededException(
+                    Service.MULTICALL_METHOD + " with " + calls.length + " calls", maxCallCount);
+        }
+        Object[] results = new Object[calls.length];
+        securityTokens.set(new HashMap<String, SecurityToken>());
+        try {
+            for (int index = 0; index < calls.length; index++) {
+                try {
+                    if (!(calls[index] instanceof Map)) {
+                        throw new CommonReportSet.TypeIllegalValueException("MulticallCall", null);
+                    }
+                    Map call = (Map) calls[index];
+                    String methodName = (String) call.get("methodName");
+                    if (methodName == null || Service.MULTICALL_METHOD.equals(methodName)) {
+                        throw new CommonReportSet.MethodNotDefinedException(methodName);
+                    }
+                    Object[] params = toArray(call.get("params"));
+                    XmlRpcHandler handler = handlerMapping.getHandler(methodName);
+                    Object result = handler.execute(
+                            RpcHandler.createRequest(request.getConfig(), methodName, params));
+                    results[index] = new Object[]{result};
+                }
+                catch (Throwable throwable) {
+                    XmlRpcException xmlRpcException = (XmlRpcException) RpcHandler.convertThrowable(throwable);
+                    Map<String, Object> fault = new HashMap<String, Object>();
+                    fault.put("faultCode", xmlRpcException.code);
+                    fault.put("faultString", xmlRpcException.getMessage());
+                    results[index] = fault;
+                }
+            }
+        }
+        finally {
+            securityTokens.remove();
+        }
+        return results;
+    }
+
+    /**
+     * @param securityToken to be shared
+     * @return {@link SecurityToken} which is shared by all calls with the same access token in the multicall
+     *         which is executed by current thread, or given {@code securityToken} when no multicall is executed
+     */
+    public static SecurityToken getSecurityToken(SecurityToken securityToken)
+    {
+        Map<String, SecurityToken> securityTokenByAccessToken = securityTokens.get();
+        if (securityTokenByAccessToken == null || securityToken == null || securityToken.getAccessToken() == null) {
+            return securityToken;
+        }
+        SecurityToken sharedSecurityToken = securityTokenByAccessToken.get(securityToken.getAccessToken());
+        if (sharedSecurityToken == null) {
+            securityTokenByAccessToken.put(securityToken.getAccessToken(), securityToken);
+            return securityToken;
+        }
+        return sharedSecurityToken;
+    }
+
+    /**
+     * @param value array or {@link Collection}
+     * @return given {@code value} as array
+     */
+    private static Object[] toArray(Object value)
+    {
+        if (value == null) {
+            return new Object[0];
+        }
+        else if (value instanceof Object[]) {
+            return (Object[]) value;
+        }
+        else if (value instanceof Collection) {
+            return ((Collection) value).toArray();
+        }
+        throw new CommonReportSet.TypeIllegalValueException("Array", value.toString());
+    }
+}
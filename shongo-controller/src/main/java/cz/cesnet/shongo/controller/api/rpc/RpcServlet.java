@@ -1,8 +1,11 @@
 
 package cz.cesnet.shongo.controller.api.rpc;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
 import cz.cesnet.shongo.CommonReportSet;
 import cz.cesnet.shongo.api.UserInformation;
+import cz.cesnet.shongo.api.rpc.JsonRpc;
 import cz.cesnet.shongo.api.rpc.Service;
 import cz.cesnet.shongo.api.rpc.TypeConverterFactory;
 import cz.cesnet.shongo.api.rpc.TypeFactory;
@@ -19,6 +22,7 @@ import org.apache.xmlrpc.XmlRpcRequest;
 import org.apache.xmlrpc.common.ServerStreamConnection;
 import org.apache.xmlrpc.common.TypeConverter;
 import org.apache.xmlrpc.common.XmlRpcNotAuthorizedException;
+import org.apache.xmlrpc.common.XmlRpcHttpRequestConfigImpl;
 import org.apache.xmlrpc.common.XmlRpcStreamRequestConfig;
 import org.apache.xmlrpc.metadata.Util;
 import org.apache.xmlrpc.server.*;
@@ -32,6 +36,10 @@ import org.springframework.core.annotation.AnnotationUtils;
 import org.xml.sax.SAXException;
 
 import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -48,6 +56,8 @@ import java.util.Map;
 
 /**
  * Server for XML-RPC with improved type factory.
+ * <p/>
+ * Requests with {@link JsonRpc#CONTENT_TYPE} are processed as JSON-RPC by the same handlers.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -92,6 +102,14 @@ public class RpcServlet extends XmlRpcServlet
         factory.addInstance(handler);
     }
 
+    /**
+     * @param maxCallCount maximum number of calls in one {@link Service#MULTICALL_METHOD} request
+     */
+    public void setMulticallMaxCallCount(int maxCallCount)
+    {
+        ((RpcHandlerMapping) handlerMapping).setMulticallMaxCallCount(maxCallCount);
+    }
+
     @Override
     protected XmlRpcHandlerMapping newXmlRpcHandlerMapping() throws XmlRpcException
     {
@@ -106,6 +124,67 @@ public class RpcServlet extends XmlRpcServlet
         return server;
     }
 
+    @Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException
+    {
+        if (JsonRpc.isContentType(request.getContentType())) {
+            doPostJson(request, response);
+        }
+        else {
+            super.doPost(request, response);
+        }
+    }
+
+    /**
+     * Process JSON-RPC request.
+     *
+     * @param request  HTTP request with JSON-RPC request
+     * @param response HTTP response to which the JSON-RPC response should be written
+     * @throws IOException
+     */
+    private void doPostJson(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        InputStream inputStream = request.getInputStream();
+        if (RpcServerRequestLogger.isEnabled()) {
+            byte[] content = inputStream.readAllBytes();
+            RpcServerRequestLogger.log("REQUEST:\n" + new String(content, "UTF-8"));
+            inputStream = new ByteArrayInputStream(content);
+        }
+        // Response is buffered to be able to replace partially written result by error
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        JsonNode id = NullNode.getInstance();
+        try {
+            JsonNode jsonRequest = JsonRpc.read(inputStream);
+            if (jsonRequest.hasNonNull("id")) {
+                id = jsonRequest.get("id");
+            }
+            String methodName = jsonRequest.path("method").asText();
+            JsonNode params = jsonRequest.path("params");
+            Object[] parameters = new Object[params.size()];
+            for (int index = 0; index < parameters.length; index++) {
+                parameters[index] = JsonRpc.readValue(params.get(index));
+            }
+            XmlRpcHandler handler = handlerMapping.getHandler(methodName);
+            Object result = handler.execute(
+                    RpcHandler.createRequest(new XmlRpcHttpRequestConfigImpl(), methodName, parameters));
+            JsonRpc.writeResult(outputStream, id, result);
+        }
+        catch (Throwable throwable) {
+            XmlRpcException xmlRpcException = (XmlRpcException) RpcHandler.convertThrowable(throwable);
+            outputStream.reset();
+            JsonRpc.writeError(outputStream, id, xmlRpcException.code, xmlRpcException.getMessage());
+        }
+        if (RpcServerRequestLogger.isEnabled()) {
+            RpcServerRequestLogger.log("RESPONSE:\n" + outputStream.toString("UTF-8"));
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(JsonRpc.CONTENT_TYPE + "; charset=UTF-8");
+        response.setContentLength(outputStream.size());
+        outputStream.writeTo(response.getOutputStream());
+    }
+
     private static class XmlRpcServletServer extends org.apache.xmlrpc.webserver.XmlRpcServletServer
     {
         @Override
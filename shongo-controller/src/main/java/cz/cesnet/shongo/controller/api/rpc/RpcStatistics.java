@@ -0,0 +1,348 @@
+package cz.cesnet.shongo.controller.api.rpc;
+
+import cz.cesnet.shongo.controller.ThreadLock;
+import cz.cesnet.shongo.controller.api.request.ListResponse;
+import cz.cesnet.shongo.controller.util.Histogram;
+import cz.cesnet.shongo.controller.util.StatementTracer;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of API requests by methods (durations, failures, sizes of arguments and results and numbers of
+ * executed SQL statements) with logging of slow requests.
+ * <p/>
+ * The statistics are available by JMX (see {@link RpcStatisticsMBean}) and in Prometheus text format
+ * (see {@link #writePrometheus}). Sizes of arguments and results are numbers of items (e.g., in collections
+ * or in {@link ListResponse}s). Waiting for resource locks (see {@link ThreadLock}) is also provided.
+ */
+public class RpcStatistics implements RpcStatisticsMBean
+{
+    private static Logger logger = LoggerFactory.getLogger(RpcStatistics.class);
+
+    /**
+     * Upper bounds in milliseconds of histogram buckets for durations.
+     */
+    private static final long[] DURATION_BUCKET_BOUNDS = new long[]{10, 50, 100, 500, 1000, 5000, 10000};
+
+    /**
+     * Upper bounds of histogram buckets for sizes of arguments and results.
+     */
+    private static final long[] SIZE_BUCKET_BOUNDS = new long[]{1, 10, 100, 1000, 10000};
+
+    /**
+     * Upper bounds of histogram buckets for numbers of executed SQL statements.
+     */
+    private static final long[] STATEMENT_BUCKET_BOUNDS = new long[]{1, 10, 50, 100, 500, 1000};
+
+    /**
+     * Single instance of {@link RpcStatistics}.
+     */
+    private static final RpcStatistics instance = new RpcStatistics();
+
+    /**
+     * Requests which take at least this duration are logged with executed SQL statements
+     * ({@code null} means that slow requests aren't logged).
+     */
+    private Duration slowRequestThreshold;
+
+    /**
+     * {@link MethodStatistics} by method names.
+     */
+    private final Map<String, MethodStatistics> methodStatistics = new TreeMap<String, MethodStatistics>();
+
+    /**
+     * Number of slow requests.
+     */
+    private long slowRequestCount;
+
+    /**
+     * @return {@link #instance}
+     */
+    public static RpcStatistics getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * @param slowRequestThreshold sets the {@link #slowRequestThreshold}
+     */
+    public synchronized void setSlowRequestThreshold(Duration slowRequestThreshold)
+    {
+        this.slowRequestThreshold = slowRequestThreshold;
+    }
+
+    /**
+     * Record performed request.
+     *
+     * @param requestContext of the request
+     * @param duration       of the request in milliseconds
+     * @param failed         specifies whether the request failed
+     * @param result         of the request
+     * @param trace          of SQL statements executed by the request
+     */
+    void record(RpcRequestContext requestContext, long duration, boolean failed, Object result,
+            StatementTracer.Trace trace)
+    {
+        long argumentSize = 0;
+        for (Object argument : requestContext.arguments) {
+            argumentSize += getSize(argument);
+        }
+        long resultSize = getSize(result);
+        boolean slow;
+        synchronized (this) {
+            MethodStatistics statistics = methodStatistics.get(requestContext.methodName);
+            if (statistics == null) {
+                statistics = new MethodStatistics();
+                methodStatistics.put(requestContext.methodName, statistics);
+            }
+            statistics.durations.record(duration);
+            statistics.argumentSizes.record(argumentSize);
+            statistics.resultSizes.record(resultSize);
+            statistics.statements.record(trace.getCount());
+            if (failed) {
+                statistics.errorCount++;
+            }
+            slow = slowRequestThreshold != null && duration >= slowRequestThreshold.getMillis();
+            if (slow) {
+                slowRequestCount++;
+            }
+        }
+        if (slow) {
+            StringBuilder message = new StringBuilder();
+            message.append(String.format("Request:%d %s is slow (%d ms, %d SQL statements):",
+                    requestContext.requestId, requestContext.methodName, duration, trace.getCount()));
+            for (String statement : trace.getStatements()) {
+                message.append("\n  ");
+                message.append(statement);
+            }
+            if (trace.getCount() > trace.getStatements().size()) {
+                message.append("\n  ...");
+            }
+            logger.warn(message.toString());
+        }
+    }
+
+    @Override
+    public synchronized String[] getMethodNames()
+    {
+        return methodStatistics.keySet().toArray(new String[methodStatistics.size()]);
+    }
+
+    @Override
+    public synchronized long getRequestCount()
+    {
+        long requestCount = 0;
+        for (MethodStatistics statistics : methodStatistics.values()) {
+            requestCount += statistics.durations.getCount();
+        }
+        return requestCount;
+    }
+
+    @Override
+    public synchronized long getErrorCount()
+    {
+        long errorCount = 0;
+        for (MethodStatistics statistics : methodStatistics.values()) {
+            errorCount += statistics.errorCount;
+        }
+        return errorCount;
+    }
+
+    @Override
+    public synchronized long getSlowRequestCount()
+    {
+        return slowRequestCount;
+    }
+
+    @Override
+    public synchronized String getMethodSummary(String methodName)
+    {
+        MethodStatistics statistics = methodStatistics.get(methodName);
+        return (statistics != null ? statistics.toString() : null);
+    }
+
+    @Override
+    public synchronized String getSummary()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, MethodStatistics> entry : methodStatistics.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append("\n");
+            }
+            builder.append(entry.getKey());
+            builder.append(":\n");
+            builder.append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public long getResourceLockCount()
+    {
+        return ThreadLock.getLockCount();
+    }
+
+    @Override
+    public long getResourceLockWaitTime()
+    {
+        return ThreadLock.getLockWaitTime();
+    }
+
+    @Override
+    public long getMaxResourceLockWaitTime()
+    {
+        return ThreadLock.getMaxLockWaitTime();
+    }
+
+    /**
+     * Write the statistics in Prometheus text format.
+     *
+     * @param writer to which the statistics should be written
+     */
+    public synchronized void writePrometheus(PrintWriter writer)
+    {
+        writePrometheusHeader(writer, "shongo_rpc_request_duration_milliseconds", "histogram",
+                "Duration of API requests.");
+        for (Map.Entry<String, MethodStatistics> entry : methodStatistics.entrySet()) {
+            writePrometheusHistogram(writer, "shongo_rpc_request_duration_milliseconds", entry.getKey(),
+                    entry.getValue().durations);
+        }
+        writePrometheusHeader(writer, "shongo_rpc_request_argument_size", "histogram",
+                "Number of items in arguments of API requests.");
+        for (Map.Entry<String, MethodStatistics> entry : methodStatistics.entrySet()) {
+            writePrometheusHistogram(writer, "shongo_rpc_request_argument_size", entry.getKey(),
+                    entry.getValue().argumentSizes);
+        }
+        writePrometheusHeader(writer, "shongo_rpc_request_result_size", "histogram",
+                "Number of items in results of API requests.");
+        for (Map.Entry<String, MethodStatistics> entry : methodStatistics.entrySet()) {
+            writePrometheusHistogram(writer, "shongo_rpc_request_result_size", entry.getKey(),
+                    entry.getValue().resultSizes);
+        }
+        writePrometheusHeader(writer, "shongo_rpc_request_statements", "histogram",
+                "Number of SQL statements executed by API requests.");
+        for (Map.Entry<String, MethodStatistics> entry : methodStatistics.entrySet()) {
+            writePrometheusHistogram(writer, "shongo_rpc_request_statements", entry.getKey(),
+                    entry.getValue().statements);
+        }
+        writePrometheusHeader(writer, "shongo_rpc_request_errors_total", "counter",
+                "Number of failed API requests.");
+        for (Map.Entry<String, MethodStatistics> entry : methodStatistics.entrySet()) {
+            writer.printf("shongo_rpc_request_errors_total{method=\"%s\"} %d\n",
+                    entry.getKey(), entry.getValue().errorCount);
+        }
+        writePrometheusHeader(writer, "shongo_rpc_slow_requests_total", "counter",
+                "Number of slow API requests.");
+        writer.printf("shongo_rpc_slow_requests_total %d\n", slowRequestCount);
+        writePrometheusHeader(writer, "shongo_resource_lock_acquisitions_total", "counter",
+                "Number of resource lock acquisitions.");
+        writer.printf("shongo_resource_lock_acquisitions_total %d\n", getResourceLockCount());
+        writePrometheusHeader(writer, "shongo_resource_lock_wait_milliseconds_total", "counter",
+                "Total time spent by waiting for resource locks.");
+        writer.printf("shongo_resource_lock_wait_milliseconds_total %d\n", getResourceLockWaitTime());
+        writePrometheusHeader(writer, "shongo_resource_lock_wait_max_milliseconds", "gauge",
+                "Maximum time spent by waiting for a resource lock.");
+        writer.printf("shongo_resource_lock_wait_max_milliseconds %d\n", getMaxResourceLockWaitTime());
+    }
+
+    /**
+     * @param writer to which the header should be written
+     * @param name   of metric
+     * @param type   of metric
+     * @param help   description of metric
+     */
+    private static void writePrometheusHeader(PrintWriter writer, String name, String type, String help)
+    {
+        writer.printf("# HELP %s %s\n", name, help);
+        writer.printf("# TYPE %s %s\n", name, type);
+    }
+
+    /**
+     * @param writer    to which the histogram should be written
+     * @param name      of metric
+     * @param method    name of method for which the histogram should be written
+     * @param histogram to be written
+     */
+    private static void writePrometheusHistogram(PrintWriter writer, String name, String method, Histogram histogram)
+    {
+        long[] bucketBounds = histogram.getBucketBounds();
+        long cumulativeCount = 0;
+        for (int bucket = 0; bucket < bucketBounds.length; bucket++) {
+            // Prometheus buckets are inclusive and thus the exclusive bound is decremented
+            cumulativeCount += histogram.getBucketCount(bucket);
+            writer.printf("%s_bucket{method=\"%s\",le=\"%d\"} %d\n",
+                    name, method, bucketBounds[bucket] - 1, cumulativeCount);
+        }
+        writer.printf("%s_bucket{method=\"%s\",le=\"+Inf\"} %d\n", name, method, histogram.getCount());
+        writer.printf("%s_sum{method=\"%s\"} %d\n", name, method, histogram.getSum());
+        writer.printf("%s_count{method=\"%s\"} %d\n", name, method, histogram.getCount());
+    }
+
+    /**
+     * @param value argument or result
+     * @return number of items in given {@code value}
+     */
+    private static long getSize(Object value)
+    {
+        if (value == null) {
+            return 0;
+        }
+        else if (value instanceof ListResponse) {
+            return ((ListResponse) value).getItemCount();
+        }
+        else if (value instanceof Collection) {
+            return ((Collection) value).size();
+        }
+        else if (value instanceof Object[]) {
+            return ((Object[]) value).length;
+        }
+        else if (value instanceof Map) {
+            return ((Map) value).size();
+        }
+        return 1;
+    }
+
+    /**
+     * Statistics for a single method.
+     */
+    private static class MethodStatistics
+    {
+        /**
+         * Durations of requests in milliseconds.
+         */
+        private final Histogram durations = new Histogram(DURATION_BUCKET_BOUNDS, "ms");
+
+        /**
+         * Sizes of arguments.
+         */
+        private final Histogram argumentSizes = new Histogram(SIZE_BUCKET_BOUNDS, "");
+
+        /**
+         * Sizes of results.
+         */
+        private final Histogram resultSizes = new Histogram(SIZE_BUCKET_BOUNDS, "");
+
+        /**
+         * Numbers of executed SQL statements.
+         */
+        private final Histogram statements = new Histogram(STATEMENT_BUCKET_BOUNDS, "");
+
+        /**
+         * Number of failed requests.
+         */
+        private long errorCount;
+
+        @Override
+        public String toString()
+        {
+            return String.format("  durations: %s\n  argument sizes: %s\n  result sizes: %s\n"
+                    + "  statements: %s\n  errors: %d", durations, argumentSizes, resultSizes, statements, errorCount);
+        }
+    }
+}
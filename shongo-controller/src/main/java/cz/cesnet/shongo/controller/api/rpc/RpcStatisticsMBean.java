@@ -0,0 +1,53 @@
+package cz.cesnet.shongo.controller.api.rpc;
+
+/**
+ * JMX interface of {@link RpcStatistics}.
+ */
+public interface RpcStatisticsMBean
+{
+    /**
+     * @return names of methods which have been requested (e.g., "Reservation.listReservationRequests")
+     */
+    public String[] getMethodNames();
+
+    /**
+     * @return total number of requests
+     */
+    public long getRequestCount();
+
+    /**
+     * @return total number of failed requests
+     */
+    public long getErrorCount();
+
+    /**
+     * @return total number of slow requests
+     */
+    public long getSlowRequestCount();
+
+    /**
+     * @param methodName name of method
+     * @return summary of statistics for given {@code methodName}
+     */
+    public String getMethodSummary(String methodName);
+
+    /**
+     * @return summary of statistics for all methods
+     */
+    public String getSummary();
+
+    /**
+     * @return total number of resource lock acquisitions (see {@link cz.cesnet.shongo.controller.ThreadLock})
+     */
+    public long getResourceLockCount();
+
+    /**
+     * @return total time in milliseconds spent by waiting for resource locks
+     */
+    public long getResourceLockWaitTime();
+
+    /**
+     * @return maximum time in milliseconds spent by waiting for a resource lock
+     */
+    public long getMaxResourceLockWaitTime();
+}
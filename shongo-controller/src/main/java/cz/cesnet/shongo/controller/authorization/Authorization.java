@@ -82,6 +82,12 @@ public abstract class Authorization
      */
     private AuthorizationCache cache = new AuthorizationCache();
 
+    /**
+     * Maximum number of object identifiers from cached ACL which are inlined to queries for listing objects
+     * (otherwise the permitted objects are selected from ACL entries by a subquery).
+     */
+    private int aclInlineIdCount;
+
     /**
      * Set of access-tokens which has administrator access.
      */
@@ -147,6 +153,7 @@ public abstract class Authorization
                 ControllerConfiguration.SECURITY_EXPIRATION_ACL));
         this.cache.setGroupExpiration(configuration.getDuration(
                 ControllerConfiguration.SECURITY_EXPIRATION_GROUP));
+        this.aclInlineIdCount = configuration.getInt(ControllerConfiguration.SECURITY_ACL_INLINE_ID_COUNT, 1000);
 
         // Authorization expressions
         this.administratorExpression = new AuthorizationExpression(
@@ -635,12 +642,7 @@ public abstract class Authorization
             Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
     {
         AclObjectClass aclObjectClass = aclProvider.getObjectClass(objectClass);
-        if (isAdministrator(securityToken)) {
-            // Administrator has all possible permissions for all objects
-            return null;
-        }
-        if (ObjectPermission.READ.equals(objectPermission) && isOperator(securityToken)) {
-            // Operator has READ permission for all objects
+        if (hasPermissionForAllObjects(securityToken, objectPermission)) {
             return null;
         }
         String userId = securityToken.getUserId();
@@ -656,6 +658,98 @@ public abstract class Authorization
         return entities;
     }
 
+    /**
+     * @param securityToken    of the user
+     * @param objectPermission which the user must have
+     * @return true if the user has given {@code objectPermission} for all objects, false otherwise
+     */
+    public boolean hasPermissionForAllObjects(SecurityToken securityToken, ObjectPermission objectPermission)
+    {
+        if (isAdministrator(securityToken)) {
+            // Administrator has all possible permissions for all objects
+            return true;
+        }
+        if (ObjectPermission.READ.equals(objectPermission) && isOperator(securityToken)) {
+            // Operator has READ permission for all objects
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link #getEntitiesWithPermission} but the ACL of the user is never fetched by this method.
+     *
+     * @param securityToken    of the user
+     * @param objectClass      of objects which should be returned
+     * @param objectPermission which the user must have for the entities
+     * @return set of object identifiers for which the user has given {@code objectPermission} from cached ACL
+     * of the user or null if the ACL of the user isn't cached
+     */
+    public Set<Long> getCachedEntitiesWithPermission(SecurityToken securityToken,
+            Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
+    {
+        AclUserState aclUserState = cache.getAclUserStateByUserId(securityToken.getUserId());
+        if (aclUserState == null) {
+            return null;
+        }
+        Set<Long> entities = aclUserState.getObjectsByPermission(
+                aclProvider.getObjectClass(objectClass), objectPermission);
+        if (entities == null) {
+            return Collections.emptySet();
+        }
+        return entities;
+    }
+
+    /**
+     * @return {@link #aclInlineIdCount}
+     */
+    public int getAclInlineIdCount()
+    {
+        return aclInlineIdCount;
+    }
+
+    /**
+     * @param securityToken of the user
+     * @return set of {@link AclIdentity} identifiers which belong to the user (the user itself, groups of the user
+     *         and the {@link #EVERYONE_GROUP})
+     */
+    public Set<Long> getAclIdentityIds(SecurityToken securityToken)
+    {
+        Set<Long> aclIdentityIds = new HashSet<Long>();
+        for (AclIdentity aclIdentity : getAclIdentities(securityToken.getUserId())) {
+            aclIdentityIds.add(aclIdentity.getId());
+        }
+        return aclIdentityIds;
+    }
+
+    /**
+     * @param objectClass
+     * @return identifier of {@link AclObjectClass} for given {@code objectClass}
+     */
+    public Long getAclObjectClassId(Class<? extends PersistentObject> objectClass)
+    {
+        return aclProvider.getObjectClass(objectClass).getId();
+    }
+
+    /**
+     * @param objectClass      of objects
+     * @param objectPermission which the {@link ObjectRole}s must grant
+     * @return set of {@link ObjectRole}s which grant given {@code objectPermission} for given {@code objectClass}
+     */
+    public Set<ObjectRole> getObjectRolesWithPermission(Class<? extends PersistentObject> objectClass,
+            ObjectPermission objectPermission)
+    {
+        ObjectType objectType = ObjectTypeResolver.getObjectType(aclProvider.getObjectClass(objectClass));
+        Set<ObjectRole> objectRoles = new HashSet<ObjectRole>();
+        for (ObjectRole objectRole : ObjectRole.values()) {
+            Set<ObjectPermission> objectPermissions = objectType.getRolePermissions(objectRole);
+            if (objectPermissions != null && objectPermissions.contains(objectPermission)) {
+                objectRoles.add(objectRole);
+            }
+        }
+        return objectRoles;
+    }
+
     /**
      * @param persistentObject for which the users must have given {@code role}
      * @param objectRole       which the users must have for given {@code persistentObject}
@@ -1040,14 +1134,7 @@ public abstract class Authorization
     private AclUserState fetchAclUserState(String userId)
     {
         AclUserState aclUserState = new AclUserState();
-        Set<AclIdentity> aclIdentities = new HashSet<AclIdentity>();
-        if (userId != null) {
-            aclIdentities.add(aclProvider.getIdentity(AclIdentityType.USER, userId));
-        }
-        for (String groupId : listUserGroupIds(userId)) {
-            aclIdentities.add(aclProvider.getIdentity(AclIdentityType.GROUP, groupId));
-        }
-        aclIdentities.add(aclProvider.getIdentity(AclIdentityType.GROUP, EVERYONE_GROUP_ID));
+        Set<AclIdentity> aclIdentities = getAclIdentities(userId);
         EntityManager entityManager = entityManagerFactory.createEntityManager();
         AuthorizationManager authorizationManager = new AuthorizationManager(entityManager, authorization);
         try {
@@ -1062,6 +1149,23 @@ public abstract class Authorization
         return aclUserState;
     }
 
+    /**
+     * @param userId of the user
+     * @return set of {@link AclIdentity}s which belong to the user with given {@code userId}
+     */
+    private Set<AclIdentity> getAclIdentities(String userId)
+    {
+        Set<AclIdentity> aclIdentities = new HashSet<AclIdentity>();
+        if (userId != null) {
+            aclIdentities.add(aclProvider.getIdentity(AclIdentityType.USER, userId));
+        }
+        for (String groupId : listUserGroupIds(userId)) {
+            aclIdentities.add(aclProvider.getIdentity(AclIdentityType.GROUP, groupId));
+        }
+        aclIdentities.add(aclProvider.getIdentity(AclIdentityType.GROUP, EVERYONE_GROUP_ID));
+        return aclIdentities;
+    }
+
     /**
      * Fetch {@link AclObjectState} for given {@code aclObjectIdentity}.
      *
@@ -13,6 +13,8 @@ import java.util.Set;
 
 /**
  * Represents a cache of {@link AclEntry}s
+ * <p/>
+ * Single lookups and updates aren't synchronized, because {@link ExpirationMap}s are thread-safe themselves.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -128,7 +130,7 @@ public class AuthorizationCache
      * @param accessToken
      * @return user-id by given {@code accessToken}
      */
-    public synchronized String getUserIdByAccessToken(String accessToken)
+    public String getUserIdByAccessToken(String accessToken)
     {
         return userIdByAccessTokenCache.get(accessToken);
     }
@@ -139,7 +141,7 @@ public class AuthorizationCache
      * @param accessToken
      * @param userId
      */
-    public synchronized void putUserIdByAccessToken(String accessToken, String userId)
+    public void putUserIdByAccessToken(String accessToken, String userId)
     {
         userIdByAccessTokenCache.put(accessToken, userId);
     }
@@ -148,7 +150,7 @@ public class AuthorizationCache
      * @param principalName
      * @return user-id by given {@code principalName}
      */
-    public synchronized String getUserIdByPrincipalName(String principalName)
+    public String getUserIdByPrincipalName(String principalName)
     {
         return userIdByPrincipalNameCache.get(principalName);
     }
@@ -157,7 +159,7 @@ public class AuthorizationCache
      * @param principalName
      * @return whether user with given {@code principalName} exists in cache
      */
-    public synchronized boolean hasUserIdByPrincipalName(String principalName)
+    public boolean hasUserIdByPrincipalName(String principalName)
     {
         return userIdByPrincipalNameCache.contains(principalName);
     }
@@ -168,7 +170,7 @@ public class AuthorizationCache
      * @param principalName
      * @param userId
      */
-    public synchronized void putUserIdByPrincipalName(String principalName, String userId)
+    public void putUserIdByPrincipalName(String principalName, String userId)
     {
         userIdByPrincipalNameCache.put(principalName, userId);
     }
@@ -177,7 +179,7 @@ public class AuthorizationCache
      * @param userId
      * @return {@link UserData} by given {@code userId}
      */
-    public synchronized UserData getUserDataByUserId(String userId)
+    public UserData getUserDataByUserId(String userId)
     {
         return userDataByUserIdCache.get(userId);
     }
@@ -186,7 +188,7 @@ public class AuthorizationCache
      * @param userId
      * @return true whether user with given {@code userId} has cached {@link UserData}
      */
-    public synchronized boolean hasUserDataByUserId(String userId)
+    public boolean hasUserDataByUserId(String userId)
     {
         return userDataByUserIdCache.contains(userId);
     }
@@ -197,7 +199,7 @@ public class AuthorizationCache
      * @param userId
      * @param userData
      */
-    public synchronized void putUserDataByUserId(String userId, UserData userData)
+    public void putUserDataByUserId(String userId, UserData userData)
     {
         userDataByUserIdCache.put(userId, userData);
     }
@@ -206,7 +208,7 @@ public class AuthorizationCache
      * @param accessToken
      * @return {@link UserAuthorizationData} by given {@code accessToken}
      */
-    public synchronized UserAuthorizationData getUserAuthorizationDataByAccessToken(String accessToken)
+    public UserAuthorizationData getUserAuthorizationDataByAccessToken(String accessToken)
     {
         return userAuthorizationDataByAccessTokenCache.get(accessToken);
     }
@@ -215,7 +217,7 @@ public class AuthorizationCache
      * @param accessToken
      * @return true whether user with given {@code accessToken} has cached {@link UserAuthorizationData}
      */
-    public synchronized boolean hasUserAuthorizationDataByAccessToken(String accessToken)
+    public boolean hasUserAuthorizationDataByAccessToken(String accessToken)
     {
         return userAuthorizationDataByAccessTokenCache.contains(accessToken);
     }
@@ -226,7 +228,7 @@ public class AuthorizationCache
      * @param accessToken
      * @param userAuthorizationData
      */
-    public synchronized void putUserAuthorizationDataByAccessToken(String accessToken,
+    public void putUserAuthorizationDataByAccessToken(String accessToken,
             UserAuthorizationData userAuthorizationData)
     {
         userAuthorizationDataByAccessTokenCache.put(accessToken, userAuthorizationData);
@@ -236,7 +238,7 @@ public class AuthorizationCache
      * @param aclEntryId
      * @return {@link AclEntry} by given {@code aclEntryId}
      */
-    public synchronized AclEntry getAclEntryById(Long aclEntryId)
+    public AclEntry getAclEntryById(Long aclEntryId)
     {
         return aclEntryCache.get(aclEntryId);
     }
@@ -244,7 +246,7 @@ public class AuthorizationCache
     /**
      * @return {@link AclEntry}s
      */
-    public synchronized Iterable<AclEntry> getAclEntries()
+    public Iterable<AclEntry> getAclEntries()
     {
         return aclEntryCache;
     }
@@ -254,7 +256,7 @@ public class AuthorizationCache
      *
      * @param aclEntry
      */
-    public synchronized void putAclEntryById(AclEntry aclEntry)
+    public void putAclEntryById(AclEntry aclEntry)
     {
         aclEntryCache.put(aclEntry.getId(), aclEntry);
     }
@@ -265,7 +267,7 @@ public class AuthorizationCache
      * @param aclEntry
      * @return removed {@link AclEntry}
      */
-    public synchronized AclEntry removeAclEntryById(AclEntry aclEntry)
+    public AclEntry removeAclEntryById(AclEntry aclEntry)
     {
         return aclEntryCache.remove(aclEntry.getId());
     }
@@ -274,7 +276,7 @@ public class AuthorizationCache
      * @param userId
      * @return {@link AclUserState} by given {@code userId}
      */
-    public synchronized AclUserState getAclUserStateByUserId(String userId)
+    public AclUserState getAclUserStateByUserId(String userId)
     {
         return aclUserStateCache.get(userId);
     }
@@ -282,7 +284,7 @@ public class AuthorizationCache
     /**
      * @return List of {@link AclUserState}
      */
-    public synchronized Collection<AclUserState> listAclUserStates()
+    public Collection<AclUserState> listAclUserStates()
     {
         return aclUserStateCache.values();
     }
@@ -293,7 +295,7 @@ public class AuthorizationCache
      * @param userId
      * @param aclUserState
      */
-    public synchronized void putAclUserStateByUserId(String userId, AclUserState aclUserState)
+    public void putAclUserStateByUserId(String userId, AclUserState aclUserState)
     {
         aclUserStateCache.put(userId, aclUserState);
     }
@@ -302,7 +304,7 @@ public class AuthorizationCache
      * @param aclObjectIdentity
      * @return {@link AclObjectState} by given {@code aclObjectIdentity}
      */
-    public synchronized AclObjectState getAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity)
+    public AclObjectState getAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity)
     {
         return aclObjectStateCache.get(aclObjectIdentity);
     }
@@ -313,7 +315,7 @@ public class AuthorizationCache
      * @param aclObjectIdentity
      * @param aclObjectState
      */
-    public synchronized void putAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity,
+    public void putAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity,
             AclObjectState aclObjectState)
     {
         aclObjectStateCache.put(aclObjectIdentity, aclObjectState);
@@ -323,7 +325,7 @@ public class AuthorizationCache
      * @param groupId
      * @return {@link Group} by given {@code groupId}
      */
-    public synchronized Group getGroupByGroupId(String groupId)
+    public Group getGroupByGroupId(String groupId)
     {
         return groupByGroupId.get(groupId);
     }
@@ -332,7 +334,7 @@ public class AuthorizationCache
      * @param groupId
      * @return true whether group with given {@code groupId} has cached {@link Group}
      */
-    public synchronized boolean hasGroupByGroupId(String groupId)
+    public boolean hasGroupByGroupId(String groupId)
     {
         return groupByGroupId.contains(groupId);
     }
@@ -343,7 +345,7 @@ public class AuthorizationCache
      * @param groupId
      * @param group
      */
-    public synchronized void putGroupByGroupId(String groupId, Group group)
+    public void putGroupByGroupId(String groupId, Group group)
     {
         groupByGroupId.put(groupId, group);
     }
@@ -352,7 +354,7 @@ public class AuthorizationCache
      * @param groupName
      * @return group-id for given {@code groupName}
      */
-    public synchronized String getGroupIdByName(String groupName)
+    public String getGroupIdByName(String groupName)
     {
         return groupIdByName.get(groupName);
     }
@@ -363,7 +365,7 @@ public class AuthorizationCache
      * @param groupName
      * @param groupId
      */
-    public synchronized void putGroupIdByName(String groupName, String groupId)
+    public void putGroupIdByName(String groupName, String groupId)
     {
         groupIdByName.put(groupName, groupId);
     }
@@ -372,7 +374,7 @@ public class AuthorizationCache
      * @param groupId
      * @return set of user-ids for given {@code groupId}
      */
-    public synchronized UserIdSet getUserIdsInGroup(String groupId)
+    public UserIdSet getUserIdsInGroup(String groupId)
     {
         return userIdsByGroupId.get(groupId);
     }
@@ -383,7 +385,7 @@ public class AuthorizationCache
      * @param groupId
      * @param userIds
      */
-    public synchronized void putUserIdsInGroup(String groupId, UserIdSet userIds)
+    public void putUserIdsInGroup(String groupId, UserIdSet userIds)
     {
         userIdsByGroupId.put(groupId, userIds);
     }
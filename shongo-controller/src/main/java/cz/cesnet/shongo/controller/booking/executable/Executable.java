@@ -596,13 +596,13 @@ public abstract class Executable extends ExecutionTarget
      *
      * IMPORTANT: it is necessary to call this method EVERY time change of any entity {@link Executable} is made!!!
      * Otherwise list of reservation requests will be inconsistent.
+     * The table is updated when the current transaction is committed (multiple calls are coalesced).
      *
      * @param entityManager
      * @param deleteOnly
      */
     public void updateExecutableSummary(EntityManager entityManager, boolean deleteOnly)
     {
-        entityManager.flush();
         ExecutableManager executableManager = new ExecutableManager(entityManager);
         executableManager.updateExecutableSummary(this, deleteOnly);
     }
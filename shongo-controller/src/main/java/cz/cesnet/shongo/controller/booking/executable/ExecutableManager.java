@@ -10,10 +10,11 @@ import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
 import cz.cesnet.shongo.controller.booking.room.ResourceRoomEndpoint;
 import cz.cesnet.shongo.controller.booking.room.RoomEndpoint;
+import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
 import cz.cesnet.shongo.controller.booking.room.UsedRoomEndpoint;
 import cz.cesnet.shongo.controller.executor.ExecutionReportSet;
-import cz.cesnet.shongo.controller.util.NativeQuery;
 import cz.cesnet.shongo.controller.util.QueryFilter;
+import cz.cesnet.shongo.controller.util.SummaryRefresh;
 import cz.cesnet.shongo.jade.SendLocalCommand;
 import org.joda.time.DateTime;
 
@@ -72,22 +73,15 @@ public class ExecutableManager extends AbstractManager
 
     /**
      * Updates table executable_summary, DO NOT USE directly, for more see {@link Executable#updateExecutableSummary(EntityManager, boolean)}
+     * <p/>
+     * The update is deferred to the commit of the current transaction (see {@link SummaryRefresh}).
      *
      * @param executable
      * @param deleteOnly
      */
     public void updateExecutableSummary(Executable executable, boolean deleteOnly)
     {
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put("executable_id", executable.getId().toString());
-
-        String deleteQuery = NativeQuery.getNativeQuery(NativeQuery.EXECUTABLE_SUMMARY_DELETE, parameters);
-        entityManager.createNativeQuery(deleteQuery).executeUpdate();
-
-        if (!deleteOnly) {
-            String updateQuery = NativeQuery.getNativeQuery(NativeQuery.EXECUTABLE_SUMMARY_INSERT, parameters);
-            entityManager.createNativeQuery(updateQuery).executeUpdate();
-        }
+        SummaryRefresh.addExecutable(entityManager, executable.getId(), deleteOnly);
     }
 
     /**
@@ -193,6 +187,48 @@ public class ExecutableManager extends AbstractManager
                 .getResultList();
     }
 
+    /**
+     * @param startDateTime    after which the {@link Executable}s must start
+     * @param prestartDateTime before which the {@link Executable}s must start
+     * @return list of {@link Executable}s which haven't been attempted to start yet and which start
+     *         in given interval (ordered by slot start)
+     */
+    public List<Executable> listExecutablesForPrestart(DateTime startDateTime, DateTime prestartDateTime)
+    {
+        return entityManager.createQuery(
+                "SELECT executable FROM Executable executable"
+                        + " WHERE executable.state IN(:notStartedStates)"
+                        + " AND (executable.slotStart > :startDateTime AND executable.slotStart <= :prestartDateTime)"
+                        + " AND (executable.nextAttempt IS NULL AND executable.attemptCount = 0)"
+                        + " ORDER BY executable.slotStart, executable.id",
+                Executable.class)
+                .setParameter("startDateTime", startDateTime)
+                .setParameter("prestartDateTime", prestartDateTime)
+                .setParameter("notStartedStates", EnumSet.of(Executable.State.NOT_STARTED))
+                .getResultList();
+    }
+
+    /**
+     * @param roomProviderCapability in which the rooms must be allocated
+     * @param slotStart              at or after which the rooms must start
+     * @return list of started {@link ResourceRoomEndpoint}s in given {@code roomProviderCapability} which start
+     *         at or after given {@code slotStart} (i.e., which have been started ahead of theirs slots)
+     */
+    public List<ResourceRoomEndpoint> listStartedRoomEndpoints(RoomProviderCapability roomProviderCapability,
+            DateTime slotStart)
+    {
+        return entityManager.createQuery(
+                "SELECT room FROM ResourceRoomEndpoint room"
+                        + " WHERE room.roomProviderCapability = :roomProviderCapability"
+                        + " AND room.state IN(:startedStates)"
+                        + " AND room.slotStart >= :slotStart",
+                ResourceRoomEndpoint.class)
+                .setParameter("roomProviderCapability", roomProviderCapability)
+                .setParameter("startedStates", EnumSet.of(Executable.State.STARTED, Executable.State.PARTIALLY_STARTED))
+                .setParameter("slotStart", slotStart)
+                .getResultList();
+    }
+
     /**
      * @param referenceDateTime in which the {@link Executable}s must take place
      * @param maxAttemptCount
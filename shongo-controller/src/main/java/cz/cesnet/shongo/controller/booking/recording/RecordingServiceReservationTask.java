@@ -20,8 +20,6 @@ import cz.cesnet.shongo.controller.booking.room.RoomReservationTask;
 import cz.cesnet.shongo.controller.cache.Cache;
 import cz.cesnet.shongo.controller.cache.ResourceCache;
 import cz.cesnet.shongo.controller.scheduler.*;
-import cz.cesnet.shongo.util.RangeSet;
-import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
 import javax.persistence.EntityManager;
@@ -164,30 +162,7 @@ public class RecordingServiceReservationTask extends ReservationTask
             }
 
             // Get available recorder
-            List<RecordingServiceReservation> roomReservations =
-                    reservationManager.getRecordingServiceReservations(recordingCapability, slot);
-            schedulerContextState.applyReservations(
-                    recordingCapability.getId(), this.slot, roomReservations, RecordingServiceReservation.class);
-            RangeSet<RecordingServiceReservation, DateTime> rangeSet =
-                    new RangeSet<RecordingServiceReservation, DateTime>();
-            for (RecordingServiceReservation roomReservation : roomReservations) {
-                rangeSet.add(roomReservation, roomReservation.getSlotStart(), roomReservation.getSlotEnd());
-            }
-            List<RangeSet.Bucket> roomBuckets = new LinkedList<RangeSet.Bucket>();
-            roomBuckets.addAll(rangeSet.getBuckets(slot.getStart(), slot.getEnd()));
-            Collections.sort(roomBuckets, new Comparator<RangeSet.Bucket>()
-            {
-                @Override
-                public int compare(RangeSet.Bucket roomBucket1, RangeSet.Bucket roomBucket2)
-                {
-                    return -Double.compare(roomBucket1.size(), roomBucket2.size());
-                }
-            });
-            int usedLicenseCount = 0;
-            if (roomBuckets.size() > 0) {
-                RangeSet.Bucket roomBucket = roomBuckets.get(0);
-                usedLicenseCount = roomBucket.size();
-            }
+            int usedLicenseCount = schedulerContext.getLicenseCountPeak(slot, recordingCapability);
             AvailableRecorder availableRecorder = new AvailableRecorder(recordingCapability, usedLicenseCount);
             if (Integer.valueOf(0).equals(availableRecorder.getAvailableLicenseCount())) {
                 addReport(new SchedulerReportSet.ResourceRecordingCapacityExceededReport(deviceResource));
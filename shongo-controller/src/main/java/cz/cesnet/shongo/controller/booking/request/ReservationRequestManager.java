@@ -14,7 +14,7 @@ import cz.cesnet.shongo.controller.booking.specification.Specification;
 import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.scheduler.SchedulerReport;
-import cz.cesnet.shongo.controller.util.NativeQuery;
+import cz.cesnet.shongo.controller.util.SummaryRefresh;
 import org.joda.time.Interval;
 
 import javax.persistence.EntityManager;
@@ -40,23 +40,16 @@ public class ReservationRequestManager extends AbstractManager
     }
 
     /**
-     * Updates table executable_summary, DO NOT USE directly, for more see {@link Specification#updateSpecificationSummary(EntityManager, boolean)}
+     * Updates table specification_summary, DO NOT USE directly, for more see {@link Specification#updateSpecificationSummary(EntityManager, boolean)}
+     * <p/>
+     * The update is deferred to the commit of the current transaction (see {@link SummaryRefresh}).
      *
      * @param specification
      * @param deleteOnly
      */
     public void updateSpecificationSummary(Specification specification, boolean deleteOnly)
     {
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put("specification_id", specification.getId().toString());
-
-        String deleteQuery = NativeQuery.getNativeQuery(NativeQuery.SPECIFICATION_SUMMARY_DELETE, parameters);
-        entityManager.createNativeQuery(deleteQuery).executeUpdate();
-
-        if (!deleteOnly) {
-            String updateQuery = NativeQuery.getNativeQuery(NativeQuery.SPECIFICATION_SUMMARY_INSERT, parameters);
-            entityManager.createNativeQuery(updateQuery).executeUpdate();
-        }
+        SummaryRefresh.addSpecification(entityManager, specification.getId(), deleteOnly);
     }
 
     /**
@@ -386,6 +379,33 @@ public class ReservationRequestManager extends AbstractManager
         return reservationRequestList;
     }
 
+    /**
+     * @param interval
+     * @param reservationRequestIds identifiers of modified {@link ReservationRequestSet}s
+     * @return list of not-preprocessed {@link ReservationRequestSet}s from given {@code reservationRequestIds}
+     * @see #listNotPreprocessedReservationRequestSets(Interval)
+     */
+    public List<ReservationRequestSet> listNotPreprocessedReservationRequestSets(Interval interval,
+            Set<Long> reservationRequestIds)
+    {
+        if (reservationRequestIds.isEmpty()) {
+            return new LinkedList<ReservationRequestSet>();
+        }
+        List<ReservationRequestSet> reservationRequestList = entityManager
+                .createQuery("SELECT reservationRequest FROM ReservationRequestSet reservationRequest"
+                        + " WHERE reservationRequest.id IN(:reservationRequestIds)"
+                        + " AND reservationRequest.state = :activeState AND reservationRequest NOT IN ("
+                        + " SELECT state.reservationRequest FROM PreprocessedState state"
+                        + " WHERE state.start <= :from AND state.end >= :to)",
+                        ReservationRequestSet.class)
+                .setParameter("reservationRequestIds", reservationRequestIds)
+                .setParameter("activeState", AbstractReservationRequest.State.ACTIVE)
+                .setParameter("from", interval.getStart())
+                .setParameter("to", interval.getEnd())
+                .getResultList();
+        return reservationRequestList;
+    }
+
     /**
      * @param interval
      * @return list of {@link ReservationRequest}s in {@link ReservationRequest.AllocationState#COMPLETE} state and
@@ -409,6 +429,39 @@ public class ReservationRequestManager extends AbstractManager
         return reservationRequests;
     }
 
+    /**
+     * @param interval
+     * @param reservationRequestIds identifiers of modified {@link AbstractReservationRequest}s
+     * @return list of {@link ReservationRequest}s in {@link ReservationRequest.AllocationState#COMPLETE} state,
+     *         starting in given {@code interval} and which are (or whose parent {@link ReservationRequestSet}s are)
+     *         from given {@code reservationRequestIds}
+     * @see #listCompletedReservationRequests(Interval)
+     */
+    public List<ReservationRequest> listCompletedReservationRequests(Interval interval,
+            Set<Long> reservationRequestIds)
+    {
+        if (reservationRequestIds.isEmpty()) {
+            return new LinkedList<ReservationRequest>();
+        }
+        List<ReservationRequest> reservationRequests = entityManager.createQuery(
+                "SELECT reservationRequest FROM ReservationRequest reservationRequest"
+                        + " LEFT JOIN reservationRequest.parentAllocation parentAllocation"
+                        + " WHERE reservationRequest.state = :activeState"
+                        + " AND reservationRequest.allocationState = :allocationState"
+                        + " AND reservationRequest.slotStart < :end"
+                        + " AND reservationRequest.slotEnd > :start"
+                        + " AND (reservationRequest.id IN(:reservationRequestIds)"
+                        + "      OR parentAllocation.reservationRequest.id IN(:reservationRequestIds))",
+                ReservationRequest.class)
+                .setParameter("activeState", AbstractReservationRequest.State.ACTIVE)
+                .setParameter("allocationState", ReservationRequest.AllocationState.COMPLETE)
+                .setParameter("start", interval.getStart())
+                .setParameter("end", interval.getEnd())
+                .setParameter("reservationRequestIds", reservationRequestIds)
+                .getResultList();
+        return reservationRequests;
+    }
+
     /**
      * @param reservationRequest
      * @return list of {@link AbstractReservationRequest}s which reuse given {@code reservationRequest}
@@ -31,6 +31,7 @@ import cz.cesnet.shongo.report.Report;
 
 import javax.persistence.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a {@link DeviceResource} which acts as {@link RoomEndpoint}.
@@ -419,13 +420,18 @@ public class ResourceRoomEndpoint extends RoomEndpoint
         // Update user permissions to recording folders
         if (recordingFolderIds.size() > 0) {
             Map<String, RecordingFolder.UserPermission> userPermissions = getRecordingFolderUserPermissions();
+            List<CompletableFuture<SendLocalCommand>> modifyRecordingFolderFutures =
+                    new LinkedList<CompletableFuture<SendLocalCommand>>();
             for (Map.Entry<RecordingCapability, String> entry : recordingFolderIds.entrySet()) {
                 DeviceResource deviceResource = entry.getKey().getDeviceResource();
                 ManagedMode managedMode = deviceResource.requireManaged();
                 String agentName = managedMode.getConnectorAgentName();
                 ControllerAgent controllerAgent = executor.getControllerAgent();
-                SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName,
-                        new ModifyRecordingFolder(entry.getValue(), userPermissions));
+                modifyRecordingFolderFutures.add(controllerAgent.sendCommandAsync(agentName,
+                        new ModifyRecordingFolder(entry.getValue(), userPermissions)));
+            }
+            for (CompletableFuture<SendLocalCommand> modifyRecordingFolderFuture : modifyRecordingFolderFutures) {
+                SendLocalCommand sendLocalCommand = modifyRecordingFolderFuture.join();
                 if (sendLocalCommand.isFailed()) {
                     executableManager.createExecutionReport(this, sendLocalCommand);
                     return Boolean.FALSE;
@@ -482,17 +488,21 @@ public class ResourceRoomEndpoint extends RoomEndpoint
     protected State onFinalize(Executor executor, ExecutableManager executableManager)
     {
         State state = State.FINALIZED;
-        Iterator<Map.Entry<RecordingCapability, String>> iterator = recordingFolderIds.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<RecordingCapability, String> entry = iterator.next();
+        Map<RecordingCapability, CompletableFuture<SendLocalCommand>> deleteRecordingFolderFutures =
+                new LinkedHashMap<RecordingCapability, CompletableFuture<SendLocalCommand>>();
+        for (Map.Entry<RecordingCapability, String> entry : recordingFolderIds.entrySet()) {
             DeviceResource deviceResource = entry.getKey().getDeviceResource();
             ManagedMode managedMode = deviceResource.requireManaged();
             String agentName = managedMode.getConnectorAgentName();
             ControllerAgent controllerAgent = executor.getControllerAgent();
-            SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName,
-                    new DeleteRecordingFolder(entry.getValue()));
+            deleteRecordingFolderFutures.put(entry.getKey(), controllerAgent.sendCommandAsync(agentName,
+                    new DeleteRecordingFolder(entry.getValue())));
+        }
+        for (Map.Entry<RecordingCapability, CompletableFuture<SendLocalCommand>> entry :
+                deleteRecordingFolderFutures.entrySet()) {
+            SendLocalCommand sendLocalCommand = entry.getValue().join();
             if (sendLocalCommand.isSuccessful()) {
-                iterator.remove();
+                recordingFolderIds.remove(entry.getKey());
             }
             else {
                 executableManager.createExecutionReport(this, sendLocalCommand);
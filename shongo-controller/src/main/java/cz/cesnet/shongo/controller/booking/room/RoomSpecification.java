@@ -732,7 +732,7 @@ public class RoomSpecification extends Specification
      * @return set of {@link Technology}s for {@link #aliasSpecifications}
      */
     @Transient
-    private Set<Technology> getAliasTechnologies()
+    public Set<Technology> getAliasTechnologies()
     {
         Set<Technology> aliasTechnologies = new HashSet<Technology>();
         for (AliasSpecification aliasSpecification : aliasSpecifications) {
@@ -759,6 +759,10 @@ public class RoomSpecification extends Specification
             slotMinutesBefore = (int) availableMinutesBeforeInterval;
             tmpOverriddenSlotMinutesBefore = slotMinutesBefore;
         }
+        else {
+            // Specification can be used for multiple intervals (e.g., by periodic availability check)
+            tmpOverriddenSlotMinutesBefore = null;
+        }
         return new Interval(interval.getStart().minusMinutes(slotMinutesBefore),
                 interval.getEnd().plusMinutes(slotMinutesAfter));
     }
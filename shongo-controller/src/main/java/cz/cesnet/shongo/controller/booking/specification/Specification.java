@@ -102,7 +102,7 @@ public abstract class Specification extends SimplePersistentObject implements Re
      */
     public void updateSpecificationSummary(EntityManager entityManager, boolean deleteOnly)
     {
-        updateSpecificationSummary(entityManager, deleteOnly, true);
+        updateSpecificationSummary(entityManager, deleteOnly, false);
     }
 
     /**
@@ -111,10 +111,11 @@ public abstract class Specification extends SimplePersistentObject implements Re
      *
      * IMPORTANT: it is necessary to call this method EVERY time change of any entity {@link Specification} is made!!!
      * Otherwise list of reservation requests will be inconsistent.
+     * The table is updated when the current transaction is committed (multiple calls are coalesced).
      *
      * @param entityManager
      * @param deleteOnly
-     * @param flush
+     * @param flush         specifies whether the {@code entityManager} should be flushed
      */
     public void updateSpecificationSummary(EntityManager entityManager, boolean deleteOnly, boolean flush)
     {
@@ -7,7 +7,6 @@ import cz.cesnet.shongo.controller.cache.ResourceCache;
 import cz.cesnet.shongo.controller.booking.reservation.ExistingReservation;
 import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.resource.Capability;
-import cz.cesnet.shongo.controller.booking.resource.ResourceManager;
 import cz.cesnet.shongo.controller.scheduler.*;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -163,10 +162,9 @@ public class ValueReservationTask extends ReservationTask
      */
     private Map<String, Interval> getUsedValues(ValueProvider valueProvider, Interval interval)
     {
-        ResourceManager resourceManager = new ResourceManager(schedulerContext.getEntityManager());
         Long valueProviderId = valueProvider.getId();
-        List<Tuple> allocatedValues =
-                resourceManager.listValueReservationsInInterval(valueProviderId, interval);
+        List<Tuple> allocatedValues = getCache().getResourceCache().getValueReservations(
+                valueProviderId, interval, schedulerContext.getEntityManager());
 
         Map<Long, Map.Entry<String, Interval>> usedReservations = new HashMap<>();
         for (Tuple allocatedValue : allocatedValues) {
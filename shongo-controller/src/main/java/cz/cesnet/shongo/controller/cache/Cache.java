@@ -9,6 +9,7 @@ import cz.cesnet.shongo.controller.booking.recording.RecordingCapability;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceManager;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
+import cz.cesnet.shongo.controller.scheduler.SchedulerQueue;
 import org.joda.time.Period;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,9 +28,9 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
     private static Logger logger = LoggerFactory.getLogger(Cache.class);
 
     /**
-     * iCalendar reservation data for resources with public calendar.
+     * @see CalendarFeedCache
      */
-    private Map<String,String> iCalReservationsByResourceId = new HashMap<>();
+    private CalendarFeedCache calendarFeedCache = new CalendarFeedCache();
 
     /**
      * Maximum duration of a {@link cz.cesnet.shongo.controller.booking.room.RoomReservation}.
@@ -40,6 +41,11 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
      */
     private ResourceCache resourceCache;
 
+    /**
+     * @see SchedulerQueue
+     */
+    private SchedulerQueue schedulerQueue = new SchedulerQueue();
+
     /**
      * @see DomainCache
      */
@@ -69,27 +75,6 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
         this.entityManagerFactory = entityManagerFactory;
     }
 
-    public void addICalReservation (String resourceId, String iCalendarData)
-    {
-        iCalReservationsByResourceId.put(resourceId, iCalendarData);
-    }
-
-    public String getICalReservation (String resourceId)
-    {
-        return iCalReservationsByResourceId.get(resourceId);
-
-    }
-
-    public void removeICalReservation (String resourceId)
-    {
-        iCalReservationsByResourceId.remove(resourceId);
-    }
-
-    public void refreshICalReservation (String resourceId) {
-        removeICalReservation(resourceId);
-
-    }
-
     /**
      * @return {@link #roomReservationMaximumDuration}
      */
@@ -114,6 +99,22 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
         return domainCache;
     }
 
+    /**
+     * @return {@link #calendarFeedCache}
+     */
+    public CalendarFeedCache getCalendarFeedCache()
+    {
+        return calendarFeedCache;
+    }
+
+    /**
+     * @return {@link #schedulerQueue}
+     */
+    public SchedulerQueue getSchedulerQueue()
+    {
+        return schedulerQueue;
+    }
+
     @Override
     public synchronized void setEntityManagerFactory(EntityManagerFactory entityManagerFactory)
     {
@@ -158,6 +159,11 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
             finally {
                 entityManager.close();
             }
+
+            if (configuration.getBoolean(ControllerConfiguration.SCHEDULER_RESERVATION_CACHE, true)) {
+                resourceCache.getReservationCache().init(entityManagerFactory,
+                        configuration.getBoolean(ControllerConfiguration.SCHEDULER_RESERVATION_CACHE_CHECK, false));
+            }
         }
     }
 
@@ -166,6 +172,8 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
     {
         logger.debug("Stopping cache...");
 
+        resourceCache.getReservationCache().destroy();
+
         super.destroy();
     }
 
@@ -178,6 +186,9 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
         resource.checkPersisted();
         resource.loadLazyProperties();
         resourceCache.addObject(resource);
+
+        // Reservation requests affected by the resource cannot be easily determined
+        schedulerQueue.requestFullSweep();
     }
 
     /**
@@ -215,6 +226,12 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
     {
         // Remove resource from resource cache
         resourceCache.removeObject(resource);
+
+        // Calendar feed may contain old name of the resource
+        calendarFeedCache.removeFeed(resource.getId());
+
+        // Reservation requests affected by the resource cannot be easily determined
+        schedulerQueue.requestFullSweep();
     }
 
     /**
@@ -0,0 +1,339 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.controller.LocalDomain;
+import cz.cesnet.shongo.controller.ObjectType;
+import cz.cesnet.shongo.controller.api.rpc.ReservationService;
+import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
+import cz.cesnet.shongo.controller.booking.resource.Resource;
+import cz.cesnet.shongo.controller.util.NativeQuery;
+import cz.cesnet.shongo.controller.util.QueryFilter;
+import cz.cesnet.shongo.controller.util.iCalendar;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of pre-rendered iCalendar feeds for resources with public calendar
+ * (see {@link ReservationService#getCachedResourceReservationsICalendar}).
+ * <p/>
+ * Each {@link Feed} holds rendered VEVENT fragments by reservation identifiers and thus it can be updated only for
+ * reservations which have been modified by the scheduler (see {@link #updateFeeds}). Events of reservations which
+ * have ended before {@link #HISTORY_PERIOD} are removed when the {@link Feed} is read or updated.
+ * {@link Feed}s are immutable and they are replaced atomically, so they can be read concurrently without locking.
+ */
+public class CalendarFeedCache
+{
+    private static Logger logger = LoggerFactory.getLogger(CalendarFeedCache.class);
+
+    /**
+     * Reservations which ended before this period are not included in {@link Feed}s.
+     */
+    private static final Period HISTORY_PERIOD = Period.months(1);
+
+    /**
+     * Line which ends the rendered calendar.
+     */
+    private static final String CALENDAR_END = "END:VCALENDAR";
+
+    /**
+     * {@link Feed}s by resource identifiers.
+     */
+    private final Map<Long, Feed> feedByResourceId = new ConcurrentHashMap<Long, Feed>();
+
+    /**
+     * Number of performed modifications of {@link #feedByResourceId} (a {@link Feed} which has been rendered
+     * concurrently with a modification may be outdated and thus it isn't cached).
+     */
+    private long modificationCount = 0;
+
+    /**
+     * @param resourceId identifier of resource
+     * @return cached {@link Feed} for given {@code resourceId} or {@code null}
+     */
+    public Feed getFeed(Long resourceId)
+    {
+        Feed feed = feedByResourceId.get(resourceId);
+        if (feed != null && feed.isExpired(getHistoryStart())) {
+            feed = pruneFeed(resourceId, feed);
+        }
+        return feed;
+    }
+
+    /**
+     * @param resource      for which the {@link Feed} should be returned
+     * @param author        of the calendar
+     * @param entityManager which can be used for rendering the {@link Feed}
+     * @return cached {@link Feed} for given {@code resource} or newly rendered {@link Feed}
+     */
+    public Feed getFeed(Resource resource, String author, EntityManager entityManager)
+    {
+        Long resourceId = resource.getId();
+        Feed feed = getFeed(resourceId);
+        if (feed != null) {
+            return feed;
+        }
+        long modificationCount;
+        synchronized (this) {
+            modificationCount = this.modificationCount;
+        }
+        String calendar = new iCalendar(author, resource.getName()).toString();
+        int calendarEnd = calendar.lastIndexOf(CALENDAR_END);
+        feed = new Feed(calendar.substring(0, calendarEnd), calendar.substring(calendarEnd),
+                renderEvents(resourceId, null, entityManager));
+        synchronized (this) {
+            if (modificationCount == this.modificationCount) {
+                feedByResourceId.put(resourceId, feed);
+            }
+        }
+        return feed;
+    }
+
+    /**
+     * Update cached {@link Feed}s for modified reservations (reservations which no longer exist are removed).
+     *
+     * @param reservationIdsByResourceId identifiers of modified reservations by identifiers of their resources
+     * @param entityManager              which can be used for rendering the reservations
+     */
+    public synchronized void updateFeeds(Map<Long, Set<Long>> reservationIdsByResourceId, EntityManager entityManager)
+    {
+        modificationCount++;
+        for (Map.Entry<Long, Set<Long>> entry : reservationIdsByResourceId.entrySet()) {
+            Long resourceId = entry.getKey();
+            Feed feed = feedByResourceId.get(resourceId);
+            if (feed == null) {
+                continue;
+            }
+            Set<Long> reservationIds = entry.getValue();
+            try {
+                Map<Long, Event> events = renderEvents(resourceId, reservationIds, entityManager);
+                feedByResourceId.put(resourceId, feed.update(reservationIds, events, getHistoryStart()));
+            }
+            catch (Exception exception) {
+                logger.warn("Failed to update calendar feed for resource " + resourceId + ".", exception);
+                feedByResourceId.remove(resourceId);
+            }
+        }
+    }
+
+    /**
+     * Replace given {@code feed} by a {@link Feed} without expired events (when it is still cached).
+     *
+     * @param resourceId identifier of resource
+     * @param feed       cached {@link Feed} for given {@code resourceId}
+     * @return {@link Feed} without expired events
+     */
+    private synchronized Feed pruneFeed(Long resourceId, Feed feed)
+    {
+        Feed prunedFeed = feed.update(Collections.<Long>emptySet(), Collections.<Long, Event>emptyMap(),
+                getHistoryStart());
+        if (feedByResourceId.get(resourceId) == feed) {
+            feedByResourceId.put(resourceId, prunedFeed);
+        }
+        return prunedFeed;
+    }
+
+    /**
+     * @return date/time before which ended reservations are not included in {@link Feed}s
+     */
+    private static DateTime getHistoryStart()
+    {
+        return DateTime.now().minus(HISTORY_PERIOD);
+    }
+
+    /**
+     * @param resourceId identifier of resource whose {@link Feed} should be removed
+     */
+    public synchronized void removeFeed(Long resourceId)
+    {
+        modificationCount++;
+        feedByResourceId.remove(resourceId);
+    }
+
+    /**
+     * @param resourceId     identifier of resource
+     * @param reservationIds identifiers of reservations which should be rendered ({@code null} means all)
+     * @param entityManager  which can be used
+     * @return rendered {@link Event}s by reservation identifiers
+     */
+    private static SortedMap<Long, Event> renderEvents(Long resourceId, Set<Long> reservationIds,
+            EntityManager entityManager)
+    {
+        QueryFilter queryFilter = new QueryFilter("reservation_summary");
+        queryFilter.addFilter("reservation_summary.resource_id = :resourceId", "resourceId", resourceId);
+        queryFilter.addFilter("reservation_summary.slot_end > :slotStart", "slotStart",
+                getHistoryStart().toDate());
+        if (reservationIds != null) {
+            queryFilter.addFilter("reservation_summary.id IN(:reservationIds)", "reservationIds", reservationIds);
+        }
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("filter", queryFilter.toQueryWhere());
+        parameters.put("order", "reservation_summary.id");
+        Query query = entityManager.createNativeQuery(
+                NativeQuery.getNativeQuery(NativeQuery.RESERVATION_LIST, parameters));
+        queryFilter.fillQueryParameters(query);
+
+        SortedMap<Long, Event> events = new TreeMap<Long, Event>();
+        List<Object[]> records = query.getResultList();
+        if (!records.isEmpty()) {
+            String domainName = LocalDomain.getLocalDomainName();
+            iCalendar calendar = new iCalendar();
+            for (Object[] record : records) {
+                Long reservationId = ((Number) record[0]).longValue();
+                String description = (record[12] != null ? record[12].toString() : null);
+                //TODO: consolidate periodic reservations
+                iCalendar.Event event = calendar.addEvent(domainName,
+                        ObjectIdentifier.formatId(ObjectType.RESERVATION, reservationId), description);
+                Interval slot = new Interval(new DateTime(record[4]), new DateTime(record[5]));
+                event.setInterval(slot, DateTimeZone.getDefault());
+                events.put(reservationId, new Event(event.toString(), slot.getEndMillis()));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Rendered VEVENT fragment for a single reservation.
+     */
+    private static class Event
+    {
+        /**
+         * Rendered VEVENT fragment.
+         */
+        private final String data;
+
+        /**
+         * End of the reservation slot in milliseconds.
+         */
+        private final long slotEnd;
+
+        /**
+         * Constructor.
+         *
+         * @param data    sets the {@link #data}
+         * @param slotEnd sets the {@link #slotEnd}
+         */
+        private Event(String data, long slotEnd)
+        {
+            this.data = data;
+            this.slotEnd = slotEnd;
+        }
+    }
+
+    /**
+     * Rendered iCalendar feed for a single resource.
+     */
+    public static class Feed
+    {
+        /**
+         * Rendered calendar before events.
+         */
+        private final String header;
+
+        /**
+         * Rendered calendar after events.
+         */
+        private final String footer;
+
+        /**
+         * Rendered {@link Event}s by reservation identifiers.
+         */
+        private final SortedMap<Long, Event> events;
+
+        /**
+         * Minimum {@link Event#slotEnd} of all {@link #events} (the {@link Feed} must be pruned when it is
+         * before the history start).
+         */
+        private final long minimumSlotEnd;
+
+        /**
+         * Rendered calendar with all {@link #events}.
+         */
+        private final String data;
+
+        /**
+         * Constructor.
+         *
+         * @param header sets the {@link #header}
+         * @param footer sets the {@link #footer}
+         * @param events sets the {@link #events}
+         */
+        private Feed(String header, String footer, SortedMap<Long, Event> events)
+        {
+            this.header = header;
+            this.footer = footer;
+            this.events = Collections.unmodifiableSortedMap(events);
+
+            long minimumSlotEnd = Long.MAX_VALUE;
+            StringBuilder data = new StringBuilder(header);
+            for (Event event : events.values()) {
+                data.append(event.data);
+                minimumSlotEnd = Math.min(minimumSlotEnd, event.slotEnd);
+            }
+            data.append(footer);
+            this.data = data.toString();
+            this.minimumSlotEnd = minimumSlotEnd;
+        }
+
+        /**
+         * @return {@link #data}
+         */
+        public String getData()
+        {
+            return data;
+        }
+
+        /**
+         * @return identifiers of reservations in the {@link Feed}
+         */
+        public Set<Long> getReservationIds()
+        {
+            return events.keySet();
+        }
+
+        /**
+         * @param historyStart before which ended reservations should not be included
+         * @return true whether the {@link Feed} contains reservations which ended before {@code historyStart}
+         */
+        private boolean isExpired(DateTime historyStart)
+        {
+            return minimumSlotEnd <= historyStart.getMillis();
+        }
+
+        /**
+         * @param reservationIds identifiers of modified reservations
+         * @param events         rendered {@link Event}s for modified reservations which still exist
+         * @param historyStart   before which ended reservations are removed
+         * @return new {@link Feed} with modified reservations and without expired reservations
+         */
+        private Feed update(Set<Long> reservationIds, Map<Long, Event> events, DateTime historyStart)
+        {
+            SortedMap<Long, Event> newEvents = new TreeMap<Long, Event>(this.events);
+            for (Long reservationId : reservationIds) {
+                Event event = events.get(reservationId);
+                if (event != null) {
+                    newEvents.put(reservationId, event);
+                }
+                else {
+                    newEvents.remove(reservationId);
+                }
+            }
+            if (isExpired(historyStart)) {
+                Iterator<Event> iterator = newEvents.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().slotEnd <= historyStart.getMillis()) {
+                        iterator.remove();
+                    }
+                }
+            }
+            return new Feed(header, footer, newEvents);
+        }
+    }
+}
@@ -0,0 +1,1015 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.controller.booking.recording.RecordingServiceReservation;
+import cz.cesnet.shongo.controller.booking.reservation.Reservation;
+import cz.cesnet.shongo.controller.booking.reservation.TargetedReservation;
+import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
+import cz.cesnet.shongo.controller.booking.value.ValueReservation;
+import cz.cesnet.shongo.util.CapacityProfile;
+import cz.cesnet.shongo.util.RangeSet;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Tuple;
+import java.util.*;
+
+/**
+ * Represents an in-memory index of committed {@link TargetedReservation}s which are checked by the scheduler
+ * for availability ({@link ResourceReservation}s, {@link RoomReservation}s, {@link RecordingServiceReservation}s
+ * and {@link ValueReservation}s). Reservations are indexed by theirs targets and time slots, so that the scheduler
+ * can find colliding reservations without querying the database (the database is queried only for reservations
+ * which actually collide).
+ * <p/>
+ * The index is lazily loaded for each target and it is maintained on transaction commit by Hibernate event
+ * listeners. Changes which are flushed but not yet committed by an {@link EntityManager} are visible only
+ * to that {@link EntityManager} (the cache doesn't flush the {@link EntityManager} by itself and thus changes
+ * which aren't flushed yet aren't visible, the scheduler flushes once before each allocation).
+ * <p/>
+ * Reservations which end before {@link #LOAD_HISTORY} are periodically trimmed from the loaded timelines
+ * and timelines which haven't been used for {@link #EVICT_UNUSED} are evicted.
+ * <p/>
+ * Timelines of {@link RoomReservation}s and {@link RecordingServiceReservation}s maintain also
+ * {@link CapacityProfile}s of used licenses, so that the used licenses can be computed without loading
+ * of the reservations (see {@link #getCapacityProfile}).
+ */
+public class ReservationCache
+{
+    private static Logger logger = LoggerFactory.getLogger(ReservationCache.class);
+
+    /**
+     * Period before current date/time from which the reservations are loaded for a target.
+     */
+    private static final Period LOAD_HISTORY = Period.days(1);
+
+    /**
+     * Interval in which the loaded timelines are trimmed and evicted.
+     */
+    private static final Duration MAINTENANCE_INTERVAL = Duration.standardHours(1);
+
+    /**
+     * Duration after which not used timelines are evicted.
+     */
+    private static final Duration EVICT_UNUSED = Duration.standardDays(1);
+
+    /**
+     * Indexes by reservation types.
+     */
+    private final Map<Class<? extends TargetedReservation>, Index> indexByType =
+            new LinkedHashMap<Class<? extends TargetedReservation>, Index>();
+
+    /**
+     * Changes which were flushed by a session but which are not committed yet.
+     */
+    private final Map<SharedSessionContractImplementor, SessionChanges> sessionChangesBySession =
+            new IdentityHashMap<SharedSessionContractImplementor, SessionChanges>();
+
+    /**
+     * Specifies whether the cache is enabled.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Registered {@link EventListener} (it is kept registered in the session factory and only disabled).
+     */
+    private EventListener eventListener;
+
+    /**
+     * Specifies whether each query to the cache should be checked against the database.
+     */
+    private boolean consistencyCheck = false;
+
+    /**
+     * Number of queries which were answered by the cache.
+     */
+    private long hitCount = 0;
+
+    /**
+     * Number of timelines which were loaded from the database.
+     */
+    private long loadCount = 0;
+
+    /**
+     * Number of inconsistencies detected by {@link #consistencyCheck}.
+     */
+    private long inconsistencyCount = 0;
+
+    /**
+     * Date/time in milliseconds when the loaded timelines has been trimmed and evicted the last time.
+     */
+    private long maintenanceMillis = System.currentTimeMillis();
+
+    /**
+     * Constructor.
+     */
+    public ReservationCache()
+    {
+        indexByType.put(ResourceReservation.class, new Index(ResourceReservation.class, "resource", false));
+        indexByType.put(RoomReservation.class, new Index(RoomReservation.class, "roomProviderCapability", true));
+        indexByType.put(RecordingServiceReservation.class,
+                new Index(RecordingServiceReservation.class, "recordingCapability", true));
+        indexByType.put(ValueReservation.class, new Index(ValueReservation.class, "valueProvider", false));
+    }
+
+    /**
+     * Enable the cache.
+     *
+     * @param entityManagerFactory in which the reservations are persisted
+     * @param consistencyCheck     sets the {@link #consistencyCheck}
+     */
+    public synchronized void init(EntityManagerFactory entityManagerFactory, boolean consistencyCheck)
+    {
+        destroy();
+        this.consistencyCheck = consistencyCheck;
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry eventListenerRegistry =
+                sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        // Listener can be registered only once for the entity manager factory and thus reuse existing listener
+        for (Object listener : eventListenerRegistry.getEventListenerGroup(EventType.POST_INSERT).listeners()) {
+            if (listener instanceof EventListener) {
+                this.eventListener = (EventListener) listener;
+                this.eventListener.reservationCache = this;
+            }
+        }
+        if (this.eventListener == null) {
+            this.eventListener = new EventListener(this);
+            eventListenerRegistry.appendListeners(EventType.POST_INSERT, eventListener);
+            eventListenerRegistry.appendListeners(EventType.POST_UPDATE, eventListener);
+            eventListenerRegistry.appendListeners(EventType.POST_DELETE, eventListener);
+        }
+        this.enabled = true;
+        logger.debug("Reservation cache enabled (consistency check: {}).", consistencyCheck);
+    }
+
+    /**
+     * Disable the cache.
+     */
+    public synchronized void destroy()
+    {
+        if (eventListener != null) {
+            eventListener.reservationCache = null;
+            eventListener = null;
+        }
+        enabled = false;
+        clear();
+    }
+
+    /**
+     * @return true whether the cache is enabled, false otherwise
+     */
+    public synchronized boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Clear all indexed reservations (they will be loaded again when needed).
+     */
+    public synchronized void clear()
+    {
+        for (Index index : indexByType.values()) {
+            index.clear();
+        }
+        sessionChangesBySession.clear();
+    }
+
+    /**
+     * @return {@link #hitCount}
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * @return {@link #loadCount}
+     */
+    public synchronized long getLoadCount()
+    {
+        return loadCount;
+    }
+
+    /**
+     * @return {@link #inconsistencyCount}
+     */
+    public synchronized long getInconsistencyCount()
+    {
+        return inconsistencyCount;
+    }
+
+    /**
+     * @return number of loaded timelines
+     */
+    public synchronized int getTimelineCount()
+    {
+        int timelineCount = 0;
+        for (Index index : indexByType.values()) {
+            timelineCount += index.timelineByTargetId.size();
+        }
+        return timelineCount;
+    }
+
+    /**
+     * Trim reservations which end before {@link #LOAD_HISTORY} from loaded timelines and evict timelines
+     * which haven't been used since {@link #EVICT_UNUSED}.
+     *
+     * @param dateTime current date/time
+     */
+    public synchronized void maintain(DateTime dateTime)
+    {
+        DateTime loadedFrom = dateTime.minus(LOAD_HISTORY);
+        long unusedMillis = dateTime.minus(EVICT_UNUSED).getMillis();
+        int trimmedCount = 0;
+        int evictedCount = 0;
+        for (Index index : indexByType.values()) {
+            for (Map.Entry<Long, Timeline> entry : new ArrayList<Map.Entry<Long, Timeline>>(
+                    index.timelineByTargetId.entrySet())) {
+                Timeline timeline = entry.getValue();
+                if (timeline.usedMillis < unusedMillis) {
+                    index.removeTimeline(entry.getKey());
+                    evictedCount++;
+                }
+                else if (timeline.loadedFrom.isBefore(loadedFrom)) {
+                    for (Long reservationId : timeline.trim(loadedFrom)) {
+                        index.targetIdByReservationId.remove(reservationId);
+                        trimmedCount++;
+                    }
+                }
+            }
+        }
+        maintenanceMillis = dateTime.getMillis();
+        logger.debug("Reservation cache maintained (trimmed reservations: {}, evicted timelines: {}).",
+                trimmedCount, evictedCount);
+    }
+
+    /**
+     * @param reservationType type of reservations
+     * @param targetId        identifier of target for which the reservations should be returned
+     * @param slot            which the returned reservations must intersect
+     * @param entityManager   which is used for loading of returned reservations
+     * @param databaseQuery   which is used when the cache cannot answer the query or for the {@link #consistencyCheck}
+     * @return list of reservations of given {@code reservationType} for given {@code targetId} which intersect
+     *         given {@code slot}
+     */
+    public <T extends TargetedReservation> List<T> getReservations(Class<T> reservationType, Long targetId,
+            Interval slot, EntityManager entityManager, DatabaseQuery<T> databaseQuery)
+    {
+        Set<Long> reservationIds = getReservationIds(reservationType, targetId, slot, entityManager);
+        if (reservationIds == null) {
+            return databaseQuery.getResultList();
+        }
+        if (consistencyCheck) {
+            List<T> reservations = databaseQuery.getResultList();
+            Set<Long> databaseReservationIds = new HashSet<Long>();
+            for (T reservation : reservations) {
+                databaseReservationIds.add(reservation.getId());
+            }
+            checkConsistency(reservationType, targetId, slot, reservationIds, databaseReservationIds);
+            return reservations;
+        }
+        if (reservationIds.isEmpty()) {
+            return new LinkedList<T>();
+        }
+        return entityManager.createQuery("SELECT reservation FROM " + reservationType.getSimpleName() + " reservation"
+                + " WHERE reservation.id IN(:ids)"
+                + " ORDER BY reservation.slotStart", reservationType)
+                .setParameter("ids", reservationIds)
+                .getResultList();
+    }
+
+    /**
+     * @param valueProviderId identifier of value provider for which the reservations should be returned
+     * @param slot            which the returned reservations must intersect
+     * @param entityManager   which is used for loading of returned reservations
+     * @param databaseQuery   which is used when the cache cannot answer the query or for the {@link #consistencyCheck}
+     * @return list of tuples [id, value, slotStart, slotEnd] of {@link ValueReservation}s for given
+     *         {@code valueProviderId} which intersect given {@code slot}
+     */
+    public List<Tuple> getValueReservations(Long valueProviderId, Interval slot, EntityManager entityManager,
+            DatabaseQuery<Tuple> databaseQuery)
+    {
+        Set<Long> reservationIds = getReservationIds(ValueReservation.class, valueProviderId, slot, entityManager);
+        if (reservationIds == null) {
+            return databaseQuery.getResultList();
+        }
+        if (consistencyCheck) {
+            List<Tuple> reservations = databaseQuery.getResultList();
+            Set<Long> databaseReservationIds = new HashSet<Long>();
+            for (Tuple reservation : reservations) {
+                databaseReservationIds.add((Long) reservation.get(0));
+            }
+            checkConsistency(ValueReservation.class, valueProviderId, slot, reservationIds, databaseReservationIds);
+            return reservations;
+        }
+        if (reservationIds.isEmpty()) {
+            return new LinkedList<Tuple>();
+        }
+        return entityManager.createQuery("SELECT reservation.id, reservation.value,"
+                + " reservation.slotStart, reservation.slotEnd"
+                + " FROM ValueReservation reservation"
+                + " WHERE reservation.id IN(:ids)"
+                + " ORDER BY reservation.slotStart", Tuple.class)
+                .setParameter("ids", reservationIds)
+                .getResultList();
+    }
+
+    /**
+     * @param reservationType        type of reservations ({@link RoomReservation} or
+     *                               {@link RecordingServiceReservation})
+     * @param targetId               identifier of target for which the profile should be returned
+     * @param slot                   in which the returned profile must be valid
+     * @param excludedReservationIds identifiers of reservations which should not be included in the profile
+     * @param entityManager          whose not committed changes should be applied
+     * @param databaseQuery          which is used when the cache cannot answer the query or for the
+     *                               {@link #consistencyCheck}
+     * @return new {@link CapacityProfile} of licenses used by reservations of given {@code reservationType}
+     *         for given {@code targetId} which is valid in given {@code slot} (it can be modified by the caller)
+     */
+    public <T extends TargetedReservation> CapacityProfile getCapacityProfile(Class<T> reservationType,
+            Long targetId, Interval slot, Collection<Long> excludedReservationIds, EntityManager entityManager,
+            DatabaseQuery<T> databaseQuery)
+    {
+        CapacityProfile capacityProfile = null;
+        if (isEnabled()) {
+            SharedSessionContractImplementor session = entityManager.unwrap(SessionImplementor.class);
+            Index index = indexByType.get(reservationType);
+            capacityProfile = getTimelineCapacityProfile(index, targetId, slot, excludedReservationIds, session);
+            if (capacityProfile == null
+                    && getReservationIds(reservationType, targetId, slot, entityManager) != null) {
+                // The timeline has been loaded
+                capacityProfile = getTimelineCapacityProfile(index, targetId, slot, excludedReservationIds, session);
+            }
+        }
+        if (capacityProfile == null) {
+            return createCapacityProfile(databaseQuery.getResultList(), excludedReservationIds);
+        }
+        if (consistencyCheck) {
+            CapacityProfile databaseCapacityProfile =
+                    createCapacityProfile(databaseQuery.getResultList(), excludedReservationIds);
+            int peak = capacityProfile.getPeak(slot);
+            int databasePeak = databaseCapacityProfile.getPeak(slot);
+            if (peak != databasePeak) {
+                synchronized (this) {
+                    inconsistencyCount++;
+                    logger.error("Capacity profile for {} '{}' in {} is inconsistent (cache: {}, database: {}).",
+                            new Object[]{reservationType.getSimpleName(), targetId, slot, peak, databasePeak});
+                    indexByType.get(reservationType).removeTimeline(targetId);
+                }
+            }
+            return databaseCapacityProfile;
+        }
+        return capacityProfile;
+    }
+
+    /**
+     * @param index                  for which the profile should be returned
+     * @param targetId               identifier of target for which the profile should be returned
+     * @param slot                   in which the returned profile must be valid
+     * @param excludedReservationIds identifiers of reservations which should not be included in the profile
+     * @param session                whose not committed changes should be applied
+     * @return copy of {@link CapacityProfile} from loaded {@link Timeline} or {@code null} when the timeline
+     *         isn't loaded
+     */
+    private synchronized CapacityProfile getTimelineCapacityProfile(Index index, Long targetId, Interval slot,
+            Collection<Long> excludedReservationIds, SharedSessionContractImplementor session)
+    {
+        Timeline timeline = index.getTimeline(targetId);
+        if (timeline == null || slot.getStart().isBefore(timeline.loadedFrom)) {
+            return null;
+        }
+        timeline.usedMillis = System.currentTimeMillis();
+        CapacityProfile capacityProfile = timeline.capacityProfile.copy(slot.getStartMillis(), slot.getEndMillis());
+        for (Long reservationId : excludedReservationIds) {
+            timeline.removeCapacity(capacityProfile, reservationId, slot);
+        }
+        SessionChanges sessionChanges = sessionChangesBySession.get(session);
+        if (sessionChanges != null) {
+            sessionChanges.apply(index, targetId, slot, timeline, capacityProfile, excludedReservationIds);
+        }
+        hitCount++;
+        return capacityProfile;
+    }
+
+    /**
+     * @param reservations           from which the profile should be created
+     * @param excludedReservationIds identifiers of reservations which should not be included in the profile
+     * @return new {@link CapacityProfile} of licenses used by given {@code reservations}
+     */
+    private static <T extends TargetedReservation> CapacityProfile createCapacityProfile(List<T> reservations,
+            Collection<Long> excludedReservationIds)
+    {
+        CapacityProfile capacityProfile = new CapacityProfile();
+        for (T reservation : new HashSet<T>(reservations)) {
+            if (!excludedReservationIds.contains(reservation.getId())) {
+                capacityProfile.add(reservation.getSlotStart(), reservation.getSlotEnd(), getCapacity(reservation));
+            }
+        }
+        return capacityProfile;
+    }
+
+    /**
+     * @param reservation
+     * @return number of licenses used by given {@code reservation}
+     */
+    private static int getCapacity(TargetedReservation reservation)
+    {
+        if (reservation instanceof RoomReservation) {
+            return ((RoomReservation) reservation).getLicenseCount();
+        }
+        return 1;
+    }
+
+    /**
+     * @param reservationType type of reservations
+     * @param targetId        identifier of target
+     * @param slot            which the reservations must intersect
+     * @param entityManager   whose not committed changes should be applied
+     * @return set of identifiers of reservations for given {@code targetId} which intersect given {@code slot}
+     *         or {@code null} when the cache cannot answer the query
+     */
+    private Set<Long> getReservationIds(Class<? extends TargetedReservation> reservationType, Long targetId,
+            Interval slot, EntityManager entityManager)
+    {
+        if (!isEnabled()) {
+            return null;
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SessionImplementor.class);
+        Index index = indexByType.get(reservationType);
+        long indexVersion;
+        synchronized (this) {
+            long currentMillis = System.currentTimeMillis();
+            if (currentMillis - maintenanceMillis >= MAINTENANCE_INTERVAL.getMillis()) {
+                maintain(new DateTime(currentMillis));
+            }
+            SessionChanges sessionChanges = sessionChangesBySession.get(session);
+            Timeline timeline = index.getTimeline(targetId);
+            if (timeline != null && !slot.getStart().isBefore(timeline.loadedFrom)) {
+                timeline.usedMillis = currentMillis;
+                Set<Long> reservationIds = timeline.getReservationIds(slot);
+                if (sessionChanges != null) {
+                    sessionChanges.apply(index, targetId, slot, reservationIds);
+                }
+                hitCount++;
+                return reservationIds;
+            }
+            if (sessionChanges != null && sessionChanges.contains(index)) {
+                // Committed reservations cannot be loaded by entity manager which has not committed changes
+                return null;
+            }
+            indexVersion = index.version;
+        }
+
+        // Load the timeline (it must not be performed in synchronized block, because the query can wait for
+        // other transaction which can need the cache to finish)
+        DateTime loadedFrom = DateTime.now().minus(LOAD_HISTORY);
+        if (slot.getStart().isBefore(loadedFrom)) {
+            // Requested slot is too much in the history and thus it is not cached
+            return null;
+        }
+        boolean licenseCount = RoomReservation.class.equals(reservationType);
+        List<Object[]> reservations = entityManager.createQuery(
+                "SELECT reservation.id, reservation.slotStart, reservation.slotEnd"
+                        + (licenseCount ? ", reservation.licenseCount" : "")
+                        + " FROM " + reservationType.getSimpleName() + " reservation"
+                        + " WHERE reservation." + index.targetProperty + ".id = :targetId"
+                        + " AND reservation.slotEnd > :loadedFrom", Object[].class)
+                .setParameter("targetId", targetId)
+                .setParameter("loadedFrom", loadedFrom)
+                .getResultList();
+        Timeline timeline = new Timeline(loadedFrom, index.capacityProfile);
+        for (Object[] reservation : reservations) {
+            timeline.add((Long) reservation[0], ((DateTime) reservation[1]).getMillis(),
+                    ((DateTime) reservation[2]).getMillis(), licenseCount ? (Integer) reservation[3] : 1);
+        }
+        synchronized (this) {
+            // Keep loaded timeline only when no changes has been committed in the meantime
+            if (index.version == indexVersion && isEnabled()) {
+                index.addTimeline(targetId, timeline);
+                loadCount++;
+            }
+        }
+        return timeline.getReservationIds(slot);
+    }
+
+    /**
+     * Check whether given {@code reservationIds} from cache equal to given {@code databaseReservationIds}
+     * and reload the {@link Timeline} when they are not.
+     */
+    private synchronized void checkConsistency(Class<? extends TargetedReservation> reservationType, Long targetId,
+            Interval slot, Set<Long> reservationIds, Set<Long> databaseReservationIds)
+    {
+        if (!reservationIds.equals(databaseReservationIds)) {
+            inconsistencyCount++;
+            logger.error("Reservation cache for {} '{}' in {} is inconsistent (cache: {}, database: {}).",
+                    new Object[]{reservationType.getSimpleName(), targetId, slot, reservationIds,
+                            databaseReservationIds});
+            indexByType.get(reservationType).removeTimeline(targetId);
+        }
+    }
+
+    /**
+     * @param session  in which the {@code entity} has been flushed
+     * @param entity   which has been inserted or updated
+     * @param isDelete specifies whether the {@code entity} has been deleted
+     */
+    private synchronized void onFlush(EventSource session, Object entity, boolean isDelete)
+    {
+        for (Index index : indexByType.values()) {
+            if (index.reservationType.isInstance(entity)) {
+                SessionChanges sessionChanges = sessionChangesBySession.get(session);
+                if (sessionChanges == null) {
+                    sessionChanges = new SessionChanges();
+                    sessionChangesBySession.put(session, sessionChanges);
+                    session.getActionQueue().registerProcess(sessionChanges);
+                }
+                sessionChanges.add(index, (TargetedReservation) entity, isDelete);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param sessionChanges to be committed to the cache or discarded
+     * @param session        in which the transaction has completed
+     * @param success        specifies whether the transaction has been committed
+     */
+    private synchronized void onTransactionCompletion(SessionChanges sessionChanges,
+            SharedSessionContractImplementor session, boolean success)
+    {
+        if (sessionChangesBySession.get(session) != sessionChanges) {
+            // Changes has been discarded by clear
+            return;
+        }
+        sessionChangesBySession.remove(session);
+        if (success) {
+            sessionChanges.commit();
+        }
+    }
+
+    /**
+     * Database query which is performed when the cache cannot be used.
+     *
+     * @param <T> type of result
+     */
+    public interface DatabaseQuery<T>
+    {
+        /**
+         * @return result of the query
+         */
+        List<T> getResultList();
+    }
+
+    /**
+     * Index of reservations of a single type by theirs targets.
+     */
+    private static class Index
+    {
+        /**
+         * Type of indexed reservations.
+         */
+        private final Class<? extends TargetedReservation> reservationType;
+
+        /**
+         * Name of reservation property which holds the target.
+         */
+        private final String targetProperty;
+
+        /**
+         * Specifies whether loaded {@link Timeline}s should maintain {@link Timeline#capacityProfile}s.
+         */
+        private final boolean capacityProfile;
+
+        /**
+         * Loaded {@link Timeline}s by target identifiers.
+         */
+        private final Map<Long, Timeline> timelineByTargetId = new HashMap<Long, Timeline>();
+
+        /**
+         * Target identifiers by reservation identifiers (for reservations in loaded {@link Timeline}s).
+         */
+        private final Map<Long, Long> targetIdByReservationId = new HashMap<Long, Long>();
+
+        /**
+         * Version which is incremented whenever committed changes are applied to the index.
+         */
+        private long version = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param reservationType sets the {@link #reservationType}
+         * @param targetProperty  sets the {@link #targetProperty}
+         * @param capacityProfile sets the {@link #capacityProfile}
+         */
+        public Index(Class<? extends TargetedReservation> reservationType, String targetProperty,
+                boolean capacityProfile)
+        {
+            this.reservationType = reservationType;
+            this.targetProperty = targetProperty;
+            this.capacityProfile = capacityProfile;
+        }
+
+        /**
+         * @param targetId
+         * @return {@link Timeline} for given {@code targetId} or {@code null} when it isn't loaded
+         */
+        public Timeline getTimeline(Long targetId)
+        {
+            return timelineByTargetId.get(targetId);
+        }
+
+        /**
+         * @param targetId identifier of target
+         * @param timeline loaded {@link Timeline} to be added to the index for given {@code targetId}
+         */
+        public void addTimeline(Long targetId, Timeline timeline)
+        {
+            removeTimeline(targetId);
+            timelineByTargetId.put(targetId, timeline);
+            for (Long reservationId : timeline.reservations) {
+                targetIdByReservationId.put(reservationId, targetId);
+            }
+        }
+
+        /**
+         * Add or update given {@code reservation} in the index (if the {@link Timeline} for its target is loaded).
+         *
+         * @param reservation
+         */
+        public void update(TargetedReservation reservation)
+        {
+            Long reservationId = reservation.getId();
+            remove(reservationId);
+            Long targetId = reservation.getTargetId();
+            Timeline timeline = timelineByTargetId.get(targetId);
+            if (timeline != null) {
+                timeline.add(reservationId, reservation.getSlotStart().getMillis(),
+                        reservation.getSlotEnd().getMillis(), getCapacity(reservation));
+                targetIdByReservationId.put(reservationId, targetId);
+            }
+        }
+
+        /**
+         * Remove reservation with given {@code reservationId} from the index.
+         *
+         * @param reservationId
+         */
+        public void remove(Long reservationId)
+        {
+            Long targetId = targetIdByReservationId.remove(reservationId);
+            if (targetId != null) {
+                Timeline timeline = timelineByTargetId.get(targetId);
+                if (timeline != null) {
+                    timeline.remove(reservationId);
+                }
+            }
+        }
+
+        /**
+         * Remove {@link Timeline} for given {@code targetId} (it will be loaded again when needed).
+         *
+         * @param targetId
+         */
+        public void removeTimeline(Long targetId)
+        {
+            Timeline timeline = timelineByTargetId.remove(targetId);
+            if (timeline != null) {
+                for (Long reservationId : timeline.reservations) {
+                    targetIdByReservationId.remove(reservationId);
+                }
+            }
+        }
+
+        /**
+         * Clear the index.
+         */
+        public void clear()
+        {
+            timelineByTargetId.clear();
+            targetIdByReservationId.clear();
+            version++;
+        }
+    }
+
+    /**
+     * Reservations of a single target ordered by time.
+     */
+    private static class Timeline
+    {
+        /**
+         * Date/time from which the reservations are loaded.
+         */
+        private DateTime loadedFrom;
+
+        /**
+         * Date/time in milliseconds when the timeline has been used the last time.
+         */
+        private long usedMillis = System.currentTimeMillis();
+
+        /**
+         * Reservation identifiers by theirs slots (in milliseconds).
+         */
+        private final RangeSet<Long, Long> reservations = new RangeSet<Long, Long>();
+
+        /**
+         * Profile of licenses used by the {@link #reservations} (or {@code null} when it isn't maintained).
+         */
+        private final CapacityProfile capacityProfile;
+
+        /**
+         * Slots (in milliseconds) and used licenses by reservation identifiers (for the {@link #capacityProfile}).
+         */
+        private final Map<Long, long[]> capacityByReservationId;
+
+        /**
+         * Constructor.
+         *
+         * @param loadedFrom      sets the {@link #loadedFrom}
+         * @param capacityProfile specifies whether the {@link #capacityProfile} should be maintained
+         */
+        public Timeline(DateTime loadedFrom, boolean capacityProfile)
+        {
+            this.loadedFrom = loadedFrom;
+            if (capacityProfile) {
+                this.capacityProfile = new CapacityProfile();
+                this.capacityByReservationId = new HashMap<Long, long[]>();
+            }
+            else {
+                this.capacityProfile = null;
+                this.capacityByReservationId = null;
+            }
+        }
+
+        /**
+         * @param reservationId identifier of reservation to be added
+         * @param start         of reservation slot in milliseconds
+         * @param end           of reservation slot in milliseconds
+         * @param capacity      number of licenses used by the reservation
+         */
+        public void add(Long reservationId, long start, long end, int capacity)
+        {
+            reservations.add(reservationId, start, end);
+            if (capacityProfile != null) {
+                capacityProfile.add(start, end, capacity);
+                capacityByReservationId.put(reservationId, new long[]{start, end, capacity});
+            }
+        }
+
+        /**
+         * @param reservationId identifier of reservation to be removed
+         */
+        public void remove(Long reservationId)
+        {
+            reservations.remove(reservationId);
+            if (capacityProfile != null) {
+                long[] capacity = capacityByReservationId.remove(reservationId);
+                if (capacity != null) {
+                    capacityProfile.remove(capacity[0], capacity[1], (int) capacity[2]);
+                }
+            }
+        }
+
+        /**
+         * Remove licenses used by reservation with given {@code reservationId} from given {@code capacityProfile}
+         * (when the reservation intersects given {@code slot}).
+         *
+         * @param capacityProfile copy of the {@link #capacityProfile} for given {@code slot}
+         * @param reservationId   identifier of reservation whose licenses should be removed
+         * @param slot            for which the {@code capacityProfile} has been copied
+         */
+        public void removeCapacity(CapacityProfile capacityProfile, Long reservationId, Interval slot)
+        {
+            long[] capacity = capacityByReservationId.get(reservationId);
+            if (capacity != null && capacity[0] < slot.getEndMillis() && capacity[1] > slot.getStartMillis()) {
+                capacityProfile.remove(capacity[0], capacity[1], (int) capacity[2]);
+            }
+        }
+
+        /**
+         * @param slot
+         * @return set of reservation identifiers which intersect given {@code slot}
+         */
+        public Set<Long> getReservationIds(Interval slot)
+        {
+            return reservations.getValues(slot.getStartMillis(), slot.getEndMillis());
+        }
+
+        /**
+         * Remove reservations which end before given {@code loadedFrom} and move the {@link #loadedFrom}.
+         *
+         * @param loadedFrom new value for {@link #loadedFrom}
+         * @return set of removed reservation identifiers
+         */
+        public Set<Long> trim(DateTime loadedFrom)
+        {
+            long loadedFromMillis = loadedFrom.getMillis();
+            Set<Long> reservationIds = reservations.getValues(Long.MIN_VALUE, loadedFromMillis);
+            reservationIds.removeAll(reservations.getValues(loadedFromMillis, Long.MAX_VALUE));
+            for (Long reservationId : reservationIds) {
+                remove(reservationId);
+            }
+            this.loadedFrom = loadedFrom;
+            return reservationIds;
+        }
+    }
+
+    /**
+     * Changes which have been flushed in a single session transaction. It is registered to the session as
+     * {@link AfterTransactionCompletionProcess} to be applied to the cache when the transaction is committed.
+     */
+    private class SessionChanges implements AfterTransactionCompletionProcess
+    {
+        /**
+         * Inserted or updated reservations by identifiers.
+         */
+        private final Map<Long, TargetedReservation> updatedReservations = new LinkedHashMap<Long, TargetedReservation>();
+
+        /**
+         * Indexes for reservations by identifiers.
+         */
+        private final Map<Long, Index> indexByReservationId = new HashMap<Long, Index>();
+
+        /**
+         * Identifiers of deleted reservations.
+         */
+        private final Set<Long> deletedReservationIds = new HashSet<Long>();
+
+        /**
+         * @param index       to which the reservation belongs
+         * @param reservation which has been changed
+         * @param isDelete    specifies whether the reservation has been deleted
+         */
+        public void add(Index index, TargetedReservation reservation, boolean isDelete)
+        {
+            Long reservationId = reservation.getId();
+            indexByReservationId.put(reservationId, index);
+            if (isDelete) {
+                updatedReservations.remove(reservationId);
+                deletedReservationIds.add(reservationId);
+            }
+            else {
+                deletedReservationIds.remove(reservationId);
+                updatedReservations.put(reservationId, reservation);
+            }
+        }
+
+        /**
+         * @param index
+         * @return true whether these changes contain a reservation from given {@code index}, false otherwise
+         */
+        public boolean contains(Index index)
+        {
+            return indexByReservationId.containsValue(index);
+        }
+
+        /**
+         * Apply these changes to given {@code reservationIds}.
+         *
+         * @param index          for which the {@code reservationIds} were queried
+         * @param targetId       for which the {@code reservationIds} were queried
+         * @param slot           for which the {@code reservationIds} were queried
+         * @param reservationIds to be modified
+         */
+        public void apply(Index index, Long targetId, Interval slot, Set<Long> reservationIds)
+        {
+            reservationIds.removeAll(deletedReservationIds);
+            for (TargetedReservation reservation : updatedReservations.values()) {
+                Long reservationId = reservation.getId();
+                if (indexByReservationId.get(reservationId) != index) {
+                    continue;
+                }
+                if (targetId.equals(reservation.getTargetId()) && slot.overlaps(reservation.getSlot())) {
+                    reservationIds.add(reservationId);
+                }
+                else {
+                    reservationIds.remove(reservationId);
+                }
+            }
+        }
+
+        /**
+         * Apply these changes to given {@code capacityProfile}.
+         *
+         * @param index                  for which the {@code capacityProfile} was queried
+         * @param targetId               for which the {@code capacityProfile} was queried
+         * @param slot                   for which the {@code capacityProfile} was queried
+         * @param timeline               from which the {@code capacityProfile} was copied
+         * @param capacityProfile        to be modified
+         * @param excludedReservationIds identifiers of reservations which should not be included
+         */
+        public void apply(Index index, Long targetId, Interval slot, Timeline timeline,
+                CapacityProfile capacityProfile, Collection<Long> excludedReservationIds)
+        {
+            for (Long reservationId : deletedReservationIds) {
+                if (indexByReservationId.get(reservationId) == index
+                        && !excludedReservationIds.contains(reservationId)) {
+                    timeline.removeCapacity(capacityProfile, reservationId, slot);
+                }
+            }
+            for (TargetedReservation reservation : updatedReservations.values()) {
+                Long reservationId = reservation.getId();
+                if (indexByReservationId.get(reservationId) != index
+                        || excludedReservationIds.contains(reservationId)) {
+                    continue;
+                }
+                timeline.removeCapacity(capacityProfile, reservationId, slot);
+                if (targetId.equals(reservation.getTargetId()) && slot.overlaps(reservation.getSlot())) {
+                    capacityProfile.add(reservation.getSlotStart(), reservation.getSlotEnd(),
+                            getCapacity(reservation));
+                }
+            }
+        }
+
+        /**
+         * Apply these changes to the cache.
+         */
+        public void commit()
+        {
+            for (Long reservationId : deletedReservationIds) {
+                indexByReservationId.get(reservationId).remove(reservationId);
+            }
+            for (TargetedReservation reservation : updatedReservations.values()) {
+                indexByReservationId.get(reservation.getId()).update(reservation);
+            }
+            for (Index index : new HashSet<Index>(indexByReservationId.values())) {
+                index.version++;
+            }
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session)
+        {
+            onTransactionCompletion(this, session, success);
+        }
+    }
+
+    /**
+     * Hibernate listener which notifies the {@link ReservationCache} about flushed reservations.
+     */
+    private static class EventListener
+            implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener
+    {
+        /**
+         * {@link ReservationCache} to be notified (it is {@code null} when the listener is disabled).
+         */
+        private volatile ReservationCache reservationCache;
+
+        /**
+         * Constructor.
+         *
+         * @param reservationCache sets the {@link #reservationCache}
+         */
+        public EventListener(ReservationCache reservationCache)
+        {
+            this.reservationCache = reservationCache;
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event)
+        {
+            onFlush(event.getSession(), event.getEntity(), false);
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event)
+        {
+            onFlush(event.getSession(), event.getEntity(), false);
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event)
+        {
+            onFlush(event.getSession(), event.getEntity(), true);
+        }
+
+        /**
+         * @see ReservationCache#onFlush
+         */
+        private void onFlush(EventSource session, Object entity, boolean isDelete)
+        {
+            ReservationCache reservationCache = this.reservationCache;
+            if (reservationCache != null && entity instanceof Reservation) {
+                reservationCache.onFlush(session, entity, isDelete);
+            }
+        }
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister)
+        {
+            return false;
+        }
+    }
+}
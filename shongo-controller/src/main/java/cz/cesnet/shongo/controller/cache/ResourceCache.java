@@ -7,13 +7,21 @@ import cz.cesnet.shongo.controller.booking.resource.Capability;
 import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
+import cz.cesnet.shongo.controller.booking.recording.RecordingCapability;
+import cz.cesnet.shongo.controller.booking.recording.RecordingServiceReservation;
+import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
+import cz.cesnet.shongo.controller.booking.value.ValueReservation;
 import cz.cesnet.shongo.controller.scheduler.*;
+import cz.cesnet.shongo.util.CapacityProfile;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
 import java.util.*;
 
 /**
@@ -36,6 +44,11 @@ public class ResourceCache extends AbstractCache<Resource>
      */
     private DeviceTopology deviceTopology;
 
+    /**
+     * @see ReservationCache
+     */
+    private ReservationCache reservationCache;
+
     /**
      * Constructor.
      */
@@ -51,6 +64,14 @@ public class ResourceCache extends AbstractCache<Resource>
         return deviceTopology;
     }
 
+    /**
+     * @return {@link #reservationCache}
+     */
+    public ReservationCache getReservationCache()
+    {
+        return reservationCache;
+    }
+
     @Override
     public void addObject(Resource resource)
     {
@@ -104,6 +125,12 @@ public class ResourceCache extends AbstractCache<Resource>
     {
         capabilityStateByType = new HashMap<Class<? extends Capability>, CapabilityState>();
         deviceTopology = new DeviceTopology();
+        if (reservationCache == null) {
+            reservationCache = new ReservationCache();
+        }
+        else {
+            reservationCache.clear();
+        }
         super.clear();
     }
 
@@ -189,6 +216,141 @@ public class ResourceCache extends AbstractCache<Resource>
         return devices;
     }
 
+    /**
+     * @param resourceId    identifier of {@link Resource}
+     * @param slot          which the returned reservations must intersect
+     * @param entityManager to be used
+     * @return list of {@link ResourceReservation}s for {@link Resource} with given {@code resourceId}
+     *         which intersect given {@code slot}
+     */
+    public List<ResourceReservation> getResourceReservations(final Long resourceId, final Interval slot,
+            EntityManager entityManager)
+    {
+        final ResourceManager resourceManager = new ResourceManager(entityManager);
+        return reservationCache.getReservations(ResourceReservation.class, resourceId, slot, entityManager,
+                new ReservationCache.DatabaseQuery<ResourceReservation>()
+                {
+                    @Override
+                    public List<ResourceReservation> getResultList()
+                    {
+                        return resourceManager.listResourceReservationsInInterval(resourceId, slot);
+                    }
+                });
+    }
+
+    /**
+     * @param roomProviderCapability for which the reservations should be returned
+     * @param slot                   which the returned reservations must intersect
+     * @param entityManager          to be used
+     * @return list of {@link RoomReservation}s for given {@code roomProviderCapability}
+     *         which intersect given {@code slot}
+     */
+    public List<RoomReservation> getRoomReservations(final RoomProviderCapability roomProviderCapability,
+            final Interval slot, EntityManager entityManager)
+    {
+        final ReservationManager reservationManager = new ReservationManager(entityManager);
+        return reservationCache.getReservations(RoomReservation.class, roomProviderCapability.getId(), slot,
+                entityManager, new ReservationCache.DatabaseQuery<RoomReservation>()
+                {
+                    @Override
+                    public List<RoomReservation> getResultList()
+                    {
+                        return reservationManager.getRoomReservations(roomProviderCapability, slot);
+                    }
+                });
+    }
+
+    /**
+     * @param recordingCapability for which the reservations should be returned
+     * @param slot                which the returned reservations must intersect
+     * @param entityManager       to be used
+     * @return list of {@link RecordingServiceReservation}s for given {@code recordingCapability}
+     *         which intersect given {@code slot}
+     */
+    public List<RecordingServiceReservation> getRecordingServiceReservations(
+            final RecordingCapability recordingCapability, final Interval slot, EntityManager entityManager)
+    {
+        final ReservationManager reservationManager = new ReservationManager(entityManager);
+        return reservationCache.getReservations(RecordingServiceReservation.class, recordingCapability.getId(), slot,
+                entityManager, new ReservationCache.DatabaseQuery<RecordingServiceReservation>()
+                {
+                    @Override
+                    public List<RecordingServiceReservation> getResultList()
+                    {
+                        return reservationManager.getRecordingServiceReservations(recordingCapability, slot);
+                    }
+                });
+    }
+
+    /**
+     * @param roomProviderCapability for which the profile should be returned
+     * @param slot                   in which the returned profile must be valid
+     * @param excludedReservationIds identifiers of reservations which should not be included in the profile
+     * @param entityManager          to be used
+     * @return new {@link CapacityProfile} of licenses used by {@link RoomReservation}s
+     *         for given {@code roomProviderCapability}
+     */
+    public CapacityProfile getRoomCapacityProfile(final RoomProviderCapability roomProviderCapability,
+            final Interval slot, Collection<Long> excludedReservationIds, EntityManager entityManager)
+    {
+        final ReservationManager reservationManager = new ReservationManager(entityManager);
+        return reservationCache.getCapacityProfile(RoomReservation.class, roomProviderCapability.getId(), slot,
+                excludedReservationIds, entityManager, new ReservationCache.DatabaseQuery<RoomReservation>()
+                {
+                    @Override
+                    public List<RoomReservation> getResultList()
+                    {
+                        return reservationManager.getRoomReservations(roomProviderCapability, slot);
+                    }
+                });
+    }
+
+    /**
+     * @param recordingCapability    for which the profile should be returned
+     * @param slot                   in which the returned profile must be valid
+     * @param excludedReservationIds identifiers of reservations which should not be included in the profile
+     * @param entityManager          to be used
+     * @return new {@link CapacityProfile} of licenses used by {@link RecordingServiceReservation}s
+     *         for given {@code recordingCapability}
+     */
+    public CapacityProfile getRecordingCapacityProfile(final RecordingCapability recordingCapability,
+            final Interval slot, Collection<Long> excludedReservationIds, EntityManager entityManager)
+    {
+        final ReservationManager reservationManager = new ReservationManager(entityManager);
+        return reservationCache.getCapacityProfile(RecordingServiceReservation.class, recordingCapability.getId(),
+                slot, excludedReservationIds, entityManager,
+                new ReservationCache.DatabaseQuery<RecordingServiceReservation>()
+                {
+                    @Override
+                    public List<RecordingServiceReservation> getResultList()
+                    {
+                        return reservationManager.getRecordingServiceReservations(recordingCapability, slot);
+                    }
+                });
+    }
+
+    /**
+     * @param valueProviderId identifier of value provider
+     * @param slot            which the returned reservations must intersect
+     * @param entityManager   to be used
+     * @return list of tuples [id, value, slotStart, slotEnd] of {@link ValueReservation}s for value provider
+     *         with given {@code valueProviderId} which intersect given {@code slot}
+     */
+    public List<Tuple> getValueReservations(final Long valueProviderId, final Interval slot,
+            EntityManager entityManager)
+    {
+        final ResourceManager resourceManager = new ResourceManager(entityManager);
+        return reservationCache.getValueReservations(valueProviderId, slot, entityManager,
+                new ReservationCache.DatabaseQuery<Tuple>()
+                {
+                    @Override
+                    public List<Tuple> getResultList()
+                    {
+                        return resourceManager.listValueReservationsInInterval(valueProviderId, slot);
+                    }
+                });
+    }
+
     /**
      * Check if resource is available (the {@link Resource#maximumFuture} is not verified).
      *
@@ -217,9 +379,8 @@ public class ResourceCache extends AbstractCache<Resource>
 
         // Check if resource is not already allocated
         Long resourceId = resource.getId();
-        ResourceManager resourceManager = new ResourceManager(schedulerContext.getEntityManager());
         List<ResourceReservation> resourceReservations =
-                resourceManager.listResourceReservationsInInterval(resourceId, slot);
+                getResourceReservations(resourceId, slot, schedulerContext.getEntityManager());
 
         // Apply transaction
         SchedulerContextState schedulerContextState = schedulerContext.getState();
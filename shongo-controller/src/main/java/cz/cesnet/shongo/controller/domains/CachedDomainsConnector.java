@@ -1,6 +1,8 @@
 package cz.cesnet.shongo.controller.domains;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.controller.ControllerConfiguration;
 import cz.cesnet.shongo.controller.ForeignDomainConnectException;
@@ -15,6 +17,7 @@ import org.apache.commons.collections4.MultiMap;
 import org.apache.commons.collections4.map.MultiValueMap;
 import org.joda.time.Interval;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -107,33 +110,24 @@ public class CachedDomainsConnector extends DomainsConnector
                 null, null, domains, Reservation.class, resourceReservations, unavailableReservationsDomains);
     }
 
-    private <T> void submitCachedTypedListRequest(final InterDomainAction.HttpMethod method, final String action,
-                                                                    final MultiMap<String, String> parameters, Object data, final Collection<Domain> domains,
-                                                                    Class<T> objectClass, Map<String, ?> cache, Set<String> unavailableDomainsCache)
-    {
-        ObjectReader reader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, objectClass));
-        submitCachedRequests(method, action, parameters, data, domains, reader, cache, unavailableDomainsCache, List.class);
-    }
-
     /**
-     * Submit action tasks to {#code getExecutor()} with periodic repetition (in controller configuration).
+     * Submit {@link DeltaDomainTask}s to {#code getExecutor()} with periodic repetition (in controller configuration).
      * @param method Http method
      * @param action to call
      * @param parameters of call
+     * @param data of call
      * @param domains to be used
-     * @param reader for parsing JSON response
-     * @param result concurrent map
+     * @param objectClass class of result objects
+     * @param cache concurrent map
      * @param unavailableDomainsCache concurrent map
-     * @param returnClass class of result object(s)
      * @param <T> type of the returned result
      */
-    synchronized protected <T> void submitCachedRequests(InterDomainAction.HttpMethod method, String action,
-                                                         MultiMap<String, String> parameters, Object data, Collection<Domain> domains,
-                                                         ObjectReader reader, Map<String, ?> result,
-                                                         Set<String> unavailableDomainsCache, Class<T> returnClass)
+    synchronized private <T> void submitCachedTypedListRequest(final InterDomainAction.HttpMethod method, final String action,
+                                                               final MultiMap<String, String> parameters, Object data, final Collection<Domain> domains,
+                                                               Class<T> objectClass, Map<String, ?> cache, Set<String> unavailableDomainsCache)
     {
         for (final Domain domain : domains) {
-            Runnable task = new DomainTask<>(method, action, parameters, data, domain, reader, returnClass, result, unavailableDomainsCache);
+            Runnable task = new DeltaDomainTask<>(method, action, parameters, data, domain, objectClass, cache, unavailableDomainsCache);
             getExecutor().scheduleWithFixedDelay(task, 0, getConfiguration().getInterDomainCacheRefreshRate(), TimeUnit.SECONDS);
         }
     }
@@ -243,7 +237,7 @@ public class CachedDomainsConnector extends DomainsConnector
 
 
     /**
-     * Returns cached allocatable resources for now or will perform synchronized request to all foreign domains (can be slow, depending on {@code DomainsConnector.THREAD_TIMEOUT}).
+     * Returns cached allocatable resources for now or will perform request to all foreign domains (can be slow, depending on the slowest foreign domain).
      * TODO: allows only capabilities from one domain, when resources is specified so must be domain
      *
      * @param request to filter foreign {@link DomainCapability}
@@ -422,4 +416,87 @@ public class CachedDomainsConnector extends DomainsConnector
 
         return result;
     }
+
+    /**
+     * {@link DomainTask} which requests only changes of the list since the previous request (by sending
+     * the revision returned by the previous request) and applies them to the list from the previous request.
+     * Full list is requested after failure (or when foreign domain doesn't support the changes).
+     *
+     * @param <T> class of the list items
+     */
+    protected class DeltaDomainTask<T> extends DomainTask<List<T>>
+    {
+        /**
+         * Reader to parse the JSON list of items (when foreign domain doesn't support changes).
+         */
+        private final ObjectReader listReader;
+
+        /**
+         * Reader to parse the JSON {@link ListDelta}.
+         */
+        private final ObjectReader deltaReader;
+
+        /**
+         * Revision of {@link #items} or {@code null} when full list should be requested.
+         */
+        private String revision;
+
+        /**
+         * Current items by keys.
+         */
+        private final Map<String, T> items = new LinkedHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        public DeltaDomainTask(final InterDomainAction.HttpMethod method, final String action,
+                               final MultiMap<String, String> parameters, final Object data, final Domain domain,
+                               final Class<T> objectClass, final Map<String, ?> result,
+                               final Set<String> unavailableDomains)
+        {
+            super(method, action, parameters, data, domain, mapper.readerFor(JsonNode.class),
+                    (Class<List<T>>) (Class<?>) List.class, result, unavailableDomains);
+            TypeFactory typeFactory = mapper.getTypeFactory();
+            this.listReader = mapper.readerFor(typeFactory.constructCollectionType(List.class, objectClass));
+            this.deltaReader = mapper.readerFor(typeFactory.constructParametricType(ListDelta.class, objectClass));
+        }
+
+        @Override
+        protected List<T> perform() throws ForeignDomainConnectException
+        {
+            MultiMap<String, String> deltaParameters = new MultiValueMap<>();
+            if (parameters != null) {
+                for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                    for (Object value : (Collection<?>) parameter.getValue()) {
+                        deltaParameters.put(parameter.getKey(), value);
+                    }
+                }
+            }
+            deltaParameters.put("since", (revision != null ? revision : ""));
+            try {
+                JsonNode response = performRequest(method, action, deltaParameters, data, domain,
+                        mapper.readerFor(JsonNode.class), JsonNode.class);
+                if (response.isArray()) {
+                    // Foreign domain has returned full list
+                    revision = null;
+                    items.clear();
+                    return listReader.readValue(response);
+                }
+                ListDelta<T> delta = deltaReader.readValue(response);
+                delta.apply(items);
+                revision = delta.getRevision();
+                return new ArrayList<>(items.values());
+            }
+            catch (IOException exception) {
+                revision = null;
+                throw new ForeignDomainConnectException(domain, action, exception);
+            }
+            catch (ForeignDomainConnectException exception) {
+                revision = null;
+                throw exception;
+            }
+            catch (RuntimeException exception) {
+                revision = null;
+                throw exception;
+            }
+        }
+    }
 }
@@ -0,0 +1,254 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.controller.api.Domain;
+import cz.cesnet.shongo.ssl.SSLCommunication;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pooled HTTP clients for foreign domains. Each foreign domain has its own {@link CloseableHttpClient} with
+ * a pool of kept-alive connections (thus the TLS handshake with client certificate is performed only when
+ * a new connection is opened). Responses are requested gzip compressed.
+ */
+public class DomainHttpClients
+{
+    private static final Logger logger = LoggerFactory.getLogger(DomainHttpClients.class);
+
+    /**
+     * Maximum number of connections to one foreign domain.
+     */
+    public static final int MAX_CONNECTIONS_PER_DOMAIN = 10;
+
+    /**
+     * Duration in seconds after which idle connections are closed.
+     */
+    private static final int IDLE_CONNECTION_TIMEOUT = 60;
+
+    /**
+     * Timeout in milliseconds for connecting, reading and for waiting for a connection from pool.
+     */
+    private final int timeout;
+
+    /**
+     * {@link DomainHttpClient}s by domain names.
+     */
+    private final ConcurrentMap<String, DomainHttpClient> httpClients = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param timeout sets the {@link #timeout}
+     */
+    public DomainHttpClients(int timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param domain            for which the client should be returned
+     * @param keyManagerFactory to be used for client certificate authentication
+     * @return {@link CloseableHttpClient} for given {@code domain}
+     * @throws GeneralSecurityException when the SSL context cannot be created
+     * @throws IOException              when the domain certificate cannot be read
+     */
+    public CloseableHttpClient getHttpClient(Domain domain, KeyManagerFactory keyManagerFactory)
+            throws GeneralSecurityException, IOException
+    {
+        String domainName = domain.getName();
+        DomainHttpClient httpClient = httpClients.get(domainName);
+        if (httpClient == null || !httpClient.isValidFor(domain)) {
+            synchronized (this) {
+                httpClient = httpClients.get(domainName);
+                if (httpClient == null || !httpClient.isValidFor(domain)) {
+                    if (httpClient != null) {
+                        httpClient.close();
+                    }
+                    httpClient = new DomainHttpClient(domain, keyManagerFactory);
+                    httpClients.put(domainName, httpClient);
+                    logger.debug("Created pooled HTTP client for domain {}.", domainName);
+                }
+            }
+        }
+        httpClient.requestCount.incrementAndGet();
+        return httpClient.httpClient;
+    }
+
+    /**
+     * @return {@link PoolStats} of connection pools by domain names
+     */
+    public Map<String, PoolStats> getPoolStats()
+    {
+        Map<String, PoolStats> poolStats = new HashMap<>();
+        for (Map.Entry<String, DomainHttpClient> entry : httpClients.entrySet()) {
+            poolStats.put(entry.getKey(), entry.getValue().connectionManager.getTotalStats());
+        }
+        return poolStats;
+    }
+
+    /**
+     * @param domainName
+     * @return number of requests performed by the client for given {@code domainName}
+     */
+    public long getRequestCount(String domainName)
+    {
+        DomainHttpClient httpClient = httpClients.get(domainName);
+        return (httpClient != null ? httpClient.requestCount.get() : 0);
+    }
+
+    /**
+     * Close idle and expired connections in all pools.
+     */
+    public void closeIdleConnections()
+    {
+        for (DomainHttpClient httpClient : httpClients.values()) {
+            httpClient.connectionManager.closeExpiredConnections();
+            httpClient.connectionManager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Close all clients and their connections.
+     */
+    public synchronized void close()
+    {
+        for (DomainHttpClient httpClient : httpClients.values()) {
+            httpClient.close();
+        }
+        httpClients.clear();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, PoolStats> entry : getPoolStats().entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(entry.getKey());
+            builder.append(" ");
+            builder.append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Pooled HTTP client for a single foreign domain.
+     */
+    private class DomainHttpClient
+    {
+        /**
+         * Path to certificate of the domain which was used for creating the {@link #httpClient}.
+         */
+        private final String certificatePath;
+
+        /**
+         * Connection pool.
+         */
+        private final PoolingHttpClientConnectionManager connectionManager;
+
+        /**
+         * Client using the {@link #connectionManager}.
+         */
+        private final CloseableHttpClient httpClient;
+
+        /**
+         * Number of requests performed by the {@link #httpClient}.
+         */
+        private final AtomicLong requestCount = new AtomicLong();
+
+        /**
+         * Constructor.
+         *
+         * @param domain            for which the client should be created
+         * @param keyManagerFactory to be used for client certificate authentication
+         */
+        public DomainHttpClient(Domain domain, KeyManagerFactory keyManagerFactory)
+                throws GeneralSecurityException, IOException
+        {
+            this.certificatePath = domain.getCertificatePath();
+
+            TrustManagerFactory trustManagerFactory = null;
+            if (certificatePath != null) {
+                KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+                trustStore.load(null);
+                trustStore.setCertificateEntry(certificatePath.substring(0, certificatePath.lastIndexOf('.')),
+                        SSLCommunication.readPEMCert(certificatePath));
+                trustManagerFactory = TrustManagerFactory.getInstance("SunX509");
+                trustManagerFactory.init(trustStore);
+            }
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagerFactory.getKeyManagers(),
+                    trustManagerFactory == null ? null : trustManagerFactory.getTrustManagers(), null);
+
+            Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", new SSLConnectionSocketFactory(sslContext,
+                            HttpsURLConnection.getDefaultHostnameVerifier()))
+                    .build();
+            this.connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+            this.connectionManager.setMaxTotal(MAX_CONNECTIONS_PER_DOMAIN);
+            this.connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_DOMAIN);
+            this.connectionManager.setValidateAfterInactivity(1000);
+
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(timeout)
+                    .setSocketTimeout(timeout)
+                    .setConnectionRequestTimeout(timeout)
+                    .build();
+            this.httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(requestConfig)
+                    // Connections authenticated by client certificate should be shared by all requests
+                    .disableConnectionState()
+                    .build();
+        }
+
+        /**
+         * @param domain
+         * @return true whether this client can be used for given {@code domain}, false otherwise
+         */
+        public boolean isValidFor(Domain domain)
+        {
+            return Objects.equals(certificatePath, domain.getCertificatePath());
+        }
+
+        /**
+         * Close the {@link #httpClient}.
+         */
+        public void close()
+        {
+            try {
+                httpClient.close();
+            }
+            catch (IOException exception) {
+                logger.warn("Failed to close HTTP client.", exception);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.booking.resource.*;
 import cz.cesnet.shongo.controller.cache.Cache;
 import cz.cesnet.shongo.controller.cache.DomainCache;
+import cz.cesnet.shongo.controller.scheduler.SchedulerQueue;
 import cz.cesnet.shongo.controller.util.NativeQuery;
 import cz.cesnet.shongo.controller.util.QueryFilter;
 import org.joda.time.DateTime;
@@ -101,6 +102,11 @@ public class DomainService extends AbstractServiceImpl implements Component.Enti
         return cache.getDomainCache();
     }
 
+    public SchedulerQueue getSchedulerQueue()
+    {
+        return cache.getSchedulerQueue();
+    }
+
     //    @Override
 //    public String getServiceName()
 //    {
@@ -784,6 +790,7 @@ public class DomainService extends AbstractServiceImpl implements Component.Enti
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(null);
+            cache.getSchedulerQueue().add(reservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
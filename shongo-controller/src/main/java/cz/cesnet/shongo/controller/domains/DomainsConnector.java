@@ -20,26 +20,36 @@ import cz.cesnet.shongo.controller.api.request.DomainCapabilityListRequest;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
 import cz.cesnet.shongo.controller.booking.resource.ForeignResources;
 import cz.cesnet.shongo.controller.scheduler.SchedulerContext;
-import cz.cesnet.shongo.ssl.SSLCommunication;
 import org.apache.commons.collections4.MultiMap;
 import org.apache.commons.collections4.map.MultiValueMap;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.apache.ws.commons.util.Base64;
 import org.joda.time.Interval;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.KeyManagerFactory;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManagerFactory;
 import java.io.*;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.GeneralSecurityException;
-import java.security.KeyStore;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Foreign domains connector for Inter Domain Agent
@@ -56,6 +66,17 @@ public class DomainsConnector
 
     private final ConcurrentMap<String, String> clientAccessTokens = new ConcurrentHashMap<>();
 
+    /**
+     * Pooled HTTP clients for foreign domains.
+     */
+    private final DomainHttpClients httpClients;
+
+    /**
+     * {@link DomainTask} which is performed by the current thread (requests performed by the task are registered
+     * to it so that they can be aborted, see {@link DomainTask#abort()}).
+     */
+    private final ThreadLocal<DomainTask<?>> currentDomainTask = new ThreadLocal<>();
+
     protected final ObjectMapper mapper = new ObjectMapper();
 
     private final ControllerConfiguration configuration;
@@ -66,13 +87,19 @@ public class DomainsConnector
 
     private final int COMMAND_TIMEOUT;
 
-    private final int THREAD_TIMEOUT = 500;
+    /**
+     * Maximum duration in milliseconds of a request to one foreign domain when performed for multiple domains
+     * (the connection and reading of the response are both limited by {@link #COMMAND_TIMEOUT}).
+     */
+    private final int REQUEST_DEADLINE;
 
     public DomainsConnector(ControllerConfiguration configuration, DomainService domainService, DomainAdminNotifier notifier)
     {
         this.domainService = domainService;
         this.configuration = configuration;
         COMMAND_TIMEOUT = configuration.getInterDomainCommandTimeout();
+        REQUEST_DEADLINE = 2 * COMMAND_TIMEOUT;
+        httpClients = new DomainHttpClients(COMMAND_TIMEOUT);
         this.notifier = notifier;
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
     }
@@ -82,6 +109,22 @@ public class DomainsConnector
         return executor;
     }
 
+    /**
+     * @return {@link #httpClients}
+     */
+    public DomainHttpClients getHttpClients()
+    {
+        return httpClients;
+    }
+
+    /**
+     * Close all connections to foreign domains.
+     */
+    public void close()
+    {
+        httpClients.close();
+    }
+
     protected DomainService getDomainService()
     {
         return this.domainService;
@@ -96,158 +139,159 @@ public class DomainsConnector
                                                       final MultiMap<String, String> parameters,  final Object data,
                                                       final Collection<Domain> domains, Class<T> objectClass)
     {
-        final Map<String, T> resultMap = new HashMap<>();
-        ObjectReader reader = mapper.readerFor(objectClass);
-        performRequests(method, action, parameters, data, domains, reader, resultMap, objectClass);
-        return resultMap;
+        return performTypedRequestsAsync(method, action, parameters, data, domains, objectClass).join();
     }
 
     protected <T> Map<String, List<T>> performTypedListRequests(final InterDomainAction.HttpMethod method, final String action,
                                                                 final MultiMap<String, String> parameters,  final Object data,
                                                                 final Collection<Domain> domains, Class<T> objectClass)
     {
-        final Map<String, List<T>> resultMap = new HashMap<>();
-        ObjectReader reader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, objectClass));
-        performRequests(method, action, parameters, data, domains, reader, resultMap, List.class);
-        return resultMap;
+        return performTypedListRequestsAsync(method, action, parameters, data, domains, objectClass).join();
     }
 
     protected <T> Map<String, T> performTypedRequests(final InterDomainAction.HttpMethod method, final String action,
                                                       final Map<Domain, MultiMap<String, String>> parametersByDomain,
                                                       final Object data, Class<T> objectClass)
     {
-        final Map<String, T> resultMap = new HashMap<>();
-        ObjectReader reader = mapper.readerFor(objectClass);
-        performRequests(method, action, parametersByDomain, data, reader, resultMap, objectClass);
-        return resultMap;
+        return performTypedRequestsAsync(method, action, parametersByDomain, data, objectClass).join();
     }
 
     protected <T> Map<String, T> performTypedRequests(final InterDomainAction.HttpMethod method, final String action,
                                                       final MultiMap<String, String> parameters,
                                                       final Map<Domain, Object> dataByDomain, Class<T> objectClass)
     {
-        final Map<String, T> resultMap = new HashMap<>();
-        ObjectReader reader = mapper.readerFor(objectClass);
-        performRequests(method, action, parameters, dataByDomain, reader, resultMap, objectClass);
-        return resultMap;
+        return performTypedRequestsAsync(method, action, parameters, dataByDomain, objectClass).join();
     }
 
-    /**
-     * Returns map of given domains with positive result, or does not add it at all to the map.
-     *
-     * @param method      of the request
-     * @param action      to preform
-     * @param parameters  to send as GET parameters
-     * @param data        to send by POST
-     * @param domains     for which the request will be performed and will be returned in map
-     * @param reader      to parse JSON
-     * @param result      collection to store the result
-     * @param returnClass {@link Class<T>} of the object to return
-     */
-    protected synchronized <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
-                                                    final MultiMap<String, String> parameters, final Object data,
-                                                    final Collection<Domain> domains, final ObjectReader reader,
-                                                    final Map<String, ?> result, final Class<T> returnClass)
+    protected <T> CompletableFuture<Map<String, T>> performTypedRequestsAsync(final InterDomainAction.HttpMethod method,
+                                                                              final String action,
+                                                                              final MultiMap<String, String> parameters,
+                                                                              final Object data,
+                                                                              final Collection<Domain> domains,
+                                                                              Class<T> objectClass)
     {
-        final ConcurrentMap<String, Future<T>> futureTasks = new ConcurrentHashMap<>();
-
+        ObjectReader reader = mapper.readerFor(objectClass);
+        List<DomainTask<T>> tasks = new ArrayList<>();
         for (final Domain domain : domains) {
-            Callable<T> task = new DomainTask<>(method, action, parameters, data, domain, reader, returnClass, result, null);
-            futureTasks.put(domain.getName(), executor.submit(task));
+            tasks.add(new DomainTask<>(method, action, parameters, data, domain, reader, objectClass, null, null));
         }
+        return performRequestsAsync(tasks);
+    }
 
-        while (!futureTasks.isEmpty()) {
-            try {
-                Iterator<Map.Entry<String, Future<T>>> iterator = futureTasks.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, Future<T>> entry = iterator.next();
-                    if (entry.getValue().isDone()) {
-                        iterator.remove();
-                    }
-                }
-                Thread.sleep(THREAD_TIMEOUT);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+    @SuppressWarnings("unchecked")
+    protected <T> CompletableFuture<Map<String, List<T>>> performTypedListRequestsAsync(final InterDomainAction.HttpMethod method,
+                                                                                        final String action,
+                                                                                        final MultiMap<String, String> parameters,
+                                                                                        final Object data,
+                                                                                        final Collection<Domain> domains,
+                                                                                        Class<T> objectClass)
+    {
+        ObjectReader reader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, objectClass));
+        Class<List<T>> returnClass = (Class<List<T>>) (Class<?>) List.class;
+        List<DomainTask<List<T>>> tasks = new ArrayList<>();
+        for (final Domain domain : domains) {
+            tasks.add(new DomainTask<>(method, action, parameters, data, domain, reader, returnClass, null, null));
         }
+        return performRequestsAsync(tasks);
     }
 
-    /**
-     * Returns map of given domains with positive result, or does not add it at all to the map.
-     *
-     * @param method      of the request
-     * @param action      to preform
-     * @param parametersByDomain    that will be send to given domain
-     * @param data        to send by POST
-     * @param reader      to parse JSON
-     * @param result      collection to store the result
-     * @param returnClass {@link Class<T>} of the object to return
-     */
-    protected synchronized <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
-                                                    final Map<Domain, MultiMap<String, String>> parametersByDomain,
-                                                    final Object data, final ObjectReader reader,
-                                                    final Map<String, ?> result, final Class<T> returnClass)
+    protected <T> CompletableFuture<Map<String, T>> performTypedRequestsAsync(final InterDomainAction.HttpMethod method,
+                                                                              final String action,
+                                                                              final Map<Domain, MultiMap<String, String>> parametersByDomain,
+                                                                              final Object data, Class<T> objectClass)
     {
-        final ConcurrentMap<String, Future<T>> futureTasks = new ConcurrentHashMap<>();
-
-        for (final Domain domain : parametersByDomain.keySet()) {
-            Callable<T> task = new DomainTask<>(method, action, parametersByDomain.get(domain), data, domain, reader, returnClass, result, null);
-            futureTasks.put(domain.getName(), executor.submit(task));
+        ObjectReader reader = mapper.readerFor(objectClass);
+        List<DomainTask<T>> tasks = new ArrayList<>();
+        for (Map.Entry<Domain, MultiMap<String, String>> entry : parametersByDomain.entrySet()) {
+            tasks.add(new DomainTask<>(method, action, entry.getValue(), data, entry.getKey(), reader, objectClass, null, null));
         }
+        return performRequestsAsync(tasks);
+    }
 
-        while (!futureTasks.isEmpty()) {
-            try {
-                Iterator<Map.Entry<String, Future<T>>> iterator = futureTasks.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, Future<T>> entry = iterator.next();
-                    if (entry.getValue().isDone()) {
-                        iterator.remove();
-                    }
-                }
-                Thread.sleep(THREAD_TIMEOUT);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+    protected <T> CompletableFuture<Map<String, T>> performTypedRequestsAsync(final InterDomainAction.HttpMethod method,
+                                                                              final String action,
+                                                                              final MultiMap<String, String> parameters,
+                                                                              final Map<Domain, Object> dataByDomain,
+                                                                              Class<T> objectClass)
+    {
+        ObjectReader reader = mapper.readerFor(objectClass);
+        List<DomainTask<T>> tasks = new ArrayList<>();
+        for (Map.Entry<Domain, Object> entry : dataByDomain.entrySet()) {
+            tasks.add(new DomainTask<>(method, action, parameters, entry.getValue(), entry.getKey(), reader, objectClass, null, null));
         }
+        return performRequestsAsync(tasks);
     }
 
     /**
-     * Returns map of given domains with positive result, or does not add it at all to the map.
+     * Submit given {@code tasks} to the {@link #executor} without waiting for them. Each task must finish
+     * in {@link #REQUEST_DEADLINE} otherwise it is cancelled and its domain is left out of the result.
+     * Interrupting of the task thread doesn't stop a blocking socket read and thus the HTTP request which
+     * is performed by the cancelled task is aborted (see {@link DomainTask#abort()}).
      *
-     * @param method      of the request
-     * @param action      to preform
-     * @param parameters  of the request
-     * @param dataByDomain        to send by POST to given domain
-     * @param reader      to parse JSON
-     * @param result      collection to store the result
-     * @param returnClass {@link Class<T>} of the object to return
+     * @param tasks to be performed (each for a different domain)
+     * @return {@link CompletableFuture} which is completed (as soon as all tasks are finished or timed out)
+     *         by map of given domains with positive result (domains which have failed are not added to the map)
      */
-    protected synchronized <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
-                                                    final MultiMap<String, String> parameters,
-                                                    final Map<Domain, Object> dataByDomain, final ObjectReader reader,
-                                                    final Map<String, ?> result, final Class<T> returnClass)
+    protected <T> CompletableFuture<Map<String, T>> performRequestsAsync(final Collection<DomainTask<T>> tasks)
     {
-        final ConcurrentMap<String, Future<T>> futureTasks = new ConcurrentHashMap<>();
-
-        for (final Domain domain : dataByDomain.keySet()) {
-            Callable<T> task = new DomainTask<>(method, action, parameters, dataByDomain.get(domain), domain, reader, returnClass, result, null);
-            futureTasks.put(domain.getName(), executor.submit(task));
+        httpClients.closeIdleConnections();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Connection pools of foreign domains: {}", httpClients);
         }
-
-        while (!futureTasks.isEmpty()) {
-            try {
-                Iterator<Map.Entry<String, Future<T>>> iterator = futureTasks.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, Future<T>> entry = iterator.next();
-                    if (entry.getValue().isDone()) {
-                        iterator.remove();
+        final Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (final DomainTask<T> task : tasks) {
+            final CompletableFuture<T> future = new CompletableFuture<>();
+            final Future<?> taskFuture = executor.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        future.complete(task.call());
+                    }
+                    catch (Throwable throwable) {
+                        future.completeExceptionally(throwable);
                     }
                 }
-                Thread.sleep(THREAD_TIMEOUT);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            });
+            future.orTimeout(REQUEST_DEADLINE, TimeUnit.MILLISECONDS).whenComplete(new BiConsumer<T, Throwable>()
+            {
+                @Override
+                public void accept(T response, Throwable throwable)
+                {
+                    if (throwable instanceof TimeoutException) {
+                        // Don't keep executor thread (and pooled connection) busy by request which isn't awaited
+                        task.abort();
+                        taskFuture.cancel(true);
+                    }
+                }
+            });
+            futures.put(task.getDomain().getName(), future);
         }
+        CompletableFuture<Void> allFutures = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]));
+        return allFutures.handle(new BiFunction<Void, Throwable, Map<String, T>>()
+        {
+            @Override
+            public Map<String, T> apply(Void ignored, Throwable throwable)
+            {
+                Map<String, T> result = new HashMap<>();
+                for (Map.Entry<String, CompletableFuture<T>> entry : futures.entrySet()) {
+                    String domainName = entry.getKey();
+                    try {
+                        T response = entry.getValue().join();
+                        if (response != null) {
+                            result.put(domainName, response);
+                        }
+                    }
+                    catch (CompletionException exception) {
+                        if (exception.getCause() instanceof TimeoutException) {
+                            logger.warn("Domain {} hasn't responded in {} ms.", domainName, REQUEST_DEADLINE);
+                        }
+                    }
+                }
+                return result;
+            }
+        });
     }
 
 //    protected <T> T performRequest(final InterDomainAction.HttpMethod method, final String action, final Map<String, String> parameters, final Domain domain, Class<T> objectClass)
@@ -272,7 +316,7 @@ public class DomainsConnector
      * @param clazz  {@link Class<T>} of the object to return
      * @return result object as instance of given {@code clazz}
      */
-    private <T> T performRequest(final InterDomainAction.HttpMethod method, final String action, final MultiMap<String, String> parameters,
+    protected <T> T performRequest(final InterDomainAction.HttpMethod method, final String action, final MultiMap<String, String> parameters,
                                  Object data, final Domain domain, final ObjectReader reader, Class<T> clazz)
     throws ForeignDomainConnectException
     {
@@ -281,7 +325,23 @@ public class DomainsConnector
         }
         URL actionUrl = buildRequestUrl(domain, action, parameters);
         logger.debug(String.format("Calling action %s on domain %s", actionUrl, domain.getName()));
-        HttpsURLConnection connection = buildConnection(domain, actionUrl);
+        CloseableHttpClient httpClient = getHttpClient(domain, actionUrl);
+        HttpRequestBase request;
+        switch (method) {
+            case GET:
+                request = new HttpGet(buildRequestUri(domain, actionUrl));
+                request.setHeader("Accept", "application/json");
+                break;
+            case POST:
+                request = new HttpPost(buildRequestUri(domain, actionUrl));
+                request.setHeader("Content-Type", "application/json");
+                break;
+            case PUT:
+            case DELETE:
+                throw new TodoImplementException();
+            default:
+                throw new ForeignDomainConnectException(domain, actionUrl.toString(), "Unsupported http method");
+        }
         // If basic auth is required
         //TODO !configuration.hasInterDomainPKI() &&
         if (configuration.hasInterDomainBasicAuth()) {
@@ -290,45 +350,20 @@ public class DomainsConnector
                 accessToken = login(domain);
             }
             String basicAuth = "Basic " + encodeCredentials(accessToken);
-            connection.setRequestProperty("Authorization", basicAuth);
+            request.setHeader("Authorization", basicAuth);
         }
+        registerRequest(request);
 
         boolean success = true;
+        CloseableHttpResponse response = null;
         try {
-            connection.setRequestMethod(method.getValue());
-            switch (method) {
-                case GET:
-                    connection.setDoInput(true);
-                    connection.setRequestProperty("Accept", "application/json");
-                    processError(connection, domain);
-//                  ====================DEBUG=====================
-//                    BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-//                    StringBuilder stringBuilder = new StringBuilder();
-//                    String responseLine;
-//                    while ((responseLine = bufferedReader.readLine()) != null) {
-//                        stringBuilder.append(responseLine);
-//                    }
-//                    String jsonResponse = stringBuilder.toString();
-//                    System.out.println("DEBUG JSON START");
-//                    System.out.println(jsonResponse);
-//                    System.out.println("DEBUG JSON END");
-//                    return reader.readValue(jsonResponse);
-//                  ====================DEBUG=====================
-                    return reader.readValue(connection.getInputStream());
-                case POST:
-                    connection.setDoOutput(true);
-                    connection.setRequestProperty("Content-Type", "application/json");
-                    if (data != null) {
-                        connection.getOutputStream().write(mapper.writeValueAsBytes(data));
-                    }
-                    processError(connection, domain);
-                    return reader.readValue(connection.getInputStream());
-                case PUT:
-                case DELETE:
-                    throw new TodoImplementException();
-                default:
-                    throw new ForeignDomainConnectException(domain, actionUrl.toString(), "Unsupported http method");
+            if (data != null && request instanceof HttpPost) {
+                ((HttpPost) request).setEntity(
+                        new ByteArrayEntity(mapper.writeValueAsBytes(data), ContentType.APPLICATION_JSON));
             }
+            response = httpClient.execute(request);
+            processError(response, domain, actionUrl.toString());
+            return reader.readValue(response.getEntity().getContent());
         } catch (Exception e) {
             String message = "Failed to perform request (" + actionUrl + ") to domain " + domain.getName();
             logger.error(message, e);
@@ -338,7 +373,7 @@ public class DomainsConnector
             if (success) {
                 logger.debug("Action: " + actionUrl + " was successful.");
             }
-            connection.disconnect();
+            releaseResponse(response);
         }
     }
 
@@ -376,33 +411,17 @@ public class DomainsConnector
     }
 
 
-    protected HttpsURLConnection buildConnection(Domain domain, URL url) throws ForeignDomainConnectException
+    /**
+     * @param domain for which the request will be performed
+     * @param url    of the request
+     * @return {@link CloseableHttpClient} with pooled connections to given {@code domain}
+     * @throws ForeignDomainConnectException when the client cannot be initialized
+     */
+    protected CloseableHttpClient getHttpClient(Domain domain, URL url) throws ForeignDomainConnectException
     {
-        HttpsURLConnection connection;
         try {
-            connection = (HttpsURLConnection) url.openConnection();
-            connection.setConnectTimeout(COMMAND_TIMEOUT);
-            connection.setReadTimeout(COMMAND_TIMEOUT);
-            // For secure connection
-            if ("HTTPS".equals(url.getProtocol().toUpperCase())) {
-                TrustManagerFactory trustManagerFactory = null;
-                String certificatePath = domain.getCertificatePath();
-                if (certificatePath != null) {
-                    KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
-                    trustStore.load(null);
-                    trustStore.setCertificateEntry(certificatePath.substring(0, certificatePath.lastIndexOf('.')),
-                            SSLCommunication.readPEMCert(certificatePath));
-                    trustManagerFactory = TrustManagerFactory.getInstance("SunX509");
-                    trustManagerFactory.init(trustStore);
-                }
-
-                KeyManagerFactory keyManagerFactory = InterDomainAgent.getInstance().getAuthentication().getKeyManagerFactory();
-                SSLContext sslContext = SSLContext.getInstance("TLS");
-                sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory == null ? null : trustManagerFactory.getTrustManagers(), null);
-
-                connection.setSSLSocketFactory(sslContext.getSocketFactory());
-            }
-            return connection;
+            KeyManagerFactory keyManagerFactory = InterDomainAgent.getInstance().getAuthentication().getKeyManagerFactory();
+            return httpClients.getHttpClient(domain, keyManagerFactory);
         } catch (IOException e) {
             String message = "Failed to initialize connection for action: " + url;
             logger.error(message, e);
@@ -414,31 +433,62 @@ public class DomainsConnector
         }
     }
 
-    protected void processError(HttpsURLConnection connection, final Domain domain) throws ForeignDomainConnectException
+    /**
+     * @param domain for which the request will be performed
+     * @param url    of the request
+     * @return given {@code url} as {@link URI} (with illegal characters quoted)
+     * @throws ForeignDomainConnectException when the {@code url} cannot be converted
+     */
+    protected URI buildRequestUri(Domain domain, URL url) throws ForeignDomainConnectException
     {
-        String actionUrl = connection.getURL().toString();
         try {
-            int errorCode = connection.getResponseCode();
-            switch (errorCode) {
-                case 400:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "400 Bad Request " + connection.getResponseMessage());
-                case 401:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "401 Unauthorized " + connection.getResponseMessage());
-                case 403:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "401 Forbidden " + connection.getResponseMessage());
-                case 404:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "404 Not Found " + connection.getResponseMessage());
-                case 500:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "500 Internal Server Error " + connection.getResponseMessage());
-                default:
-                    if (errorCode > 400) {
-                        throw new ForeignDomainConnectException(domain, actionUrl, errorCode + " " + connection.getResponseMessage());
-                    }
-            }
-        } catch (IOException e) {
-            String message = "Failed to get connection respose code for " + actionUrl;
+            return new URI(url.getProtocol(), url.getUserInfo(), url.getHost(), url.getPort(), url.getPath(),
+                    url.getQuery(), null);
+        } catch (URISyntaxException e) {
+            String message = "Malformed URL " + url + ".";
             logger.error(message);
-            throw new ForeignDomainConnectException(domain, actionUrl, e);
+            throw new ForeignDomainConnectException(domain, url.toString(), e);
+        }
+    }
+
+    protected void processError(HttpResponse response, final Domain domain, final String actionUrl)
+            throws ForeignDomainConnectException
+    {
+        StatusLine statusLine = response.getStatusLine();
+        int errorCode = statusLine.getStatusCode();
+        switch (errorCode) {
+            case 400:
+                throw new ForeignDomainConnectException(domain, actionUrl, "400 Bad Request " + statusLine.getReasonPhrase());
+            case 401:
+                throw new ForeignDomainConnectException(domain, actionUrl, "401 Unauthorized " + statusLine.getReasonPhrase());
+            case 403:
+                throw new ForeignDomainConnectException(domain, actionUrl, "401 Forbidden " + statusLine.getReasonPhrase());
+            case 404:
+                throw new ForeignDomainConnectException(domain, actionUrl, "404 Not Found " + statusLine.getReasonPhrase());
+            case 500:
+                throw new ForeignDomainConnectException(domain, actionUrl, "500 Internal Server Error " + statusLine.getReasonPhrase());
+            default:
+                if (errorCode > 400) {
+                    throw new ForeignDomainConnectException(domain, actionUrl, errorCode + " " + statusLine.getReasonPhrase());
+                }
+        }
+    }
+
+    /**
+     * Consume rest of the given {@code response} and close it, so that the connection can be reused.
+     *
+     * @param response to be released (can be null)
+     */
+    private void releaseResponse(CloseableHttpResponse response)
+    {
+        if (response == null) {
+            return;
+        }
+        EntityUtils.consumeQuietly(response.getEntity());
+        try {
+            response.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close response.", e);
         }
     }
 
@@ -459,30 +509,28 @@ public class DomainsConnector
     public String login(Domain domain) throws ForeignDomainConnectException
     {
         URL loginUrl = buildRequestUrl(domain, InterDomainAction.DOMAIN_LOGIN, null);
-        HttpsURLConnection connection = buildConnection(domain, loginUrl);
+        CloseableHttpClient httpClient = getHttpClient(domain, loginUrl);
+        HttpGet request = new HttpGet(buildRequestUri(domain, loginUrl));
+        CloseableHttpResponse response = null;
         DomainLogin domainLogin = null;
         try {
             String passwordHash = configuration.getInterDomainBasicAuthPasswordHash();
 
             String userCredentials = LocalDomain.getLocalDomainShortName() + ":" + passwordHash;
             String basicAuth = "Basic " + encodeCredentials(userCredentials);
-            connection.setRequestProperty("Authorization", basicAuth);
-            connection.setRequestMethod(InterDomainAction.HttpMethod.GET.getValue());
-            connection.setUseCaches(false);
-            connection.setDoInput(true);
-            connection.setDoOutput(true);
+            request.setHeader("Authorization", basicAuth);
+            registerRequest(request);
 
-            processError(connection, domain);
+            response = httpClient.execute(request);
+            processError(response, domain, loginUrl.toString());
             ObjectReader reader = mapper.readerFor(DomainLogin.class);
-            InputStream inputStream = connection.getInputStream();
+            InputStream inputStream = response.getEntity().getContent();
             domainLogin = reader.readValue(inputStream);
         } catch (IOException e) {
             logger.error("Failed to perform login to domain.", e);
             throw new ForeignDomainConnectException(domain, loginUrl.toString(), e);
         } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
+            releaseResponse(response);
         }
 
         String accessToken = domainLogin.getAccessToken();
@@ -491,6 +539,20 @@ public class DomainsConnector
 
     }
 
+    /**
+     * Register given {@code request} to the {@link DomainTask} which is performed by the current thread
+     * (if any), so that the {@code request} is aborted when the task is aborted.
+     *
+     * @param request to be registered
+     */
+    private void registerRequest(HttpRequestBase request)
+    {
+        DomainTask<?> domainTask = currentDomainTask.get();
+        if (domainTask != null) {
+            domainTask.setRequest(request);
+        }
+    }
+
     /**
      * @return all domains, even the ones that are not allocatable
      */
@@ -570,6 +632,12 @@ public class DomainsConnector
     }
 
     public Map<String, List<DomainCapability>> listForeignCapabilities(DomainCapabilityListRequest request)
+    {
+        return listForeignCapabilitiesAsync(request).join();
+    }
+
+    public CompletableFuture<Map<String, List<DomainCapability>>> listForeignCapabilitiesAsync(
+            DomainCapabilityListRequest request)
     {
         MultiMap<String, String> parameters = new MultiValueMap<>();
 
@@ -589,9 +657,8 @@ public class DomainsConnector
         }
         List<CapabilitySpecificationRequest> capabilitySpecificationRequests = request.getCapabilitySpecificationRequests().isEmpty() ? null : request.getCapabilitySpecificationRequests();
         // Resource IDs are not filtered by inter domain protocol
-        Map<String, List<DomainCapability>> domainResources = performTypedListRequests(InterDomainAction.HttpMethod.POST,
+        return performTypedListRequestsAsync(InterDomainAction.HttpMethod.POST,
                 InterDomainAction.DOMAIN_CAPABILITY_LIST, parameters, capabilitySpecificationRequests, domains, DomainCapability.class);
-        return domainResources;
     }
 
     public Reservation allocateResource(SchedulerContext schedulerContext, Interval slot, ForeignResources foreignResources,
@@ -617,6 +684,13 @@ public class DomainsConnector
     }
 
     public List<Reservation> allocateRoom(Map<Domain, List<DomainCapability>> domainCapabilities, RoomSettings roomSettings, String previousReservationRequestId)
+    {
+        return allocateRoomAsync(domainCapabilities, roomSettings, previousReservationRequestId).join();
+    }
+
+    public CompletableFuture<List<Reservation>> allocateRoomAsync(Map<Domain, List<DomainCapability>> domainCapabilities,
+                                                                  RoomSettings roomSettings,
+                                                                  String previousReservationRequestId)
     {
         roomSettings.validate();
 
@@ -657,8 +731,16 @@ public class DomainsConnector
 
         //TODO:Map<Domain, Object> dataByDomains = null;
 
-        Map<String, Reservation> reservations = performTypedRequests(InterDomainAction.HttpMethod.POST, InterDomainAction.DOMAIN_ALLOCATE_ROOM, parameters, participants, domainCapabilities.keySet(), Reservation.class);
-        return new ArrayList<>(reservations.values());
+        return performTypedRequestsAsync(InterDomainAction.HttpMethod.POST, InterDomainAction.DOMAIN_ALLOCATE_ROOM,
+                parameters, participants, domainCapabilities.keySet(), Reservation.class).thenApply(
+                new Function<Map<String, Reservation>, List<Reservation>>()
+                {
+                    @Override
+                    public List<Reservation> apply(Map<String, Reservation> reservations)
+                    {
+                        return new ArrayList<>(reservations.values());
+                    }
+                });
     }
 
     public Reservation getReservationByRequest(String foreignReservationRequestId) throws ForeignDomainConnectException
@@ -681,6 +763,11 @@ public class DomainsConnector
     }
 
     public List<Reservation> getReservationsByRequests(Set<String> foreignReservationRequestIds)
+    {
+        return getReservationsByRequestsAsync(foreignReservationRequestIds).join();
+    }
+
+    public CompletableFuture<List<Reservation>> getReservationsByRequestsAsync(Set<String> foreignReservationRequestIds)
     {
         Map<Domain, MultiMap<String, String>> parametersByDomain = new HashMap<>();
         for (String reservationRequestId : foreignReservationRequestIds) {
@@ -692,19 +779,26 @@ public class DomainsConnector
             parametersByDomain.put(domain, parameters);
         }
 
-        Map<String, Reservation> response = performTypedRequests(InterDomainAction.HttpMethod.GET, InterDomainAction.DOMAIN_RESERVATION_DATA, parametersByDomain, null, Reservation.class);
-        List<Reservation> reservations = new ArrayList<>();
-        for (String domainName : response.keySet()) {
-//            Domain domain = getDomainService().findDomainByName(domainName);
-            Reservation reservation = response.get(domainName);
-
-//            Long domainId = ObjectIdentifier.parse(domain.getId()).getPersistenceId();
-//            reservation.setUserId(UserInformation.formatForeignUserId(reservation.getUserId(), domainId));
-
-            reservations.add(reservation);
-        }
-
-        return reservations;
+        return performTypedRequestsAsync(InterDomainAction.HttpMethod.GET, InterDomainAction.DOMAIN_RESERVATION_DATA,
+                parametersByDomain, null, Reservation.class).thenApply(
+                new Function<Map<String, Reservation>, List<Reservation>>()
+                {
+                    @Override
+                    public List<Reservation> apply(Map<String, Reservation> response)
+                    {
+                        List<Reservation> reservations = new ArrayList<>();
+                        for (String domainName : response.keySet()) {
+//                            Domain domain = getDomainService().findDomainByName(domainName);
+                            Reservation reservation = response.get(domainName);
+
+//                            Long domainId = ObjectIdentifier.parse(domain.getId()).getPersistenceId();
+//                            reservation.setUserId(UserInformation.formatForeignUserId(reservation.getUserId(), domainId));
+
+                            reservations.add(reservation);
+                        }
+                        return reservations;
+                    }
+                });
     }
 
     public boolean deallocateReservation(Domain domain, String foreignReservationRequestId) throws ForeignDomainConnectException
@@ -811,27 +905,27 @@ public class DomainsConnector
         /**
          * Http method of the action
          */
-        private final InterDomainAction.HttpMethod method;
+        protected final InterDomainAction.HttpMethod method;
 
         /**
          * URL path of the action to call
          */
-        private final String action;
+        protected final String action;
 
         /**
          * GET parameters of the action
          */
-        private final MultiMap<String, String> parameters;
+        protected final MultiMap<String, String> parameters;
 
         /**
          * POST data
          */
-        private final Object data;
+        protected final Object data;
 
         /**
          * Domain for which will the action be called
          */
-        private final Domain domain;
+        protected final Domain domain;
 
         /**
          * Reader to parse the JSON result
@@ -853,6 +947,16 @@ public class DomainsConnector
          */
         private Set<String> unavailableDomains;
 
+        /**
+         * HTTP request which is currently performed by the task.
+         */
+        private volatile HttpRequestBase request;
+
+        /**
+         * Specifies whether the task has been aborted (requests performed by the task are aborted immediately).
+         */
+        private volatile boolean aborted;
+
         public DomainTask(final InterDomainAction.HttpMethod method, final String action,
                           final MultiMap<String, String> parameters, final Object data, final Domain domain,
                           final ObjectReader reader, final Class<T> returnClass,
@@ -869,6 +973,38 @@ public class DomainsConnector
             this.unavailableDomains = unavailableDomains;
         }
 
+        /**
+         * @return {@link #domain}
+         */
+        public Domain getDomain()
+        {
+            return domain;
+        }
+
+        /**
+         * @param request sets the {@link #request} (it is aborted when the task has been already aborted)
+         */
+        private void setRequest(HttpRequestBase request)
+        {
+            this.request = request;
+            if (aborted) {
+                request.abort();
+            }
+        }
+
+        /**
+         * Abort the task, i.e., abort the {@link #request} and all further requests performed by the task
+         * (the blocking read of the response is terminated by closing of the connection).
+         */
+        public void abort()
+        {
+            aborted = true;
+            HttpRequestBase request = this.request;
+            if (request != null) {
+                request.abort();
+            }
+        }
+
         /**
          * Callable will be terminated (throws {@link IllegalStateException}) only if domains does not exist.
          *
@@ -881,11 +1017,13 @@ public class DomainsConnector
                 Thread.currentThread().setName(Thread.currentThread().getName() + "-domainTask-" + domain.getName());
             }
             boolean failed = true;
+            DomainTask<?> previousDomainTask = currentDomainTask.get();
+            currentDomainTask.set(this);
             try {
                 if (InterDomainAgent.getInstance().getDomainService().getDomain(domain.getId()) == null) {
                     terminateDomainTask();
                 }
-                T response = performRequest(method, action, parameters, data, domain, reader, returnClass);
+                T response = perform();
                 if (result != null && response != null) {
                     synchronized (result) {
                         ((Map<String, T>) result).put(domain.getName(), response);
@@ -908,6 +1046,8 @@ public class DomainsConnector
                 }
                 return null;
             } finally {
+                currentDomainTask.set(previousDomainTask);
+                request = null;
                 // If {@code unavailableDomains} is set and request failed add it and also to {@link result}
                 // with empty {@code ArrayList} if possible.
                 // NOTICE: {@code unavailableDomains} is used only by CachedDomainsConnector.
@@ -927,6 +1067,16 @@ public class DomainsConnector
             }
         }
 
+        /**
+         * Perform the action on the {@link #domain}.
+         *
+         * @return result of remote domain call
+         */
+        protected T perform() throws ForeignDomainConnectException
+        {
+            return performRequest(method, action, parameters, data, domain, reader, returnClass);
+        }
+
         /**
          * Runnable will be terminated (throws {@link IllegalStateException}) if domain does not exist or is no allocatable.
          * Allows only request for allocatable domains.
@@ -947,10 +1097,12 @@ public class DomainsConnector
 
         private void terminateDomainTask() throws IllegalStateException
         {
-            synchronized (result) {
-                result.remove(domain.getName());
-                if (unavailableDomains != null) {
-                    unavailableDomains.remove(domain.getName());
+            if (result != null) {
+                synchronized (result) {
+                    result.remove(domain.getName());
+                    if (unavailableDomains != null) {
+                        unavailableDomains.remove(domain.getName());
+                    }
                 }
             }
             logger.info("Domain '" + domain.getName() + "' does not exist or is not allocatable. Domain task terminated.");
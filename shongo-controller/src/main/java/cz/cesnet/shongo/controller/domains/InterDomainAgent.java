@@ -86,6 +86,7 @@ public class InterDomainAgent{
     synchronized public static void destroy() {
         if (instance != null) {
             instance.getConnector().getExecutor().shutdownNow();
+            instance.getConnector().close();
             instance = null;
         }
     }
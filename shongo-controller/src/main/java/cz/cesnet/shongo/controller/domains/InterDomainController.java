@@ -67,6 +67,29 @@ import java.util.*;
 @Controller
 public class InterDomainController implements InterDomainProtocol
 {
+    /**
+     * Revisions of {@link DomainCapability}s requested by foreign domains.
+     */
+    private final RevisionTracker<DomainCapability> capabilityRevisions = new RevisionTracker<DomainCapability>()
+    {
+        @Override
+        protected String getItemKey(DomainCapability capability)
+        {
+            return capability.getId();
+        }
+    };
+
+    /**
+     * Revisions of {@link Reservation}s requested by foreign domains.
+     */
+    private final RevisionTracker<Reservation> reservationRevisions = new RevisionTracker<Reservation>()
+    {
+        @Override
+        protected String getItemKey(Reservation reservation)
+        {
+            return reservation.getForeignReservationId();
+        }
+    };
 
     @InitBinder
     public void initBinder(WebDataBinder binder)
@@ -132,6 +155,22 @@ public class InterDomainController implements InterDomainProtocol
         return capabilities;
     }
 
+    @Override
+    @RequestMapping(value = InterDomainAction.DOMAIN_CAPABILITY_LIST, method = RequestMethod.POST, params = "since")
+    @ResponseBody
+    public ListDelta<DomainCapability> handleListCapabilitiesDelta(
+            HttpServletRequest request,
+            @RequestParam(value = "slot", required = false) Interval slot,
+            @RequestParam(value = "since", required = false) String since,
+            @RequestBody List<CapabilitySpecificationRequest> capabilitySpecificationRequests
+    ) throws NotAuthorizedException
+    {
+        List<DomainCapability> capabilities = handleListCapabilities(request, slot, capabilitySpecificationRequests);
+        String listKey = capabilityRevisions.getListKey(getDomain(request).getName(),
+                (slot != null ? slot.toString() : null), capabilitySpecificationRequests);
+        return capabilityRevisions.getDelta(listKey, capabilities, since);
+    }
+
     @Override
     @RequestMapping(value = InterDomainAction.DOMAIN_ALLOCATE_RESOURCE, method = RequestMethod.GET)
     @ResponseBody
@@ -203,6 +242,7 @@ public class InterDomainController implements InterDomainProtocol
                 reservationRequestManager.modify(previousReservationRequest, newReservationRequest);
             }
             entityManager.getTransaction().commit();
+            getDomainService().getSchedulerQueue().add(newReservationRequest);
 
             reservation.setForeignReservationRequestId(ObjectIdentifier.formatId(newReservationRequest));
 
@@ -320,6 +360,7 @@ public class InterDomainController implements InterDomainProtocol
                 reservationRequestManager.modify(previousReservationRequest, newReservationRequest);
             }
             entityManager.getTransaction().commit();
+            getDomainService().getSchedulerQueue().add(newReservationRequest);
 
             reservation.setForeignReservationRequestId(ObjectIdentifier.formatId(newReservationRequest));
 
@@ -563,6 +604,21 @@ public class InterDomainController implements InterDomainProtocol
         }
     }
 
+    @Override
+    @RequestMapping(value = InterDomainAction.DOMAIN_RESOURCE_RESERVATION_LIST, method = RequestMethod.GET, params = "since")
+    @ResponseBody
+    public ListDelta<Reservation> handleListReservationsDelta(HttpServletRequest request,
+                                                              @RequestParam(value = "resourceId", required = false) String resourceId,
+                                                              @RequestParam(value = "slot", required = false) Interval slot,
+                                                              @RequestParam(value = "since", required = false) String since)
+            throws NotAuthorizedException, ForbiddenException
+    {
+        List<Reservation> reservations = handleListReservations(request, resourceId, slot);
+        String listKey = reservationRevisions.getListKey(getDomain(request).getName(), resourceId,
+                (slot != null ? slot.toString() : null));
+        return reservationRevisions.getDelta(listKey, reservations, since);
+    }
+
     @Override
     @RequestMapping(value = InterDomainAction.DOMAIN_VIRTUAL_ROOM_PARTICIPANT_UPDATE, method = RequestMethod.POST)
     @ResponseBody
@@ -0,0 +1,264 @@
+package cz.cesnet.shongo.controller.domains;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import cz.cesnet.shongo.controller.api.domains.response.ListDelta;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks revisions of lists of items which are periodically requested by foreign domains and computes
+ * {@link ListDelta}s from them, so that only changed items are sent to the foreign domains.
+ * <p/>
+ * Each list is identified by a key (e.g., requesting domain and action). Whenever a list is requested,
+ * the current items are compared with the previously requested items and each added or modified item
+ * is marked by a new revision. Removed items are remembered (up to {@link #MAX_REMOVED_COUNT})
+ * with the revision in which they were removed.
+ * <p/>
+ * Revision tokens contain {@link #epoch} and thus the tokens issued before restart of the controller
+ * are not accepted (a full list is returned for them).
+ *
+ * @param <T> type of items
+ */
+public abstract class RevisionTracker<T>
+{
+    /**
+     * Maximum number of tracked lists (the least recently requested lists are forgotten).
+     */
+    private static final int MAX_LIST_COUNT = 200;
+
+    /**
+     * Maximum number of remembered removed items for each list.
+     */
+    private static final int MAX_REMOVED_COUNT = 1000;
+
+    /**
+     * Identifies this instance of the tracker in revision tokens.
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    /**
+     * Last used revision (shared by all lists, so that a token of a forgotten list is not valid for a new list).
+     */
+    private final AtomicLong lastRevision = new AtomicLong();
+
+    /**
+     * {@link ObjectMapper} used for detecting modified items.
+     */
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Tracked lists by keys.
+     */
+    private final Map<String, TrackedList> lists = new LinkedHashMap<String, TrackedList>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TrackedList> eldest)
+        {
+            return size() > MAX_LIST_COUNT;
+        }
+    };
+
+    /**
+     * Constructor.
+     */
+    public RevisionTracker()
+    {
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+    }
+
+    /**
+     * @param item
+     * @return key which identifies given {@code item} in the list
+     *         (or {@code null} when the whole content of the item should be used as key)
+     */
+    protected abstract String getItemKey(T item);
+
+    /**
+     * @param listKey  identifies the list
+     * @param items    current items of the list
+     * @param revision which was returned by the previous request (can be {@code null})
+     * @return {@link ListDelta} of given {@code items} since given {@code revision}
+     */
+    public ListDelta<T> getDelta(String listKey, List<T> items, String revision)
+    {
+        TrackedList trackedList;
+        synchronized (lists) {
+            trackedList = lists.get(listKey);
+            if (trackedList == null) {
+                trackedList = new TrackedList();
+                lists.put(listKey, trackedList);
+            }
+        }
+        return trackedList.getDelta(items, parseRevision(revision));
+    }
+
+    /**
+     * @param parts which identify a list (e.g., requesting domain and request parameters)
+     * @return key of the list
+     */
+    public String getListKey(Object... parts)
+    {
+        try {
+            return mapper.writeValueAsString(parts);
+        }
+        catch (JsonProcessingException exception) {
+            throw new IllegalArgumentException("List key cannot be serialized.", exception);
+        }
+    }
+
+    /**
+     * @param revision token
+     * @return revision number from given {@code revision} token or {@code null} when it isn't valid
+     */
+    private Long parseRevision(String revision)
+    {
+        if (revision == null || !revision.startsWith(epoch + "-")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(revision.substring(epoch.length() + 1));
+        }
+        catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * @param item
+     * @return content of given {@code item}
+     */
+    private String serialize(T item)
+    {
+        try {
+            return mapper.writeValueAsString(item);
+        }
+        catch (JsonProcessingException exception) {
+            throw new IllegalArgumentException("Item cannot be serialized.", exception);
+        }
+    }
+
+    /**
+     * Tracked revisions of a single list.
+     */
+    private class TrackedList
+    {
+        /**
+         * Current revision of the list.
+         */
+        private long revision = lastRevision.get();
+
+        /**
+         * Revision before which the removed items has been forgotten (the revisions before creation of the list
+         * are not valid for the list at all).
+         */
+        private long forgottenRevision = revision + 1;
+
+        /**
+         * Current items by keys.
+         */
+        private Map<String, TrackedItem> items = new LinkedHashMap<String, TrackedItem>();
+
+        /**
+         * Revisions in which the items has been removed by keys (ordered by revisions).
+         */
+        private LinkedHashMap<String, Long> removedItems = new LinkedHashMap<String, Long>();
+
+        /**
+         * @param currentItems current items of the list
+         * @param since        revision number or {@code null}
+         * @return {@link ListDelta} of given {@code currentItems} since given {@code since}
+         */
+        public synchronized ListDelta<T> getDelta(List<T> currentItems, Long since)
+        {
+            // Update revisions of items
+            long nextRevision = lastRevision.incrementAndGet();
+            boolean modified = false;
+            Map<String, TrackedItem> newItems = new LinkedHashMap<String, TrackedItem>();
+            for (T item : currentItems) {
+                String content = serialize(item);
+                String key = getItemKey(item);
+                if (key == null) {
+                    key = content;
+                }
+                TrackedItem trackedItem = items.get(key);
+                if (trackedItem == null || !trackedItem.content.equals(content)) {
+                    trackedItem = new TrackedItem(content, nextRevision);
+                    removedItems.remove(key);
+                    modified = true;
+                }
+                trackedItem.item = item;
+                newItems.put(key, trackedItem);
+            }
+            for (String key : items.keySet()) {
+                if (!newItems.containsKey(key)) {
+                    removedItems.remove(key);
+                    removedItems.put(key, nextRevision);
+                    modified = true;
+                }
+            }
+            while (removedItems.size() > MAX_REMOVED_COUNT) {
+                Iterator<Map.Entry<String, Long>> iterator = removedItems.entrySet().iterator();
+                forgottenRevision = Math.max(forgottenRevision, iterator.next().getValue());
+                iterator.remove();
+            }
+            items = newItems;
+            if (modified) {
+                revision = nextRevision;
+            }
+
+            // Create delta
+            boolean full = (since == null || since > revision || since < forgottenRevision);
+            ListDelta<T> delta = new ListDelta<T>(epoch + "-" + revision, full);
+            for (Map.Entry<String, TrackedItem> entry : items.entrySet()) {
+                TrackedItem trackedItem = entry.getValue();
+                if (full || trackedItem.revision > since) {
+                    delta.addChanged(entry.getKey(), trackedItem.item);
+                }
+            }
+            if (!full) {
+                for (Map.Entry<String, Long> entry : removedItems.entrySet()) {
+                    if (entry.getValue() > since) {
+                        delta.addRemoved(entry.getKey());
+                    }
+                }
+            }
+            return delta;
+        }
+    }
+
+    /**
+     * Tracked revision of a single item.
+     */
+    private class TrackedItem
+    {
+        /**
+         * Serialized content of the {@link #item} for detecting modifications.
+         */
+        private final String content;
+
+        /**
+         * Revision in which the {@link #item} was lastly modified.
+         */
+        private final long revision;
+
+        /**
+         * Current item.
+         */
+        private T item;
+
+        /**
+         * Constructor.
+         *
+         * @param content  sets the {@link #content}
+         * @param revision sets the {@link #revision}
+         */
+        public TrackedItem(String content, long revision)
+        {
+            this.content = content;
+            this.revision = revision;
+        }
+    }
+}
@@ -15,7 +15,7 @@ import java.util.Set;
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
-public abstract class ExecutionAction<T> extends Thread
+public abstract class ExecutionAction<T> implements Runnable
 {
     /**
      * Target for which the {@link ExecutionAction} is being executed.
@@ -45,6 +45,12 @@ public abstract class ExecutionAction<T> extends Thread
      */
     private boolean skipPerform = false;
 
+    /**
+     * Identifiers of resources which are affected by this {@link ExecutionAction}
+     * ({@code null} means that the resources are not known and thus the action can affect any resource).
+     */
+    private Set<Long> resourceIds;
+
     /**
      * Constructor.
      *
@@ -117,6 +123,22 @@ public abstract class ExecutionAction<T> extends Thread
         this.skipPerform = skipPerform;
     }
 
+    /**
+     * @return {@link #resourceIds}
+     */
+    public Set<Long> getResourceIds()
+    {
+        return resourceIds;
+    }
+
+    /**
+     * @param resourceIds sets the {@link #resourceIds}
+     */
+    public void setResourceIds(Set<Long> resourceIds)
+    {
+        this.resourceIds = resourceIds;
+    }
+
     /**
      * Create dependency from {@code actionFrom} to {@code actionTo}.
      *
@@ -0,0 +1,73 @@
+package cz.cesnet.shongo.controller.executor;
+
+import cz.cesnet.shongo.controller.util.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of {@link ExecutionAction}s by types of the actions (e.g., "Start", "Stop").
+ */
+public class ExecutionActionStatistics
+{
+    /**
+     * Upper bounds in milliseconds of histogram buckets (the last bucket is unbounded).
+     */
+    private static final long[] BUCKET_BOUNDS = new long[]{100, 500, 1000, 5000, 10000, 30000, 60000};
+
+    /**
+     * {@link Histogram}s by types of {@link ExecutionAction}s.
+     */
+    private final Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+
+    /**
+     * @param executionAction which has been performed
+     * @param nanos           duration of the performing in nanoseconds
+     */
+    public synchronized void record(ExecutionAction executionAction, long nanos)
+    {
+        String type = executionAction.getClass().getSimpleName();
+        Histogram histogram = histograms.get(type);
+        if (histogram == null) {
+            histogram = new Histogram(BUCKET_BOUNDS, "ms");
+            histograms.put(type, histogram);
+        }
+        histogram.record(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /**
+     * @param type of {@link ExecutionAction} (simple class name)
+     * @return number of performed actions of given {@code type}
+     */
+    public synchronized long getCount(String type)
+    {
+        Histogram histogram = histograms.get(type);
+        return (histogram != null ? histogram.getCount() : 0);
+    }
+
+    /**
+     * @param type of {@link ExecutionAction} (simple class name)
+     * @return maximum duration in milliseconds of actions of given {@code type}
+     */
+    public synchronized long getMaxDuration(String type)
+    {
+        Histogram histogram = histograms.get(type);
+        return (histogram != null ? histogram.getMax() : 0);
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append("\n");
+            }
+            builder.append(entry.getKey());
+            builder.append(": ");
+            builder.append(entry.getValue());
+        }
+        return builder.toString();
+    }
+}
@@ -13,7 +13,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Represents an {@link Executor} plan for collection of {@link Executable}s.
@@ -57,6 +57,21 @@ public class ExecutionPlan
     final Map<Long, ExecutionAction.AbstractExecutionTargetAction> actionByExecutionTargetId =
             new HashMap<Long, ExecutionAction.AbstractExecutionTargetAction>();
 
+    /**
+     * Thread pool in which the {@link ExecutionAction}s are performed by {@link #perform} (when it is running).
+     */
+    private java.util.concurrent.Executor threadPool;
+
+    /**
+     * Maximum number of concurrently performed {@link ExecutionAction}s for a single resource.
+     */
+    private int resourceActionLimit;
+
+    /**
+     * {@link ExecutionActionStatistics} to which the durations of performed {@link ExecutionAction}s are recorded.
+     */
+    private ExecutionActionStatistics statistics;
+
     /**
      * Constructor.
      *
@@ -83,6 +98,14 @@ public class ExecutionPlan
         return poppedActions;
     }
 
+    /**
+     * @return {@link #remainingActions}
+     */
+    public Collection<ExecutionAction> getRemainingActions()
+    {
+        return remainingActions;
+    }
+
     /**
      * @param executionAction to be added to the {@link ExecutionPlan}
      */
@@ -223,6 +246,12 @@ public class ExecutionPlan
                 throw new IllegalArgumentException("Execution action hasn't been popped (or has already been removed).");
             }
             completeExecutionAction(executionAction);
+
+            // Perform actions which has been satisfied by the completion
+            if (threadPool != null) {
+                dispatchExecutionActions();
+            }
+            notifyAll();
         }
         // Otherwise remove it totally from the plan
         else {
@@ -235,6 +264,174 @@ public class ExecutionPlan
         }
     }
 
+    /**
+     * Perform all {@link ExecutionAction}s in given {@code threadPool} and wait for them to complete.
+     * <p/>
+     * Each {@link ExecutionAction} is performed as soon as all its dependencies are completed and no other satisfied
+     * or performed action with higher {@link ExecutionAction#getExecutionPriority()} affects the same resources
+     * (e.g., rooms are stopped in a device before other rooms are started in the device, but starting rooms
+     * in other devices doesn't wait for it). At most {@code resourceActionLimit} actions are performed
+     * concurrently for a single resource.
+     *
+     * @param threadPool          in which the {@link ExecutionAction}s should be performed
+     * @param resourceActionLimit maximum number of concurrently performed actions for a single resource
+     * @param statistics          to which the durations of performed actions should be recorded (can be {@code null})
+     * @throws InterruptedException when the waiting is interrupted (already performed actions are completed
+     *                              and the remaining actions are not performed)
+     */
+    public synchronized void perform(java.util.concurrent.Executor threadPool, int resourceActionLimit,
+            ExecutionActionStatistics statistics) throws InterruptedException
+    {
+        if (satisfiedActions == null) {
+            throw new IllegalStateException("Execution plan hasn't been built.");
+        }
+        this.threadPool = threadPool;
+        this.resourceActionLimit = resourceActionLimit;
+        this.statistics = statistics;
+        try {
+            dispatchExecutionActions();
+            while (!isEmpty()) {
+                wait();
+            }
+        }
+        catch (InterruptedException exception) {
+            // Stop performing new actions and wait for the performed ones
+            this.threadPool = null;
+            while (!poppedActions.isEmpty()) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException ignored) {
+                }
+            }
+            throw exception;
+        }
+        finally {
+            this.threadPool = null;
+            this.statistics = null;
+        }
+    }
+
+    /**
+     * Submit all satisfied {@link ExecutionAction}s which can be performed now to the {@link #threadPool}.
+     *
+     * @see #perform
+     */
+    private void dispatchExecutionActions()
+    {
+        // Complete actions which should be skipped (it can satisfy other actions)
+        boolean skipped = true;
+        while (skipped) {
+            skipped = false;
+            for (ExecutionAction executionAction : new ArrayList<ExecutionAction>(satisfiedActions)) {
+                if (executionAction.isSkipPerform()) {
+                    satisfiedActions.remove(executionAction);
+                    completeExecutionAction(executionAction);
+                    skipped = true;
+                }
+            }
+        }
+
+        // Determine highest priorities of satisfied and performed actions by resources
+        int maxPriority = Integer.MIN_VALUE;
+        int maxPriorityForAllResources = Integer.MIN_VALUE;
+        Map<Long, Integer> maxPriorityByResourceId = new HashMap<Long, Integer>();
+        Map<Long, Integer> actionCountByResourceId = new HashMap<Long, Integer>();
+        List<ExecutionAction> actions = new ArrayList<ExecutionAction>(satisfiedActions);
+        actions.addAll(poppedActions);
+        for (ExecutionAction executionAction : actions) {
+            int priority = executionAction.getExecutionPriority();
+            maxPriority = Math.max(maxPriority, priority);
+            Set<Long> resourceIds = executionAction.getResourceIds();
+            if (resourceIds == null) {
+                maxPriorityForAllResources = Math.max(maxPriorityForAllResources, priority);
+                continue;
+            }
+            for (Long resourceId : resourceIds) {
+                Integer resourcePriority = maxPriorityByResourceId.get(resourceId);
+                if (resourcePriority == null || priority > resourcePriority) {
+                    maxPriorityByResourceId.put(resourceId, priority);
+                }
+            }
+        }
+        for (ExecutionAction executionAction : poppedActions) {
+            Set<Long> resourceIds = executionAction.getResourceIds();
+            if (resourceIds != null) {
+                for (Long resourceId : resourceIds) {
+                    Integer actionCount = actionCountByResourceId.get(resourceId);
+                    actionCountByResourceId.put(resourceId, (actionCount != null ? actionCount : 0) + 1);
+                }
+            }
+        }
+
+        // Submit actions which aren't blocked by actions with higher priority or by the resource action limit
+        boolean rejected = false;
+        for (final ExecutionAction executionAction : new ArrayList<ExecutionAction>(satisfiedActions)) {
+            int priority = executionAction.getExecutionPriority();
+            Set<Long> resourceIds = executionAction.getResourceIds();
+            if (resourceIds == null) {
+                if (priority < maxPriority) {
+                    continue;
+                }
+            }
+            else {
+                if (priority < maxPriorityForAllResources) {
+                    continue;
+                }
+                boolean blocked = false;
+                for (Long resourceId : resourceIds) {
+                    Integer actionCount = actionCountByResourceId.get(resourceId);
+                    if (priority < maxPriorityByResourceId.get(resourceId)
+                            || (actionCount != null && actionCount >= resourceActionLimit)) {
+                        blocked = true;
+                        break;
+                    }
+                }
+                if (blocked) {
+                    continue;
+                }
+                for (Long resourceId : resourceIds) {
+                    Integer actionCount = actionCountByResourceId.get(resourceId);
+                    actionCountByResourceId.put(resourceId, (actionCount != null ? actionCount : 0) + 1);
+                }
+            }
+            satisfiedActions.remove(executionAction);
+            poppedActions.add(executionAction);
+            logger.debug("{} prepared.", executionAction);
+
+            final ExecutionActionStatistics statistics = this.statistics;
+            try {
+                threadPool.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        long startNanos = System.nanoTime();
+                        try {
+                            executionAction.run();
+                        }
+                        finally {
+                            if (statistics != null) {
+                                statistics.record(executionAction, System.nanoTime() - startNanos);
+                            }
+                        }
+                    }
+                });
+            }
+            catch (RejectedExecutionException exception) {
+                logger.error("{} cannot be performed.", executionAction, exception);
+                poppedActions.remove(executionAction);
+                completeExecutionAction(executionAction);
+                rejected = true;
+            }
+        }
+        if (rejected) {
+            // Actions satisfied by the rejected actions must be also dispatched
+            dispatchExecutionActions();
+            notifyAll();
+        }
+    }
+
     /**
      * @param executionAction to be marked as completed and to satisfy all dependents
      */
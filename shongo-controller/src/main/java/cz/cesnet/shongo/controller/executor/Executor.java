@@ -1,6 +1,7 @@
 package cz.cesnet.shongo.controller.executor;
 
 import cz.cesnet.shongo.ExpirationSet;
+import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.connector.api.jade.recording.CreateRecordingFolder;
 import cz.cesnet.shongo.controller.*;
 import cz.cesnet.shongo.controller.api.Reservation;
@@ -8,22 +9,37 @@ import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.booking.executable.Executable;
 import cz.cesnet.shongo.controller.booking.executable.ExecutableManager;
 import cz.cesnet.shongo.controller.booking.executable.ExecutableService;
+import cz.cesnet.shongo.controller.booking.executable.ExecutionTarget;
+import cz.cesnet.shongo.controller.booking.executable.ResourceEndpoint;
 import cz.cesnet.shongo.controller.booking.recording.RecordableEndpoint;
 import cz.cesnet.shongo.controller.booking.recording.RecordingCapability;
+import cz.cesnet.shongo.controller.booking.recording.RecordingService;
 import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
+import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.booking.resource.ManagedMode;
+import cz.cesnet.shongo.controller.booking.room.ResourceRoomEndpoint;
+import cz.cesnet.shongo.controller.booking.room.RoomEndpoint;
+import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
+import cz.cesnet.shongo.controller.booking.streaming.StreamingService;
 import cz.cesnet.shongo.controller.notification.AbstractNotification;
 import cz.cesnet.shongo.controller.notification.NotificationManager;
 import cz.cesnet.shongo.jade.SendLocalCommand;
 import cz.cesnet.shongo.util.DateTimeFormatter;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
+import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Component of a domain controller which executes actions according to allocation plan which was created
@@ -90,6 +106,36 @@ public class Executor extends SwitchableComponent
      */
     private int maxAttemptCount;
 
+    /**
+     * @see ControllerConfiguration#EXECUTOR_THREADS
+     */
+    private int threadCount = 16;
+
+    /**
+     * @see ControllerConfiguration#EXECUTOR_RESOURCE_ACTION_LIMIT
+     */
+    private int resourceActionLimit = 4;
+
+    /**
+     * @see ControllerConfiguration#EXECUTOR_PRESTART_LOOKAHEAD
+     */
+    private Duration prestartLookahead = Duration.ZERO;
+
+    /**
+     * @see ControllerConfiguration#EXECUTOR_PRESTART_RESOURCE_LIMIT
+     */
+    private int prestartResourceLimit = 5;
+
+    /**
+     * Thread pool in which the {@link ExecutionAction}s are performed (created on demand).
+     */
+    private ThreadPoolExecutor actionThreadPool;
+
+    /**
+     * {@link ExecutionActionStatistics} of performed {@link ExecutionAction}s.
+     */
+    private final ExecutionActionStatistics actionStatistics = new ExecutionActionStatistics();
+
     /**
      * Map of (maps of recording folders by recording capabilities) by recordable endpoint ids.
      */
@@ -219,6 +265,70 @@ public class Executor extends SwitchableComponent
         nextAttempt = configuration.getDuration(ControllerConfiguration.EXECUTOR_EXECUTABLE_NEXT_ATTEMPT);
         startingDurationRoom = configuration.getDuration(ControllerConfiguration.EXECUTOR_STARTING_DURATION_ROOM);
         maxAttemptCount = configuration.getInt(ControllerConfiguration.EXECUTOR_EXECUTABLE_MAX_ATTEMPT_COUNT);
+        threadCount = Math.max(1, configuration.getInt(ControllerConfiguration.EXECUTOR_THREADS, threadCount));
+        resourceActionLimit = Math.max(1, configuration.getInt(
+                ControllerConfiguration.EXECUTOR_RESOURCE_ACTION_LIMIT, resourceActionLimit));
+        Duration prestartLookahead = configuration.getDuration(ControllerConfiguration.EXECUTOR_PRESTART_LOOKAHEAD);
+        if (prestartLookahead != null) {
+            this.prestartLookahead = prestartLookahead;
+        }
+        prestartResourceLimit = configuration.getInt(
+                ControllerConfiguration.EXECUTOR_PRESTART_RESOURCE_LIMIT, prestartResourceLimit);
+    }
+
+    /**
+     * @param prestartLookahead     sets the {@link #prestartLookahead}
+     * @param prestartResourceLimit sets the {@link #prestartResourceLimit}
+     */
+    public void setPrestart(Duration prestartLookahead, int prestartResourceLimit)
+    {
+        this.prestartLookahead = prestartLookahead;
+        this.prestartResourceLimit = prestartResourceLimit;
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (actionThreadPool != null) {
+            actionThreadPool.shutdownNow();
+            actionThreadPool = null;
+        }
+        super.destroy();
+    }
+
+    /**
+     * @return {@link #actionStatistics}
+     */
+    public ExecutionActionStatistics getActionStatistics()
+    {
+        return actionStatistics;
+    }
+
+    /**
+     * Perform given {@code executionPlan} in the {@link #actionThreadPool}.
+     *
+     * @param executionPlan to be performed
+     * @throws InterruptedException when the performing is interrupted
+     */
+    public synchronized void performExecutionPlan(ExecutionPlan executionPlan) throws InterruptedException
+    {
+        if (actionThreadPool == null) {
+            actionThreadPool = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "executor-action-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            actionThreadPool.allowCoreThreadTimeOut(true);
+        }
+        executionPlan.perform(actionThreadPool, resourceActionLimit, actionStatistics);
     }
 
     @Override
@@ -253,107 +363,363 @@ public class Executor extends SwitchableComponent
             return new ExecutionResult();
         }
 
-        // Globally synchronized (see ThreadLock documentation)
-        //logger.info("Executor waiting for lock...............................");
-        synchronized (ThreadLock.class) {
-            //logger.info("Executor lock acquired...     (((((");
-
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.getInstance(DateTimeFormatter.Type.LONG);
-            logger.debug("Checking executables for execution at '{}'...", dateTimeFormatter.formatDateTime(dateTime));
-
-            EntityManager entityManager = entityManagerFactory.createEntityManager();
-            ExecutableManager executableManager = new ExecutableManager(entityManager);
-            try {
-                // Create execution plan
-                DateTime start = dateTime.minus(executableStart);
-                DateTime stop = dateTime.minus(executableEnd);
-                ExecutionPlan executionPlan = new ExecutionPlan(this);
-                for (Executable executable : executableManager.listExecutablesForStart(start, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.StartExecutableAction(executable));
-                    Executable migrateFromExecutable = executable.getMigrateFromExecutable();
-                    if (migrateFromExecutable != null) {
-                        if (migrateFromExecutable.getState().isStarted()) {
-                            Migration migration = new Migration(migrateFromExecutable, executable);
-                            executionPlan.addExecutionAction(new ExecutionAction.MigrationAction(migration));
-                        }
-                        else {
-                            logger.warn("Cannot migrate executable {} ({}) from {} ({}, {}).", new Object[]{
-                                    executable.getId(), executable.getSlot(), migrateFromExecutable.getId(),
-                                    migrateFromExecutable.getSlot(), migrateFromExecutable.getState()});
-                        }
-                    }
-                }
-                for (Executable executable : executableManager.listExecutablesForStop(stop, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.StopExecutableAction(executable));
+        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.getInstance(DateTimeFormatter.Type.LONG);
+        logger.debug("Checking executables for execution at '{}'...", dateTimeFormatter.formatDateTime(dateTime));
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        ExecutableManager executableManager = new ExecutableManager(entityManager);
+        ThreadLock.ResourceLocks resourceLocks = null;
+        try {
+            // Create execution plan and lock resources which are executed (see ThreadLock documentation),
+            // the plan is created again when the resources are locked to not execute a plan for changed executables
+            ExecutionPlan executionPlan;
+            Set<Long> lockedResourceIds = null;
+            while (true) {
+                entityManager.clear();
+                entityManager.getTransaction().begin();
+                executionPlan = createExecutionPlan(dateTime, executableManager, entityManager);
+                Set<Long> resourceIds = getResourceIds(executionPlan);
+                entityManager.getTransaction().commit();
+                if (executionPlan.getRemainingActions().isEmpty()) {
+                    break;
                 }
-                for (Executable executable : executableManager.listExecutablesForFinalization(dateTime, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.FinalizeExecutableAction(executable));
+                if (resourceLocks != null && (lockedResourceIds == null
+                        || (resourceIds != null && lockedResourceIds.containsAll(resourceIds)))) {
+                    break;
                 }
-                for (Executable executable : executableManager.listExecutablesForUpdate(dateTime, maxAttemptCount)) {
-                    ExecutionAction executionAction = executionPlan.getActionByExecutionTarget(executable);
-                    if (executionAction != null) {
-                        // Skip updating executable when other action is planned (i.e., start or stop)
-                        continue;
+                if (resourceLocks != null) {
+                    // Executables have been changed before the resources were locked
+                    resourceLocks.unlock();
+                    if (resourceIds != null) {
+                        resourceIds.addAll(lockedResourceIds);
                     }
-                    executionPlan.addExecutionAction(new ExecutionAction.UpdateExecutableAction(executable));
                 }
-                for (ExecutableService service : executableManager.listServicesForActivation(start, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.ActivateExecutableServiceAction(service));
-                }
-                for (ExecutableService service : executableManager.listServicesForDeactivation(stop, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.DeactivateExecutableServiceAction(service));
-                }
-                executionPlan.build();
+                lockedResourceIds = resourceIds;
+                resourceLocks = ThreadLock.lockResources(lockedResourceIds);
+            }
+            executionPlan.build();
 
-                // Perform execution plan
-                while (!executionPlan.isEmpty()) {
-                    Collection<ExecutionAction> executionActions = executionPlan.popExecutionActions();
-                    for (ExecutionAction executionAction : executionActions) {
-                        executionAction.start();
-                    }
-                    for (ExecutionAction executionAction : executionActions) {
-                        executionAction.join();
-                    }
-                }
+            // Perform execution plan
+            if (!executionPlan.isEmpty()) {
+                performExecutionPlan(executionPlan);
+                logger.debug("Execution action statistics:\n{}", actionStatistics);
+            }
 
-                // Finish execution plan
-                entityManager.getTransaction().begin();
-                ExecutionResult executionResult = executionPlan.finish(entityManager, dateTime);
-                entityManager.getTransaction().commit();
+            // Finish execution plan
+            entityManager.getTransaction().begin();
+            ExecutionResult executionResult = executionPlan.finish(entityManager, dateTime);
+            entityManager.getTransaction().commit();
+
+            // Set all activated and deactivated services as checked
+            for (ExecutableService executableService : executionResult.getActivatedExecutableServices()) {
+                addCheckedExecutableService(executableService);
+            }
+            for (ExecutableService executableService : executionResult.getDeactivatedExecutableServices()) {
+                addCheckedExecutableService(executableService);
+            }
+
+            // Add notifications
+            entityManager.getTransaction().begin();
+            synchronized (notifications) {
+                notificationManager.addNotifications(notifications, entityManager);
+                notifications.clear();
+            }
+            entityManager.getTransaction().commit();
+
+            return executionResult;
+        }
+        catch (Exception exception) {
+            Reporter.getInstance().reportInternalError(Reporter.EXECUTOR, exception);
+            return null;
+        }
+        finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+
+            entityManager.close();
+
+            if (resourceLocks != null) {
+                resourceLocks.unlock();
+            }
+        }
+    }
+
+    /**
+     * @param dateTime          specifies date/time which should be used as "now" executing {@link Reservation}s
+     * @param executableManager
+     * @param entityManager
+     * @return new {@link ExecutionPlan} (not built) for given {@code dateTime}
+     */
+    private ExecutionPlan createExecutionPlan(DateTime dateTime, ExecutableManager executableManager,
+            EntityManager entityManager)
+    {
+        DateTime start = dateTime.minus(executableStart);
+        DateTime stop = dateTime.minus(executableEnd);
+        ExecutionPlan executionPlan = new ExecutionPlan(this);
+        for (Executable executable : executableManager.listExecutablesForStart(start, maxAttemptCount)) {
+            addStartAction(executionPlan, executable);
+        }
+        if (prestartLookahead.getMillis() > 0 && prestartResourceLimit > 0) {
+            addPrestartActions(executionPlan, executableManager, new ReservationManager(entityManager), start);
+        }
+        for (Executable executable : executableManager.listExecutablesForStop(stop, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.StopExecutableAction(executable));
+        }
+        for (Executable executable : executableManager.listExecutablesForFinalization(dateTime, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.FinalizeExecutableAction(executable));
+        }
+        for (Executable executable : executableManager.listExecutablesForUpdate(dateTime, maxAttemptCount)) {
+            ExecutionAction executionAction = executionPlan.getActionByExecutionTarget(executable);
+            if (executionAction != null) {
+                // Skip updating executable when other action is planned (i.e., start or stop)
+                continue;
+            }
+            executionPlan.addExecutionAction(new ExecutionAction.UpdateExecutableAction(executable));
+        }
+        for (ExecutableService service : executableManager.listServicesForActivation(start, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.ActivateExecutableServiceAction(service));
+        }
+        for (ExecutableService service : executableManager.listServicesForDeactivation(stop, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.DeactivateExecutableServiceAction(service));
+        }
+        return executionPlan;
+    }
+
+    /**
+     * Add {@link ExecutionAction.StartExecutableAction} for given {@code executable} to given {@code executionPlan}
+     * (and {@link ExecutionAction.MigrationAction} when the {@code executable} should be migrated).
+     *
+     * @param executionPlan
+     * @param executable
+     */
+    private void addStartAction(ExecutionPlan executionPlan, Executable executable)
+    {
+        executionPlan.addExecutionAction(new ExecutionAction.StartExecutableAction(executable));
+        Executable migrateFromExecutable = executable.getMigrateFromExecutable();
+        if (migrateFromExecutable != null) {
+            if (migrateFromExecutable.getState().isStarted()) {
+                Migration migration = new Migration(migrateFromExecutable, executable);
+                executionPlan.addExecutionAction(new ExecutionAction.MigrationAction(migration));
+            }
+            else {
+                logger.warn("Cannot migrate executable {} ({}) from {} ({}, {}).", new Object[]{
+                        executable.getId(), executable.getSlot(), migrateFromExecutable.getId(),
+                        migrateFromExecutable.getSlot(), migrateFromExecutable.getState()});
+            }
+        }
+    }
 
-                // Set all activated and deactivated services as checked
-                for (ExecutableService executableService : executionResult.getActivatedExecutableServices()) {
-                    addCheckedExecutableService(executableService);
+    /**
+     * Add {@link ExecutionAction.StartExecutableAction}s for {@link Executable}s which start in
+     * {@link #prestartLookahead} after given {@code start}, so that they are ready at their slot start
+     * and the device calls are spread over multiple executor periods. At most {@link #prestartResourceLimit}
+     * executables are started ahead for a single resource in one period (the earliest ones first).
+     * <p/>
+     * Executables which should be migrated, which have not started dependencies or whose resources cannot be
+     * determined are not started ahead. Rooms are not started ahead when the licenses of theirs devices
+     * are not available before theirs slots (see {@link #isLicenseAvailable}). When starting ahead fails,
+     * the executable is attempted again at its regular start.
+     *
+     * @param executionPlan      to which the actions should be added
+     * @param executableManager
+     * @param reservationManager
+     * @param start              before which the executables are started regularly
+     */
+    private void addPrestartActions(ExecutionPlan executionPlan, ExecutableManager executableManager,
+            ReservationManager reservationManager, DateTime start)
+    {
+        Map<Long, Integer> prestartCountByResourceId = new HashMap<Long, Integer>();
+        List<ResourceRoomEndpoint> prestartRoomEndpoints = new LinkedList<ResourceRoomEndpoint>();
+        List<Executable> executables = executableManager.listExecutablesForPrestart(start, start.plus(prestartLookahead));
+        for (Executable executable : executables) {
+            if (executionPlan.getActionByExecutionTarget(executable) != null
+                    || executable.getMigrateFromExecutable() != null) {
+                continue;
+            }
+            boolean dependenciesStarted = true;
+            for (ExecutionTarget dependency : executable.getExecutionDependencies()) {
+                if (executionPlan.getActionByExecutionTarget(dependency) != null) {
+                    continue;
                 }
-                for (ExecutableService executableService : executionResult.getDeactivatedExecutableServices()) {
-                    addCheckedExecutableService(executableService);
+                dependency = PersistentObject.getLazyImplementation(dependency);
+                if (!(dependency instanceof Executable) || !((Executable) dependency).getState().isStarted()) {
+                    dependenciesStarted = false;
+                    break;
                 }
-
-                // Add notifications
-                entityManager.getTransaction().begin();
-                synchronized (notifications) {
-                    notificationManager.addNotifications(notifications, entityManager);
-                    notifications.clear();
+            }
+            if (!dependenciesStarted) {
+                continue;
+            }
+            Set<Long> resourceIds = new HashSet<Long>();
+            if (!addResourceIds(executable, resourceIds) || resourceIds.isEmpty()) {
+                continue;
+            }
+            boolean limitReached = false;
+            for (Long resourceId : resourceIds) {
+                Integer prestartCount = prestartCountByResourceId.get(resourceId);
+                if (prestartCount != null && prestartCount >= prestartResourceLimit) {
+                    limitReached = true;
+                    break;
                 }
-                entityManager.getTransaction().commit();
-
-                return executionResult;
             }
-            catch (Exception exception) {
-                Reporter.getInstance().reportInternalError(Reporter.EXECUTOR, exception);
-                return null;
+            if (limitReached) {
+                continue;
             }
-            finally {
-                if (entityManager.getTransaction().isActive()) {
-                    entityManager.getTransaction().rollback();
+            List<ResourceRoomEndpoint> roomEndpoints = new LinkedList<ResourceRoomEndpoint>();
+            addRoomEndpoints(executable, roomEndpoints);
+            boolean licenseAvailable = true;
+            for (ResourceRoomEndpoint roomEndpoint : roomEndpoints) {
+                if (!isLicenseAvailable(roomEndpoint, start, executableManager, reservationManager,
+                        prestartRoomEndpoints)) {
+                    licenseAvailable = false;
+                    break;
                 }
+            }
+            if (!licenseAvailable) {
+                continue;
+            }
+            prestartRoomEndpoints.addAll(roomEndpoints);
+            for (Long resourceId : resourceIds) {
+                Integer prestartCount = prestartCountByResourceId.get(resourceId);
+                prestartCountByResourceId.put(resourceId, (prestartCount != null ? prestartCount : 0) + 1);
+            }
+            logger.debug("Starting executable {} ahead of its slot start {}.", executable.getId(),
+                    executable.getSlotStart());
+            executionPlan.addExecutionAction(new ExecutionAction.StartExecutableAction(executable));
+        }
+    }
 
-                entityManager.close();
+    /**
+     * Check whether the licenses of given {@code roomEndpoint} are available in its {@link RoomProviderCapability}
+     * from given {@code start} to its slot start. The licenses are used by room reservations in that interval
+     * (summed, so the check is conservative), by rooms which have been already started ahead and which start
+     * at or after the slot start and by given {@code prestartRoomEndpoints} which start at or after the slot start
+     * (the earlier ones are covered by the room reservations).
+     *
+     * @param roomEndpoint          to be started ahead
+     * @param start                 from which the {@code roomEndpoint} should be started
+     * @param executableManager
+     * @param reservationManager
+     * @param prestartRoomEndpoints which are started ahead in the current period
+     * @return true when the licenses are available, false otherwise
+     */
+    private boolean isLicenseAvailable(ResourceRoomEndpoint roomEndpoint, DateTime start,
+            ExecutableManager executableManager, ReservationManager reservationManager,
+            List<ResourceRoomEndpoint> prestartRoomEndpoints)
+    {
+        RoomProviderCapability roomProviderCapability = roomEndpoint.getRoomProviderCapability();
+        Integer availableLicenseCount = roomProviderCapability.getLicenseCount();
+        int licenseCount = roomEndpoint.getLicenseCount();
+        if (availableLicenseCount == null || licenseCount == 0) {
+            return true;
+        }
+        DateTime slotStart = roomEndpoint.getSlotStart();
+        int usedLicenseCount = 0;
+        Interval interval = new Interval(start, slotStart);
+        for (RoomReservation roomReservation : reservationManager.getRoomReservations(roomProviderCapability, interval)) {
+            Executable executable = roomReservation.getExecutable();
+            if (executable == null || !executable.getId().equals(roomEndpoint.getId())) {
+                usedLicenseCount += roomReservation.getLicenseCount();
             }
+        }
+        for (ResourceRoomEndpoint startedRoomEndpoint :
+                executableManager.listStartedRoomEndpoints(roomProviderCapability, slotStart)) {
+            usedLicenseCount += startedRoomEndpoint.getLicenseCount();
+        }
+        for (ResourceRoomEndpoint prestartRoomEndpoint : prestartRoomEndpoints) {
+            if (prestartRoomEndpoint.getRoomProviderCapability().getId().equals(roomProviderCapability.getId())
+                    && !prestartRoomEndpoint.getSlotStart().isBefore(slotStart)) {
+                usedLicenseCount += prestartRoomEndpoint.getLicenseCount();
+            }
+        }
+        if (usedLicenseCount + licenseCount > availableLicenseCount) {
+            logger.debug("Executable {} isn't started ahead, licenses are used until {} ({} of {}).", new Object[]{
+                    roomEndpoint.getId(), slotStart, usedLicenseCount, availableLicenseCount});
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param executionTarget for which the {@link ResourceRoomEndpoint}s should be added (including dependencies)
+     * @param roomEndpoints   to which the {@link ResourceRoomEndpoint}s should be added
+     */
+    private static void addRoomEndpoints(ExecutionTarget executionTarget, List<ResourceRoomEndpoint> roomEndpoints)
+    {
+        executionTarget = PersistentObject.getLazyImplementation(executionTarget);
+        if (executionTarget instanceof ResourceRoomEndpoint) {
+            roomEndpoints.add((ResourceRoomEndpoint) executionTarget);
+        }
+        for (ExecutionTarget childExecutionTarget : executionTarget.getExecutionDependencies()) {
+            addRoomEndpoints(childExecutionTarget, roomEndpoints);
+        }
+    }
 
-            //logger.info("Executor releasing lock...    )))))");
+    /**
+     * Set {@link ExecutionAction#resourceIds} to all {@link ExecutionAction}s in given {@code executionPlan}.
+     *
+     * @param executionPlan
+     * @return identifiers of resources which are executed by given {@code executionPlan}
+     *         or {@code null} when they cannot be determined (and thus all resources should be locked)
+     */
+    private static Set<Long> getResourceIds(ExecutionPlan executionPlan)
+    {
+        Set<Long> resourceIds = new HashSet<Long>();
+        for (ExecutionAction executionAction : executionPlan.getRemainingActions()) {
+            Set<Long> actionResourceIds = new HashSet<Long>();
+            Object target = executionAction.getTarget();
+            if (target instanceof Migration) {
+                Migration migration = (Migration) target;
+                if (!addResourceIds(migration.getSourceExecutable(), actionResourceIds)
+                        || !addResourceIds(migration.getTargetExecutable(), actionResourceIds)) {
+                    actionResourceIds = null;
+                }
+            }
+            else if (!addResourceIds((ExecutionTarget) target, actionResourceIds)) {
+                actionResourceIds = null;
+            }
+            executionAction.setResourceIds(actionResourceIds);
+            if (actionResourceIds == null) {
+                resourceIds = null;
+            }
+            else if (resourceIds != null) {
+                resourceIds.addAll(actionResourceIds);
+            }
+        }
+        return resourceIds;
+    }
+
+    /**
+     * @param executionTarget whose resources should be added
+     * @param resourceIds     to which the resources should be added
+     * @return true whether the resources of given {@code executionTarget} were determined, false otherwise
+     */
+    private static boolean addResourceIds(ExecutionTarget executionTarget, Set<Long> resourceIds)
+    {
+        executionTarget = PersistentObject.getLazyImplementation(executionTarget);
+        if (executionTarget instanceof RoomEndpoint) {
+            DeviceResource deviceResource = ((RoomEndpoint) executionTarget).getResource();
+            if (deviceResource == null) {
+                return false;
+            }
+            resourceIds.add(deviceResource.getId());
+        }
+        else if (executionTarget instanceof ResourceEndpoint) {
+            resourceIds.add(((ResourceEndpoint) executionTarget).getDeviceResource().getId());
+        }
+        else if (executionTarget instanceof RecordingService) {
+            resourceIds.add(((RecordingService) executionTarget).getRecordingCapability().getResource().getId());
+        }
+        else if (executionTarget instanceof StreamingService) {
+            resourceIds.add(((StreamingService) executionTarget).getStreamingCapability().getResource().getId());
+        }
+        for (ExecutionTarget childExecutionTarget : executionTarget.getExecutionDependencies()) {
+            if (!addResourceIds(childExecutionTarget, resourceIds)) {
+                return false;
+            }
         }
-        //logger.info("Executor lock released...");
+        return true;
     }
 
     /**
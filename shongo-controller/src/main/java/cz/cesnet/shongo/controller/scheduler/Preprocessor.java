@@ -21,8 +21,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a {@link cz.cesnet.shongo.controller.Component} that is responsible for enumerating {@link cz.cesnet.shongo.controller.booking.request.ReservationRequestSet}s
@@ -81,7 +83,19 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
      *
      * @param interval
      */
-    public synchronized Result run(Interval interval, EntityManager entityManager)
+    public Result run(Interval interval, EntityManager entityManager)
+    {
+        return run(interval, entityManager, null);
+    }
+
+    /**
+     * Run preprocessor for a given interval and only for given modified reservation request sets.
+     *
+     * @param interval
+     * @param reservationRequestIds identifiers of modified reservation request sets which should be processed
+     *                              ({@code null} means all reservation request sets)
+     */
+    public synchronized Result run(Interval interval, EntityManager entityManager, Set<Long> reservationRequestIds)
     {
         Result result = new Result();
         if (!isEnabled()) {
@@ -107,10 +121,17 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         try {
 
             // Process all not-preprocessed reservation request sets
-            List<ReservationRequestSet> reservationRequestSets =
-                    reservationRequestManager.listNotPreprocessedReservationRequestSets(interval);
+            List<ReservationRequestSet> reservationRequestSets;
+            if (reservationRequestIds != null) {
+                reservationRequestSets = reservationRequestManager.listNotPreprocessedReservationRequestSets(
+                        interval, reservationRequestIds);
+            }
+            else {
+                reservationRequestSets = reservationRequestManager.listNotPreprocessedReservationRequestSets(interval);
+            }
             for (ReservationRequestSet reservationRequestSet : reservationRequestSets) {
                 processReservationRequestSet(reservationRequestSet, interval, entityManager, result);
+                result.reservationRequestSetIds.add(reservationRequestSet.getId());
             }
 
             if (!result.isEmpty()) {
@@ -273,6 +294,7 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         private int createdReservationRequests = 0;
         private int modifiedReservationRequests = 0;
         private int deletedReservationRequests = 0;
+        private Set<Long> reservationRequestSetIds = new HashSet<Long>();
 
         public boolean isEmpty()
         {
@@ -295,5 +317,13 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         {
             return deletedReservationRequests;
         }
+
+        /**
+         * @return identifiers of pre-processed {@link ReservationRequestSet}s
+         */
+        public Set<Long> getReservationRequestSetIds()
+        {
+            return reservationRequestSetIds;
+        }
     }
 }
@@ -10,7 +10,6 @@ import cz.cesnet.shongo.controller.booking.recording.RecordingCapability;
 import cz.cesnet.shongo.controller.booking.recording.RecordingServiceReservation;
 import cz.cesnet.shongo.controller.booking.reservation.ExistingReservation;
 import cz.cesnet.shongo.controller.booking.reservation.Reservation;
-import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.booking.resource.EndpointReservation;
 import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
 import cz.cesnet.shongo.controller.booking.room.RoomReservation;
@@ -128,9 +127,8 @@ public class ResourceReservationTask extends ReservationTask
             // Get room reservations
             RoomProviderCapability roomProviderCapability = deviceResource.getCapability(RoomProviderCapability.class);
             if (roomProviderCapability != null) {
-                ReservationManager reservationManager = new ReservationManager(schedulerContext.getEntityManager());
-                List<RoomReservation> roomReservations =
-                        reservationManager.getRoomReservations(roomProviderCapability, slot);
+                List<RoomReservation> roomReservations = getCache().getResourceCache().getRoomReservations(
+                        roomProviderCapability, slot, schedulerContext.getEntityManager());
                 schedulerContextState.applyReservations(roomProviderCapability.getId(), slot,
                         roomReservations, RoomReservation.class);
                 collidingReservations.addAll(roomReservations);
@@ -138,9 +136,9 @@ public class ResourceReservationTask extends ReservationTask
             // Get recording service reservations
             RecordingCapability recordingCapability = deviceResource.getCapability(RecordingCapability.class);
             if (recordingCapability != null) {
-                ReservationManager reservationManager = new ReservationManager(schedulerContext.getEntityManager());
                 List<RecordingServiceReservation> recordingServiceReservations =
-                        reservationManager.getRecordingServiceReservations(recordingCapability, slot);
+                        getCache().getResourceCache().getRecordingServiceReservations(
+                                recordingCapability, slot, schedulerContext.getEntityManager());
                 schedulerContextState.applyReservations(recordingCapability.getId(), slot,
                         recordingServiceReservations, RecordingServiceReservation.class);
                 collidingReservations.addAll(recordingServiceReservations);
@@ -1,5 +1,7 @@
 package cz.cesnet.shongo.controller.scheduler;
 
+import cz.cesnet.shongo.AliasType;
+import cz.cesnet.shongo.Technology;
 import cz.cesnet.shongo.Temporal;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.api.UserInformation;
@@ -8,6 +10,9 @@ import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.authorization.AuthorizationManager;
 import cz.cesnet.shongo.controller.booking.Allocation;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
+import cz.cesnet.shongo.controller.booking.alias.AliasProviderCapability;
+import cz.cesnet.shongo.controller.booking.alias.AliasSetSpecification;
+import cz.cesnet.shongo.controller.booking.alias.AliasSpecification;
 import cz.cesnet.shongo.controller.booking.domain.Domain;
 import cz.cesnet.shongo.controller.booking.executable.Executable;
 import cz.cesnet.shongo.controller.booking.executable.ExecutableManager;
@@ -15,9 +20,14 @@ import cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest;
 import cz.cesnet.shongo.controller.booking.request.ReservationRequest;
 import cz.cesnet.shongo.controller.booking.request.ReservationRequestManager;
 import cz.cesnet.shongo.controller.booking.reservation.*;
+import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
+import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceManager;
 import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
+import cz.cesnet.shongo.controller.booking.resource.ResourceSpecification;
 import cz.cesnet.shongo.controller.booking.room.RoomEndpoint;
+import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
+import cz.cesnet.shongo.controller.booking.room.RoomSpecification;
 import cz.cesnet.shongo.controller.booking.room.UsedRoomEndpoint;
 import cz.cesnet.shongo.controller.booking.specification.Specification;
 import cz.cesnet.shongo.controller.cache.Cache;
@@ -27,12 +37,16 @@ import cz.cesnet.shongo.controller.domains.InterDomainAgent;
 import cz.cesnet.shongo.controller.notification.*;
 import cz.cesnet.shongo.util.DateTimeFormatter;
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a component of a domain controller that is responsible for allocating {@link ReservationRequest}
@@ -40,7 +54,8 @@ import java.util.*;
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
-public class Scheduler extends SwitchableComponent implements Component.AuthorizationAware
+public class Scheduler extends SwitchableComponent
+        implements Component.AuthorizationAware, Component.EntityManagerFactoryAware
 {
     private static Logger logger = LoggerFactory.getLogger(Scheduler.class);
 
@@ -64,7 +79,23 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
      */
     private Authorization authorization;
 
-    private Set<String> modifiedResources = new HashSet<>();
+    /**
+     * {@link EntityManagerFactory} for creating {@link EntityManager}s for partitions allocated in parallel.
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Thread pool for allocating {@link ReservationRequest}s in partitions ({@code null} when reservation requests
+     * are allocated only serially).
+     *
+     * @see ControllerConfiguration#SCHEDULER_PARALLEL_THREADS
+     */
+    private ExecutorService partitionExecutorService;
+
+    /**
+     * Maximum duration of waiting for resources which are locked by other thread (see {@link ThreadLock}).
+     */
+    private Duration resourceLockTimeout = Duration.standardSeconds(10);
 
     /**
      * Constructor.
@@ -85,11 +116,54 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         this.authorization = authorization;
     }
 
+    @Override
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
     @Override
     public void init(ControllerConfiguration configuration)
     {
         this.checkDependency(cache, Cache.class);
         super.init(configuration);
+
+        Duration resourceLockTimeout = configuration.getDuration(ControllerConfiguration.SCHEDULER_RESOURCE_LOCK_TIMEOUT);
+        if (resourceLockTimeout != null) {
+            this.resourceLockTimeout = resourceLockTimeout;
+        }
+
+        int threadCount = configuration.getInt(ControllerConfiguration.SCHEDULER_PARALLEL_THREADS, 1);
+        if (threadCount > 1) {
+            if (entityManagerFactory == null) {
+                logger.warn("Parallel allocation is disabled because entity manager factory is not set.");
+            }
+            else {
+                logger.info("Reservation requests for disjoint resources will be allocated by {} threads.", threadCount);
+                partitionExecutorService = Executors.newFixedThreadPool(threadCount, new ThreadFactory()
+                {
+                    private final AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "scheduler-partition-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (partitionExecutorService != null) {
+            partitionExecutorService.shutdownNow();
+            partitionExecutorService = null;
+        }
+        super.destroy();
     }
 
     /**
@@ -109,6 +183,22 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
      * @param bypassEntityManager to be used when persisting entity while error
      */
     public Result run(Interval interval, EntityManager entityManager, EntityManager bypassEntityManager)
+    {
+        return run(interval, entityManager, bypassEntityManager, null);
+    }
+
+    /**
+     * Allocate reservation requests which intersects given {@code interval} and which are (or whose parent
+     * reservation request sets are) from given {@code modifiedReservationRequestIds}.
+     *
+     * @param interval                      only reservation requests which intersects this interval should be allocated
+     * @param entityManager                 to be used
+     * @param bypassEntityManager           to be used when persisting entity while error
+     * @param modifiedReservationRequestIds identifiers of modified reservation requests which should be allocated
+     *                                      ({@code null} means all reservation requests)
+     */
+    public Result run(Interval interval, EntityManager entityManager, EntityManager bypassEntityManager,
+            Set<Long> modifiedReservationRequestIds)
     {
         Result result = new Result();
         if (!isEnabled()) {
@@ -128,10 +218,13 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         ReservationManager reservationManager = new ReservationManager(entityManager);
         ExecutableManager executableManager = new ExecutableManager(entityManager);
         AuthorizationManager authorizationManager = new AuthorizationManager(entityManager, authorization);
+        ThreadLock.ResourceLocks resourceLocks = null;
         try {
             authorizationManager.beginTransaction();
             entityManager.getTransaction().begin();
 
+            Set<Long> deletedResourceIds = new HashSet<>();
+            List<ResourceReservation> deletedResourceReservations = new LinkedList<>();
             List<AbstractNotification> reservationNotifications = new ArrayList<>();
             List<Allocation> allocationForDeletion = reservationManager.getAllocationsReservationsForDeletion();
 
@@ -150,6 +243,8 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                 List<Reservation> reservations = new LinkedList<>(allocation.getReservations());
                 for (Reservation reservation : reservations) {
                     DeallocateReservationTask deallocateTask = DeallocateReservationTaskProvider.create(reservation);
+                    addResourceIds(reservation, deletedResourceIds);
+                    addResourceReservations(reservation, deletedResourceReservations);
                     try {
                         List<AbstractNotification> notifications = deallocateTask.perform(interval, result, entityManager, reservationManager, authorizationManager);
                         reservationNotifications.addAll(notifications);
@@ -171,7 +266,6 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                                 calendarManager.addCalendar(new ReservationCalendar.Deleted(reservation), entityManager);
                             }
                         }
-                        recordModifiedReservationId(reservation);
                     } catch (ForeignDomainConnectException e) {
                         // When deallocate of foreign reservation fails, try again next time
                         //TODO: delay for some time
@@ -192,8 +286,9 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
 
             for (Reservation reservation : reservationManager.getOrphanReservationsForDeletion()) {
                 DeallocateReservationTask deallocateTask = DeallocateReservationTaskProvider.create(reservation);
+                addResourceIds(reservation, deletedResourceIds);
+                addResourceReservations(reservation, deletedResourceReservations);
                 deallocateTask.perform(interval, result, entityManager, reservationManager, authorizationManager);
-                recordModifiedReservationId(reservation);
                 if (calendarManager != null) {
                     if (reservation instanceof ResourceReservation) {
                         calendarManager.addCalendar(new ReservationCalendar.Deleted(reservation), entityManager);
@@ -215,24 +310,82 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                 }
             }
 
-            entityManager.getTransaction().commit();
-            authorizationManager.commitTransaction(null);
-            removeModifiedReservationsFromCache();
-
-            // Add reservation notifications
-            if (notificationManager != null) {
-                notificationManager.addNotifications(reservationNotifications, entityManager);
+            // Lock deallocated resources (see ThreadLock documentation)
+            if (!deletedResourceIds.isEmpty()) {
+                resourceLocks = ThreadLock.tryLockResources(deletedResourceIds, resourceLockTimeout.getMillis());
+            }
+            if (deletedResourceIds.isEmpty() || resourceLocks != null) {
+                entityManager.getTransaction().commit();
+                authorizationManager.commitTransaction(null);
+                updateCalendarFeeds(deletedResourceReservations, entityManager);
+
+                // Add reservation notifications
+                if (notificationManager != null) {
+                    notificationManager.addNotifications(reservationNotifications, entityManager);
+                }
+            }
+            else {
+                // Resources are used by executor and thus the deletion is postponed to the next run
+                logger.info("Deletion of reservations postponed (resources {} are locked).", deletedResourceIds);
+                authorizationManager.rollbackTransaction();
+                entityManager.getTransaction().rollback();
+                entityManager.clear();
+                cache.getSchedulerQueue().requestFullSweep();
+            }
+            if (resourceLocks != null) {
+                resourceLocks.unlock();
+                resourceLocks = null;
             }
 
 
             // Get all reservation requests which should be allocated
             ReservationRequestQueue reservationRequestQueue = new ReservationRequestQueue();
-            reservationRequestQueue.add(reservationRequestManager.listCompletedReservationRequests(interval));
+            if (modifiedReservationRequestIds != null) {
+                reservationRequestQueue.add(reservationRequestManager.listCompletedReservationRequests(
+                        interval, modifiedReservationRequestIds));
+            }
+            else {
+                reservationRequestQueue.add(reservationRequestManager.listCompletedReservationRequests(interval));
+            }
 
             // Allocate all reservation requests
+            Set<Long> serialReservationRequestIds = new HashSet<>();
             while (!reservationRequestQueue.isEmpty()) {
+                // Allocate leading reservation requests for disjoint resources in parallel
+                if (partitionExecutorService != null) {
+                    // Transaction must not be active while partitions are allocated (database locks)
+                    entityManager.getTransaction().begin();
+                    List<List<Long>> partitions = pollPartitions(
+                            reservationRequestQueue, serialReservationRequestIds, reservationRequestManager);
+                    entityManager.getTransaction().commit();
+
+                    List<Long> deferredReservationRequestIds = new LinkedList<>();
+                    if (partitions.size() > 1) {
+                        deferredReservationRequestIds.addAll(allocatePartitions(partitions, start, result));
+                        // Entities in the persistence context could have been modified by the partitions
+                        entityManager.clear();
+                    }
+                    else {
+                        for (List<Long> reservationRequestIds : partitions) {
+                            deferredReservationRequestIds.addAll(reservationRequestIds);
+                        }
+                    }
+                    if (!deferredReservationRequestIds.isEmpty()) {
+                        entityManager.getTransaction().begin();
+                        for (Long reservationRequestId : deferredReservationRequestIds) {
+                            serialReservationRequestIds.add(reservationRequestId);
+                            reservationRequestQueue.add(Collections.singletonList(
+                                    reservationRequestManager.getReservationRequest(reservationRequestId)));
+                        }
+                        entityManager.getTransaction().commit();
+                    }
+                    if (partitions.size() > 1) {
+                        continue;
+                    }
+                }
                 ReservationRequest reservationRequest = reservationRequestQueue.pop();
                 SchedulerReport reallocationReport = null;
+                ThreadLock.ResourceLocks reservationRequestResourceLocks = null;
                 try {
                     authorizationManager.beginTransaction();
                     entityManager.getTransaction().begin();
@@ -261,16 +414,31 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                     contextState.enableNotifications(true);
 
                     // Force to reallocate reservation requests
+                    Set<Long> resourceIds = getResourceIds(contextState);
                     List<ReservationRequest> forceReallocation = contextState.getForceReallocation();
                     for (ReservationRequest reservationRequestToReallocate : forceReallocation) {
                         Allocation allocation = reservationRequestToReallocate.getAllocation();
                         Reservation reservation = allocation.getCurrentReservation();
                         while (reservation != null) {
+                            addResourceIds(reservation, resourceIds);
                             deleteReservation(reservation, context);
-                            recordModifiedReservationId(reservation);
                             reservation = allocation.getCurrentReservation();
                         }
                     }
+                    // Lock allocated resources (see ThreadLock documentation)
+                    reservationRequestResourceLocks =
+                            ThreadLock.tryLockResources(resourceIds, resourceLockTimeout.getMillis());
+                    if (reservationRequestResourceLocks == null) {
+                        // Resources are used by executor and thus the allocation is postponed to the next run
+                        logger.info("Allocation of reservation request '{}' postponed (resources {} are locked).",
+                                reservationRequest.getId(), resourceIds);
+                        authorizationManager.rollbackTransaction();
+                        entityManager.getTransaction().rollback();
+                        entityManager.clear();
+                        cache.getSchedulerQueue().add(reservationRequest);
+                        continue;
+                    }
+
                     reservationRequestQueue.add(forceReallocation);
 
                     // Finalize (delete old reservations, etc)
@@ -279,7 +447,7 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                     entityManager.getTransaction().commit();
                     authorizationManager.commitTransaction(null);
 
-                    removeModifiedReservationsFromCache();
+                    updateCalendarFeeds(contextState.getModifiedResourceReservations(), entityManager);
 
 
                     // Add context notifications
@@ -345,16 +513,28 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                         Reporter.getInstance().reportInternalError(Reporter.SCHEDULER, exception);
                     }
                 }
+                finally {
+                    if (reservationRequestResourceLocks != null) {
+                        reservationRequestResourceLocks.unlock();
+                    }
+                }
             }
 
-            authorizationManager.beginTransaction();
-            entityManager.getTransaction().begin();
+            // Delete all executables which should be deleted (their resources are not known in advance and thus
+            // all resources must be locked, but it is not worth waiting for them)
+            resourceLocks = ThreadLock.tryLockResources(null, 0);
+            if (resourceLocks != null) {
+                authorizationManager.beginTransaction();
+                entityManager.getTransaction().begin();
 
-            // Delete all executables which should be deleted
-            executableManager.deleteAllNotReferenced(authorizationManager);
+                executableManager.deleteAllNotReferenced(authorizationManager);
 
-            entityManager.getTransaction().commit();
-            authorizationManager.commitTransaction(null);
+                entityManager.getTransaction().commit();
+                authorizationManager.commitTransaction(null);
+            }
+            else {
+                logger.info("Deletion of not referenced executables postponed (resources are locked).");
+            }
         }
         catch (Exception exception) {
             if (authorizationManager.isTransactionActive()) {
@@ -365,6 +545,11 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
             }
             Reporter.getInstance().reportInternalError(Reporter.SCHEDULER, exception);
         }
+        finally {
+            if (resourceLocks != null) {
+                resourceLocks.unlock();
+            }
+        }
 
         if (!result.isEmpty()) {
             logger.info("Scheduling done in {} ms (failed: {}, allocated: {}, deleted: {}).", new Object[]{
@@ -374,8 +559,6 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
             logger.debug("End of scheduler in time: " + DateTime.now());
         }
 
-        modifiedResources.clear();
-
         return result;
     }
 
@@ -395,6 +578,9 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         ReservationManager reservationManager = new ReservationManager(entityManager);
         AuthorizationManager authorizationManager = context.getAuthorizationManager();
 
+        // Flush changes from previous allocations to make them visible to the reservation cache
+        entityManager.flush();
+
         // Initialize scheduler context
         SchedulerContextState contextState = context.getState();
         contextState.clearReferencedResources();
@@ -482,7 +668,7 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
 
         // Allocate reservation
         Reservation allocatedReservation = reservationTask.perform(allocation.getCurrentReservation());
-        recordModifiedReservationId(allocatedReservation);
+        addResourceReservations(allocatedReservation, contextState.getModifiedResourceReservations());
 
         // Check mandatory reusable reservation
         if (reusableReservation != null && reservationRequest.isReusedAllocationMandatory()) {
@@ -559,6 +745,7 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                 if (oldReservation.getSlotEnd().isAfter(slotStart)) {
                     // Shorten the old reservation time slot to not intersect the new reservation time slot
                     oldReservation.setSlotEnd(Temporal.max(slotStart, oldReservation.getSlotStart()));
+                    addResourceReservations(oldReservation, contextState.getModifiedResourceReservations());
                     // Finalize reservation
                     contextState.addNotifications(finalizeActiveReservation(oldReservation, entityManager));
                 }
@@ -601,24 +788,407 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
     }
 
     /**
-     * Stores resourceId on which the reservation was modified.
+     * Poll leading {@link ReservationRequest}s from given {@code reservationRequestQueue} which can be allocated
+     * in parallel and group them to partitions by {@link #getCandidateResourceIds}. Requests whose candidate
+     * resources overlap are put to the same partition (and thus they are allocated serially). Polling stops
+     * at a request which overlaps with multiple partitions or whose candidate resources cannot be determined.
      *
-     * @param reservation
+     * @param reservationRequestQueue    from which the {@link ReservationRequest}s should be polled
+     * @param serialReservationRequestIds identifiers of {@link ReservationRequest}s which must be allocated serially
+     * @param reservationRequestManager  to be used for reloading {@link ReservationRequest}s
+     * @return list of partitions with identifiers of {@link ReservationRequest}s (in allocation order)
+     */
+    private List<List<Long>> pollPartitions(ReservationRequestQueue reservationRequestQueue,
+            Set<Long> serialReservationRequestIds, ReservationRequestManager reservationRequestManager)
+    {
+        List<List<Long>> partitions = new ArrayList<>();
+        List<Set<Long>> partitionResourceIds = new ArrayList<>();
+        while (!reservationRequestQueue.isEmpty()) {
+            Long reservationRequestId = reservationRequestQueue.peek().getId();
+            if (serialReservationRequestIds.contains(reservationRequestId)) {
+                break;
+            }
+            // Reload the request (the persistence context may have been cleared)
+            ReservationRequest reservationRequest = reservationRequestManager.getReservationRequest(reservationRequestId);
+            Set<Long> resourceIds = getCandidateResourceIds(reservationRequest);
+            if (resourceIds == null) {
+                break;
+            }
+            // Find partition with overlapping candidate resources
+            int partitionIndex = -1;
+            for (int index = 0; index < partitions.size(); index++) {
+                if (!Collections.disjoint(partitionResourceIds.get(index), resourceIds)) {
+                    if (partitionIndex != -1) {
+                        // Overlaps multiple partitions
+                        return partitions;
+                    }
+                    partitionIndex = index;
+                }
+            }
+            reservationRequestQueue.pop();
+            if (partitionIndex == -1) {
+                partitions.add(new LinkedList<Long>());
+                partitionResourceIds.add(new HashSet<Long>());
+                partitionIndex = partitions.size() - 1;
+            }
+            partitions.get(partitionIndex).add(reservationRequestId);
+            partitionResourceIds.get(partitionIndex).addAll(resourceIds);
+        }
+        return partitions;
+    }
+
+    /**
+     * Allocate given {@code partitions} in parallel. Each partition is allocated in a separate {@link EntityManager}
+     * and {@link SchedulerContext}. When allocation of a {@link ReservationRequest} in a partition doesn't succeed
+     * (it fails or it affects other reservation requests), the {@link ReservationRequest} and all following
+     * {@link ReservationRequest}s from the same partition are deferred to serial allocation.
+     *
+     * @param partitions to be allocated
+     * @param start      minimum date/time for allocated reservations
+     * @param result     to which the allocated partitions should be added
+     * @return list of identifiers of deferred {@link ReservationRequest}s
+     */
+    private List<Long> allocatePartitions(List<List<Long>> partitions, final DateTime start, Result result)
+            throws InterruptedException
+    {
+        logger.debug("Allocating {} partitions in parallel...", partitions.size());
+        List<Future<List<Long>>> futures = new LinkedList<>();
+        final List<Result> partitionResults = new LinkedList<>();
+        for (final List<Long> partition : partitions) {
+            final Result partitionResult = new Result();
+            partitionResults.add(partitionResult);
+            futures.add(partitionExecutorService.submit(new Callable<List<Long>>()
+            {
+                @Override
+                public List<Long> call()
+                {
+                    return allocatePartition(partition, start, partitionResult);
+                }
+            }));
+        }
+        List<Long> deferredReservationRequestIds = new LinkedList<>();
+        for (Future<List<Long>> future : futures) {
+            try {
+                deferredReservationRequestIds.addAll(future.get());
+            }
+            catch (ExecutionException exception) {
+                throw new RuntimeException("Allocation of partition failed.", exception.getCause());
+            }
+        }
+        for (Result partitionResult : partitionResults) {
+            result.add(partitionResult);
+        }
+        return deferredReservationRequestIds;
+    }
+
+    /**
+     * Allocate given {@code partition}.
+     *
+     * @param partition identifiers of {@link ReservationRequest}s to be allocated (in allocation order)
+     * @param start     minimum date/time for allocated reservations
+     * @param result    to which the allocated {@link ReservationRequest}s should be added
+     * @return list of identifiers of deferred {@link ReservationRequest}s
+     */
+    private List<Long> allocatePartition(List<Long> partition, DateTime start, Result result)
+    {
+        List<Long> deferredReservationRequestIds = new LinkedList<>();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            AuthorizationManager authorizationManager = new AuthorizationManager(entityManager, authorization);
+            ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+            for (Long reservationRequestId : partition) {
+                if (!deferredReservationRequestIds.isEmpty()) {
+                    // Keep the allocation order of the partition
+                    deferredReservationRequestIds.add(reservationRequestId);
+                    continue;
+                }
+                Result reservationRequestResult = new Result();
+                ThreadLock.ResourceLocks resourceLocks = null;
+                try {
+                    authorizationManager.beginTransaction();
+                    entityManager.getTransaction().begin();
+
+                    // Allocate reservation request
+                    ReservationRequest reservationRequest =
+                            reservationRequestManager.getReservationRequest(reservationRequestId);
+                    SchedulerContext context = new SchedulerContext(start, cache, entityManager, authorizationManager, null);
+                    SchedulerContextState contextState = context.getState();
+                    allocateReservationRequest(reservationRequest, context);
+
+                    // Reallocation of other reservation requests can cross partitions
+                    if (contextState.getTryReallocationIterator().hasNext()
+                            || !contextState.getForceReallocation().isEmpty()) {
+                        throw new IllegalStateException("Reservation request affects other reservation requests.");
+                    }
+
+                    // Lock allocated resources (see ThreadLock documentation)
+                    resourceLocks = ThreadLock.tryLockResources(getResourceIds(contextState), 0);
+                    if (resourceLocks == null) {
+                        throw new IllegalStateException("Resources are locked.");
+                    }
+
+                    // Finalize (delete old reservations, etc)
+                    List<AbstractNotification> contextNotifications = context.finish(reservationRequestResult);
+
+                    entityManager.getTransaction().commit();
+                    authorizationManager.commitTransaction(null);
+
+                    updateCalendarFeeds(contextState.getModifiedResourceReservations(), entityManager);
+
+                    // Add context notifications
+                    if (notificationManager != null) {
+                        notificationManager.addNotifications(contextNotifications, entityManager);
+                    }
+
+                    reservationRequestResult.allocatedReservationRequests++;
+                    result.add(reservationRequestResult);
+                }
+                catch (Exception exception) {
+                    logger.debug("Reservation request '{}' deferred to serial allocation ({}).",
+                            reservationRequestId, exception.getClass().getSimpleName());
+                    if (authorizationManager.isTransactionActive()) {
+                        authorizationManager.rollbackTransaction();
+                    }
+                    if (entityManager.getTransaction().isActive()) {
+                        entityManager.getTransaction().rollback();
+                    }
+                    entityManager.clear();
+                    deferredReservationRequestIds.add(reservationRequestId);
+                }
+                finally {
+                    if (resourceLocks != null) {
+                        resourceLocks.unlock();
+                    }
+                }
+            }
+        }
+        finally {
+            entityManager.close();
+        }
+        return deferredReservationRequestIds;
+    }
+
+    /**
+     * @param reservationRequest
+     * @return identifiers of top-level resources which can be allocated for given {@code reservationRequest}
+     *         or {@code null} when they cannot be determined and thus the request must be allocated serially
      */
-    private void recordModifiedReservationId(Reservation reservation)
+    private Set<Long> getCandidateResourceIds(ReservationRequest reservationRequest)
     {
-        if (reservation instanceof ResourceReservation) {
-            String id = ObjectIdentifier.formatId(ObjectType.RESOURCE, ((ResourceReservation) reservation).getResource().getId().toString());
-            modifiedResources.add(id);
-        } else {
-            //Implementation for RoomResrvation
+        if (reservationRequest.getReusedAllocation() != null) {
+            return null;
+        }
+        Specification specification = reservationRequest.getSpecification();
+        Set<Resource> resources = new HashSet<>();
+        if (specification instanceof ResourceSpecification) {
+            Resource resource = ((ResourceSpecification) specification).getResource();
+            if (resource == null) {
+                return null;
+            }
+            resources.add(resource);
+        }
+        else if (specification instanceof RoomSpecification) {
+            if (!addRoomProviderResources((RoomSpecification) specification, resources)) {
+                return null;
+            }
+        }
+        else if (specification instanceof AliasSpecification) {
+            addAliasProviderResources((AliasSpecification) specification, null, resources);
+        }
+        else if (specification instanceof AliasSetSpecification) {
+            for (AliasSpecification aliasSpecification :
+                    ((AliasSetSpecification) specification).getAliasSpecifications()) {
+                addAliasProviderResources(aliasSpecification, null, resources);
+            }
+        }
+        if (resources.isEmpty()) {
+            return null;
         }
+        Set<Long> resourceIds = new HashSet<>();
+        for (Resource resource : resources) {
+            // Resources in the same hierarchy are allocated together (parent resources are allocated with child resources)
+            while (resource.getParentResource() != null) {
+                resource = resource.getParentResource();
+            }
+            resourceIds.add(resource.getId());
+        }
+        return resourceIds;
     }
 
-    private void removeModifiedReservationsFromCache ()
+    /**
+     * Add resources with {@link RoomProviderCapability} in which a room for given {@code roomSpecification} can be
+     * allocated and resources with {@link AliasProviderCapability} from which the aliases for the room can be
+     * allocated (see {@link cz.cesnet.shongo.controller.booking.room.RoomReservationTask}).
+     *
+     * @param roomSpecification
+     * @param resources         to which the resources should be added
+     * @return true whether the resources were determined, false otherwise
+     */
+    private boolean addRoomProviderResources(RoomSpecification roomSpecification, Set<Resource> resources)
     {
-        for (String resourceId : modifiedResources) {
-            cache.removeICalReservation(resourceId);
+        // Participants and services allocate other resources and reused room belongs to other allocation
+        if (roomSpecification.isReusedRoom() || !roomSpecification.getParticipants().isEmpty()
+                || !roomSpecification.getServiceSpecifications().isEmpty()) {
+            return false;
+        }
+        DeviceResource requestedDeviceResource = roomSpecification.getDeviceResource();
+        Set<Technology> technologies = roomSpecification.getTechnologies();
+        if (technologies.isEmpty()) {
+            technologies = roomSpecification.getAliasTechnologies();
+        }
+        Set<Long> deviceResourceIds = new HashSet<>();
+        Set<AliasType> requiredAliasTypes = new HashSet<>();
+        for (RoomProviderCapability roomProviderCapability :
+                cache.getResourceCache().getCapabilities(RoomProviderCapability.class)) {
+            DeviceResource deviceResource = roomProviderCapability.getDeviceResource();
+            if (requestedDeviceResource != null && !requestedDeviceResource.getId().equals(deviceResource.getId())) {
+                continue;
+            }
+            if (!deviceResource.hasTechnologies(technologies)) {
+                continue;
+            }
+            deviceResourceIds.add(deviceResource.getId());
+            requiredAliasTypes.addAll(roomProviderCapability.getRequiredAliasTypes());
+            resources.add(deviceResource);
+        }
+        if (deviceResourceIds.isEmpty()) {
+            // Room can be allocated in a foreign domain
+            return false;
+        }
+        for (AliasSpecification aliasSpecification : roomSpecification.getAliasSpecifications()) {
+            addAliasProviderResources(aliasSpecification, deviceResourceIds, resources);
+        }
+        for (AliasType aliasType : requiredAliasTypes) {
+            addAliasProviderResources(Collections.singleton(aliasType), Collections.<Technology>emptySet(),
+                    deviceResourceIds, resources);
+        }
+        return true;
+    }
+
+    /**
+     * Add resources with {@link AliasProviderCapability} from which an alias for given {@code aliasSpecification}
+     * can be allocated (see {@link cz.cesnet.shongo.controller.booking.alias.AliasReservationTask}).
+     *
+     * @param aliasSpecification
+     * @param targetResourceIds  identifiers of resources for which the alias is allocated
+     *                           or {@code null} when it is allocated for any resource
+     * @param resources          to which the resources should be added
+     */
+    private void addAliasProviderResources(AliasSpecification aliasSpecification, Set<Long> targetResourceIds,
+            Set<Resource> resources)
+    {
+        AliasProviderCapability requestedAliasProviderCapability = aliasSpecification.getAliasProviderCapability();
+        if (requestedAliasProviderCapability != null) {
+            resources.add(requestedAliasProviderCapability.getResource());
+            return;
+        }
+        addAliasProviderResources(aliasSpecification.getAliasTypes(), aliasSpecification.getAliasTechnologies(),
+                targetResourceIds, resources);
+    }
+
+    /**
+     * Add resources with {@link AliasProviderCapability} which provide given {@code aliasTypes} and
+     * {@code technologies}.
+     *
+     * @param aliasTypes        requested {@link AliasType}s (empty for any)
+     * @param technologies      requested {@link Technology}s (empty for any)
+     * @param targetResourceIds identifiers of resources for which the alias is allocated
+     *                          or {@code null} when it is allocated for any resource
+     * @param resources         to which the resources should be added
+     */
+    private void addAliasProviderResources(Set<AliasType> aliasTypes, Set<Technology> technologies,
+            Set<Long> targetResourceIds, Set<Resource> resources)
+    {
+        for (AliasProviderCapability aliasProviderCapability :
+                cache.getResourceCache().getCapabilities(AliasProviderCapability.class)) {
+            Resource resource = aliasProviderCapability.getResource();
+            if (targetResourceIds != null && aliasProviderCapability.isRestrictedToResource()
+                    && !targetResourceIds.contains(resource.getId())) {
+                continue;
+            }
+            if (technologies.size() > 0 && !aliasProviderCapability.providesAliasTechnology(technologies)) {
+                continue;
+            }
+            if (aliasTypes.size() > 0 && !aliasProviderCapability.providesAliasType(aliasTypes)) {
+                continue;
+            }
+            resources.add(resource);
+        }
+    }
+
+    /**
+     * @param contextState
+     * @return identifiers of resources which are referenced, allocated or deallocated in given {@code contextState}
+     */
+    private static Set<Long> getResourceIds(SchedulerContextState contextState)
+    {
+        Set<Long> resourceIds = new HashSet<>();
+        for (Resource resource : contextState.getReferencedResources()) {
+            resourceIds.add(resource.getId());
+        }
+        for (Reservation reservation : contextState.getAllocatedReservations()) {
+            addResourceIds(reservation, resourceIds);
+        }
+        for (Reservation reservation : contextState.getReservationsToDelete()) {
+            addResourceIds(reservation, resourceIds);
+        }
+        return resourceIds;
+    }
+
+    /**
+     * @param reservation whose allocated resources (including child reservations) should be added
+     * @param resourceIds to which the resources should be added
+     */
+    private static void addResourceIds(Reservation reservation, Set<Long> resourceIds)
+    {
+        Resource resource = reservation.getAllocatedResource();
+        if (resource != null && resource.getId() != null) {
+            resourceIds.add(resource.getId());
+        }
+        for (Reservation childReservation : reservation.getChildReservations()) {
+            addResourceIds(childReservation, resourceIds);
+        }
+    }
+
+    /**
+     * @param reservation          whose {@link ResourceReservation}s (including child reservations) should be added
+     * @param resourceReservations to which the {@link ResourceReservation}s should be added
+     */
+    private static void addResourceReservations(Reservation reservation,
+            Collection<ResourceReservation> resourceReservations)
+    {
+        for (Reservation reservationItem : reservation.getSetOfAllReservations()) {
+            if (reservationItem instanceof ResourceReservation) {
+                resourceReservations.add((ResourceReservation) reservationItem);
+            }
+        }
+    }
+
+    /**
+     * Update calendar feeds in the {@link Cache} for given committed {@code resourceReservations}.
+     *
+     * @param resourceReservations which have been allocated, modified or deleted
+     * @param entityManager        which can be used
+     */
+    private void updateCalendarFeeds(Collection<ResourceReservation> resourceReservations,
+            EntityManager entityManager)
+    {
+        Map<Long, Set<Long>> reservationIdsByResourceId = new HashMap<>();
+        for (ResourceReservation resourceReservation : resourceReservations) {
+            Long reservationId = resourceReservation.getId();
+            if (reservationId == null) {
+                continue;
+            }
+            Long resourceId = resourceReservation.getResource().getId();
+            Set<Long> reservationIds = reservationIdsByResourceId.get(resourceId);
+            if (reservationIds == null) {
+                reservationIds = new HashSet<>();
+                reservationIdsByResourceId.put(resourceId, reservationIds);
+            }
+            reservationIds.add(reservationId);
+        }
+        if (!reservationIdsByResourceId.isEmpty()) {
+            cache.getCalendarFeedCache().updateFeeds(reservationIdsByResourceId, entityManager);
         }
     }
 
@@ -651,6 +1221,7 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         }
         // Delete the old reservation
         schedulerContextState.addReservationToDelete(reservation);
+        addResourceReservations(reservation, schedulerContextState.getModifiedResourceReservations());
 
 
     }
@@ -751,6 +1322,16 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
          */
         int deletedReservations = 0;
 
+        /**
+         * @param result to be added to this {@link Result}
+         */
+        private void add(Result result)
+        {
+            failedReservationRequests += result.failedReservationRequests;
+            allocatedReservationRequests += result.allocatedReservationRequests;
+            deletedReservations += result.deletedReservations;
+        }
+
         /**
          * @return true whether no reservation request has failed or has been allocated and not reservation has been deleted,
          *         false otherwise
@@ -844,6 +1425,14 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
             return reservationRequests.isEmpty();
         }
 
+        /**
+         * @return next {@link ReservationRequest} from {@link #reservationRequests} without removing it
+         */
+        public ReservationRequest peek()
+        {
+            return reservationRequests.get(0);
+        }
+
         /**
          * @return next {@link ReservationRequest} from {@link #reservationRequests}
          */
@@ -9,7 +9,6 @@ import cz.cesnet.shongo.controller.authorization.UserIdSet;
 import cz.cesnet.shongo.controller.booking.Allocation;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
 import cz.cesnet.shongo.controller.booking.executable.Executable;
-import cz.cesnet.shongo.controller.booking.recording.RecordingBucket;
 import cz.cesnet.shongo.controller.booking.recording.RecordingCapability;
 import cz.cesnet.shongo.controller.booking.recording.RecordingServiceReservation;
 import cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest;
@@ -17,15 +16,15 @@ import cz.cesnet.shongo.controller.booking.request.ReservationRequest;
 import cz.cesnet.shongo.controller.booking.reservation.ExistingReservation;
 import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
+import cz.cesnet.shongo.controller.booking.reservation.TargetedReservation;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.room.AvailableRoom;
-import cz.cesnet.shongo.controller.booking.room.RoomBucket;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
 import cz.cesnet.shongo.controller.booking.room.RoomReservation;
 import cz.cesnet.shongo.controller.cache.Cache;
 import cz.cesnet.shongo.controller.cache.ResourceCache;
 import cz.cesnet.shongo.controller.notification.AbstractNotification;
-import cz.cesnet.shongo.util.RangeSet;
+import cz.cesnet.shongo.util.CapacityProfile;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
@@ -343,11 +342,7 @@ public class SchedulerContext
         int usedLicenseCount = 0;
         ResourceCache resourceCache = cache.getResourceCache();
         if (resourceCache.isResourceAvailable(roomProviderCapability.getResource(), slot, this, reservationTask)) {
-            ReservationManager reservationManager = new ReservationManager(entityManager);
-            List<RoomReservation> roomReservations =
-                    reservationManager.getRoomReservations(roomProviderCapability, slot);
-
-            usedLicenseCount = getLicenseCountPeak(slot, roomReservations, roomProviderCapability);
+            usedLicenseCount = getLicenseCountPeak(slot, roomProviderCapability);
         }
         else {
             usedLicenseCount = roomProviderCapability.getLicenseCount();
@@ -364,36 +359,14 @@ public class SchedulerContext
     public int getLicenseCountPeak(Interval slot, List<RoomReservation> roomReservations, RoomProviderCapability roomProviderCapability)
     {
         state.applyReservations(roomProviderCapability.getId(), slot, roomReservations, RoomReservation.class);
-        RangeSet<RoomReservation, DateTime> rangeSet = new RangeSet<RoomReservation, DateTime>()
-        {
-            @Override
-            protected Bucket<DateTime, RoomReservation> createBucket(DateTime rangeValue)
-            {
-                return new RoomBucket(rangeValue);
-            }
-        };
-        for (RoomReservation roomReservation : roomReservations) {
-            rangeSet.add(roomReservation, roomReservation.getSlotStart(), roomReservation.getSlotEnd());
-        }
-
-        List<RoomBucket> roomBuckets = new LinkedList<>();
-        roomBuckets.addAll(rangeSet.getBuckets(slot.getStart(), slot.getEnd(), RoomBucket.class));
-        Collections.sort(roomBuckets, new Comparator<RoomBucket>()
-        {
-            @Override
-            public int compare(RoomBucket roomBucket1, RoomBucket roomBucket2)
-            {
-                return -Double.compare(roomBucket1.getLicenseCount(), roomBucket2.getLicenseCount());
-            }
-        });
-        if (roomBuckets.size() > 0) {
-            RoomBucket roomBucket = roomBuckets.get(0);
-            return roomBucket.getLicenseCount();
+        CapacityProfile capacityProfile = new CapacityProfile();
+        for (RoomReservation roomReservation : new HashSet<RoomReservation>(roomReservations)) {
+            capacityProfile.add(roomReservation.getSlotStart(), roomReservation.getSlotEnd(),
+                    roomReservation.getLicenseCount());
         }
-        return 0;
+        return capacityProfile.getPeak(slot);
     }
 
-
     /**
      * @param slot
      * @param recordingReservations
@@ -403,33 +376,76 @@ public class SchedulerContext
     public int getLicenseCountPeak(Interval slot, List<RecordingServiceReservation> recordingReservations, RecordingCapability recordingCapability)
     {
         state.applyReservations(recordingCapability.getId(), slot, recordingReservations, RecordingServiceReservation.class);
-        RangeSet<RecordingServiceReservation, DateTime> rangeSet = new RangeSet<RecordingServiceReservation, DateTime>()
-        {
-            @Override
-            protected Bucket<DateTime, RecordingServiceReservation> createBucket(DateTime rangeValue)
-            {
-                return new RecordingBucket(rangeValue);
-            }
-        };
-        for (RecordingServiceReservation recordingReservation : recordingReservations) {
-            rangeSet.add(recordingReservation, recordingReservation.getSlotStart(), recordingReservation.getSlotEnd());
+        CapacityProfile capacityProfile = new CapacityProfile();
+        for (RecordingServiceReservation recordingReservation : new HashSet<RecordingServiceReservation>(recordingReservations)) {
+            capacityProfile.add(recordingReservation.getSlotStart(), recordingReservation.getSlotEnd(), 1);
         }
+        return capacityProfile.getPeak(slot);
+    }
 
-        List<RecordingBucket> recordingBuckets = new LinkedList<>();
-        recordingBuckets.addAll(rangeSet.getBuckets(slot.getStart(), slot.getEnd(), RecordingBucket.class));
-        Collections.sort(recordingBuckets, new Comparator<RecordingBucket>()
-        {
-            @Override
-            public int compare(RecordingBucket recordingBucket1, RecordingBucket recordingBucket2)
-            {
-                return -Double.compare(recordingBucket1.getLicenseCount(), recordingBucket2.getLicenseCount());
+    /**
+     * @param slot
+     * @param roomProviderCapability
+     * @return peak of licenses count used by {@link RoomReservation}s for {@code roomProviderCapability}
+     *         (the {@link CapacityProfile} is taken from the {@link ResourceCache})
+     */
+    public int getLicenseCountPeak(Interval slot, RoomProviderCapability roomProviderCapability)
+    {
+        Long capabilityId = roomProviderCapability.getId();
+        List<RoomReservation> allocatedReservations =
+                state.getAllocatedReservations(capabilityId, slot, RoomReservation.class);
+        CapacityProfile capacityProfile = cache.getResourceCache().getRoomCapacityProfile(roomProviderCapability,
+                slot, getExcludedReservationIds(capabilityId, slot, allocatedReservations, RoomReservation.class),
+                entityManager);
+        for (RoomReservation roomReservation : allocatedReservations) {
+            capacityProfile.add(roomReservation.getSlotStart(), roomReservation.getSlotEnd(),
+                    roomReservation.getLicenseCount());
+        }
+        return capacityProfile.getPeak(slot);
+    }
+
+    /**
+     * @param slot
+     * @param recordingCapability
+     * @return peak of licenses count used by {@link RecordingServiceReservation}s for {@code recordingCapability}
+     *         (the {@link CapacityProfile} is taken from the {@link ResourceCache})
+     */
+    public int getLicenseCountPeak(Interval slot, RecordingCapability recordingCapability)
+    {
+        Long capabilityId = recordingCapability.getId();
+        List<RecordingServiceReservation> allocatedReservations =
+                state.getAllocatedReservations(capabilityId, slot, RecordingServiceReservation.class);
+        CapacityProfile capacityProfile = cache.getResourceCache().getRecordingCapacityProfile(recordingCapability,
+                slot, getExcludedReservationIds(capabilityId, slot, allocatedReservations,
+                        RecordingServiceReservation.class), entityManager);
+        for (RecordingServiceReservation recordingReservation : allocatedReservations) {
+            capacityProfile.add(recordingReservation.getSlotStart(), recordingReservation.getSlotEnd(), 1);
+        }
+        return capacityProfile.getPeak(slot);
+    }
+
+    /**
+     * @param capabilityId          identifier of capability
+     * @param slot
+     * @param allocatedReservations which are allocated in the {@link #state}
+     * @param reservationType       type of reservations
+     * @return identifiers of reservations which are available in the {@link #state} (they can be reallocated)
+     *         or which are contained in {@code allocatedReservations}
+     */
+    private <T extends TargetedReservation> Set<Long> getExcludedReservationIds(Long capabilityId, Interval slot,
+            List<T> allocatedReservations, Class<T> reservationType)
+    {
+        Set<Long> reservationIds = new HashSet<Long>();
+        for (AvailableReservation<T> availableReservation :
+                state.getAvailableReservations(capabilityId, slot, reservationType)) {
+            reservationIds.add(availableReservation.getTargetReservation().getId());
+        }
+        for (T allocatedReservation : allocatedReservations) {
+            if (allocatedReservation.getId() != null) {
+                reservationIds.add(allocatedReservation.getId());
             }
-        });
-        if (recordingBuckets.size() > 0) {
-            RecordingBucket recordingBucket = recordingBuckets.get(0);
-            return recordingBucket.getLicenseCount();
         }
-        return 0;
+        return reservationIds;
     }
 
     /**
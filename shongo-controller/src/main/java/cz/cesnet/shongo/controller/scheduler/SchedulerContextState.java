@@ -89,6 +89,12 @@ public class SchedulerContextState
      */
     private List<Reservation> reservationsToDelete = new LinkedList<Reservation>();
 
+    /**
+     * List of {@link ResourceReservation}s which have been allocated, modified or deleted
+     * (calendar feeds of their resources should be updated).
+     */
+    private List<ResourceReservation> modifiedResourceReservations = new LinkedList<ResourceReservation>();
+
     /**
      * @return {@link #currentSavepoint}
      */
@@ -549,6 +555,25 @@ public class SchedulerContextState
         }
     }
 
+    /**
+     * @param resourceId
+     * @param slot
+     * @param reservationType
+     * @return reservations of given {@code reservationType} which are allocated in {@link #reservationTransactionByType}
+     *         for given {@code resourceId} and which intersect given {@code slot}
+     */
+    public <T extends TargetedReservation> List<T> getAllocatedReservations(Long resourceId, Interval slot,
+            Class<T> reservationType)
+    {
+        @SuppressWarnings("unchecked")
+        ReservationTransaction<T> reservationTransaction = (ReservationTransaction<T>)
+                reservationTransactionByType.get(getReservationTransactionType(reservationType));
+        if (reservationTransaction == null) {
+            return Collections.emptyList();
+        }
+        return reservationTransaction.getAllocatedOverlapsReservations(resourceId, slot, reservationType);
+    }
+
     /**
      * Apply {@link #reservationTransactionByType} to given map of {@link ValueReservation}s.
      *
@@ -586,6 +611,14 @@ public class SchedulerContextState
         reservationsToDelete.add(reservation);
     }
 
+    /**
+     * @return {@link #modifiedResourceReservations}
+     */
+    public List<ResourceReservation> getModifiedResourceReservations()
+    {
+        return modifiedResourceReservations;
+    }
+
     /**
      * @return iterator of {@link #forceReservationRequestReallocation}
      */
@@ -0,0 +1,68 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Queue of modified {@link AbstractReservationRequest}s which should be processed by the next run
+ * of {@link Preprocessor} and {@link Scheduler}.
+ * <p/>
+ * Modifications should be added after they are committed. When the queue cannot tell which
+ * {@link AbstractReservationRequest}s are affected by a modification (e.g., when a resource is modified),
+ * a full sweep of all {@link AbstractReservationRequest}s should be requested.
+ */
+public class SchedulerQueue
+{
+    /**
+     * Identifiers of modified {@link AbstractReservationRequest}s.
+     */
+    private Set<Long> reservationRequestIds = new HashSet<Long>();
+
+    /**
+     * Specifies whether all {@link AbstractReservationRequest}s should be processed (the first run is always full).
+     */
+    private boolean fullSweepRequested = true;
+
+    /**
+     * @param reservationRequest which has been modified
+     */
+    public synchronized void add(AbstractReservationRequest reservationRequest)
+    {
+        reservationRequestIds.add(reservationRequest.getId());
+    }
+
+    /**
+     * Request processing of all {@link AbstractReservationRequest}s.
+     */
+    public synchronized void requestFullSweep()
+    {
+        fullSweepRequested = true;
+    }
+
+    /**
+     * @return true whether no {@link AbstractReservationRequest} should be processed, false otherwise
+     */
+    public synchronized boolean isEmpty()
+    {
+        return !fullSweepRequested && reservationRequestIds.isEmpty();
+    }
+
+    /**
+     * Remove all modifications from the queue.
+     *
+     * @return set of identifiers of modified {@link AbstractReservationRequest}s
+     *         or {@code null} when all {@link AbstractReservationRequest}s should be processed
+     */
+    public synchronized Set<Long> poll()
+    {
+        Set<Long> reservationRequestIds = this.reservationRequestIds;
+        this.reservationRequestIds = new HashSet<Long>();
+        if (fullSweepRequested) {
+            fullSweepRequested = false;
+            return null;
+        }
+        return reservationRequestIds;
+    }
+}
@@ -0,0 +1,123 @@
+package cz.cesnet.shongo.controller.util;
+
+/**
+ * Histogram of values with fixed bucket bounds (it is not thread-safe).
+ */
+public class Histogram
+{
+    /**
+     * Upper bounds of histogram buckets (the last bucket is unbounded).
+     */
+    private final long[] bucketBounds;
+
+    /**
+     * Unit of values (e.g., "ms") used in {@link #toString()}.
+     */
+    private final String unit;
+
+    /**
+     * Number of values in each bucket.
+     */
+    private final long[] bucketCounts;
+
+    /**
+     * Number of values.
+     */
+    private long count;
+
+    /**
+     * Sum of values.
+     */
+    private long sum;
+
+    /**
+     * Maximum value.
+     */
+    private long max;
+
+    /**
+     * Constructor.
+     *
+     * @param bucketBounds sets the {@link #bucketBounds}
+     * @param unit         sets the {@link #unit}
+     */
+    public Histogram(long[] bucketBounds, String unit)
+    {
+        this.bucketBounds = bucketBounds;
+        this.unit = unit;
+        this.bucketCounts = new long[bucketBounds.length + 1];
+    }
+
+    /**
+     * @param value to be recorded
+     */
+    public void record(long value)
+    {
+        int bucket = 0;
+        while (bucket < bucketBounds.length && value >= bucketBounds[bucket]) {
+            bucket++;
+        }
+        bucketCounts[bucket]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @return {@link #bucketBounds}
+     */
+    public long[] getBucketBounds()
+    {
+        return bucketBounds;
+    }
+
+    /**
+     * @param bucket index of bucket
+     * @return number of values in given {@code bucket}
+     */
+    public long getBucketCount(int bucket)
+    {
+        return bucketCounts[bucket];
+    }
+
+    /**
+     * @return {@link #count}
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return {@link #sum}
+     */
+    public long getSum()
+    {
+        return sum;
+    }
+
+    /**
+     * @return {@link #max}
+     */
+    public long getMax()
+    {
+        return max;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("count: %d, avg: %d %s, max: %d %s, histogram:",
+                count, (count > 0 ? sum / count : 0), unit, max, unit));
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            if (bucket < bucketBounds.length) {
+                builder.append(String.format(" <%d%s=%d", bucketBounds[bucket], unit, bucketCounts[bucket]));
+            }
+            else {
+                builder.append(String.format(" >=%d%s=%d", bucketBounds[bucket - 1], unit, bucketCounts[bucket]));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -53,6 +53,8 @@ public class NativeQuery
 
     public static final String EXECUTABLE_SUMMARY_CHECK = "executable_summary_check.sql";
     public static final String SPECIFICATION_SUMMARY_CHECK = "specification_summary_check.sql";
+    public static final String EXECUTABLE_SUMMARY_CHECK_STALE = "executable_summary_check_stale.sql";
+    public static final String SPECIFICATION_SUMMARY_CHECK_STALE = "specification_summary_check_stale.sql";
 
     /**
      * Cached native queries (not targeted for any specific {@link EntityManagerFactory}).
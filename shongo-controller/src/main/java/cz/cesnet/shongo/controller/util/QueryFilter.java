@@ -5,8 +5,10 @@ import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.Technology;
 import cz.cesnet.shongo.api.Converter;
 import cz.cesnet.shongo.controller.ObjectPermission;
+import cz.cesnet.shongo.controller.ObjectRole;
 import cz.cesnet.shongo.controller.acl.AclObjectClass;
 import cz.cesnet.shongo.controller.api.SecurityToken;
+import cz.cesnet.shongo.controller.api.request.ListRequest;
 import cz.cesnet.shongo.controller.authorization.Authorization;
 
 import javax.persistence.Query;
@@ -39,6 +41,11 @@ public class QueryFilter
      */
     private Map<String, Object> parameters = new HashMap<String, Object>();
 
+    /**
+     * Specifies whether {@link ListRequest#getCursor()} is supported (see {@link #addFilterCursor}).
+     */
+    private boolean cursorSupported = false;
+
     /**
      * Constructor.
      *
@@ -122,8 +129,9 @@ public class QueryFilter
                 addFilter(alias + "." + column + " IN (0)");
             }
             else {
-                addFilter(alias + "." + column + " IN (:ids)");
-                addFilterParameter("ids", values);
+                String idsParameter = getParameterName("ids");
+                addFilter(alias + "." + column + " IN (:" + idsParameter + ")");
+                addFilterParameter(idsParameter, values);
             }
         }
     }
@@ -154,7 +162,106 @@ public class QueryFilter
     public void addFilterId(String column, Authorization authorization, SecurityToken securityToken,
             Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
     {
-        addFilterIn(column, authorization.getEntitiesWithPermission(securityToken, objectClass, objectPermission));
+        String filter = getFilterId(column, authorization, securityToken, objectClass, objectPermission);
+        if (filter != null) {
+            addFilter(filter);
+        }
+    }
+
+    /**
+     * Get identifier filter (parameters for the filter are added to the {@link #parameters}).
+     * <p/>
+     * The permitted identifiers are inlined to the query only when the ACL of the user is already cached and
+     * the user has the permission for at most {@link Authorization#getAclInlineIdCount()} objects. Otherwise
+     * they are selected from ACL entries by a subquery (thus the ACL of the user is never fetched here).
+     *
+     * @param column
+     * @param authorization
+     * @param securityToken
+     * @param objectClass
+     * @param objectPermission
+     * @return filter or {@code null} when the user has the permission for all objects
+     */
+    public String getFilterId(String column, Authorization authorization, SecurityToken securityToken,
+            Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
+    {
+        if (authorization.hasPermissionForAllObjects(securityToken, objectPermission)) {
+            return null;
+        }
+        Set<Long> ids = authorization.getCachedEntitiesWithPermission(securityToken, objectClass, objectPermission);
+        if (ids != null && ids.isEmpty()) {
+            return alias + "." + column + " IN (0)";
+        }
+        else if (ids != null && ids.size() <= authorization.getAclInlineIdCount()) {
+            String idsParameter = getParameterName("ids");
+            addFilterParameter(idsParameter, ids);
+            return alias + "." + column + " IN (:" + idsParameter + ")";
+        }
+        else {
+            Set<String> aclRoles = new HashSet<String>();
+            for (ObjectRole objectRole : authorization.getObjectRolesWithPermission(objectClass, objectPermission)) {
+                aclRoles.add(objectRole.toString());
+            }
+            String aclObjectClassParameter = getParameterName("aclObjectClassId");
+            String aclIdentitiesParameter = getParameterName("aclIdentityIds");
+            String aclRolesParameter = getParameterName("aclRoles");
+            addFilterParameter(aclObjectClassParameter, authorization.getAclObjectClassId(objectClass));
+            addFilterParameter(aclIdentitiesParameter, authorization.getAclIdentityIds(securityToken));
+            addFilterParameter(aclRolesParameter, aclRoles);
+            if (nativeQuery) {
+                return alias + "." + column + " IN ("
+                        + " SELECT acl_object_identity.object_id"
+                        + " FROM acl_entry"
+                        + " INNER JOIN acl_object_identity"
+                        + "   ON acl_object_identity.id = acl_entry.acl_object_identity_id"
+                        + " WHERE acl_object_identity.acl_object_class_id = :" + aclObjectClassParameter
+                        + "   AND acl_entry.acl_identity_id IN (:" + aclIdentitiesParameter + ")"
+                        + "   AND acl_entry.role IN (:" + aclRolesParameter + "))";
+            }
+            else {
+                return alias + "." + column + " IN ("
+                        + " SELECT aclEntry.objectIdentity.objectId"
+                        + " FROM AclEntry aclEntry"
+                        + " WHERE aclEntry.objectIdentity.objectClass.id = :" + aclObjectClassParameter
+                        + "   AND aclEntry.identity.id IN (:" + aclIdentitiesParameter + ")"
+                        + "   AND aclEntry.role IN (:" + aclRolesParameter + "))";
+            }
+        }
+    }
+
+    /**
+     * Add keyset filter for {@link ListRequest#getCursor()}, so that only items after the cursor are listed.
+     * <p/>
+     * The items must be ordered by given {@code column} which must contain unique numeric identifiers and
+     * the identifiers must be selected as the first column (they are used for the next cursor in the response).
+     *
+     * @param column      by which the items are ordered
+     * @param listRequest for which the filter should be added
+     * @param descending  specifies whether the items are ordered descending
+     */
+    public void addFilterCursor(String column, ListRequest listRequest, boolean descending)
+    {
+        cursorSupported = true;
+        String cursor = listRequest.getCursor();
+        if (cursor != null) {
+            Long cursorId;
+            try {
+                cursorId = Long.parseLong(cursor);
+            }
+            catch (NumberFormatException exception) {
+                throw new IllegalArgumentException("Cursor '" + cursor + "' is invalid.");
+            }
+            String cursorParameter = getParameterName("cursor");
+            addFilter(column + (descending ? " < :" : " > :") + cursorParameter, cursorParameter, cursorId);
+        }
+    }
+
+    /**
+     * @return {@link #cursorSupported}
+     */
+    public boolean isCursorSupported()
+    {
+        return cursorSupported;
     }
 
     /**
@@ -170,6 +277,20 @@ public class QueryFilter
         }
     }
 
+    /**
+     * @param prefix for the parameter name
+     * @return parameter name which starts with given {@code prefix} and which isn't used in {@link #parameters}
+     */
+    private String getParameterName(String prefix)
+    {
+        String name = prefix;
+        int index = 1;
+        while (parameters.containsKey(name)) {
+            name = prefix + ++index;
+        }
+        return name;
+    }
+
     /**
      * @param query to which all {@link #parameters} shoud be added
      */
@@ -0,0 +1,122 @@
+package cz.cesnet.shongo.controller.util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link StatementInspector} which counts and captures SQL statements executed by a thread between
+ * {@link #start()} and {@link #stop()} (it is configured in persistence.xml).
+ */
+public class StatementTracer implements StatementInspector
+{
+    /**
+     * Maximum number of captured statements in one {@link Trace}.
+     */
+    private static final int MAX_STATEMENTS = 100;
+
+    /**
+     * Active {@link Trace} for current thread.
+     */
+    private static final ThreadLocal<Trace> activeTrace = new ThreadLocal<Trace>();
+
+    @Override
+    public String inspect(String sql)
+    {
+        Trace trace = activeTrace.get();
+        if (trace != null) {
+            trace.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Start tracing of statements executed by current thread.
+     *
+     * @return new {@link Trace}
+     */
+    public static Trace start()
+    {
+        Trace trace = new Trace(activeTrace.get());
+        activeTrace.set(trace);
+        return trace;
+    }
+
+    /**
+     * Stop tracing of statements which has been started by the last {@link #start()} in current thread.
+     */
+    public static void stop()
+    {
+        Trace trace = activeTrace.get();
+        if (trace != null && trace.parentTrace != null) {
+            activeTrace.set(trace.parentTrace);
+        }
+        else {
+            activeTrace.remove();
+        }
+    }
+
+    /**
+     * Statements executed in one trace.
+     */
+    public static class Trace
+    {
+        /**
+         * {@link Trace} which was active before this {@link Trace} has been started (statements are counted also
+         * in the parent trace).
+         */
+        private final Trace parentTrace;
+
+        /**
+         * Number of executed statements.
+         */
+        private int count;
+
+        /**
+         * Captured statements (at most {@link #MAX_STATEMENTS}).
+         */
+        private final List<String> statements = new ArrayList<String>();
+
+        /**
+         * Constructor.
+         *
+         * @param parentTrace sets the {@link #parentTrace}
+         */
+        private Trace(Trace parentTrace)
+        {
+            this.parentTrace = parentTrace;
+        }
+
+        /**
+         * @param sql executed statement
+         */
+        private void add(String sql)
+        {
+            count++;
+            if (statements.size() < MAX_STATEMENTS) {
+                statements.add(sql);
+            }
+            if (parentTrace != null) {
+                parentTrace.add(sql);
+            }
+        }
+
+        /**
+         * @return {@link #count}
+         */
+        public int getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return {@link #statements}
+         */
+        public List<String> getStatements()
+        {
+            return Collections.unmodifiableList(statements);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package cz.cesnet.shongo.controller.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+
+/**
+ * Deferred refresh of summary tables executable_summary and specification_summary (for more see init.sql).
+ * <p/>
+ * Identifiers of modified executables and specifications are collected during a transaction and the summary
+ * tables are refreshed for all of them right before the transaction is committed. Thus each summary record
+ * is refreshed only once per transaction (by batched statements) and from the final state of the transaction.
+ * <p/>
+ * The summary tables can be also reconciled with the views from which they are created by {@link #reconcile}.
+ */
+public class SummaryRefresh implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess
+{
+    private static Logger logger = LoggerFactory.getLogger(SummaryRefresh.class);
+
+    /**
+     * Maximum number of identifiers in a single refresh statement.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * {@link SummaryRefresh}es for sessions with active transactions.
+     */
+    private static final Map<SessionImplementor, SummaryRefresh> summaryRefreshBySession =
+            new WeakHashMap<SessionImplementor, SummaryRefresh>();
+
+    /**
+     * Identifiers of executables which should be refreshed (with flag whether the summary should be only deleted).
+     */
+    private final Map<Long, Boolean> executables = new LinkedHashMap<Long, Boolean>();
+
+    /**
+     * Identifiers of specifications which should be refreshed (with flag whether the summary should be only deleted).
+     */
+    private final Map<Long, Boolean> specifications = new LinkedHashMap<Long, Boolean>();
+
+    /**
+     * Request refresh of executable_summary for given {@code executableId} in the current transaction.
+     *
+     * @param entityManager in which the transaction is active
+     * @param executableId  identifier of modified executable
+     * @param deleteOnly    specifies whether the summary should be only deleted
+     */
+    public static void addExecutable(EntityManager entityManager, Long executableId, boolean deleteOnly)
+    {
+        getSummaryRefresh(entityManager).executables.put(executableId, deleteOnly);
+    }
+
+    /**
+     * Request refresh of specification_summary for given {@code specificationId} in the current transaction.
+     *
+     * @param entityManager   in which the transaction is active
+     * @param specificationId identifier of modified specification
+     * @param deleteOnly      specifies whether the summary should be only deleted
+     */
+    public static void addSpecification(EntityManager entityManager, Long specificationId, boolean deleteOnly)
+    {
+        getSummaryRefresh(entityManager).specifications.put(specificationId, deleteOnly);
+    }
+
+    /**
+     * Perform requested refreshes in the current transaction immediately (it should be called before the summary
+     * tables are read in the same transaction in which they have been modified).
+     *
+     * @param entityManager in which the transaction is active
+     */
+    public static void flush(EntityManager entityManager)
+    {
+        if (!entityManager.getTransaction().isActive()) {
+            return;
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        SummaryRefresh summaryRefresh;
+        synchronized (summaryRefreshBySession) {
+            summaryRefresh = summaryRefreshBySession.get(session);
+        }
+        if (summaryRefresh != null && !summaryRefresh.isEmpty()) {
+            entityManager.flush();
+            summaryRefresh.perform(session);
+        }
+    }
+
+    /**
+     * Refresh all records in summary tables which are not consistent with the views from which they are created.
+     *
+     * @param entityManager to be used
+     * @return number of refreshed records
+     */
+    public static int reconcile(EntityManager entityManager)
+    {
+        entityManager.getTransaction().begin();
+        try {
+            Set<Long> executableIds = new LinkedHashSet<Long>();
+            executableIds.addAll(listIds(entityManager, NativeQuery.EXECUTABLE_SUMMARY_CHECK));
+            executableIds.addAll(listIds(entityManager, NativeQuery.EXECUTABLE_SUMMARY_CHECK_STALE));
+            for (Long executableId : executableIds) {
+                addExecutable(entityManager, executableId, false);
+            }
+            Set<Long> specificationIds = new LinkedHashSet<Long>();
+            specificationIds.addAll(listIds(entityManager, NativeQuery.SPECIFICATION_SUMMARY_CHECK));
+            specificationIds.addAll(listIds(entityManager, NativeQuery.SPECIFICATION_SUMMARY_CHECK_STALE));
+            for (Long specificationId : specificationIds) {
+                addSpecification(entityManager, specificationId, false);
+            }
+            entityManager.getTransaction().commit();
+            if (executableIds.size() > 0 || specificationIds.size() > 0) {
+                logger.warn("Summary records has been reconciled for executables {} and specifications {}.",
+                        executableIds, specificationIds);
+            }
+            return executableIds.size() + specificationIds.size();
+        }
+        finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+        }
+    }
+
+    @Override
+    public void doBeforeTransactionCompletion(SessionImplementor session)
+    {
+        perform(session);
+    }
+
+    @Override
+    public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session)
+    {
+        // Requested refreshes are discarded also when the transaction is rolled back
+        executables.clear();
+        specifications.clear();
+        synchronized (summaryRefreshBySession) {
+            if (summaryRefreshBySession.get(session) == this) {
+                summaryRefreshBySession.remove(session);
+            }
+        }
+    }
+
+    /**
+     * @return true whether no refresh is requested, false otherwise
+     */
+    private boolean isEmpty()
+    {
+        return executables.isEmpty() && specifications.isEmpty();
+    }
+
+    /**
+     * Perform all requested refreshes.
+     *
+     * @param session in which the refreshes should be performed
+     */
+    private void perform(SessionImplementor session)
+    {
+        refresh(session, executables, NativeQuery.EXECUTABLE_SUMMARY_DELETE, NativeQuery.EXECUTABLE_SUMMARY_INSERT,
+                "executable_ids");
+        refresh(session, specifications, NativeQuery.SPECIFICATION_SUMMARY_DELETE,
+                NativeQuery.SPECIFICATION_SUMMARY_INSERT, "specification_ids");
+    }
+
+    /**
+     * @param entityManager in which the transaction is active
+     * @return {@link SummaryRefresh} for the transaction
+     */
+    private static SummaryRefresh getSummaryRefresh(EntityManager entityManager)
+    {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        synchronized (summaryRefreshBySession) {
+            SummaryRefresh summaryRefresh = summaryRefreshBySession.get(session);
+            if (summaryRefresh == null) {
+                summaryRefresh = new SummaryRefresh();
+                session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) summaryRefresh);
+                session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) summaryRefresh);
+                summaryRefreshBySession.put(session, summaryRefresh);
+            }
+            return summaryRefresh;
+        }
+    }
+
+    /**
+     * @param session     in which the refresh should be performed
+     * @param ids         of records which should be refreshed (they are cleared)
+     * @param deleteQuery name of native query which deletes the records
+     * @param insertQuery name of native query which inserts the records
+     * @param parameter   name of parameter for identifiers in the native queries
+     */
+    private static void refresh(SessionImplementor session, Map<Long, Boolean> ids, String deleteQuery,
+            String insertQuery, String parameter)
+    {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> deleteIds = new ArrayList<Long>(ids.keySet());
+        List<Long> insertIds = new ArrayList<Long>();
+        for (Map.Entry<Long, Boolean> entry : ids.entrySet()) {
+            if (!entry.getValue()) {
+                insertIds.add(entry.getKey());
+            }
+        }
+        ids.clear();
+        executeUpdate(session, deleteQuery, parameter, deleteIds);
+        executeUpdate(session, insertQuery, parameter, insertIds);
+    }
+
+    /**
+     * @param session   in which the query should be executed
+     * @param query     name of native query
+     * @param parameter name of parameter for identifiers in the native query
+     * @param ids       identifiers for the native query
+     */
+    private static void executeUpdate(SessionImplementor session, String query, String parameter, List<Long> ids)
+    {
+        for (int index = 0; index < ids.size(); index += BATCH_SIZE) {
+            List<Long> batchIds = ids.subList(index, Math.min(index + BATCH_SIZE, ids.size()));
+            Map<String, String> parameters = new HashMap<String, String>();
+            parameters.put(parameter, StringUtils.join(batchIds, ","));
+            session.createNativeQuery(NativeQuery.getNativeQuery(query, parameters)).executeUpdate();
+        }
+    }
+
+    /**
+     * @param entityManager to be used
+     * @param query         name of native query which selects records with identifiers in the first column
+     * @return list of identifiers
+     */
+    private static List<Long> listIds(EntityManager entityManager, String query)
+    {
+        List<Long> ids = new LinkedList<Long>();
+        @SuppressWarnings("unchecked")
+        List<Object[]> records = entityManager.createNativeQuery(NativeQuery.getNativeQuery(query)).getResultList();
+        for (Object[] record : records) {
+            ids.add(((Number) record[0]).longValue());
+        }
+        return ids;
+    }
+}
@@ -333,6 +333,15 @@ public class iCalendar
             removeProperty(properties, Property.LOCATION);
             properties.add(new Location(location));
         }
+
+        /**
+         * @return rendered VEVENT component (it can be inserted into another rendered calendar)
+         */
+        @Override
+        public String toString()
+        {
+            return event.toString();
+        }
     }
 
     private static void removeProperty(PropertyList properties, String propertyName)
@@ -0,0 +1,6 @@
+/**
+ * Get all records in summary table which are not consistent with view (e.g., records of deleted executables).
+ */
+SELECT * FROM executable_summary
+EXCEPT
+SELECT * FROM executable_summary_view
\ No newline at end of file
@@ -0,0 +1,6 @@
+/**
+ * Get all records in summary table which are not consistent with view (e.g., records of deleted specifications).
+ */
+SELECT * FROM specification_summary
+EXCEPT
+SELECT * FROM specification_summary_view
\ No newline at end of file
@@ -1,4 +1,4 @@
 /**
  *
  */
-DELETE FROM specification_summary WHERE id = ${specification_id}
\ No newline at end of file
+DELETE FROM specification_summary WHERE id IN (${specification_ids})
\ No newline at end of file
@@ -10,10 +10,12 @@ import cz.cesnet.shongo.controller.api.request.ReservationRequestListRequest;
 import cz.cesnet.shongo.controller.api.rpc.*;
 import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.cache.Cache;
+import cz.cesnet.shongo.controller.cache.ReservationCache;
 import cz.cesnet.shongo.controller.domains.InterDomainAgent;
 import cz.cesnet.shongo.controller.notification.NotificationManager;
 import cz.cesnet.shongo.controller.scheduler.Preprocessor;
 import cz.cesnet.shongo.controller.scheduler.Scheduler;
+import cz.cesnet.shongo.controller.scheduler.SchedulerQueue;
 import cz.cesnet.shongo.controller.util.DatabaseHelper;
 import cz.cesnet.shongo.controller.util.NativeQuery;
 import cz.cesnet.shongo.jade.Container;
@@ -180,6 +182,22 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
         return controllerClient.getService(ReservationService.class);
     }
 
+    /**
+     * @return {@link SchedulerQueue} of modified reservation requests
+     */
+    public SchedulerQueue getSchedulerQueue()
+    {
+        return cache.getSchedulerQueue();
+    }
+
+    /**
+     * @return {@link ReservationCache} used by the {@link Scheduler}
+     */
+    public ReservationCache getReservationCache()
+    {
+        return cache.getResourceCache().getReservationCache();
+    }
+
     /**
      * @param securityToken for which the {@link UserInformation} should be returned
      * @return {@link UserInformation} for given {@code securityToken}
@@ -243,6 +261,7 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
 
         scheduler = new Scheduler(cache, controller.getNotificationManager(), controller.getCalendarManager());
         scheduler.setAuthorization(authorization);
+        scheduler.setEntityManagerFactory(getEntityManagerFactory());
         scheduler.init(controller.getConfiguration());
 
         // Initialize Inter Domain agent
@@ -275,6 +294,9 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
         // Change XML-RPC and JADE port
         System.setProperty(ControllerConfiguration.RPC_PORT, String.valueOf(TEST_RPC_PORT));
         System.setProperty(ControllerConfiguration.JADE_PORT, String.valueOf(TEST_JADE_PORT));
+
+        // Verify each reservation cache answer against the database
+        System.setProperty(ControllerConfiguration.SCHEDULER_RESERVATION_CACHE_CHECK, "true");
     }
 
     @Override
@@ -360,6 +382,7 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
             controller.destroy();
             preprocessor.destroy();
             scheduler.destroy();
+            cache.destroy();
             InterDomainAgent.destroy();
         }
 
@@ -403,6 +426,7 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
         }
         entityManager.close();
         checkSpecificationSummaryConsistency();
+        checkReservationCacheConsistency();
         return schedulerResult;
     }
 
@@ -484,6 +508,31 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
         runScheduler(interval);
     }
 
+    /**
+     * Run {@link Preprocessor} and {@link Scheduler} only for reservation requests which were modified since
+     * the last run (see {@link SchedulerQueue}).
+     */
+    protected final void runPreprocessorAndSchedulerForModified()
+    {
+        Set<Long> reservationRequestIds = getSchedulerQueue().poll();
+        EntityManager entityManager = createEntityManager();
+        preprocessor.run(workingInterval, entityManager, reservationRequestIds);
+        schedulerResult = scheduler.run(workingInterval, entityManager, null, reservationRequestIds);
+        entityManager.close();
+        checkReservationCacheConsistency();
+    }
+
+    /**
+     * @return new (not started) {@link WorkerThread} for {@link #preprocessor} and {@link #scheduler}
+     */
+    protected WorkerThread createWorkerThread()
+    {
+        WorkerThread workerThread = new WorkerThread(preprocessor, scheduler, controller.getNotificationManager(),
+                controller.getCalendarManager(), getEntityManagerFactory());
+        workerThread.setSchedulerQueue(cache.getSchedulerQueue());
+        return workerThread;
+    }
+
     /**
      * @param resource to be created
      * @return new resource-id
@@ -822,4 +871,14 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
             entityManager.close();
         }
     }
+
+    /**
+     * Checks that {@link ReservationCache} has returned the same reservations
+     * as the database (the consistency check is enabled in {@link #configureSystemProperties()}).
+     */
+    protected void checkReservationCacheConsistency()
+    {
+        Assert.assertEquals("Reservation cache is inconsistent with the database.",
+                0, getReservationCache().getInconsistencyCount());
+    }
 }
@@ -0,0 +1,69 @@
+package cz.cesnet.shongo.controller;
+
+import cz.cesnet.shongo.controller.api.rpc.RpcStatistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests for locking of resources by {@link ThreadLock}.
+ */
+public class ThreadLockTest
+{
+    @Test
+    public void test() throws Exception
+    {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                ThreadLock.ResourceLocks resourceLocks = ThreadLock.lockResources(Arrays.asList(1l, 2l));
+                try {
+                    locked.countDown();
+                    release.await();
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    resourceLocks.unlock();
+                }
+            }
+        };
+        thread.start();
+        locked.await();
+
+        // Other resources can be locked
+        ThreadLock.ResourceLocks resourceLocks = ThreadLock.tryLockResources(Collections.singleton(3l), 0);
+        Assert.assertNotNull(resourceLocks);
+        resourceLocks.unlock();
+
+        // Locked resources cannot be locked
+        Assert.assertNull(ThreadLock.tryLockResources(Arrays.asList(2l, 3l), 10));
+        Assert.assertNull(ThreadLock.tryLockResources(null, 10));
+
+        // Released resources can be locked
+        release.countDown();
+        thread.join();
+        resourceLocks = ThreadLock.tryLockResources(null, 0);
+        Assert.assertNotNull(resourceLocks);
+        resourceLocks.unlock();
+        Assert.assertTrue(ThreadLock.getLockCount() >= 5);
+
+        // Lock statistics are exposed
+        RpcStatistics statistics = RpcStatistics.getInstance();
+        Assert.assertTrue(statistics.getResourceLockCount() >= 5);
+        Assert.assertTrue(statistics.getMaxResourceLockWaitTime() >= 10);
+        StringWriter writer = new StringWriter();
+        statistics.writePrometheus(new PrintWriter(writer));
+        Assert.assertTrue(writer.toString().contains("shongo_resource_lock_acquisitions_total "));
+    }
+}
@@ -0,0 +1,62 @@
+package cz.cesnet.shongo.controller;
+
+import cz.cesnet.shongo.controller.api.ReservationRequest;
+import cz.cesnet.shongo.controller.api.ReservationRequestSet;
+import cz.cesnet.shongo.controller.api.Resource;
+import cz.cesnet.shongo.controller.api.ResourceSpecification;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.joda.time.Period;
+import org.junit.Test;
+
+/**
+ * Tests for {@link WorkerThread}.
+ */
+public class WorkerThreadTest extends AbstractControllerTest
+{
+    /**
+     * Test that reservation requests which enter the working interval are allocated without a full sweep.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEnteringWorkingInterval() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(resource);
+
+        WorkerThread workerThread = createWorkerThread();
+        workerThread.setLookahead(Period.days(31));
+        workerThread.setFullSweepPeriod(Duration.standardDays(365));
+        DateTime dateTime = DateTime.parse("2012-06-01T12:00");
+        workerThread.work(dateTime);
+
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot("2012-07-10T14:00", "PT2H");
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new ResourceSpecification(resourceId));
+        String requestId = getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+
+        ReservationRequestSet reservationRequestSet = new ReservationRequestSet();
+        reservationRequestSet.addSlot("2012-07-11T14:00", "PT2H");
+        reservationRequestSet.addSlot("2012-07-12T14:00", "PT2H");
+        reservationRequestSet.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequestSet.setSpecification(new ResourceSpecification(resourceId));
+        String requestSetId = getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequestSet);
+
+        // Modified reservation requests are processed but they are not in the working interval yet
+        workerThread.work(dateTime.plusMinutes(1));
+        checkNotAllocated(requestId);
+
+        // Reservation request enters the working interval
+        workerThread.work(DateTime.parse("2012-06-10T12:00"));
+        checkAllocated(requestId);
+
+        // Slots of reservation request set enter the working interval
+        workerThread.work(DateTime.parse("2012-06-11T13:30"));
+        workerThread.work(DateTime.parse("2012-06-12T15:00"));
+        checkAllocated(requestSetId);
+    }
+}
@@ -2,14 +2,27 @@ package cz.cesnet.shongo.controller.api;
 
 import cz.cesnet.shongo.CommonReportSet;
 import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.api.rpc.RpcClient;
+import cz.cesnet.shongo.api.rpc.Service;
 import cz.cesnet.shongo.controller.AbstractControllerTest;
 import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.request.ListResponse;
+import cz.cesnet.shongo.controller.api.request.ReservationRequestListRequest;
+import cz.cesnet.shongo.controller.api.rpc.ReservationService;
+import cz.cesnet.shongo.controller.api.rpc.RpcStatistics;
 import cz.cesnet.shongo.controller.api.rpc.ResourceService;
 import org.apache.xmlrpc.XmlRpcException;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.Period;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Tests for using the implementation of {@link cz.cesnet.shongo.controller.api.rpc.ReservationService} through XML-RPC.
@@ -256,4 +269,142 @@ public class XmlRpcTest extends AbstractControllerTest
             Assert.assertEquals(CommonReportSet.CLASS_ATTRIBUTE_TYPE_MISMATCH_CODE, exception.code);
         }
     }
+
+    @Test
+    public void testJsonRpc() throws Exception
+    {
+        getControllerClient().setJson(true);
+
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSlot("2012-06-01T15:00", "PT2H");
+        reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        String id = getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+        Assert.assertEquals("shongo:cz.cesnet:req:1", id);
+
+        reservationRequest = getReservationRequest(id, ReservationRequest.class);
+        Assert.assertEquals(ReservationRequestPurpose.SCIENCE, reservationRequest.getPurpose());
+        Assert.assertEquals(new Interval(DateTime.parse("2012-06-01T15:00"), Period.parse("PT2H")),
+                reservationRequest.getSlot());
+        RoomSpecification roomSpecification = (RoomSpecification) reservationRequest.getSpecification();
+        Assert.assertEquals(5, (int) roomSpecification.getAvailability().getParticipantCount());
+
+        ReservationRequestListRequest request = new ReservationRequestListRequest(SECURITY_TOKEN);
+        ListResponse<ReservationRequestSummary> response = getReservationService().listReservationRequests(request);
+        Assert.assertEquals(1, response.getItemCount());
+        Assert.assertEquals(id, response.getItem(0).getId());
+
+        try {
+            getResourceService().getResource(SECURITY_TOKEN, "1");
+            Assert.fail("Exception should be thrown.");
+        }
+        catch (CommonReportSet.ObjectNotExistsException exception) {
+            Assert.assertEquals("shongo:cz.cesnet:res:1", exception.getObjectId());
+        }
+
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put("class", "ReservationRequestSet");
+        attributes.put("purpose", "SCIENCE");
+        attributes.put("specification", new HashMap<String, Object>()
+        {{
+                put("class", "AliasSpecification");
+                put("value", "1");
+            }});
+        attributes.put("slots", new ArrayList<Object>()
+        {{
+                add(new HashMap<String, Object>());
+            }});
+        try {
+            getControllerClient().execute("Reservation.createReservationRequest",
+                    new Object[]{SECURITY_TOKEN.getAccessToken(), attributes});
+            Assert.fail("Exception that collection cannot contain null should be thrown.");
+        }
+        catch (XmlRpcException exception) {
+            Assert.assertEquals(CommonReportSet.COLLECTION_ITEM_NULL_CODE, exception.code);
+        }
+    }
+
+    @Test
+    public void testMulticall() throws Exception
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSlot("2012-06-01T15:00", "PT2H");
+        reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        String id = getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+
+        for (boolean json : new boolean[]{false, true}) {
+            getControllerClient().setJson(json);
+
+            RpcClient.Batch batch = getControllerClient().createBatch();
+            batch.getService(ReservationService.class).getReservationRequest(SECURITY_TOKEN, id);
+            batch.getService(ResourceService.class).getResource(SECURITY_TOKEN, "1");
+            batch.getService(ReservationService.class).listReservationRequests(
+                    new ReservationRequestListRequest(SECURITY_TOKEN));
+            Assert.assertEquals(3, batch.size());
+            batch.execute();
+
+            ReservationRequest result = (ReservationRequest) batch.getResult(0);
+            Assert.assertEquals(id, result.getId());
+            try {
+                batch.getResult(1);
+                Assert.fail("Exception should be thrown.");
+            }
+            catch (CommonReportSet.ObjectNotExistsException exception) {
+                Assert.assertEquals("shongo:cz.cesnet:res:1", exception.getObjectId());
+            }
+            @SuppressWarnings("unchecked")
+            ListResponse<ReservationRequestSummary> response =
+                    (ListResponse<ReservationRequestSummary>) batch.getResult(2);
+            Assert.assertEquals(1, response.getItemCount());
+        }
+        getControllerClient().setJson(false);
+
+        // Requests with too many calls are rejected
+        List<Map<String, Object>> calls = new ArrayList<Map<String, Object>>();
+        for (int index = 0; index <= Service.MULTICALL_MAX_CALL_COUNT; index++) {
+            Map<String, Object> call = new HashMap<String, Object>();
+            call.put("methodName", ReservationService.class.getName() + ".getReservationRequest");
+            call.put("params", new Object[]{SECURITY_TOKEN, id});
+            calls.add(call);
+        }
+        try {
+            getControllerClient().execute(Service.MULTICALL_METHOD, new Object[]{calls.toArray()});
+            Assert.fail("Exception should be thrown.");
+        }
+        catch (XmlRpcException exception) {
+            Assert.assertEquals(CommonReportSet.VALUE_MAXIMUM_LENGTH_EXCEEDED_CODE, exception.code);
+        }
+
+        // Batch with too many calls is split to multiple requests
+        RpcClient.Batch batch = getControllerClient().createBatch();
+        for (int index = 0; index <= Service.MULTICALL_MAX_CALL_COUNT; index++) {
+            batch.getService(ReservationService.class).getReservationRequest(SECURITY_TOKEN, id);
+        }
+        batch.execute();
+        ReservationRequest result = (ReservationRequest) batch.getResult(Service.MULTICALL_MAX_CALL_COUNT);
+        Assert.assertEquals(id, result.getId());
+    }
+
+    @Test
+    public void testStatistics() throws Exception
+    {
+        RpcStatistics statistics = RpcStatistics.getInstance();
+        long requestCount = statistics.getRequestCount();
+
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSlot("2012-06-01T15:00", "PT2H");
+        reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+        Assert.assertEquals(requestCount + 1, statistics.getRequestCount());
+        Assert.assertNotNull(statistics.getMethodSummary("Reservation.createReservationRequest"));
+
+        StringWriter writer = new StringWriter();
+        statistics.writePrometheus(new PrintWriter(writer));
+        Matcher matcher = Pattern.compile("shongo_rpc_request_statements_sum\\{method=\"Reservation"
+                + ".createReservationRequest\"\\} (\\d+)").matcher(writer.toString());
+        Assert.assertTrue(matcher.find());
+        Assert.assertTrue("SQL statements should be counted.", Long.parseLong(matcher.group(1)) > 0);
+    }
 }
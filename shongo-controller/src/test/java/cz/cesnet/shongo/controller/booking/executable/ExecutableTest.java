@@ -90,6 +90,112 @@ public class ExecutableTest extends AbstractExecutorTest
             }}, mcuAgent.getPerformedCommandClasses());
     }
 
+    /**
+     * Allocate {@link RoomEndpoint}s and start them ahead of their slot start.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRoomPrestart() throws Exception
+    {
+        McuTestAgent mcuAgent = getController().addJadeAgent("mcu", new McuTestAgent());
+
+        DateTime dateTime = DateTime.parse("2012-01-01T12:00");
+        Period duration = Period.parse("PT2M");
+
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        mcu.setMode(new ManagedMode(mcuAgent.getName()));
+        createResource(mcu);
+
+        ReservationRequest reservationRequest1 = new ReservationRequest();
+        reservationRequest1.setSlot(dateTime.plusMinutes(5), duration);
+        reservationRequest1.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest1.setSpecification(new RoomSpecification(5, Technology.H323));
+        allocateAndCheck(reservationRequest1);
+
+        ReservationRequest reservationRequest2 = new ReservationRequest();
+        reservationRequest2.setSlot(dateTime.plusMinutes(5), duration);
+        reservationRequest2.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest2.setSpecification(new RoomSpecification(5, Technology.H323));
+        allocateAndCheck(reservationRequest2);
+
+        // Without pre-starting nothing is started
+        ExecutionResult result = runExecutor(dateTime);
+        Assert.assertEquals(0, result.getStartedExecutables().size());
+
+        // Rooms are started ahead (one for the device in each period)
+        getExecutor().setPrestart(org.joda.time.Duration.standardMinutes(10), 1);
+        result = runExecutor(dateTime);
+        Assert.assertEquals(1, result.getStartedExecutables().size());
+        result = runExecutor(dateTime);
+        Assert.assertEquals(1, result.getStartedExecutables().size());
+        result = runExecutor(dateTime.plusMinutes(5));
+        Assert.assertEquals(0, result.getStartedExecutables().size());
+
+        Assert.assertEquals(new ArrayList<Object>()
+        {{
+                add(CreateRoom.class);
+                add(CreateRoom.class);
+            }}, mcuAgent.getPerformedCommandClasses());
+    }
+
+    /**
+     * Allocate {@link RoomEndpoint}s and check that a room isn't started ahead when the licenses of the device
+     * are used before its slot start.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRoomPrestartLicenses() throws Exception
+    {
+        McuTestAgent mcuAgent = getController().addJadeAgent("mcu", new McuTestAgent());
+
+        DateTime dateTime = DateTime.parse("2012-01-01T12:00");
+
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        mcu.setMode(new ManagedMode(mcuAgent.getName()));
+        createResource(mcu);
+
+        ReservationRequest reservationRequest1 = new ReservationRequest();
+        reservationRequest1.setSlot(dateTime, Period.parse("PT4M"));
+        reservationRequest1.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest1.setSpecification(new RoomSpecification(8, Technology.H323));
+        allocateAndCheck(reservationRequest1);
+
+        ReservationRequest reservationRequest2 = new ReservationRequest();
+        reservationRequest2.setSlot(dateTime.plusMinutes(5), Period.parse("PT2M"));
+        reservationRequest2.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest2.setSpecification(new RoomSpecification(8, Technology.H323));
+        allocateAndCheck(reservationRequest2);
+
+        // The second room isn't started ahead while the first room uses the licenses
+        getExecutor().setPrestart(org.joda.time.Duration.standardMinutes(10), 5);
+        ExecutionResult result = runExecutor(dateTime);
+        Assert.assertEquals(1, result.getStartedExecutables().size());
+        result = runExecutor(dateTime.plusMinutes(1));
+        Assert.assertEquals(0, result.getStartedExecutables().size());
+
+        // The second room is started ahead when the first room is stopped
+        result = runExecutor(dateTime.plusMinutes(4));
+        Assert.assertEquals(1, result.getStoppedExecutables().size());
+        Assert.assertEquals(1, result.getStartedExecutables().size());
+
+        Assert.assertEquals(new ArrayList<Object>()
+        {{
+                add(CreateRoom.class);
+                add(DeleteRoom.class);
+                add(CreateRoom.class);
+            }}, mcuAgent.getPerformedCommandClasses());
+    }
+
     /**
      * Allocate {@link cz.cesnet.shongo.controller.api.CompartmentExecutable} and execute it.
      *
@@ -0,0 +1,86 @@
+package cz.cesnet.shongo.controller.booking.request;
+
+import cz.cesnet.shongo.AliasType;
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.*;
+import cz.cesnet.shongo.controller.api.AliasSpecification;
+import cz.cesnet.shongo.controller.api.ReservationRequest;
+import cz.cesnet.shongo.controller.api.request.AvailabilityCheckRequest;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests for checking availability of periodic slots by multiple threads
+ * (see {@link ControllerConfiguration#SCHEDULER_AVAILABILITY_CHECK_THREADS}).
+ */
+public class ParallelAvailabilityCheckTest extends AbstractControllerTest
+{
+    @Override
+    public void configureSystemProperties()
+    {
+        super.configureSystemProperties();
+
+        System.setProperty(ControllerConfiguration.SCHEDULER_AVAILABILITY_CHECK_THREADS, "3");
+    }
+
+    @Override
+    public void after() throws Exception
+    {
+        super.after();
+
+        System.clearProperty(ControllerConfiguration.SCHEDULER_AVAILABILITY_CHECK_THREADS);
+    }
+
+    /**
+     * Test that twelve weekly slots checked by three threads gives the same results as when checked serially.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCheckPeriodicSlotAvailability() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.addCapability(new AliasProviderCapability("test", AliasType.ROOM_NAME));
+        resource.setAllocatable(true);
+        createResource(resource);
+
+        AliasSpecification aliasSpecification = new AliasSpecification();
+        aliasSpecification.addAliasType(AliasType.ROOM_NAME);
+        aliasSpecification.setValue("test");
+
+        // Allocate the alias for the fourth and the ninth week (each part of the slots contains one of them)
+        DateTime start = DateTime.now().withTimeAtStartOfDay().plusDays(1);
+        for (int week : new int[]{3, 8}) {
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setSlot(new Interval(start.plusWeeks(week), start.plusWeeks(week + 1)));
+            reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+            reservationRequest.setSpecification(aliasSpecification);
+            allocateAndCheck(reservationRequest);
+        }
+
+        // Check weekly meeting for twelve weeks
+        AvailabilityCheckRequest availabilityCheckRequest = new AvailabilityCheckRequest(SECURITY_TOKEN);
+        availabilityCheckRequest.addSlot(new PeriodicDateTimeSlot(start.plusHours(10), Period.hours(1), Period.weeks(1),
+                start.plusWeeks(11).toLocalDate()));
+        availabilityCheckRequest.setSpecification(aliasSpecification);
+        List<SlotAvailability> slotAvailabilities =
+                getReservationService().checkPeriodicSlotAvailability(availabilityCheckRequest);
+        Assert.assertEquals(12, slotAvailabilities.size());
+        for (int week = 0; week < slotAvailabilities.size(); week++) {
+            SlotAvailability slotAvailability = slotAvailabilities.get(week);
+            Assert.assertEquals(start.plusWeeks(week).plusHours(10).getMillis(),
+                    slotAvailability.getSlot().getStartMillis());
+            Assert.assertEquals(week == 3 || week == 8, !slotAvailability.isAvailable());
+        }
+        Assert.assertEquals(AllocationStateReport.class,
+                getReservationService().checkPeriodicAvailability(availabilityCheckRequest).getClass());
+    }
+}
@@ -17,6 +17,7 @@ import cz.cesnet.shongo.controller.api.request.*;
 import cz.cesnet.shongo.controller.api.rpc.ReservationService;
 import cz.cesnet.shongo.controller.scheduler.Preprocessor;
 import cz.cesnet.shongo.controller.scheduler.Scheduler;
+import cz.cesnet.shongo.controller.util.SummaryRefresh;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.joda.time.LocalDate;
@@ -25,6 +26,7 @@ import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import javax.persistence.EntityManager;
 import java.util.*;
 
 import static org.hamcrest.CoreMatchers.not;
@@ -440,6 +442,106 @@ public class ReservationRequestManagementTest extends AbstractControllerTest
                 response.getItem(2).getSpecificationType());
     }
 
+    /**
+     * Test listing reservation requests by cursors and with ACL entries which aren't inlined to the query.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testListReservationRequestsByCursor() throws Exception
+    {
+        for (int index = 0; index < 5; index++) {
+            ReservationRequest request = new ReservationRequest();
+            request.setDescription("request " + (index + 1));
+            request.setSlot("2012-01-01T12:00", "PT2H");
+            request.setPurpose(ReservationRequestPurpose.SCIENCE);
+            request.setSpecification(new RoomSpecification(5, Technology.H323));
+            getReservationService().createReservationRequest(SECURITY_TOKEN, request);
+        }
+        ReservationRequest otherRequest = new ReservationRequest();
+        otherRequest.setDescription("other request");
+        otherRequest.setSlot("2012-01-01T12:00", "PT2H");
+        otherRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        otherRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        getReservationService().createReservationRequest(SECURITY_TOKEN_USER2, otherRequest);
+
+        // Permitted identifiers selected by subquery (ACL isn't cached) and inlined (ACL is cached)
+        for (boolean aclCached : new boolean[]{false, true}) {
+            ReservationRequestListRequest request = new ReservationRequestListRequest(SECURITY_TOKEN);
+            request.setCount(2);
+
+            List<String> descriptions = new LinkedList<String>();
+            ListResponse<ReservationRequestSummary> response;
+            do {
+                prepareAclCache(aclCached);
+                response = getReservationService().listReservationRequests(request);
+                for (ReservationRequestSummary reservationRequest : response) {
+                    descriptions.add(reservationRequest.getDescription());
+                }
+                request.setCursor(response.getNextCursor());
+            }
+            while (response.getNextCursor() != null);
+            Assert.assertEquals(Arrays.asList("request 1", "request 2", "request 3", "request 4", "request 5"),
+                    descriptions);
+
+            request.setApproximateCount(true);
+            prepareAclCache(aclCached);
+            response = getReservationService().listReservationRequests(request);
+            Assert.assertEquals(2, response.getItemCount());
+            Assert.assertEquals(3, response.getCount());
+            Assert.assertNotNull(response.getNextCursor());
+
+            request.setCount(10);
+            prepareAclCache(aclCached);
+            response = getReservationService().listReservationRequests(request);
+            Assert.assertEquals(5, response.getItemCount());
+            Assert.assertEquals(5, response.getCount());
+            Assert.assertNull(response.getNextCursor());
+        }
+    }
+
+    /**
+     * @param aclCached specifies whether the ACL of {@link #SECURITY_TOKEN} user should be cached or not
+     */
+    private void prepareAclCache(boolean aclCached)
+    {
+        getAuthorization().clearCache();
+        if (aclCached) {
+            Assert.assertEquals(5, getAuthorization().getEntitiesWithPermission(SECURITY_TOKEN,
+                    cz.cesnet.shongo.controller.booking.Allocation.class, ObjectPermission.READ).size());
+        }
+    }
+
+    /**
+     * Test reconciliation of specification_summary which is inconsistent with its view.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReconcileSpecificationSummary() throws Exception
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot("2012-01-01T12:00", "PT2H");
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+        checkSpecificationSummaryConsistency();
+
+        EntityManager entityManager = createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.createNativeQuery("DELETE FROM specification_summary").executeUpdate();
+            entityManager.getTransaction().commit();
+
+            Assert.assertEquals(1, SummaryRefresh.reconcile(entityManager));
+            Assert.assertEquals(0, SummaryRefresh.reconcile(entityManager));
+        }
+        finally {
+            entityManager.close();
+        }
+        checkSpecificationSummaryConsistency();
+    }
+
     /**
      * Test listing reservation requests based on {@link Technology} of
      * {@link cz.cesnet.shongo.controller.api.AliasSpecification},
@@ -615,6 +717,81 @@ public class ReservationRequestManagementTest extends AbstractControllerTest
         Assert.assertEquals(AllocationStateReport.class, result.getClass());
     }
 
+    @Test
+    public void testCheckPeriodicSlotAvailability() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.addCapability(new AliasProviderCapability("test", AliasType.ROOM_NAME));
+        resource.setAllocatable(true);
+        createResource(resource);
+
+        cz.cesnet.shongo.controller.api.AliasSpecification aliasSpecification = new cz.cesnet.shongo.controller.api.AliasSpecification();
+        aliasSpecification.addAliasType(AliasType.ROOM_NAME);
+        aliasSpecification.setValue("test");
+
+        // Allocate the alias for the third and the fourth week
+        DateTime start = DateTime.now().withTimeAtStartOfDay().plusDays(1);
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(new Interval(start.plusWeeks(2), start.plusWeeks(4)));
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(aliasSpecification);
+        allocateAndCheck(reservationRequest);
+
+        // Check weekly meeting for twelve weeks
+        AvailabilityCheckRequest availabilityCheckRequest = new AvailabilityCheckRequest(SECURITY_TOKEN);
+        availabilityCheckRequest.addSlot(new PeriodicDateTimeSlot(start.plusHours(10), Period.hours(1), Period.weeks(1),
+                start.plusWeeks(11).toLocalDate()));
+        availabilityCheckRequest.setSpecification(aliasSpecification);
+        List<SlotAvailability> slotAvailabilities =
+                getReservationService().checkPeriodicSlotAvailability(availabilityCheckRequest);
+        Assert.assertEquals(12, slotAvailabilities.size());
+        for (int week = 0; week < slotAvailabilities.size(); week++) {
+            SlotAvailability slotAvailability = slotAvailabilities.get(week);
+            Assert.assertEquals(week == 2 || week == 3, !slotAvailability.isAvailable());
+        }
+        Assert.assertEquals(AllocationStateReport.class,
+                getReservationService().checkPeriodicAvailability(availabilityCheckRequest).getClass());
+    }
+
+    /**
+     * Test that minutes before the room which are shortened for the first (near) occurrence are not used
+     * for the following occurrences.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCheckPeriodicRoomSlotAvailability() throws Exception
+    {
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.setAllocatable(true);
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        createResource(mcu);
+
+        // Allocate all licenses only in the minutes before the second occurrence
+        DateTime start = DateTime.now().plusMinutes(5);
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(new Interval(start.plusWeeks(1).minusMinutes(25), start.plusWeeks(1).minusMinutes(10)));
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new RoomSpecification(10, Technology.H323));
+        allocateAndCheck(reservationRequest);
+
+        // Check weekly meeting for two weeks (minutes before are shortened only for the first week)
+        RoomSpecification roomSpecification = new RoomSpecification(10, Technology.H323);
+        roomSpecification.getAvailability().setSlotMinutesBefore(30);
+        AvailabilityCheckRequest availabilityCheckRequest = new AvailabilityCheckRequest(SECURITY_TOKEN);
+        availabilityCheckRequest.addSlot(new PeriodicDateTimeSlot(start, Period.hours(1), Period.weeks(1),
+                start.plusWeeks(1).toLocalDate()));
+        availabilityCheckRequest.setSpecification(roomSpecification);
+        List<SlotAvailability> slotAvailabilities =
+                getReservationService().checkPeriodicSlotAvailability(availabilityCheckRequest);
+        Assert.assertEquals(2, slotAvailabilities.size());
+        Assert.assertTrue(slotAvailabilities.get(0).isAvailable());
+        Assert.assertFalse(slotAvailabilities.get(1).isAvailable());
+    }
+
     @Test
     public void testReservationRequestReusementAclEntryPropagation() throws Exception
     {
@@ -16,15 +16,21 @@ import cz.cesnet.shongo.controller.api.Resource;
 import cz.cesnet.shongo.controller.api.RoomProviderCapability;
 import cz.cesnet.shongo.controller.api.StandaloneTerminalCapability;
 import cz.cesnet.shongo.controller.api.ValueProviderCapability;
+import cz.cesnet.shongo.controller.api.request.ReservationListRequest;
+import cz.cesnet.shongo.controller.api.request.ResourceUtilizationRequest;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
 import org.joda.time.Interval;
+import org.joda.time.Period;
 import org.junit.Assert;
 import org.junit.Test;
 
 import javax.persistence.EntityManager;
 import java.util.HashSet;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * Tests for creating, updating and deleting {@link cz.cesnet.shongo.controller.api.Resource}s.
@@ -282,4 +288,161 @@ public class ResourceManagementTest extends AbstractControllerTest
         reallocate(secondReservationRequestId);
         checkAllocated(secondReservationRequestId);
     }
+
+    /**
+     * Test aggregated utilization of room licenses.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testResourceUtilization() throws Exception
+    {
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        String mcuId = createResource(mcu);
+
+        ReservationRequest firstReservationRequest = new ReservationRequest();
+        firstReservationRequest.setSlot("2012-06-22T14:00", "PT2H");
+        firstReservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        firstReservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        allocateAndCheck(firstReservationRequest);
+
+        ReservationRequest secondReservationRequest = new ReservationRequest();
+        secondReservationRequest.setSlot("2012-06-22T15:00", "PT2H");
+        secondReservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        secondReservationRequest.setSpecification(new RoomSpecification(3, Technology.H323));
+        allocateAndCheck(secondReservationRequest);
+
+        // Utilization by hours
+        ResourceUtilizationRequest request = new ResourceUtilizationRequest(SECURITY_TOKEN_ROOT);
+        request.addResourceId(mcuId);
+        request.setInterval(Interval.parse("2012-06-22T12:00/PT6H"));
+        request.setPeriod(Period.hours(1));
+        List<ResourceUtilization> resourceUtilizations = getResourceService().listResourceUtilization(request);
+        Assert.assertEquals(3, resourceUtilizations.size());
+        int[] peakLicenseCounts = new int[]{5, 8, 3};
+        for (int index = 0; index < peakLicenseCounts.length; index++) {
+            ResourceUtilization resourceUtilization = resourceUtilizations.get(index);
+            Assert.assertEquals(mcuId, resourceUtilization.getResourceId());
+            Assert.assertEquals(ReservationSummary.Type.ROOM, resourceUtilization.getReservationType());
+            Assert.assertEquals(DateTime.parse("2012-06-22T14:00").plusHours(index).getMillis(),
+                    resourceUtilization.getInterval().getStartMillis());
+            Assert.assertEquals(peakLicenseCounts[index], resourceUtilization.getPeakLicenseCount());
+        }
+
+        // Utilization of the whole interval
+        request.setInterval(Interval.parse("2012-06-22T14:00/PT3H"));
+        request.setPeriod(Period.hours(3));
+        resourceUtilizations = getResourceService().listResourceUtilization(request);
+        Assert.assertEquals(1, resourceUtilizations.size());
+        ResourceUtilization resourceUtilization = resourceUtilizations.get(0);
+        Assert.assertEquals(8, resourceUtilization.getPeakLicenseCount());
+        Assert.assertEquals(16.0 / 3.0, resourceUtilization.getAverageLicenseCount(), 0.001);
+    }
+
+    /**
+     * Test that public calendar of resource is updated for modified reservations.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCalendarFeed() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        resource.setCalendarPublic(true);
+        String resourceId = createResource(resource);
+
+        ReservationListRequest listRequest = new ReservationListRequest();
+        listRequest.addResourceId(resourceId);
+
+        DateTime dateTime = DateTime.now().withTimeAtStartOfDay();
+        ReservationRequest firstReservationRequest = new ReservationRequest();
+        firstReservationRequest.setSlot(new Interval(dateTime.plusDays(1), Period.hours(1)));
+        firstReservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        firstReservationRequest.setSpecification(new ResourceSpecification(resourceId));
+        String firstReservationRequestId = allocate(firstReservationRequest);
+        checkAllocated(firstReservationRequestId);
+        checkCalendarFeed(listRequest, 1);
+
+        // Allocate new reservation
+        ReservationRequest secondReservationRequest = new ReservationRequest();
+        secondReservationRequest.setSlot(new Interval(dateTime.plusDays(2), Period.hours(1)));
+        secondReservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        secondReservationRequest.setSpecification(new ResourceSpecification(resourceId));
+        String secondReservationRequestId = allocate(secondReservationRequest);
+        checkAllocated(secondReservationRequestId);
+        checkCalendarFeed(listRequest, 2);
+
+        // Modify reservation
+        firstReservationRequest = getReservationRequest(firstReservationRequestId, ReservationRequest.class);
+        firstReservationRequest.setSlot(new Interval(dateTime.plusDays(3), Period.hours(2)));
+        firstReservationRequestId = allocate(firstReservationRequest);
+        checkAllocated(firstReservationRequestId);
+        checkCalendarFeed(listRequest, 2);
+
+        // Delete reservation
+        getReservationService().deleteReservationRequest(SECURITY_TOKEN, secondReservationRequestId);
+        runScheduler();
+        checkCalendarFeed(listRequest, 1);
+    }
+
+    /**
+     * Test that reservations which ended before the history period are removed from cached public calendar.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCalendarFeedHistory() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        resource.setCalendarPublic(true);
+        String resourceId = createResource(resource);
+
+        ReservationListRequest listRequest = new ReservationListRequest();
+        listRequest.addResourceId(resourceId);
+
+        DateTime dateTime = DateTime.now().withTimeAtStartOfDay();
+        for (int day : new int[]{1, 10}) {
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setSlot(new Interval(dateTime.plusDays(day), Period.hours(1)));
+            reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+            reservationRequest.setSpecification(new ResourceSpecification(resourceId));
+            checkAllocated(allocate(reservationRequest));
+        }
+        checkCalendarFeed(listRequest, 2);
+
+        // The first reservation ends before the history period
+        DateTimeUtils.setCurrentMillisFixed(dateTime.plusMonths(1).plusDays(3).getMillis());
+        try {
+            checkCalendarFeed(listRequest, 1);
+        }
+        finally {
+            DateTimeUtils.setCurrentMillisSystem();
+        }
+    }
+
+    /**
+     * Check that cached calendar contains the same events as newly rendered calendar.
+     *
+     * @param listRequest for the calendar
+     * @param eventCount  expected number of events
+     */
+    private void checkCalendarFeed(ReservationListRequest listRequest, int eventCount)
+    {
+        String calendar = getReservationService().getResourceReservationsICalendar(listRequest);
+        String cachedCalendar = getReservationService().getCachedResourceReservationsICalendar(listRequest);
+        // Timestamps are different for each rendering
+        Pattern timestampPattern = Pattern.compile("(DTSTAMP|LAST-MODIFIED):[^\\r\\n]*");
+        calendar = timestampPattern.matcher(calendar).replaceAll("");
+        cachedCalendar = timestampPattern.matcher(cachedCalendar).replaceAll("");
+        Assert.assertEquals(calendar, cachedCalendar);
+        Assert.assertEquals(eventCount, cachedCalendar.split("BEGIN:VEVENT", -1).length - 1);
+    }
 }
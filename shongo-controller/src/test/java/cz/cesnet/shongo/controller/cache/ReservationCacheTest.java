@@ -0,0 +1,170 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.*;
+import cz.cesnet.shongo.controller.api.request.ResourceUtilizationRequest;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests for allocation by {@link cz.cesnet.shongo.controller.scheduler.Scheduler} which uses {@link ReservationCache}
+ * without the consistency check (i.e., reservations are loaded only by identifiers from the cache).
+ */
+public class ReservationCacheTest extends AbstractControllerTest
+{
+    /**
+     * Start of slots which must be in future to be answered by the {@link ReservationCache}.
+     */
+    private final DateTime start = DateTime.now().withTimeAtStartOfDay().plusDays(2).withHourOfDay(12);
+
+    @Override
+    public void configureSystemProperties()
+    {
+        super.configureSystemProperties();
+
+        System.setProperty(ControllerConfiguration.SCHEDULER_RESERVATION_CACHE_CHECK, "false");
+    }
+
+    @Override
+    public void after() throws Exception
+    {
+        super.after();
+
+        System.clearProperty(ControllerConfiguration.SCHEDULER_RESERVATION_CACHE_CHECK);
+    }
+
+    /**
+     * Test allocation, modification and deletion of {@link ResourceReservation}s.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testResource() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(resource);
+
+        ReservationRequest firstReservationRequest = createResourceReservationRequest(resourceId, start);
+        String firstReservationRequestId = allocate(firstReservationRequest);
+        checkAllocated(firstReservationRequestId);
+
+        // Colliding reservation is found in the cache
+        long hitCount = getReservationCache().getHitCount();
+        allocateAndCheckFailed(createResourceReservationRequest(resourceId, start.plusHours(1)));
+        Assert.assertTrue(getReservationCache().getHitCount() > hitCount);
+
+        // Modified reservation doesn't collide in the original slot
+        firstReservationRequest = getReservationRequest(firstReservationRequestId, ReservationRequest.class);
+        firstReservationRequest.setSlot(start.plusHours(4), Period.hours(2));
+        firstReservationRequestId = allocate(firstReservationRequest);
+        checkAllocated(firstReservationRequestId);
+        allocateAndCheck(createResourceReservationRequest(resourceId, start));
+        allocateAndCheckFailed(createResourceReservationRequest(resourceId, start.plusHours(5)));
+
+        // Deleted reservation doesn't collide
+        getReservationService().deleteReservationRequest(SECURITY_TOKEN, firstReservationRequestId);
+        runScheduler();
+        allocateAndCheck(createResourceReservationRequest(resourceId, start.plusHours(5)));
+
+        // Evicted timeline is loaded again
+        Assert.assertTrue(getReservationCache().getTimelineCount() > 0);
+        getReservationCache().maintain(DateTime.now().plusDays(2));
+        Assert.assertEquals(0, getReservationCache().getTimelineCount());
+        long loadCount = getReservationCache().getLoadCount();
+        allocateAndCheckFailed(createResourceReservationRequest(resourceId, start));
+        Assert.assertTrue(getReservationCache().getLoadCount() > loadCount);
+
+        // Trimmed timeline is still used for future slots
+        getReservationCache().maintain(DateTime.now().plusHours(12));
+        Assert.assertTrue(getReservationCache().getTimelineCount() > 0);
+        allocateAndCheckFailed(createResourceReservationRequest(resourceId, start.plusHours(6)));
+        allocateAndCheck(createResourceReservationRequest(resourceId, start.plusHours(8)));
+    }
+
+    /**
+     * Test allocation, modification and deletion of {@link RoomReservation}s.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRoom() throws Exception
+    {
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        String mcuId = createResource(mcu);
+
+        ReservationRequest firstReservationRequest = createRoomReservationRequest(6);
+        String firstReservationRequestId = allocate(firstReservationRequest);
+        checkAllocated(firstReservationRequestId);
+        allocateAndCheckFailed(createRoomReservationRequest(6));
+
+        // Modified reservation leaves enough licenses
+        firstReservationRequest = getReservationRequest(firstReservationRequestId, ReservationRequest.class);
+        ((RoomSpecification) firstReservationRequest.getSpecification()).getAvailability().setParticipantCount(3);
+        firstReservationRequestId = allocate(firstReservationRequest);
+        RoomReservation firstReservation = (RoomReservation) checkAllocated(firstReservationRequestId);
+        Assert.assertEquals(3, firstReservation.getLicenseCount());
+        String secondReservationRequestId = allocate(createRoomReservationRequest(6));
+        checkAllocated(secondReservationRequestId);
+        allocateAndCheckFailed(createRoomReservationRequest(2));
+
+        // Deleted reservation releases its licenses
+        getReservationService().deleteReservationRequest(SECURITY_TOKEN, secondReservationRequestId);
+        runScheduler();
+        allocateAndCheck(createRoomReservationRequest(7));
+
+        // Utilization is computed from the profile of licenses in the cache
+        long hitCount = getReservationCache().getHitCount();
+        ResourceUtilizationRequest request = new ResourceUtilizationRequest(SECURITY_TOKEN_ROOT);
+        request.addResourceId(mcuId);
+        request.setInterval(new Interval(start.minusHours(1), start.plusHours(3)));
+        request.setPeriod(Period.hours(1));
+        List<ResourceUtilization> resourceUtilizations = getResourceService().listResourceUtilization(request);
+        Assert.assertTrue(getReservationCache().getHitCount() > hitCount);
+        Assert.assertEquals(2, resourceUtilizations.size());
+        for (ResourceUtilization resourceUtilization : resourceUtilizations) {
+            Assert.assertEquals(10, resourceUtilization.getPeakLicenseCount());
+        }
+    }
+
+    /**
+     * @param resourceId for which the {@link ReservationRequest} should be created
+     * @param start      of the slot
+     * @return new {@link ReservationRequest}
+     */
+    private ReservationRequest createResourceReservationRequest(String resourceId, DateTime start)
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(start, Period.hours(2));
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new ResourceSpecification(resourceId));
+        return reservationRequest;
+    }
+
+    /**
+     * @param participantCount for the room
+     * @return new {@link ReservationRequest} for a room
+     */
+    private ReservationRequest createRoomReservationRequest(int participantCount)
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(start, Period.hours(2));
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        RoomSpecification roomSpecification = new RoomSpecification(participantCount, Technology.H323);
+        reservationRequest.setSpecification(roomSpecification);
+        return reservationRequest;
+    }
+}
@@ -0,0 +1,199 @@
+package cz.cesnet.shongo.controller.domains;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import cz.cesnet.shongo.api.util.DeviceAddress;
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.LocalDomain;
+import cz.cesnet.shongo.controller.api.Domain;
+import cz.cesnet.shongo.controller.api.domains.InterDomainAction;
+import cz.cesnet.shongo.ssl.SSLCommunication;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for requests performed by {@link DomainsConnector} to multiple foreign domains.
+ */
+public class DomainsConnectorTest extends AbstractControllerTest
+{
+    private static final String INTERDOMAIN_LOCAL_HOST = "localhost";
+    private static final Integer INTERDOMAIN_LOCAL_PORT = 8443;
+    private static final String INTERDOMAIN_LOCAL_PASSWORD = "shongo_test";
+
+    /**
+     * Timeout for connecting and reading of a response (the deadline for a request is twice as long).
+     */
+    private static final int COMMAND_TIMEOUT = 1000;
+
+    /**
+     * HTTP server which acts as foreign domains ("127.0.0.1" is stalled and "localhost" responds immediately).
+     */
+    private HttpServer domainServer;
+
+    /**
+     * Count down when the stalled response has been closed by the client.
+     */
+    private final CountDownLatch stalledResponseClosed = new CountDownLatch(1);
+
+    @Override
+    public void before() throws Exception
+    {
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_HOST, INTERDOMAIN_LOCAL_HOST);
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_PORT, INTERDOMAIN_LOCAL_PORT.toString());
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_SSL_KEY_STORE, "./shongo-controller/src/test/resources/keystore/server.p12");
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_SSL_KEY_STORE_PASSWORD, "shongo");
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_SSL_KEY_STORE_TYPE, "PKCS12");
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_PKI_CLIENT_AUTH, "false");
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_COMMAND_TIMEOUT, "PT" + COMMAND_TIMEOUT / 1000 + "S");
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_BASIC_AUTH_PASSWORD, INTERDOMAIN_LOCAL_PASSWORD);
+
+        super.before();
+
+        domainServer = HttpServer.create(new InetSocketAddress(0), 0);
+        domainServer.setExecutor(Executors.newCachedThreadPool());
+        domainServer.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String path = exchange.getRequestURI().getPath();
+                if (path.endsWith(InterDomainAction.DOMAIN_LOGIN)) {
+                    respond(exchange, "{\"accessToken\":\"token\"}");
+                }
+                else if (exchange.getRequestHeaders().getFirst("Host").startsWith("127.0.0.1")) {
+                    // Send the response slowly, so that the socket timeout never elapses
+                    exchange.sendResponseHeaders(200, 0);
+                    OutputStream outputStream = exchange.getResponseBody();
+                    try {
+                        outputStream.write('{');
+                        while (true) {
+                            outputStream.flush();
+                            Thread.sleep(COMMAND_TIMEOUT / 4);
+                            outputStream.write(' ');
+                        }
+                    }
+                    catch (IOException exception) {
+                        stalledResponseClosed.countDown();
+                    }
+                    catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        exchange.close();
+                    }
+                }
+                else {
+                    respond(exchange, "{\"status\":\"ok\"}");
+                }
+            }
+        });
+        domainServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        domainServer.stop(0);
+
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_HOST);
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_PORT);
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_SSL_KEY_STORE);
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_SSL_KEY_STORE_PASSWORD);
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_SSL_KEY_STORE_TYPE);
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_PKI_CLIENT_AUTH);
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_COMMAND_TIMEOUT);
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_BASIC_AUTH_PASSWORD);
+
+        super.after();
+    }
+
+    /**
+     * Test that a stalled domain is left out of the result after the deadline, that its request is aborted
+     * (i.e., the connection is closed) and that each domain uses its own pool of connections.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStalledDomain() throws Exception
+    {
+        String availableDomainName = createDomain("available", INTERDOMAIN_LOCAL_HOST);
+        String stalledDomainName = createDomain("stalled", "127.0.0.1");
+
+        DomainsConnector connector = InterDomainAgent.getInstance().getConnector();
+        List<Domain> domains = connector.listForeignDomains();
+        Assert.assertEquals(2, domains.size());
+
+        long startMillis = System.currentTimeMillis();
+        Map<String, Map> result = connector.performTypedRequestsAsync(InterDomainAction.HttpMethod.GET,
+                InterDomainAction.DOMAIN_STATUS, null, null, domains, Map.class).get(30, TimeUnit.SECONDS);
+        long durationMillis = System.currentTimeMillis() - startMillis;
+
+        // Only available domain is in the result and the stalled domain hasn't delayed it much more than deadline
+        Assert.assertEquals(Collections.singleton(availableDomainName), result.keySet());
+        Assert.assertEquals("ok", result.get(availableDomainName).get("status"));
+        Assert.assertTrue("Result took " + durationMillis + " ms.", durationMillis >= 2 * COMMAND_TIMEOUT);
+        Assert.assertTrue("Result took " + durationMillis + " ms.", durationMillis < 6 * COMMAND_TIMEOUT);
+
+        // Stalled request has been aborted (otherwise it would be read until the server gives up)
+        Assert.assertTrue("Stalled request hasn't been aborted.",
+                stalledResponseClosed.await(2 * COMMAND_TIMEOUT, TimeUnit.MILLISECONDS));
+
+        // Each domain has its own pool and the aborted connection isn't leased anymore
+        DomainHttpClients httpClients = connector.getHttpClients();
+        Assert.assertEquals(2, httpClients.getRequestCount(availableDomainName));
+        Assert.assertEquals(2, httpClients.getRequestCount(stalledDomainName));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(availableDomainName, stalledDomainName)),
+                httpClients.getPoolStats().keySet());
+        int i = 0;
+        while (httpClients.getPoolStats().get(stalledDomainName).getLeased() > 0) {
+            Assert.assertTrue("Aborted connection should be released by now.", i < 20);
+            i++;
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(0, httpClients.getPoolStats().get(availableDomainName).getLeased());
+    }
+
+    /**
+     * @param name suffix of the domain name
+     * @param host of the domain
+     * @return name of the created domain
+     */
+    private String createDomain(String name, String host)
+    {
+        Domain domain = new Domain();
+        domain.setName(LocalDomain.getLocalDomainName() + "." + name);
+        domain.setOrganization("CESNET z.s.p.o.");
+        domain.setAllocatable(true);
+        domain.setDomainAddress(new DeviceAddress("http://" + host, domainServer.getAddress().getPort()));
+        domain.setPasswordHash(SSLCommunication.hashPassword(INTERDOMAIN_LOCAL_PASSWORD.getBytes()));
+        getResourceService().createDomain(SECURITY_TOKEN_ROOT, domain);
+        return domain.getName();
+    }
+
+    /**
+     * @param exchange to which the response should be sent
+     * @param response JSON to be sent
+     * @throws IOException
+     */
+    private static void respond(HttpExchange exchange, String response) throws IOException
+    {
+        byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, responseBytes.length);
+        OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(responseBytes);
+        outputStream.close();
+    }
+}
@@ -0,0 +1,81 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.controller.api.domains.response.DomainCapability;
+import cz.cesnet.shongo.controller.api.domains.response.ListDelta;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for {@link RevisionTracker}.
+ */
+public class RevisionTrackerTest
+{
+    private final RevisionTracker<DomainCapability> revisionTracker = new RevisionTracker<DomainCapability>()
+    {
+        @Override
+        protected String getItemKey(DomainCapability capability)
+        {
+            return capability.getId();
+        }
+    };
+
+    @Test
+    public void test() throws Exception
+    {
+        String listKey = revisionTracker.getListKey("domain", null);
+        Map<String, DomainCapability> items = new LinkedHashMap<String, DomainCapability>();
+
+        // Full list is returned for the first request
+        ListDelta<DomainCapability> delta = revisionTracker.getDelta(listKey,
+                Arrays.asList(createCapability("1", "a"), createCapability("2", "b")), null);
+        Assert.assertTrue(delta.isFull());
+        Assert.assertEquals(2, delta.getChanged().size());
+        delta.apply(items);
+
+        // No changes
+        delta = revisionTracker.getDelta(listKey,
+                Arrays.asList(createCapability("1", "a"), createCapability("2", "b")), delta.getRevision());
+        Assert.assertFalse(delta.isFull());
+        Assert.assertEquals(0, delta.getChanged().size());
+        Assert.assertEquals(0, delta.getRemoved().size());
+        delta.apply(items);
+
+        // Modified, added and removed items
+        String revision = delta.getRevision();
+        delta = revisionTracker.getDelta(listKey,
+                Arrays.asList(createCapability("1", "c"), createCapability("3", "d")), revision);
+        Assert.assertFalse(delta.isFull());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("1", "3")), delta.getChanged().keySet());
+        Assert.assertEquals(Collections.singletonList("2"), delta.getRemoved());
+        delta.apply(items);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("1", "3")), items.keySet());
+        Assert.assertEquals("c", items.get("1").getName());
+
+        // Older revision gets all changes since it
+        delta = revisionTracker.getDelta(listKey,
+                Arrays.asList(createCapability("1", "c"), createCapability("3", "d")), revision);
+        Assert.assertEquals(2, delta.getChanged().size());
+        Assert.assertEquals(1, delta.getRemoved().size());
+
+        // Unknown revision gets full list
+        delta = revisionTracker.getDelta(listKey,
+                Arrays.asList(createCapability("1", "c"), createCapability("3", "d")), "unknown-1");
+        Assert.assertTrue(delta.isFull());
+        Assert.assertEquals(2, delta.getChanged().size());
+
+        // Revision of other list is not valid
+        delta = revisionTracker.getDelta(revisionTracker.getListKey("other", null),
+                Collections.<DomainCapability>emptyList(), delta.getRevision());
+        Assert.assertTrue(delta.isFull());
+    }
+
+    private DomainCapability createCapability(String id, String name)
+    {
+        DomainCapability capability = new DomainCapability();
+        capability.setId(id);
+        capability.setName(name);
+        return capability;
+    }
+}
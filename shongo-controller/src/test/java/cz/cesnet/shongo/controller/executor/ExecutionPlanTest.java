@@ -1,13 +1,16 @@
 package cz.cesnet.shongo.controller.executor;
 
 import cz.cesnet.shongo.controller.booking.executable.Executable;
+import cz.cesnet.shongo.controller.booking.executable.ExecutableManager;
+import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.junit.Assert;
 import org.junit.Test;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Tests for {@link ExecutionPlan}.
@@ -160,6 +163,30 @@ public class ExecutionPlanTest
         Assert.assertTrue(executionPlan2.isEmpty());
     }
 
+    @Test
+    public void testPerform() throws Exception
+    {
+        List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        ExecutionPlan executionPlan = new ExecutionPlan(null);
+        executionPlan.addExecutionAction(new SimpleAction("stop1", 5, 1L, 500, events));
+        executionPlan.addExecutionAction(new SimpleAction("start2", 3, 2L, 0, events));
+        executionPlan.addExecutionAction(new SimpleAction("start1", 3, 1L, 0, events));
+        executionPlan.build();
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(4);
+        try {
+            executionPlan.perform(threadPool, 1, new ExecutionActionStatistics());
+        }
+        finally {
+            threadPool.shutdown();
+        }
+        Assert.assertTrue(executionPlan.isEmpty());
+
+        // Starting in other resource doesn't wait for stopping, starting in the same resource does
+        Assert.assertTrue(events.indexOf("start2-end") < events.indexOf("stop1-end"));
+        Assert.assertTrue(events.indexOf("stop1-end") < events.indexOf("start1-begin"));
+    }
+
     private void checkExecutableAndRemove(ExecutionPlan executionPlan, Executable... executables)
     {
         Set<ExecutionAction.AbstractExecutableAction> executionActions =
@@ -196,6 +223,67 @@ public class ExecutionPlanTest
         }
     }
 
+    private static class SimpleAction extends ExecutionAction<String>
+    {
+        private final int priority;
+
+        private final long duration;
+
+        private final List<String> events;
+
+        public SimpleAction(String name, int priority, Long resourceId, long duration, List<String> events)
+        {
+            super(name);
+            this.priority = priority;
+            this.duration = duration;
+            this.events = events;
+            setResourceIds(Collections.singleton(resourceId));
+        }
+
+        @Override
+        public int getExecutionPriority()
+        {
+            return priority;
+        }
+
+        @Override
+        public void buildDependencies()
+        {
+        }
+
+        @Override
+        protected void perform(ExecutableManager executableManager)
+        {
+        }
+
+        @Override
+        public void run()
+        {
+            events.add(target + "-begin");
+            try {
+                Thread.sleep(duration);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(target + "-end");
+            executionPlan.removeExecutionAction(this);
+        }
+
+        @Override
+        public boolean finish(EntityManager entityManager, DateTime referenceDateTime,
+                ExecutionResult executionResult)
+        {
+            return true;
+        }
+
+        @Override
+        public String toString()
+        {
+            return target;
+        }
+    }
+
     public static class SimpleExecutable extends Executable
     {
         public SimpleExecutable()
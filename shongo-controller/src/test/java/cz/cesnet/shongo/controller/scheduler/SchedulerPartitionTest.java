@@ -0,0 +1,214 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.AliasType;
+import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.*;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tests for allocation of {@link ReservationRequest}s for disjoint resources in parallel by {@link Scheduler}.
+ */
+public class SchedulerPartitionTest extends AbstractControllerTest
+{
+    @Override
+    public void configureSystemProperties()
+    {
+        super.configureSystemProperties();
+
+        System.setProperty(ControllerConfiguration.SCHEDULER_PARALLEL_THREADS, "4");
+    }
+
+    @Override
+    public void before() throws Exception
+    {
+        super.before();
+
+        // Use row-level locking (as PostgreSQL does) instead of table-level locking to allow parallel allocation
+        setTransactionControl("MVCC");
+    }
+
+    @Override
+    public void after() throws Exception
+    {
+        setTransactionControl("LOCKS");
+
+        super.after();
+
+        System.clearProperty(ControllerConfiguration.SCHEDULER_PARALLEL_THREADS);
+    }
+
+    @Test
+    public void test() throws Exception
+    {
+        List<String> resourceIds = new LinkedList<String>();
+        for (int index = 1; index <= 4; index++) {
+            Resource resource = new Resource();
+            resource.setName("resource" + index);
+            resource.setAllocatable(true);
+            resourceIds.add(createResource(resource));
+        }
+        Resource childResource = new Resource();
+        childResource.setName("childResource");
+        childResource.setAllocatable(true);
+        childResource.setParentResourceId(resourceIds.get(0));
+        String childResourceId = createResource(childResource);
+
+        // Requests for the same resource (or the same resource hierarchy) are allocated in request order
+        List<String> allocatedRequestIds = new LinkedList<String>();
+        List<String> failedRequestIds = new LinkedList<String>();
+        for (String resourceId : resourceIds) {
+            allocatedRequestIds.add(createResourceReservationRequest(resourceId, "2012-06-22T14:00", "PT2H"));
+            allocatedRequestIds.add(createResourceReservationRequest(resourceId, "2012-06-22T16:00", "PT2H"));
+            failedRequestIds.add(createResourceReservationRequest(resourceId, "2012-06-22T15:00", "PT2H"));
+        }
+        failedRequestIds.add(createResourceReservationRequest(childResourceId, "2012-06-22T14:30", "PT1H"));
+        allocatedRequestIds.add(createResourceReservationRequest(childResourceId, "2012-06-22T20:00", "PT1H"));
+
+        runScheduler();
+
+        for (String reservationRequestId : allocatedRequestIds) {
+            checkAllocated(reservationRequestId);
+        }
+        for (String reservationRequestId : failedRequestIds) {
+            checkAllocationFailed(reservationRequestId);
+        }
+    }
+
+    /**
+     * Test that room requests for disjoint room providers (with aliases from providers restricted to them)
+     * are allocated in parallel and that requests with overlapping candidate resources are allocated in order.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRooms() throws Exception
+    {
+        for (Technology technology : new Technology[]{Technology.H323, Technology.SIP}) {
+            DeviceResource mcu = new DeviceResource();
+            mcu.setName("mcu" + technology);
+            mcu.addTechnology(technology);
+            mcu.addCapability(new RoomProviderCapability(10));
+            mcu.addCapability(new AliasProviderCapability("{digit:1}", AliasType.ROOM_NAME).withRestrictedToResource());
+            mcu.setAllocatable(true);
+            createResource(mcu);
+        }
+        Resource aliasProvider = new Resource();
+        aliasProvider.setName("aliasProvider");
+        aliasProvider.addCapability(new AliasProviderCapability("{digit:1}", AliasType.H323_E164));
+        aliasProvider.setAllocatable(true);
+        createResource(aliasProvider);
+
+        // Each room provider has capacity for two rooms
+        List<String> allocatedRequestIds = new LinkedList<String>();
+        List<String> failedRequestIds = new LinkedList<String>();
+        for (Technology technology : new Technology[]{Technology.H323, Technology.SIP}) {
+            allocatedRequestIds.add(createRoomReservationRequest(technology, "2012-06-22T14:00", "PT2H"));
+            allocatedRequestIds.add(createRoomReservationRequest(technology, "2012-06-22T14:00", "PT2H"));
+            failedRequestIds.add(createRoomReservationRequest(technology, "2012-06-22T15:00", "PT2H"));
+        }
+        // Aliases from the same provider are allocated in request order
+        allocatedRequestIds.add(createAliasReservationRequest("1", "2012-06-22T14:00", "PT2H"));
+        failedRequestIds.add(createAliasReservationRequest("1", "2012-06-22T15:00", "PT2H"));
+
+        runScheduler();
+
+        for (String reservationRequestId : allocatedRequestIds) {
+            checkAllocated(reservationRequestId);
+        }
+        for (String reservationRequestId : failedRequestIds) {
+            checkAllocationFailed(reservationRequestId);
+        }
+    }
+
+    /**
+     * @param transactionControl to be set to the in-memory database
+     */
+    private void setTransactionControl(final String transactionControl)
+    {
+        EntityManager entityManager = createEntityManager();
+        try {
+            entityManager.unwrap(Session.class).doWork(new Work()
+            {
+                @Override
+                public void execute(Connection connection) throws SQLException
+                {
+                    connection.setAutoCommit(true);
+                    Statement statement = connection.createStatement();
+                    try {
+                        statement.execute("SET DATABASE TRANSACTION CONTROL " + transactionControl);
+                    }
+                    finally {
+                        statement.close();
+                    }
+                }
+            });
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * @param resourceId for which the {@link ReservationRequest} should be created
+     * @param start      of the slot
+     * @param duration   of the slot
+     * @return identifier of created {@link ReservationRequest}
+     */
+    private String createResourceReservationRequest(String resourceId, String start, String duration)
+            throws Exception
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(start, duration);
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new ResourceSpecification(resourceId));
+        return getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+    }
+
+    /**
+     * @param technology of the room with {@link AliasType#ROOM_NAME} alias
+     * @param start      of the slot
+     * @param duration   of the slot
+     * @return identifier of created {@link ReservationRequest}
+     */
+    private String createRoomReservationRequest(Technology technology, String start, String duration)
+            throws Exception
+    {
+        RoomSpecification roomSpecification = new RoomSpecification(5, technology);
+        roomSpecification.getEstablishment().addAliasSpecification(new AliasSpecification(AliasType.ROOM_NAME));
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(start, duration);
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(roomSpecification);
+        return getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+    }
+
+    /**
+     * @param value    of the {@link AliasType#H323_E164} alias
+     * @param start    of the slot
+     * @param duration of the slot
+     * @return identifier of created {@link ReservationRequest}
+     */
+    private String createAliasReservationRequest(String value, String start, String duration) throws Exception
+    {
+        AliasSpecification aliasSpecification = new AliasSpecification(AliasType.H323_E164);
+        aliasSpecification.setValue(value);
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(start, duration);
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(aliasSpecification);
+        return getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+    }
+}
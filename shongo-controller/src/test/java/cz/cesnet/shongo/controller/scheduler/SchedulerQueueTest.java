@@ -0,0 +1,66 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.ReservationRequest;
+import cz.cesnet.shongo.controller.api.ReservationRequestSet;
+import cz.cesnet.shongo.controller.api.Resource;
+import cz.cesnet.shongo.controller.api.ResourceSpecification;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for processing only modified reservation requests from {@link SchedulerQueue}
+ * by {@link Preprocessor} and {@link Scheduler}.
+ */
+public class SchedulerQueueTest extends AbstractControllerTest
+{
+    @Test
+    public void test() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(resource);
+
+        // The first run (and run after resource modification) processes all reservation requests
+        Assert.assertNull(getSchedulerQueue().poll());
+
+        // Reservation request which is not in the queue is not allocated
+        ReservationRequest reservationRequest1 = new ReservationRequest();
+        reservationRequest1.setSlot("2012-06-22T14:00", "PT2H");
+        reservationRequest1.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest1.setSpecification(new ResourceSpecification(resourceId));
+        String request1Id = getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest1);
+        Assert.assertFalse(getSchedulerQueue().isEmpty());
+        Assert.assertEquals(1, getSchedulerQueue().poll().size());
+
+        ReservationRequest reservationRequest2 = new ReservationRequest();
+        reservationRequest2.setSlot("2012-06-22T16:00", "PT2H");
+        reservationRequest2.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest2.setSpecification(new ResourceSpecification(resourceId));
+        String request2Id = getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest2);
+
+        runPreprocessorAndSchedulerForModified();
+        Assert.assertTrue(getSchedulerQueue().isEmpty());
+        checkNotAllocated(request1Id);
+        checkAllocated(request2Id);
+
+        // Child reservation requests of modified reservation request set are allocated
+        ReservationRequestSet reservationRequestSet = new ReservationRequestSet();
+        reservationRequestSet.addSlot("2012-06-23T14:00", "PT2H");
+        reservationRequestSet.addSlot("2012-06-24T14:00", "PT2H");
+        reservationRequestSet.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequestSet.setSpecification(new ResourceSpecification(resourceId));
+        String requestSetId = getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequestSet);
+
+        runPreprocessorAndSchedulerForModified();
+        checkNotAllocated(request1Id);
+        checkAllocated(requestSetId);
+
+        // Modified reservation request is allocated
+        getReservationService().updateReservationRequest(SECURITY_TOKEN, request1Id);
+        runPreprocessorAndSchedulerForModified();
+        checkAllocated(request1Id);
+    }
+}